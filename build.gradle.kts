@@ -2,6 +2,7 @@ plugins {
     java
     application
     id("org.openjfx.javafxplugin") version "0.0.13"
+    id("me.champeau.jmh") version "0.7.2"
 }
 
 group = "org.nexus.ftc"
@@ -32,6 +33,19 @@ javafx {
     modules("javafx.controls", "javafx.fxml") // Added javafx.fxml here
 }
 
+// Benchmarks live in src/jmh/java. Run them with ./gradlew jmh, or ./gradlew jmh -Pbench=Seek for a subset.
+// RenderBenchmark needs a display (use xvfb-run on a headless box).
+jmh {
+    jmhVersion.set("1.37")
+    warmupIterations.set(3)
+    iterations.set(5)
+    fork.set(1)
+    // Software rendering, so render results compare across machines and GPUs
+    jvmArgsAppend.add("-Dprism.order=sw")
+    resultFormat.set("JSON")
+    (project.findProperty("bench") as String?)?.let { includes.set(listOf(it)) }
+}
+
 // Optional: Configure jar task to create a fat jar with all dependencies
 tasks.jar {
     manifest {
@@ -0,0 +1,72 @@
+package org.nexus.ftc.replay;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Synthetic replays shared by the benchmarks. Files are generated once into the
+ * temp directory and reused, so every run on every machine parses the same bytes.
+ */
+final class BenchmarkReplays {
+
+    static final double HZ = 50;
+    static final int KEYS = 20;
+
+    private static final File DIR = new File(System.getProperty("java.io.tmpdir"), "ftc-replay-bench");
+
+    private BenchmarkReplays() {
+    }
+
+    /** A {@code .replay} of the given length at {@link #HZ} with {@link #KEYS} custom keys. */
+    static synchronized File json(int seconds) {
+        File file = new File(DIR, String.format("synthetic-%dhz-%ds-%dk.replay", (int) HZ, seconds, KEYS));
+        if (!file.isFile()) {
+            try {
+                DIR.mkdirs();
+                File partial = new File(DIR, file.getName() + ".tmp");
+                new SyntheticReplay(HZ, seconds, KEYS, seconds).write(partial);
+                if (!partial.renameTo(file)) throw new IOException("Could not create " + file);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return file;
+    }
+
+    /** The same replay converted to {@code .replayb}. */
+    static synchronized File binary(int seconds) {
+        File json = json(seconds);
+        File file = BinaryReplayWriter.binaryFileFor(json);
+        if (!file.isFile()) {
+            try {
+                BinaryReplayWriter.convert(json, file);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return file;
+    }
+
+    /** The same replay packed alone into a {@code .replaya} archive. */
+    static synchronized File archive(int seconds) {
+        File json = json(seconds);
+        File file = new File(DIR, json.getName() + ReplayArchiveWriter.EXTENSION);
+        if (!file.isFile()) {
+            try (ReplayArchiveWriter writer = new ReplayArchiveWriter(file)) {
+                writer.add(json.getName(), Replay.open(json));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return file;
+    }
+
+    static Replay open(int seconds, boolean mapped) {
+        try {
+            return mapped ? MappedReplay.open(binary(seconds)) : Replay.open(json(seconds));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
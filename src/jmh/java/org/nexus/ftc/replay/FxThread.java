@@ -0,0 +1,37 @@
+package org.nexus.ftc.replay;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import javafx.application.Platform;
+
+/** Starts the JavaFX toolkit once per benchmark JVM and runs work on its thread. */
+final class FxThread {
+
+    private static boolean started;
+
+    private FxThread() {
+    }
+
+    static synchronized void start() throws InterruptedException {
+        if (started) return;
+        CountDownLatch ready = new CountDownLatch(1);
+        try {
+            Platform.startup(ready::countDown);
+        } catch (IllegalStateException alreadyRunning) {
+            ready.countDown();
+        }
+        Platform.setImplicitExit(false);
+        ready.await();
+        started = true;
+    }
+
+    /** Runs {@code work} on the FX thread and waits for its result. */
+    static <T> T call(Callable<T> work) throws InterruptedException, ExecutionException {
+        FutureTask<T> task = new FutureTask<>(work);
+        Platform.runLater(task);
+        return task.get();
+    }
+}
@@ -0,0 +1,69 @@
+package org.nexus.ftc.replay;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * The per-tick pose path: one {@link ReplayTrack#sample} per display frame as
+ * playback advances, {@link Trajectory#poseAt} at random times (a scrub), and
+ * building the trajectory for a whole match.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class InterpolationBenchmark {
+
+    private static final int TIMES = 4096;
+    private static final double DISPLAY_FRAME_MS = 1000.0 / 60;
+
+    private Replay replay;
+    private ReplayTrack track;
+    private Trajectory trajectory;
+    private double playbackMs;
+
+    private final double[] times = new double[TIMES];
+    private final double[] pose = new double[3];
+    private int next;
+
+    @Setup
+    public void setUp() {
+        replay = BenchmarkReplays.open(150, false);
+        track = new ReplayTrack(replay, ReplayTrack.PALETTE[0]);
+        trajectory = Trajectory.build(replay);
+        playbackMs = replay.startTimeMs();
+
+        Random random = new Random(42);
+        for (int i = 0; i < TIMES; i++) {
+            times[i] = replay.startTimeMs() + random.nextDouble() * (replay.endTimeMs() - replay.startTimeMs());
+        }
+    }
+
+    @Benchmark
+    public double sampleTick() {
+        playbackMs += DISPLAY_FRAME_MS;
+        if (playbackMs > track.replay.endTimeMs()) playbackMs = track.replay.startTimeMs();
+        track.sample(playbackMs);
+        return track.x + track.y + track.heading;
+    }
+
+    @Benchmark
+    public double poseAtRandomTime() {
+        trajectory.poseAt(times[next++ & (TIMES - 1)], pose);
+        return pose[0] + pose[1] + pose[2];
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Trajectory buildTrajectory() {
+        return Trajectory.build(replay);
+    }
+}
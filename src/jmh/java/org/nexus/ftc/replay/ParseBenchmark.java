@@ -0,0 +1,85 @@
+package org.nexus.ftc.replay;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Loading a replay from disk: streaming JSON into columns (what the viewer does),
+ * streaming it into a summary (what the analyzer does), opening the binary
+ * form, and decoding it from a season archive. The {@code bytes} counter turns
+ * the score into MB/s of JSON.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ParseBenchmark {
+
+    /** A short autonomous, a full match, and a half-hour practice log. */
+    @Param({"30", "150", "1800"})
+    public int seconds;
+
+    private File json;
+    private File binary;
+    private File archive;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Bytes {
+        public long bytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            bytes = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        json = BenchmarkReplays.json(seconds);
+        binary = BenchmarkReplays.binary(seconds);
+        archive = BenchmarkReplays.archive(seconds);
+    }
+
+    @Benchmark
+    public int parseToColumns(Bytes counter) throws IOException {
+        ReplayData replay = new ReplayData();
+        int frames = new ReplayLoader(json, replay, ReplayLoader.Listener.NONE).load();
+        counter.bytes += json.length();
+        return frames;
+    }
+
+    @Benchmark
+    public MatchMetrics parseToMetrics(Bytes counter) throws IOException {
+        MatchMetrics metrics = new MatchMetrics(json.getPath());
+        new ReplayLoader(json, metrics, ReplayLoader.Listener.NONE).load();
+        counter.bytes += json.length();
+        return metrics;
+    }
+
+    @Benchmark
+    public long openBinary() throws IOException {
+        Replay replay = MappedReplay.open(binary);
+        return replay.endTimeMs();
+    }
+
+    @Benchmark
+    public int decodeArchive(Bytes counter) throws IOException {
+        try (ReplayArchive replays = ReplayArchive.open(archive)) {
+            ReplayData replay = replays.read(replays.entries().get(0));
+            counter.bytes += json.length();
+            return replay.frameCount();
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package org.nexus.ftc.replay;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import javafx.scene.Group;
+import javafx.scene.Scene;
+import javafx.scene.image.Image;
+import javafx.scene.image.WritableImage;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Drawing the field and robot off screen, one playback tick per call. Each call
+ * hops onto the FX thread, so {@link #fxRoundTrip} measures that hop alone for
+ * subtracting. {@link #drawTickAndRasterize} snapshots the view, which forces
+ * the recorded canvas commands to be turned into pixels.
+ *
+ * <p>Needs a display; on a headless machine run it under {@code xvfb-run}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RenderBenchmark {
+
+    private static final double DISPLAY_FRAME_MS = 1000.0 / 60;
+
+    @Param({"false", "true"})
+    public boolean trail;
+
+    private FieldView view;
+    private ReplayTrack track;
+    private List<ReplayTrack> tracks;
+    private WritableImage snapshot;
+    private double playbackMs;
+
+    @Setup
+    public void setUp() throws InterruptedException, ExecutionException {
+        FxThread.start();
+        Replay replay = BenchmarkReplays.open(150, false);
+        track = new ReplayTrack(replay, ReplayTrack.PALETTE[0]);
+        tracks = Collections.singletonList(track);
+        playbackMs = replay.startTimeMs();
+
+        FxThread.call(() -> {
+            Image background = new Image(FieldView.class.getResource("/field_background.png").toExternalForm());
+            view = new FieldView(800, 800, background);
+            view.setTrailOptions(trail, false, PathTrail.METRIC_SPEED);
+            new Scene(new Group(view));
+            snapshot = new WritableImage(800, 800);
+            return null;
+        });
+    }
+
+    @Benchmark
+    public Object fxRoundTrip() throws InterruptedException, ExecutionException {
+        return FxThread.call(() -> view);
+    }
+
+    @Benchmark
+    public int drawTick() throws InterruptedException, ExecutionException {
+        return FxThread.call(() -> {
+            advance();
+            view.drawRobots(tracks);
+            return track.frame;
+        });
+    }
+
+    @Benchmark
+    public WritableImage drawTickAndRasterize() throws InterruptedException, ExecutionException {
+        return FxThread.call(() -> {
+            advance();
+            view.drawRobots(tracks);
+            return view.snapshot(null, snapshot);
+        });
+    }
+
+    private void advance() {
+        playbackMs += DISPLAY_FRAME_MS;
+        if (playbackMs > track.replay.endTimeMs()) playbackMs = track.replay.startTimeMs();
+        track.sample(playbackMs);
+    }
+}
@@ -0,0 +1,76 @@
+package org.nexus.ftc.replay;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Finding the frame for a moment in match time: scrubbing to random times,
+ * stepping forward one display frame at a time as playback does, and the linear
+ * scan the viewer used before {@link TimeIndex} as a baseline.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SeekBenchmark {
+
+    private static final int TIMES = 4096;
+    private static final double DISPLAY_FRAME_MS = 1000.0 / 60;
+
+    @Param({"150", "1800"})
+    public int seconds;
+
+    /** Frames on the heap, or memory-mapped from {@code .replayb}. */
+    @Param({"heap", "mapped"})
+    public String storage;
+
+    private Replay replay;
+    private TimeIndex index;
+    private final double[] randomTimes = new double[TIMES];
+    private int next;
+    private double playbackMs;
+
+    @Setup
+    public void setUp() {
+        replay = BenchmarkReplays.open(seconds, storage.equals("mapped"));
+        index = new TimeIndex(replay);
+        Random random = new Random(42);
+        long start = replay.startTimeMs();
+        long span = replay.endTimeMs() - start;
+        for (int i = 0; i < TIMES; i++) {
+            randomTimes[i] = start + random.nextDouble() * span;
+        }
+        playbackMs = start;
+    }
+
+    @Benchmark
+    public int randomSeek() {
+        return index.frameAt(randomTimes[next++ & (TIMES - 1)]);
+    }
+
+    @Benchmark
+    public int playbackTick() {
+        playbackMs += DISPLAY_FRAME_MS;
+        if (playbackMs > replay.endTimeMs()) playbackMs = replay.startTimeMs();
+        return index.frameAt(playbackMs);
+    }
+
+    @Benchmark
+    public int linearScanBaseline() {
+        double timeMs = randomTimes[next++ & (TIMES - 1)];
+        int count = replay.frameCount();
+        int frame = 0;
+        while (frame < count - 1 && replay.timeMs(frame + 1) <= timeMs) {
+            frame++;
+        }
+        return frame;
+    }
+}
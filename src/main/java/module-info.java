@@ -3,6 +3,8 @@ module org.nexus.ftc.replay {
     requires javafx.fxml;
     requires com.google.gson;
     requires javafx.graphics;
+    requires jdk.jfr;
+    requires java.desktop;
 
     exports org.nexus.ftc.replay;
 }
\ No newline at end of file
@@ -0,0 +1,181 @@
+package org.nexus.ftc.replay;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Writes the compact binary {@code .replayb} format read by {@link MappedReplay}.
+ * All numbers are big-endian. Layout (version 1):
+ *
+ * <pre>
+ * header   magic "FTCRPLYB", int version, int frameCount, int keyCount, long date,
+ *          int teamString, int matchString, long poseOffset, long customOffset,
+ *          long footerOffset                                        (64 bytes)
+ * poses    frameCount x {long timeMs, double x, double y, double heading}
+ * custom   per frame: u16 entryCount, then per entry u16 keyId and a value sized
+ *          by the key's kind (double, byte 0/1, or int string id)
+ * footer   int stringCount, strings as {int byteLength, UTF-8 bytes};
+ *          keyCount x {int nameString, byte kind};
+ *          frameCount x int offset of the frame's custom record from customOffset;
+ *          magic "FTCRPLYB"
+ * </pre>
+ *
+ * Poses are fixed width so any frame's pose is one multiply away; the footer index
+ * gives the same for custom data without reading the frames before it.
+ */
+final class BinaryReplayWriter {
+
+    static final byte[] MAGIC = "FTCRPLYB".getBytes(StandardCharsets.US_ASCII);
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 64;
+    static final int POSE_SIZE = 32;
+    static final String EXTENSION = ".replayb";
+
+    private BinaryReplayWriter() {
+    }
+
+    static void write(Replay replay, File out) throws IOException {
+        int frameCount = replay.frameCount();
+        int keyCount = replay.keyCount();
+        if (keyCount > 0xFFFF) {
+            throw new IOException("Too many custom data keys for " + EXTENSION + ": " + keyCount);
+        }
+
+        // Header strings, key names and text values share one string table
+        Map<String, Integer> strings = new LinkedHashMap<>();
+        int teamString = stringId(strings, replay.team());
+        int matchString = stringId(strings, replay.match());
+        int[] keyNames = new int[keyCount];
+        CustomColumn[] columns = new CustomColumn[keyCount];
+        for (int k = 0; k < keyCount; k++) {
+            columns[k] = replay.column(k);
+            keyNames[k] = stringId(strings, columns[k].key);
+        }
+
+        int[] customOffsets = new int[frameCount];
+        long poseOffset = HEADER_SIZE;
+        long customOffset = poseOffset + (long) POSE_SIZE * frameCount;
+        long footerOffset;
+
+        try (DataOutputStream data = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(out), 1 << 16))) {
+            data.write(new byte[HEADER_SIZE]);
+
+            for (int i = 0; i < frameCount; i++) {
+                data.writeLong(replay.timeMs(i));
+                data.writeDouble(replay.x(i));
+                data.writeDouble(replay.y(i));
+                data.writeDouble(replay.heading(i));
+            }
+
+            long customBytes = 0;
+            for (int i = 0; i < frameCount; i++) {
+                if (customBytes > Integer.MAX_VALUE) {
+                    throw new IOException("Replay too large for " + EXTENSION);
+                }
+                customOffsets[i] = (int) customBytes;
+
+                int entries = 0;
+                for (CustomColumn column : columns) {
+                    if (column.has(i)) entries++;
+                }
+                data.writeShort(entries);
+                customBytes += 2;
+
+                for (int k = 0; k < keyCount; k++) {
+                    CustomColumn column = columns[k];
+                    if (!column.has(i)) continue;
+                    data.writeShort(k);
+                    switch (column.kind()) {
+                        case NUMERIC:
+                            data.writeDouble(column.number(i));
+                            customBytes += 10;
+                            break;
+                        case BOOLEAN:
+                            data.writeByte((int) column.number(i));
+                            customBytes += 3;
+                            break;
+                        default:
+                            data.writeInt(stringId(strings, column.text(i)));
+                            customBytes += 6;
+                            break;
+                    }
+                }
+            }
+            footerOffset = customOffset + customBytes;
+
+            data.writeInt(strings.size());
+            for (String value : strings.keySet()) {
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                data.writeInt(bytes.length);
+                data.write(bytes);
+            }
+            for (int k = 0; k < keyCount; k++) {
+                data.writeInt(keyNames[k]);
+                data.writeByte(columns[k].kind().ordinal());
+            }
+            for (int offset : customOffsets) {
+                data.writeInt(offset);
+            }
+            data.write(MAGIC);
+        }
+
+        // Offsets are only known now, so fill in the header last
+        try (RandomAccessFile file = new RandomAccessFile(out, "rw")) {
+            file.write(MAGIC);
+            file.writeInt(VERSION);
+            file.writeInt(frameCount);
+            file.writeInt(keyCount);
+            file.writeLong(replay.date());
+            file.writeInt(teamString);
+            file.writeInt(matchString);
+            file.writeLong(poseOffset);
+            file.writeLong(customOffset);
+            file.writeLong(footerOffset);
+        }
+    }
+
+    /** Loads a JSON replay and writes it to {@code out} in the binary format. */
+    static File convert(File json, File out) throws IOException {
+        write(Replay.open(json), out);
+        return out;
+    }
+
+    static File binaryFileFor(File json) {
+        String name = json.getName();
+        int dot = name.lastIndexOf('.');
+        return new File(json.getParentFile(), (dot > 0 ? name.substring(0, dot) : name) + EXTENSION);
+    }
+
+    private static int stringId(Map<String, Integer> strings, String value) {
+        if (value == null) return -1;
+        Integer id = strings.get(value);
+        if (id == null) {
+            id = strings.size();
+            strings.put(value, id);
+        }
+        return id;
+    }
+
+    /** Converts JSON replays: {@code BinaryReplayWriter input.replay [output.replayb]}. */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1 || args.length > 2) {
+            System.err.println("Usage: BinaryReplayWriter <input.replay> [output" + EXTENSION + "]");
+            System.exit(2);
+        }
+        File in = new File(args[0]);
+        File out = args.length == 2 ? new File(args[1]) : binaryFileFor(in);
+
+        long start = System.nanoTime();
+        convert(in, out);
+        System.out.printf("Wrote %s (%d KB -> %d KB) in %d ms%n", out, in.length() / 1024, out.length() / 1024,
+                (System.nanoTime() - start) / 1_000_000);
+    }
+}
@@ -0,0 +1,309 @@
+package org.nexus.ftc.replay;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * One custom-data key stored as a primitive column indexed by frame. The column
+ * type is inferred from the first value seen for the key; a value that does not
+ * fit turns the column into a {@link Text} column.
+ *
+ * <p>Columns are written by a single loader thread and read by others. Readers
+ * must stay below the frame count published by {@link ReplayData}. The heap
+ * column types can also drop their oldest frames for live mode; they do so by
+ * swapping in new arrays, so a reader never sees an array being shifted.
+ */
+abstract class CustomColumn {
+
+    enum Kind { NUMERIC, BOOLEAN, TEXT }
+
+    static final int INITIAL_CAPACITY = 1024;
+
+    final String key;
+
+    CustomColumn(String key) {
+        this.key = key;
+    }
+
+    abstract Kind kind();
+
+    /** Whether the frame recorded a value for this key. */
+    abstract boolean has(int frame);
+
+    /** The value as a number; booleans map to 0/1. NaN when missing or not numeric. */
+    abstract double number(int frame);
+
+    /** The value as display text, or null when the frame has no value for this key. */
+    abstract String text(int frame);
+
+    abstract void trimToSize(int frameCount);
+
+    abstract long memoryBytes();
+
+    static int grow(int capacity, int frame) {
+        int newCapacity = Math.max(capacity, INITIAL_CAPACITY);
+        while (newCapacity <= frame) {
+            newCapacity <<= 1;
+        }
+        return newCapacity;
+    }
+
+    static String formatNumber(double value) {
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
+
+    /** Doubles, with NaN marking frames that have no value. */
+    static final class Numeric extends CustomColumn {
+        private double[] values = new double[0];
+
+        Numeric(String key) {
+            super(key);
+        }
+
+        @Override
+        Kind kind() {
+            return Kind.NUMERIC;
+        }
+
+        void put(int frame, double value) {
+            if (frame >= values.length) {
+                int oldLength = values.length;
+                double[] grown = Arrays.copyOf(values, grow(oldLength, frame));
+                Arrays.fill(grown, oldLength, grown.length, Double.NaN);
+                values = grown;
+            }
+            values[frame] = value;
+        }
+
+        @Override
+        boolean has(int frame) {
+            return frame < values.length && !Double.isNaN(values[frame]);
+        }
+
+        @Override
+        double number(int frame) {
+            double[] v = values;
+            return frame < v.length ? v[frame] : Double.NaN;
+        }
+
+        @Override
+        String text(int frame) {
+            return has(frame) ? formatNumber(values[frame]) : null;
+        }
+
+        @Override
+        void trimToSize(int frameCount) {
+            if (values.length > frameCount) values = Arrays.copyOf(values, frameCount);
+        }
+
+        /** Removes the first {@code count} of {@code frameCount} frames, shifting the rest down. */
+        void discardOldest(int count, int frameCount) {
+            double[] old = values;
+            int kept = Math.max(0, Math.min(old.length, frameCount) - count);
+            double[] shifted = new double[old.length];
+            if (kept > 0) System.arraycopy(old, count, shifted, 0, kept);
+            Arrays.fill(shifted, kept, shifted.length, Double.NaN);
+            values = shifted;
+        }
+
+        @Override
+        long memoryBytes() {
+            return 8L * values.length;
+        }
+    }
+
+    /** One byte per frame: 0 = missing, 1 = false, 2 = true. */
+    static final class Bool extends CustomColumn {
+        private byte[] values = new byte[0];
+
+        Bool(String key) {
+            super(key);
+        }
+
+        @Override
+        Kind kind() {
+            return Kind.BOOLEAN;
+        }
+
+        void put(int frame, boolean value) {
+            if (frame >= values.length) {
+                values = Arrays.copyOf(values, grow(values.length, frame));
+            }
+            values[frame] = (byte) (value ? 2 : 1);
+        }
+
+        @Override
+        boolean has(int frame) {
+            byte[] v = values;
+            return frame < v.length && v[frame] != 0;
+        }
+
+        @Override
+        double number(int frame) {
+            byte[] v = values;
+            return frame < v.length && v[frame] != 0 ? v[frame] - 1 : Double.NaN;
+        }
+
+        @Override
+        String text(int frame) {
+            byte[] v = values;
+            if (frame >= v.length || v[frame] == 0) return null;
+            return v[frame] == 2 ? "true" : "false";
+        }
+
+        @Override
+        void trimToSize(int frameCount) {
+            if (values.length > frameCount) values = Arrays.copyOf(values, frameCount);
+        }
+
+        /** Removes the first {@code count} of {@code frameCount} frames, shifting the rest down. */
+        void discardOldest(int count, int frameCount) {
+            byte[] old = values;
+            int kept = Math.max(0, Math.min(old.length, frameCount) - count);
+            byte[] shifted = new byte[old.length];
+            if (kept > 0) System.arraycopy(old, count, shifted, 0, kept);
+            values = shifted;
+        }
+
+        @Override
+        long memoryBytes() {
+            return values.length;
+        }
+    }
+
+    /**
+     * Dictionary-encoded strings. Enum-like values such as intake states cost four
+     * bytes per frame plus one copy of each distinct string.
+     */
+    static final class Text extends CustomColumn {
+        // Code 0 means missing; code n refers to dictionary[n - 1]
+        private int[] codes = new int[0];
+        private String[] dictionary = new String[8];
+        private int dictionarySize;
+        // Read by queries while the loader or a live session is still adding values; replaced, not cleared
+        private volatile Map<String, Integer> codeOf = new ConcurrentHashMap<>();
+
+        Text(String key) {
+            super(key);
+        }
+
+        /** Converts a column of another kind, e.g. when a numeric key later logs a string. */
+        static Text copyOf(CustomColumn column, int frameCount) {
+            Text text = new Text(column.key);
+            for (int i = 0; i < frameCount; i++) {
+                String value = column.text(i);
+                if (value != null) text.put(i, value);
+            }
+            return text;
+        }
+
+        @Override
+        Kind kind() {
+            return Kind.TEXT;
+        }
+
+        void put(int frame, String value) {
+            if (frame >= codes.length) {
+                codes = Arrays.copyOf(codes, grow(codes.length, frame));
+            }
+            Integer code = codeOf.get(value);
+            if (code == null) {
+                if (dictionarySize == dictionary.length) {
+                    dictionary = Arrays.copyOf(dictionary, dictionarySize * 2);
+                }
+                dictionary[dictionarySize++] = value;
+                code = dictionarySize;
+                codeOf.put(value, code);
+            }
+            codes[frame] = code;
+        }
+
+        @Override
+        boolean has(int frame) {
+            int[] c = codes;
+            return frame < c.length && c[frame] != 0;
+        }
+
+        @Override
+        double number(int frame) {
+            return Double.NaN;
+        }
+
+        @Override
+        String text(int frame) {
+            int[] c = codes;
+            if (frame >= c.length || c[frame] == 0) return null;
+            return dictionary[c[frame] - 1];
+        }
+
+        /** Dictionary code for the frame (0 when missing), for cheap equality tests. */
+        int code(int frame) {
+            int[] c = codes;
+            return frame < c.length ? c[frame] : 0;
+        }
+
+        /**
+         * Dictionary code for a value, or 0 if the column has not seen it yet. Safe
+         * to call while the column is being written; a value first logged after the
+         * call is not in the answer.
+         */
+        int codeOf(String value) {
+            Integer code = codeOf.get(value);
+            return code != null ? code : 0;
+        }
+
+        int distinctValues() {
+            return dictionarySize;
+        }
+
+        @Override
+        void trimToSize(int frameCount) {
+            if (codes.length > frameCount) codes = Arrays.copyOf(codes, frameCount);
+        }
+
+        /**
+         * Removes the first {@code count} of {@code frameCount} frames, shifting the
+         * rest down. Also drops dictionary entries no remaining frame uses, so unique
+         * strings cannot pile up. The new dictionary is no shorter than the old, so a
+         * reader pairing old codes with it (or new codes with the old one) stays in
+         * bounds, at worst seeing a wrong or missing value for that one read.
+         */
+        void discardOldest(int count, int frameCount) {
+            int[] old = codes;
+            String[] oldDictionary = dictionary;
+            int kept = Math.max(0, Math.min(old.length, frameCount) - count);
+            int[] shifted = new int[old.length];
+            int[] remap = new int[dictionarySize + 1];
+            String[] compacted = new String[Math.max(8, oldDictionary.length)];
+            int size = 0;
+            Map<String, Integer> compactedCodes = new ConcurrentHashMap<>();
+            for (int i = 0; i < kept; i++) {
+                int code = old[count + i];
+                if (code == 0) continue;
+                if (remap[code] == 0) {
+                    compacted[size++] = oldDictionary[code - 1];
+                    remap[code] = size;
+                    compactedCodes.put(oldDictionary[code - 1], size);
+                }
+                shifted[i] = remap[code];
+            }
+            dictionary = compacted;
+            codes = shifted;
+            codeOf = compactedCodes;
+            dictionarySize = size;
+        }
+
+        @Override
+        long memoryBytes() {
+            long bytes = 4L * codes.length + 8L * dictionary.length;
+            for (int i = 0; i < dictionarySize; i++) {
+                bytes += 40 + 2L * dictionary[i].length();
+            }
+            return bytes;
+        }
+    }
+}
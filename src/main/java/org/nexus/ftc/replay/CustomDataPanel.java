@@ -0,0 +1,138 @@
+package org.nexus.ftc.replay;
+
+import javafx.beans.property.SimpleStringProperty;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.scene.control.Label;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.VBox;
+
+/**
+ * Frame data shown as a virtualized table with one row per key. Rows are created
+ * once per replay (plus any keys that appear while it is still loading) and each
+ * refresh only formats and sets the values that changed since the last one.
+ * During playback refreshes are throttled independently of the field canvas.
+ */
+class CustomDataPanel extends VBox {
+
+    static final long REFRESH_INTERVAL_NS = 100_000_000L;
+
+    // Pose rows come first, followed by one row per custom key id
+    private static final int POSE_ROWS = 3;
+
+    private final TableView<DataRow> table = new TableView<>();
+    private final ObservableList<DataRow> rows = FXCollections.observableArrayList();
+    private final DataRow xRow = new DataRow("X");
+    private final DataRow yRow = new DataRow("Y");
+    private final DataRow headingRow = new DataRow("Heading");
+
+    private Replay replay;
+    private int shownFrame = -1;
+    private long lastRefreshNs;
+
+    CustomDataPanel() {
+        super(5);
+        getStylesheets().add(getClass().getResource("/dark-table.css").toExternalForm());
+
+        Label title = new Label("Frame Data");
+        title.setStyle("-fx-font-weight: bold; -fx-text-fill: #eee;");
+
+        TableColumn<DataRow, String> keyColumn = new TableColumn<>("Key");
+        keyColumn.setCellValueFactory(cell -> cell.getValue().key);
+        keyColumn.setSortable(false);
+        TableColumn<DataRow, String> valueColumn = new TableColumn<>("Value");
+        valueColumn.setCellValueFactory(cell -> cell.getValue().value);
+        valueColumn.setSortable(false);
+
+        table.getColumns().add(keyColumn);
+        table.getColumns().add(valueColumn);
+        table.setColumnResizePolicy(TableView.CONSTRAINED_RESIZE_POLICY);
+        table.setPlaceholder(new Label("No replay loaded"));
+        table.setItems(rows);
+        VBox.setVgrow(table, Priority.ALWAYS);
+
+        getChildren().addAll(title, table);
+    }
+
+    void setReplay(Replay replay) {
+        this.replay = replay;
+        shownFrame = -1;
+        xRow.reset();
+        yRow.reset();
+        headingRow.reset();
+        rows.setAll(xRow, yRow, headingRow);
+    }
+
+    /**
+     * Shows a frame's values. Unless {@code force} is set, calls closer together
+     * than {@link #REFRESH_INTERVAL_NS} are dropped.
+     */
+    void update(int frame, boolean force) {
+        if (replay == null || frame < 0) return;
+
+        long now = System.nanoTime();
+        if (!force && (frame == shownFrame || now - lastRefreshNs < REFRESH_INTERVAL_NS)) return;
+        lastRefreshNs = now;
+        shownFrame = frame;
+
+        // Keys can first appear partway through a replay that is still loading
+        int keyCount = replay.keyCount();
+        for (int key = rows.size() - POSE_ROWS; key < keyCount; key++) {
+            rows.add(new DataRow(replay.column(key).key));
+        }
+
+        xRow.setPose(replay.x(frame), "");
+        yRow.setPose(replay.y(frame), "");
+        headingRow.setPose(replay.heading(frame), "°");
+
+        for (int key = 0; key < keyCount; key++) {
+            rows.get(POSE_ROWS + key).setCustom(replay.column(key), frame);
+        }
+    }
+
+    /** One key's row. Remembers the raw value last shown so unchanged values cost a compare. */
+    private static final class DataRow {
+        final SimpleStringProperty key;
+        final SimpleStringProperty value = new SimpleStringProperty("");
+
+        private boolean shown;
+        private double lastNumber;
+        private String lastText;
+
+        DataRow(String key) {
+            this.key = new SimpleStringProperty(key);
+        }
+
+        void reset() {
+            shown = false;
+            value.set("");
+        }
+
+        void setPose(double number, String unit) {
+            if (shown && Double.compare(number, lastNumber) == 0) return;
+            shown = true;
+            lastNumber = number;
+            value.set(String.format("%.2f%s", number, unit));
+        }
+
+        void setCustom(CustomColumn column, int frame) {
+            if (column.kind() == CustomColumn.Kind.TEXT) {
+                // Dictionary strings are shared, so an identity check finds repeats
+                String text = column.text(frame);
+                if (shown && text == lastText) return;
+                shown = true;
+                lastText = text;
+                value.set(text != null ? text : "");
+            } else {
+                double number = column.number(frame);
+                if (shown && lastText == null && Double.compare(number, lastNumber) == 0) return;
+                shown = true;
+                lastText = null;
+                lastNumber = number;
+                value.set(Double.isNaN(number) ? "" : column.text(frame));
+            }
+        }
+    }
+}
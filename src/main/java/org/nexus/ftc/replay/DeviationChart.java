@@ -0,0 +1,136 @@
+package org.nexus.ftc.replay;
+
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.control.Label;
+import javafx.scene.input.MouseButton;
+import javafx.scene.layout.Pane;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.VBox;
+import javafx.scene.paint.Color;
+
+import java.util.function.DoubleConsumer;
+
+/**
+ * Position and heading error of a run against its reference along the run's
+ * timeline, from a {@link RunAlignment}. Each pixel column shows the range of
+ * the grid points under it, so the whole run fits whatever its length. The plot
+ * is cached on one canvas and only the playhead above it moves; click to seek.
+ */
+final class DeviationChart extends VBox {
+
+    private static final Color POSITION_COLOR = Color.web("#4FC3F7");
+    private static final Color HEADING_COLOR = Color.web("#FFB74D");
+
+    private final Label summaryLabel = new Label();
+    private final Pane plotPane = new Pane();
+    private final Canvas plotCanvas = new Canvas();
+    private final Canvas playheadCanvas = new Canvas();
+    private RunAlignment alignment;
+    private double playheadMs = Double.NaN;
+    private double playheadX = -1;
+
+    DeviationChart(DoubleConsumer onSeek) {
+        super(5);
+        summaryLabel.setStyle("-fx-text-fill: #eee;");
+
+        plotPane.getChildren().addAll(plotCanvas, playheadCanvas);
+        plotPane.setPrefHeight(140);
+        plotPane.setMinHeight(80);
+        plotCanvas.widthProperty().bind(plotPane.widthProperty());
+        plotCanvas.heightProperty().bind(plotPane.heightProperty());
+        playheadCanvas.widthProperty().bind(plotPane.widthProperty());
+        playheadCanvas.heightProperty().bind(plotPane.heightProperty());
+        plotCanvas.widthProperty().addListener(obs -> redraw());
+        plotCanvas.heightProperty().addListener(obs -> redraw());
+        VBox.setVgrow(plotPane, Priority.ALWAYS);
+
+        plotPane.setOnMouseClicked(e -> {
+            if (alignment == null || e.getButton() != MouseButton.PRIMARY) return;
+            double fraction = e.getX() / Math.max(1, plotCanvas.getWidth());
+            onSeek.accept(alignment.startMs + fraction * (alignment.runEndMs() - alignment.startMs));
+        });
+        getChildren().addAll(summaryLabel, plotPane);
+    }
+
+    void setComparison(RunAlignment alignment) {
+        this.alignment = alignment;
+        summaryLabel.setText(alignment == null ? "" : String.format(
+                "Against team %s, match %s: mean position error %.1f in, max %.1f in",
+                alignment.reference.team(), alignment.reference.match(),
+                alignment.meanPositionError(), alignment.maxPositionError()));
+        redraw();
+    }
+
+    void setPlayhead(double timeMs) {
+        playheadMs = timeMs;
+        drawPlayhead();
+    }
+
+    private void redraw() {
+        GraphicsContext gc = plotCanvas.getGraphicsContext2D();
+        double width = plotCanvas.getWidth();
+        double height = plotCanvas.getHeight();
+        gc.setFill(Color.web("#1A1A1A"));
+        gc.fillRect(0, 0, width, height);
+        playheadCanvas.getGraphicsContext2D().clearRect(0, 0, width, height);
+        playheadX = -1;
+        if (alignment == null || width < 1) return;
+
+        // Position error from zero up; heading error is signed around the middle
+        double maxPosition = Math.max(1, alignment.maxPositionError());
+        double maxHeading = 1;
+        for (int i = 0; i < alignment.size; i++) {
+            maxHeading = Math.max(maxHeading, Math.abs(alignment.headingError[i]));
+        }
+        gc.setStroke(Color.web("#333333"));
+        gc.setLineWidth(1);
+        gc.strokeLine(0, Math.floor(height / 2) + 0.5, width, Math.floor(height / 2) + 0.5);
+
+        int columns = (int) width;
+        double perColumn = alignment.size / (double) columns;
+        for (int px = 0; px < columns; px++) {
+            int from = (int) (px * perColumn);
+            int to = Math.min(alignment.size, Math.max(from + 1, (int) ((px + 1) * perColumn)));
+            if (from >= alignment.size) break;
+            float posHigh = 0;
+            float headLow = Float.POSITIVE_INFINITY;
+            float headHigh = Float.NEGATIVE_INFINITY;
+            for (int i = from; i < to; i++) {
+                posHigh = Math.max(posHigh, alignment.positionError[i]);
+                headLow = Math.min(headLow, alignment.headingError[i]);
+                headHigh = Math.max(headHigh, alignment.headingError[i]);
+            }
+            double x = px + 0.5;
+            gc.setStroke(HEADING_COLOR);
+            gc.strokeLine(x, height / 2 - headHigh / maxHeading * (height / 2 - 1),
+                    x, height / 2 - headLow / maxHeading * (height / 2 - 1));
+            gc.setStroke(POSITION_COLOR);
+            gc.strokeLine(x, height - 1, x, height - 1 - posHigh / maxPosition * (height - 2));
+        }
+
+        gc.setFill(POSITION_COLOR);
+        gc.fillText(String.format("position %.1f in", maxPosition), 4, 12);
+        gc.setFill(HEADING_COLOR);
+        gc.fillText(String.format("heading ±%.0f°", maxHeading), 4, 26);
+        drawPlayhead();
+    }
+
+    private void drawPlayhead() {
+        GraphicsContext gc = playheadCanvas.getGraphicsContext2D();
+        double height = playheadCanvas.getHeight();
+        double span = alignment == null ? 0 : alignment.runEndMs() - alignment.startMs;
+        double x = Double.isNaN(playheadMs) || span <= 0 ? -1
+                : Math.floor((playheadMs - alignment.startMs) / span * plotCanvas.getWidth()) + 0.5;
+        if (x == playheadX) return;
+
+        if (playheadX >= 0) {
+            gc.clearRect(playheadX - 2, 0, 4, height);
+        }
+        playheadX = x;
+        if (x < 0 || x > playheadCanvas.getWidth()) return;
+        gc.setStroke(Color.RED);
+        gc.setLineWidth(1);
+        gc.strokeLine(x, 0, x, height);
+    }
+}
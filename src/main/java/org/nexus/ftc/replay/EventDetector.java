@@ -0,0 +1,289 @@
+package org.nexus.ftc.replay;
+
+/**
+ * Finds one kind of moment in a replay, such as the robot stopping or a custom
+ * key changing state. An {@link EventIndex} shows every detector each frame
+ * once, in order, along with the robot's motion since the frame before; a
+ * detector keeps only the few numbers it needs between frames, so any number of
+ * them can follow a replay of any length, or one that is still loading.
+ *
+ * <p>Detectors hold state, so each scan of a replay gets new instances.
+ */
+interface EventDetector {
+
+    /** Short name for menus; each event carries its own label. */
+    String name();
+
+    /** Marker color on the timeline, as 0xRRGGBB. */
+    int color();
+
+    /** Sees one frame; events found are passed to {@code out}. */
+    void frame(Replay replay, int frame, Motion motion, Sink out);
+
+    interface Sink {
+        /** An event at {@code timeMs}, which may be earlier than the frame that found it. */
+        void event(long timeMs, String label);
+    }
+
+    /**
+     * The robot's motion into the current frame, worked out once per frame for
+     * every detector. Speeds come from the pose smoothed over about
+     * {@link #SMOOTHING_MS}: differencing raw frames would turn a few hundredths
+     * of an inch of odometry noise into inches per second at high loop rates.
+     */
+    final class Motion {
+        static final double SMOOTHING_MS = 100;
+
+        long timeMs;
+        /** Time since the previous frame; 0 for the first. */
+        long dtMs;
+        /** Inches per second. */
+        double speed;
+        /** Degrees per second, positive counterclockwise. */
+        double turnRate;
+
+        // Smoothed pose; heading is unwrapped so it can be averaged across 0/360
+        private double x;
+        private double y;
+        private double heading;
+        private boolean started;
+
+        void advance(Replay replay, int frame) {
+            long t = replay.timeMs(frame);
+            double rawHeading = replay.heading(frame);
+            if (!started) {
+                started = true;
+                dtMs = 0;
+                x = replay.x(frame);
+                y = replay.y(frame);
+                heading = rawHeading;
+            } else {
+                dtMs = t - timeMs;
+                double unwrapped = heading + Trajectory.shortestArc(heading, rawHeading);
+                double alpha = dtMs > 0 ? 1 - Math.exp(-dtMs / SMOOTHING_MS) : 0;
+                double dx = alpha * (replay.x(frame) - x);
+                double dy = alpha * (replay.y(frame) - y);
+                double dHeading = alpha * (unwrapped - heading);
+                x += dx;
+                y += dy;
+                heading += dHeading;
+                if (dtMs > 0) {
+                    speed = Math.hypot(dx, dy) * 1000 / dtMs;
+                    turnRate = dHeading * 1000 / dtMs;
+                }
+            }
+            timeMs = t;
+        }
+    }
+
+    /** The robot stays still for at least a minimum time; the event is where the stop began. */
+    final class Stop implements EventDetector {
+        private final double maxSpeed;
+        private final double maxTurnRate;
+        private final long minMs;
+        private long stillSinceMs = -1;
+        private boolean reported;
+
+        Stop() {
+            this(1, 5, 500);
+        }
+
+        Stop(double maxSpeed, double maxTurnRate, long minMs) {
+            this.maxSpeed = maxSpeed;
+            this.maxTurnRate = maxTurnRate;
+            this.minMs = minMs;
+        }
+
+        @Override
+        public String name() {
+            return "Stops";
+        }
+
+        @Override
+        public int color() {
+            return 0x4FC3F7;
+        }
+
+        @Override
+        public void frame(Replay replay, int frame, Motion motion, Sink out) {
+            if (motion.speed > maxSpeed || Math.abs(motion.turnRate) > maxTurnRate) {
+                stillSinceMs = -1;
+                reported = false;
+                return;
+            }
+            if (stillSinceMs < 0) stillSinceMs = motion.timeMs;
+            if (!reported && motion.timeMs - stillSinceMs >= minMs) {
+                reported = true;
+                out.event(stillSinceMs, "Stopped");
+            }
+        }
+    }
+
+    /** Turning faster than a threshold; one event per turn, at the moment it crossed. */
+    final class SharpTurn implements EventDetector {
+        private final double minTurnRate;
+        private boolean turning;
+
+        SharpTurn() {
+            this(120);
+        }
+
+        SharpTurn(double minTurnRate) {
+            this.minTurnRate = minTurnRate;
+        }
+
+        @Override
+        public String name() {
+            return "Sharp turns";
+        }
+
+        @Override
+        public int color() {
+            return 0xBA68C8;
+        }
+
+        @Override
+        public void frame(Replay replay, int frame, Motion motion, Sink out) {
+            double rate = Math.abs(motion.turnRate);
+            if (!turning && rate >= minTurnRate) {
+                turning = true;
+                out.event(motion.timeMs, String.format("Sharp turn %s at %.0f°/s",
+                        motion.turnRate > 0 ? "left" : "right", rate));
+            } else if (turning && rate < minTurnRate / 2) {
+                // Half the threshold before the next, so one wobbling turn is one event
+                turning = false;
+            }
+        }
+    }
+
+    /**
+     * Speed falling by a large amount within a short window, to under half of
+     * what it was: far harder braking than the drive code does, so usually a
+     * collision. Only the highest speed in the window is kept, and the event is
+     * dated from it, where the drop began.
+     */
+    final class SpeedDrop implements EventDetector {
+        private final double minDrop;
+        private final long windowMs;
+        private double peakSpeed;
+        private long peakTimeMs;
+
+        SpeedDrop() {
+            this(30, 150);
+        }
+
+        SpeedDrop(double minDrop, long windowMs) {
+            this.minDrop = minDrop;
+            this.windowMs = windowMs;
+        }
+
+        @Override
+        public String name() {
+            return "Speed drops";
+        }
+
+        @Override
+        public int color() {
+            return 0xE57373;
+        }
+
+        @Override
+        public void frame(Replay replay, int frame, Motion motion, Sink out) {
+            if (motion.speed >= peakSpeed || motion.timeMs - peakTimeMs > windowMs) {
+                peakSpeed = motion.speed;
+                peakTimeMs = motion.timeMs;
+                return;
+            }
+            if (peakSpeed - motion.speed >= minDrop && motion.speed <= peakSpeed / 2) {
+                out.event(peakTimeMs, String.format("Speed drop %.0f → %.0f in/s", peakSpeed, motion.speed));
+                peakSpeed = motion.speed;
+                peakTimeMs = motion.timeMs;
+            }
+        }
+    }
+
+    /** Frames further apart than a threshold: a logging stall or a dropped connection. */
+    final class TimeGap implements EventDetector {
+        private final long minGapMs;
+
+        TimeGap() {
+            this(250);
+        }
+
+        TimeGap(long minGapMs) {
+            this.minGapMs = minGapMs;
+        }
+
+        @Override
+        public String name() {
+            return "Timestamp gaps";
+        }
+
+        @Override
+        public int color() {
+            return 0xFFF176;
+        }
+
+        @Override
+        public void frame(Replay replay, int frame, Motion motion, Sink out) {
+            if (motion.dtMs >= minGapMs) {
+                out.event(motion.timeMs - motion.dtMs, String.format("No frames for %.2f s", motion.dtMs / 1000.0));
+            }
+        }
+    }
+
+    /**
+     * A custom key changing. With no threshold, every change of value is an event,
+     * which suits states and flags; with one, only crossing it is, which suits
+     * noisy numbers. Frames without the key are skipped.
+     */
+    final class KeyChange implements EventDetector {
+        final String key;
+        final double threshold;
+        private int keyIndex = -1;
+        private String lastText;
+        private double lastNumber = Double.NaN;
+
+        KeyChange(String key, double threshold) {
+            this.key = key;
+            this.threshold = threshold;
+        }
+
+        @Override
+        public String name() {
+            return Double.isNaN(threshold) ? key : key + " crossing " + CustomColumn.formatNumber(threshold);
+        }
+
+        @Override
+        public int color() {
+            return 0x81C784;
+        }
+
+        @Override
+        public void frame(Replay replay, int frame, Motion motion, Sink out) {
+            // The key may first appear partway through a replay that is still loading
+            if (keyIndex < 0) {
+                keyIndex = replay.keyIndex(key);
+                if (keyIndex < 0) return;
+            }
+            CustomColumn column = replay.column(keyIndex);
+            if (!column.has(frame)) return;
+
+            if (Double.isNaN(threshold)) {
+                String text = column.text(frame);
+                if (lastText != null && !lastText.equals(text)) {
+                    out.event(motion.timeMs, key + ": " + lastText + " → " + text);
+                }
+                lastText = text;
+            } else {
+                double value = column.number(frame);
+                if (Double.isNaN(value)) return;
+                if (!Double.isNaN(lastNumber) && (lastNumber >= threshold) != (value >= threshold)) {
+                    out.event(motion.timeMs, String.format("%s %s %s (%s)", key, value >= threshold ? "rose above" : "fell below",
+                            CustomColumn.formatNumber(threshold), CustomColumn.formatNumber(value)));
+                }
+                lastNumber = value;
+            }
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package org.nexus.ftc.replay;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Events found in a replay by a set of {@link EventDetector}s, kept in time
+ * order. {@link #update} carries on from the last frame it saw, so a replay
+ * that is loading or live is scanned once in total however often it is
+ * called, with memory for the events alone.
+ *
+ * <p>The index is filled by one thread. It hands out {@link Snapshot}s, which
+ * never change and can be read anywhere; finding the event before or after a
+ * moment is a binary search.
+ */
+final class EventIndex {
+
+    /** Events at one point of a scan. */
+    static final class Snapshot {
+        static final Snapshot EMPTY = new Snapshot(new long[0], new int[0], new String[0], 0);
+
+        final int count;
+        final long[] timeMs;
+        /** Marker color of each event, as 0xRRGGBB. */
+        final int[] color;
+        final String[] label;
+
+        private Snapshot(long[] timeMs, int[] color, String[] label, int count) {
+            this.count = count;
+            this.timeMs = timeMs;
+            this.color = color;
+            this.label = label;
+        }
+
+        boolean isEmpty() {
+            return count == 0;
+        }
+
+        /** The first event after {@code t}, or -1. */
+        int after(double t) {
+            int i = upperBound(t);
+            return i < count ? i : -1;
+        }
+
+        /** The last event before {@code t}, or -1. */
+        int before(double t) {
+            int lo = 0;
+            int hi = count;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (timeMs[mid] < t) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo - 1;
+        }
+
+        /** The event closest to {@code t}, or -1 if there are none. */
+        int nearest(double t) {
+            if (count == 0) return -1;
+            int i = upperBound(t);
+            if (i == 0) return 0;
+            if (i == count) return count - 1;
+            return t - timeMs[i - 1] <= timeMs[i] - t ? i - 1 : i;
+        }
+
+        private int upperBound(double t) {
+            int lo = 0;
+            int hi = count;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (timeMs[mid] <= t) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+    }
+
+    private final List<EventDetector> detectors;
+    private final EventDetector.Sink[] sinks;
+    private final EventDetector.Motion motion = new EventDetector.Motion();
+
+    // Next frame to scan, and the time of the one before it to notice a live replay dropping frames
+    private int next;
+    private long lastTimeMs;
+
+    private int count;
+    private long[] timeMs = new long[64];
+    private int[] color = new int[64];
+    private String[] label = new String[64];
+
+    EventIndex(List<EventDetector> detectors) {
+        this.detectors = detectors;
+        this.sinks = new EventDetector.Sink[detectors.size()];
+        for (int d = 0; d < sinks.length; d++) {
+            int color = detectors.get(d).color();
+            sinks[d] = (t, text) -> add(t, color, text);
+        }
+    }
+
+    /**
+     * Scans up to {@code maxFrames} frames that arrived since the last call.
+     *
+     * @return whether any events were added or dropped
+     */
+    boolean update(Replay replay, int maxFrames) {
+        int frames = replay.frameCount();
+        boolean changed = false;
+        if (next > 0 && (next > frames || replay.timeMs(next - 1) != lastTimeMs)) {
+            // A live replay dropped its oldest frames; find where this scan left off and forget older events
+            next = firstAfter(replay, lastTimeMs, frames);
+            changed = discardBefore(replay.startTimeMs());
+        }
+
+        int end = (int) Math.min(frames, (long) next + maxFrames);
+        int before = count;
+        for (int frame = next; frame < end; frame++) {
+            motion.advance(replay, frame);
+            for (int d = 0; d < sinks.length; d++) {
+                detectors.get(d).frame(replay, frame, motion, sinks[d]);
+            }
+        }
+        if (end > next) {
+            next = end;
+            lastTimeMs = replay.timeMs(end - 1);
+        }
+        return changed || count != before;
+    }
+
+    /** Whether frames are left to scan from a replay with {@code frames} frames. */
+    boolean behind(int frames) {
+        return next < frames;
+    }
+
+    Snapshot snapshot() {
+        return new Snapshot(Arrays.copyOf(timeMs, count), Arrays.copyOf(color, count),
+                Arrays.copyOf(label, count), count);
+    }
+
+    private void add(long t, int rgb, String text) {
+        if (count == timeMs.length) {
+            int capacity = count * 2;
+            timeMs = Arrays.copyOf(timeMs, capacity);
+            color = Arrays.copyOf(color, capacity);
+            label = Arrays.copyOf(label, capacity);
+        }
+        // Almost always the newest; a detector may date an event back to where it began
+        int at = count;
+        while (at > 0 && timeMs[at - 1] > t) at--;
+        System.arraycopy(timeMs, at, timeMs, at + 1, count - at);
+        System.arraycopy(color, at, color, at + 1, count - at);
+        System.arraycopy(label, at, label, at + 1, count - at);
+        timeMs[at] = t;
+        color[at] = rgb;
+        label[at] = text;
+        count++;
+    }
+
+    private boolean discardBefore(long t) {
+        int drop = 0;
+        while (drop < count && timeMs[drop] < t) drop++;
+        if (drop == 0) return false;
+        System.arraycopy(timeMs, drop, timeMs, 0, count - drop);
+        System.arraycopy(color, drop, color, 0, count - drop);
+        System.arraycopy(label, drop, label, 0, count - drop);
+        Arrays.fill(label, count - drop, count, null);
+        count -= drop;
+        return true;
+    }
+
+    private static int firstAfter(Replay replay, long t, int frames) {
+        int lo = 0;
+        int hi = frames;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (replay.timeMs(mid) <= t) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+}
@@ -0,0 +1,173 @@
+package org.nexus.ftc.replay;
+
+import javafx.application.Platform;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.control.Slider;
+import javafx.scene.control.Tooltip;
+import javafx.scene.layout.Pane;
+import javafx.scene.paint.Color;
+import javafx.util.Duration;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.DoubleConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Markers under the timeline slider for the events an {@link EventIndex} finds
+ * in the loaded replay, one tick per event in its detector's color. Hovering
+ * names the nearest event and clicking seeks to it.
+ *
+ * <p>Detection runs on its own thread, a block of frames at a time, and picks up
+ * where it left off each time the replay grows, so markers appear while a file
+ * is still loading. Changing the detectors starts a fresh scan.
+ */
+final class EventStrip extends Pane {
+
+    private static final double HEIGHT = 8;
+    // Markers are published after each block, so a long replay fills in as it is scanned
+    private static final int FRAMES_PER_BLOCK = 1 << 16;
+    private static final Color BACKGROUND = Color.web("#333");
+
+    // One scan at a time, off the FX thread; the index belongs to this thread
+    private static final ExecutorService RUNNER = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "event-detector");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Slider slider;
+    private final Supplier<List<EventDetector>> detectors;
+    private final Canvas canvas = new Canvas();
+    private final Tooltip tooltip = new Tooltip();
+
+    private Replay replay;
+    private EventIndex index;
+    private EventIndex.Snapshot events = EventIndex.Snapshot.EMPTY;
+    private boolean scanning;
+    private boolean scanAgain;
+    // Bumped for every replay or set of detectors, so an earlier scan stops and its results are dropped
+    private volatile int generation;
+
+    /** {@code detectors} makes a fresh set of detectors for each scan. */
+    EventStrip(Slider slider, DoubleConsumer onSeek, Supplier<List<EventDetector>> detectors) {
+        this.slider = slider;
+        this.detectors = detectors;
+        setPrefHeight(HEIGHT);
+        setMinHeight(HEIGHT);
+        prefWidthProperty().bind(slider.widthProperty());
+        getChildren().add(canvas);
+        canvas.widthProperty().bind(widthProperty());
+        canvas.heightProperty().bind(heightProperty());
+        canvas.widthProperty().addListener(obs -> redraw());
+        slider.minProperty().addListener(obs -> redraw());
+        slider.maxProperty().addListener(obs -> redraw());
+
+        tooltip.setShowDelay(Duration.millis(100));
+        Tooltip.install(this, tooltip);
+        setOnMouseMoved(e -> {
+            int i = events.nearest(timeAt(e.getX()));
+            tooltip.setText(i < 0 ? "No events" : describe(i));
+        });
+        setOnMouseClicked(e -> {
+            int i = events.nearest(timeAt(e.getX()));
+            if (i >= 0) onSeek.accept(events.timeMs[i]);
+        });
+    }
+
+    void setReplay(Replay replay) {
+        this.replay = replay;
+        restart();
+    }
+
+    /** Scans the replay again from the start, e.g. with different detectors. */
+    void restart() {
+        generation++;
+        index = new EventIndex(detectors.get());
+        events = EventIndex.Snapshot.EMPTY;
+        redraw();
+        scan();
+    }
+
+    /** Scans the frames that arrived since the last scan. */
+    void refresh() {
+        scan();
+    }
+
+    /** Events found so far; never changes once returned. */
+    EventIndex.Snapshot events() {
+        return events;
+    }
+
+    /** The event's time and label, as shown when hovering over it. */
+    String describe(int i) {
+        long t = events.timeMs[i];
+        return String.format("%d:%02d.%03d  %s", t / 60_000, t / 1000 % 60, t % 1000, events.label[i]);
+    }
+
+    private void scan() {
+        if (replay == null) return;
+        if (scanning) {
+            scanAgain = true;
+            return;
+        }
+        scanning = true;
+        scanAgain = false;
+        int current = generation;
+        Replay target = replay;
+        EventIndex scanIndex = index;
+        RUNNER.execute(() -> {
+            try {
+                while (current == generation && scanIndex.behind(target.frameCount())) {
+                    if (!scanIndex.update(target, FRAMES_PER_BLOCK)) continue;
+                    EventIndex.Snapshot found = scanIndex.snapshot();
+                    Platform.runLater(() -> {
+                        if (current != generation) return;
+                        events = found;
+                        redraw();
+                    });
+                }
+            } catch (RuntimeException e) {
+                System.err.println("Event detection failed: " + e.getMessage());
+            }
+            Platform.runLater(() -> {
+                scanning = false;
+                if (scanAgain) scan();
+            });
+        });
+    }
+
+    private double timeAt(double x) {
+        double[] track = MatchStrip.track(slider);
+        double fraction = track[1] > 0 ? Math.max(0, Math.min(1, (x - track[0]) / track[1])) : 0;
+        return slider.getMin() + fraction * (slider.getMax() - slider.getMin());
+    }
+
+    private void redraw() {
+        GraphicsContext g = canvas.getGraphicsContext2D();
+        double w = canvas.getWidth();
+        double h = canvas.getHeight();
+        g.clearRect(0, 0, w, h);
+        if (replay == null) return;
+
+        double[] track = MatchStrip.track(slider);
+        g.setFill(BACKGROUND);
+        g.fillRect(track[0], 0, track[1], h);
+
+        double span = slider.getMax() - slider.getMin();
+        if (span <= 0 || events.isEmpty()) return;
+        double scale = track[1] / span;
+        // Events sharing a pixel column draw once, in the color of the first
+        int lastColumn = Integer.MIN_VALUE;
+        for (int i = 0; i < events.count; i++) {
+            double x = track[0] + (events.timeMs[i] - slider.getMin()) * scale;
+            int column = (int) Math.floor(x);
+            if (column == lastColumn) continue;
+            lastColumn = column;
+            g.setFill(Color.rgb(events.color[i] >> 16 & 0xFF, events.color[i] >> 8 & 0xFF, events.color[i] & 0xFF));
+            g.fillRect(column, 0, 2, h);
+        }
+    }
+}
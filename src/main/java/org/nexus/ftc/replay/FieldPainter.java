@@ -0,0 +1,115 @@
+package org.nexus.ftc.replay;
+
+/**
+ * The field and robot drawing shared by the on-screen {@link FieldView} and the
+ * headless {@link ReplayExporter}. It draws through a {@link Surface}, so the same
+ * code can target a JavaFX canvas or an off-screen AWT image. Coordinates are in
+ * canvas pixels; mapping from field inches stays with the caller.
+ *
+ * <p>A painter keeps a little scratch state and is not thread-safe. Parallel
+ * renderers each use their own.
+ */
+final class FieldPainter {
+
+    static final double BORDER = 50;
+    static final double FIELD_SIZE_INCHES = 12 * 12; // 12 feet in inches
+    static final double ROBOT_SIZE_INCHES = 18;
+
+    private static final int BACKGROUND = 0x222222;
+    private static final int FIELD_LINES = 0x444444;
+    private static final int HEADING_ARROW = 0xFF0000;
+
+    /** The few drawing operations the painter needs, with colors as 0xRRGGBB. */
+    interface Surface {
+        void setFill(int rgb);
+
+        void setStroke(int rgb);
+
+        void setLineWidth(double width);
+
+        void fillRect(double x, double y, double w, double h);
+
+        void strokeRect(double x, double y, double w, double h);
+
+        void strokeLine(double x1, double y1, double x2, double y2);
+
+        void fillPolygon(double[] xs, double[] ys, int count);
+
+        /** Draws the field photo scaled into the rectangle, if the surface has one. */
+        void drawFieldImage(double x, double y, double w, double h);
+
+        void save();
+
+        void restore();
+
+        void translate(double x, double y);
+
+        /** Rotates clockwise by {@code degrees}, as JavaFX does. */
+        void rotate(double degrees);
+    }
+
+    private final Surface surface;
+    private final double[] arrowX = new double[3];
+    private final double[] arrowY = new double[3];
+
+    FieldPainter(Surface surface) {
+        this.surface = surface;
+    }
+
+    /** Canvas pixels per field inch for a canvas of the given width. */
+    static double scale(double width) {
+        return (width - 2 * BORDER) / FIELD_SIZE_INCHES;
+    }
+
+    /** Background, field photo, perimeter and tile grid. */
+    void paintField(double width, double height) {
+        // Draw the FTC field background image inside the border
+        double borderX = BORDER;
+        double borderY = BORDER;
+        double borderWidth = width - 2 * BORDER;
+        double borderHeight = height - 2 * BORDER;
+
+        // Fill background with dark color
+        surface.setFill(BACKGROUND);
+        surface.fillRect(0, 0, width, height);
+
+        // Draw image inside border
+        surface.drawFieldImage(borderX, borderY, borderWidth, borderHeight);
+
+        // Draw field elements (perimeter, grid, etc.) with dark gray
+        surface.setStroke(FIELD_LINES);
+        surface.setLineWidth(3);
+        surface.strokeRect(borderX, borderY, borderWidth, borderHeight);
+
+        surface.setLineWidth(0.5);
+        for (int i = 0; i <= 6; i++) {
+            double x = borderX + i * borderWidth / 6;
+            double y = borderY + i * borderHeight / 6;
+            surface.strokeLine(borderX, y, borderX + borderWidth, y);
+            surface.strokeLine(x, borderY, x, borderY + borderHeight);
+        }
+    }
+
+    /** A square robot of side {@code robotSize} with a red arrow pointing along its heading. */
+    void paintRobot(double canvasX, double canvasY, double heading, double robotSize, int bodyColor) {
+        surface.save();
+        surface.translate(canvasX, canvasY);
+        surface.rotate(-heading); // Negative because canvas Y is inverted
+
+        // Robot body
+        surface.setFill(bodyColor);
+        surface.fillRect(-robotSize/2, -robotSize/2, robotSize, robotSize);
+
+        // Direction indicator
+        surface.setFill(HEADING_ARROW);
+        arrowX[0] = robotSize/2;
+        arrowX[1] = robotSize/2 - 10;
+        arrowX[2] = robotSize/2 - 10;
+        arrowY[0] = 0;
+        arrowY[1] = -10;
+        arrowY[2] = 10;
+        surface.fillPolygon(arrowX, arrowY, 3);
+
+        surface.restore();
+    }
+}
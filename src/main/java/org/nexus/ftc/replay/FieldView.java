@@ -0,0 +1,423 @@
+package org.nexus.ftc.replay;
+
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import javafx.scene.layout.StackPane;
+import javafx.scene.paint.Color;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Top-down field drawn as two stacked canvases. The background image, perimeter
+ * and grid are painted once per canvas size onto the bottom canvas; only the
+ * robots are drawn on the transparent canvas above it, and each update clears
+ * just the area they covered last time. An update where no robot moved draws
+ * nothing.
+ *
+ * <p>Path trails sit on a third canvas between the two. Each track's path is
+ * simplified once to half a pixel ({@link PathTrail}) and the trail grows by
+ * appending the segments the playhead passed since the last update; it is only
+ * redrawn from scratch when playback moves backwards or the options change. The
+ * short piece from the last kept vertex to the robot is drawn with the robots.
+ *
+ * <p>A heatmap, when set, is one small image on its own canvas just above the
+ * field, scaled up with smoothing and only redrawn when it or the size changes.
+ */
+class FieldView extends StackPane {
+
+    // Trail tolerance in canvas pixels
+    static final double TRAIL_TOLERANCE_PX = 0.5;
+    private static final int TRAIL_COLORS = 64;
+
+    private final Canvas backgroundCanvas;
+    private final Canvas heatmapCanvas;
+    private final Canvas trailCanvas;
+    private final Canvas robotCanvas;
+    private final GraphicsContext gc;
+    private final FieldPainter backgroundPainter;
+    private final FieldPainter robotPainter;
+
+    // Rectangles of the dynamic canvas drawn on last time (x, y, w, h), cleared before the next draw
+    private double[] dirtyRects = new double[16];
+    private int dirtyCount;
+
+    // Poses drawn last time, one slot per track
+    private int lastCount = -1;
+    private double[] lastX = new double[0];
+    private double[] lastY = new double[0];
+    private double[] lastHeading = new double[0];
+    private int[] lastColor = new int[0];
+    private Color[] colors = new Color[0];
+
+    // Trail options and what has been drawn of each track's trail
+    private boolean showTrail;
+    private boolean showGhost;
+    private int trailMetric = PathTrail.METRIC_NONE;
+    private boolean trailsDirty = true;
+    private PathTrail[] trails = new PathTrail[0];
+    private Replay[] trailReplays = new Replay[0];
+    private int[] trailDrawn = new int[0];
+    private int[] trailTargets = new int[0];
+    private final Color[] metricColors = new Color[TRAIL_COLORS];
+    private WritableImage heatmap;
+
+    FieldView(double width, double height, Image fieldBackgroundImage) {
+        backgroundCanvas = new Canvas(width, height);
+        heatmapCanvas = new Canvas(width, height);
+        trailCanvas = new Canvas(width, height);
+        robotCanvas = new Canvas(width, height);
+        gc = robotCanvas.getGraphicsContext2D();
+        backgroundPainter = new FieldPainter(new FxSurface(backgroundCanvas.getGraphicsContext2D(), fieldBackgroundImage));
+        robotPainter = new FieldPainter(new FxSurface(gc, null));
+        getChildren().addAll(backgroundCanvas, heatmapCanvas, trailCanvas, robotCanvas);
+
+        // Slow is blue, fast (or high) is red
+        for (int i = 0; i < TRAIL_COLORS; i++) {
+            metricColors[i] = Color.hsb(240.0 * (1 - i / (TRAIL_COLORS - 1.0)), 0.9, 1.0);
+        }
+
+        // The static layer only needs repainting when its size changes
+        backgroundCanvas.widthProperty().addListener(obs -> drawEmptyField());
+        backgroundCanvas.heightProperty().addListener(obs -> drawEmptyField());
+        drawEmptyField();
+        heatmapCanvas.widthProperty().addListener(obs -> drawHeatmap());
+        heatmapCanvas.heightProperty().addListener(obs -> drawHeatmap());
+    }
+
+    double scale() {
+        return FieldPainter.scale(robotCanvas.getWidth());
+    }
+
+    /** Converts field inches to canvas pixels. */
+    double toCanvasX(double x) {
+        return FieldPainter.BORDER + x * scale();
+    }
+
+    double toCanvasY(double y) {
+        return robotCanvas.getHeight() - FieldPainter.BORDER - y * scale();
+    }
+
+    /**
+     * Sets which trails are drawn. {@code metric} colors them by a custom key id,
+     * {@link PathTrail#METRIC_SPEED}, or {@link PathTrail#METRIC_NONE} for the track
+     * color. Takes effect on the next {@link #drawRobots}.
+     */
+    void setTrailOptions(boolean trail, boolean ghost, int metric) {
+        if (metric != trailMetric) {
+            Arrays.fill(trails, null);
+        }
+        showTrail = trail;
+        showGhost = ghost;
+        trailMetric = metric;
+        trailsDirty = true;
+        lastCount = -1;
+    }
+
+    /** Drops cached trails, for a replay that has finished loading more frames. */
+    void invalidateTrails() {
+        Arrays.fill(trails, null);
+        trailsDirty = true;
+        lastCount = -1;
+    }
+
+    /** Shows a heatmap from {@link Heatmap#render}, or hides it for null. */
+    void setHeatmap(int[] argb) {
+        if (argb == null) {
+            heatmap = null;
+        } else {
+            int cells = OccupancyGrid.CELLS;
+            heatmap = new WritableImage(cells, cells);
+            heatmap.getPixelWriter().setPixels(0, 0, cells, cells, PixelFormat.getIntArgbInstance(), argb, 0, cells);
+        }
+        drawHeatmap();
+    }
+
+    private void drawHeatmap() {
+        GraphicsContext hc = heatmapCanvas.getGraphicsContext2D();
+        double w = heatmapCanvas.getWidth();
+        double h = heatmapCanvas.getHeight();
+        hc.clearRect(0, 0, w, h);
+        if (heatmap == null) return;
+        hc.setImageSmoothing(true);
+        hc.drawImage(heatmap, FieldPainter.BORDER, FieldPainter.BORDER,
+                w - 2 * FieldPainter.BORDER, h - 2 * FieldPainter.BORDER);
+    }
+
+    private void drawEmptyField() {
+        backgroundPainter.paintField(backgroundCanvas.getWidth(), backgroundCanvas.getHeight());
+    }
+
+    /**
+     * Draws one robot per track at its last sampled pose. Nothing is drawn if no
+     * robot moved since the last call; otherwise only the areas the robots covered
+     * last time are cleared before they are drawn again.
+     */
+    void drawRobots(List<ReplayTrack> tracks) {
+        int count = tracks.size();
+        if (count == lastCount && !posesChanged(tracks)) return;
+
+        if (lastX.length < count) {
+            lastX = new double[count];
+            lastY = new double[count];
+            lastHeading = new double[count];
+            lastColor = new int[count];
+            colors = new Color[count];
+        }
+        lastCount = count;
+
+        clearDirty();
+        for (int i = 0; i < count; i++) {
+            ReplayTrack track = tracks.get(i);
+            if (colors[i] == null || lastColor[i] != track.color) {
+                lastColor[i] = track.color;
+                colors[i] = Color.rgb((track.color >> 16) & 0xFF, (track.color >> 8) & 0xFF, track.color & 0xFF);
+            }
+        }
+        updateTrails(tracks);
+
+        double scale = scale();
+        // Draw robot (18" x 18" square)
+        double robotSize = FieldPainter.ROBOT_SIZE_INCHES * scale;
+
+        for (int i = 0; i < count; i++) {
+            ReplayTrack track = tracks.get(i);
+            lastX[i] = track.x;
+            lastY[i] = track.y;
+            lastHeading[i] = track.heading;
+            if (track.frame < 0) continue;
+
+            double canvasX = toCanvasX(track.x);
+            double canvasY = toCanvasY(track.y);
+            if (showTrail) {
+                drawTrailTail(i, track, canvasX, canvasY);
+            }
+            robotPainter.paintRobot(canvasX, canvasY, track.heading, robotSize, track.color);
+
+            // Any rotation of the square stays inside its circumscribed circle
+            markDirty(canvasX, canvasY, robotSize * Math.sqrt(0.5));
+        }
+    }
+
+    private void updateTrails(List<ReplayTrack> tracks) {
+        int count = tracks.size();
+        if (!showTrail && !showGhost) {
+            if (trailsDirty) {
+                trailCanvas.getGraphicsContext2D().clearRect(0, 0, trailCanvas.getWidth(), trailCanvas.getHeight());
+                trailsDirty = false;
+            }
+            return;
+        }
+
+        if (trails.length < count) {
+            trails = Arrays.copyOf(trails, count);
+            trailReplays = Arrays.copyOf(trailReplays, count);
+            trailDrawn = Arrays.copyOf(trailDrawn, count);
+            trailTargets = new int[count];
+        }
+
+        double tolerance = TRAIL_TOLERANCE_PX / scale();
+        boolean redraw = trailsDirty;
+        int[] targets = trailTargets;
+        for (int i = 0; i < count; i++) {
+            ReplayTrack track = tracks.get(i);
+            PathTrail trail = trails[i];
+            if (trail == null || trailReplays[i] != track.replay || trail.toleranceInches != tolerance) {
+                trails[i] = PathTrail.build(track.replay, tolerance, i == 0 ? trailMetric : PathTrail.METRIC_NONE);
+                trailReplays[i] = track.replay;
+                redraw = true;
+            } else if (track.replay.frameCount() > trail.sourceFrames) {
+                // A replay still loading (or live) grew; segments already drawn stay within tolerance
+                trailDrawn[i] = Math.min(trailDrawn[i], trail.extend(track.replay));
+            }
+            targets[i] = track.frame < 0 ? 0 : trails[i].verticesUpTo(track.frame);
+            if (targets[i] < trailDrawn[i]) redraw = true;
+        }
+        // A track was removed since the last update
+        for (int i = count; i < trailReplays.length; i++) {
+            if (trailReplays[i] != null) {
+                trails[i] = null;
+                trailReplays[i] = null;
+                redraw = true;
+            }
+        }
+
+        GraphicsContext tc = trailCanvas.getGraphicsContext2D();
+        if (redraw) {
+            tc.clearRect(0, 0, trailCanvas.getWidth(), trailCanvas.getHeight());
+            Arrays.fill(trailDrawn, 0);
+            if (showGhost) {
+                tc.setGlobalAlpha(0.35);
+                tc.setLineDashes(4, 4);
+                for (int i = 0; i < count; i++) {
+                    strokeTrail(tc, i, 0, trails[i].size, false);
+                }
+                tc.setLineDashes((double[]) null);
+                tc.setGlobalAlpha(1);
+            }
+            trailsDirty = false;
+        }
+
+        if (showTrail) {
+            for (int i = 0; i < count; i++) {
+                if (targets[i] > trailDrawn[i]) {
+                    strokeTrail(tc, i, Math.max(0, trailDrawn[i] - 1), targets[i], true);
+                    trailDrawn[i] = targets[i];
+                }
+            }
+        }
+    }
+
+    /** Strokes the segments between vertices {@code from} and {@code to - 1} of a track's trail. */
+    private void strokeTrail(GraphicsContext tc, int track, int from, int to, boolean byMetric) {
+        PathTrail trail = trails[track];
+        tc.setLineWidth(2);
+        tc.setStroke(colors[track]);
+        for (int v = from; v + 1 < to; v++) {
+            if (byMetric && trail.metricKey != PathTrail.METRIC_NONE) {
+                tc.setStroke(metricColor(trail, v));
+            }
+            tc.strokeLine(toCanvasX(trail.x[v]), toCanvasY(trail.y[v]),
+                    toCanvasX(trail.x[v + 1]), toCanvasY(trail.y[v + 1]));
+        }
+    }
+
+    private Color metricColor(PathTrail trail, int segment) {
+        double value = trail.normalizedMetric(segment);
+        if (Double.isNaN(value)) return Color.GRAY;
+        return metricColors[(int) Math.round(value * (TRAIL_COLORS - 1))];
+    }
+
+    /** Connects the last trail vertex the playhead passed to the robot's interpolated position. */
+    private void drawTrailTail(int track, ReplayTrack replayTrack, double canvasX, double canvasY) {
+        PathTrail trail = trails[track];
+        int vertex = trail.verticesUpTo(replayTrack.frame) - 1;
+        if (vertex < 0) return;
+
+        double fromX = toCanvasX(trail.x[vertex]);
+        double fromY = toCanvasY(trail.y[vertex]);
+        gc.setLineWidth(2);
+        gc.setStroke(trail.metricKey != PathTrail.METRIC_NONE && vertex < trail.size - 1
+                ? metricColor(trail, vertex) : colors[track]);
+        gc.strokeLine(fromX, fromY, canvasX, canvasY);
+
+        double radius = Math.hypot(canvasX - fromX, canvasY - fromY) / 2;
+        markDirty((fromX + canvasX) / 2, (fromY + canvasY) / 2, radius);
+    }
+
+    private boolean posesChanged(List<ReplayTrack> tracks) {
+        for (int i = 0; i < lastCount; i++) {
+            ReplayTrack track = tracks.get(i);
+            if (track.x != lastX[i] || track.y != lastY[i] || track.heading != lastHeading[i]
+                    || track.color != lastColor[i]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void markDirty(double centerX, double centerY, double radius) {
+        // Pad for antialiasing at the edges
+        double r = radius + 2;
+        if (dirtyCount * 4 == dirtyRects.length) {
+            dirtyRects = Arrays.copyOf(dirtyRects, Math.max(16, dirtyRects.length * 2));
+        }
+        int i = dirtyCount++ * 4;
+        dirtyRects[i] = Math.floor(centerX - r);
+        dirtyRects[i + 1] = Math.floor(centerY - r);
+        dirtyRects[i + 2] = Math.ceil(2 * r) + 1;
+        dirtyRects[i + 3] = Math.ceil(2 * r) + 1;
+    }
+
+    private void clearDirty() {
+        for (int i = 0; i < dirtyCount * 4; i += 4) {
+            gc.clearRect(dirtyRects[i], dirtyRects[i + 1], dirtyRects[i + 2], dirtyRects[i + 3]);
+        }
+        dirtyCount = 0;
+    }
+
+    /** Draws on a JavaFX canvas, reusing {@link Color}s for the few colors in use. */
+    private static final class FxSurface implements FieldPainter.Surface {
+        private final GraphicsContext gc;
+        private final Image fieldImage;
+        private final int[] cachedRgb = new int[16];
+        private final Color[] cachedColors = new Color[16];
+
+        FxSurface(GraphicsContext gc, Image fieldImage) {
+            this.gc = gc;
+            this.fieldImage = fieldImage;
+        }
+
+        private Color color(int rgb) {
+            int slot = (rgb ^ (rgb >>> 8) ^ (rgb >>> 16)) & 15;
+            if (cachedColors[slot] == null || cachedRgb[slot] != rgb) {
+                cachedRgb[slot] = rgb;
+                cachedColors[slot] = Color.rgb((rgb >> 16) & 0xFF, (rgb >> 8) & 0xFF, rgb & 0xFF);
+            }
+            return cachedColors[slot];
+        }
+
+        @Override
+        public void setFill(int rgb) {
+            gc.setFill(color(rgb));
+        }
+
+        @Override
+        public void setStroke(int rgb) {
+            gc.setStroke(color(rgb));
+        }
+
+        @Override
+        public void setLineWidth(double width) {
+            gc.setLineWidth(width);
+        }
+
+        @Override
+        public void fillRect(double x, double y, double w, double h) {
+            gc.fillRect(x, y, w, h);
+        }
+
+        @Override
+        public void strokeRect(double x, double y, double w, double h) {
+            gc.strokeRect(x, y, w, h);
+        }
+
+        @Override
+        public void strokeLine(double x1, double y1, double x2, double y2) {
+            gc.strokeLine(x1, y1, x2, y2);
+        }
+
+        @Override
+        public void fillPolygon(double[] xs, double[] ys, int count) {
+            gc.fillPolygon(xs, ys, count);
+        }
+
+        @Override
+        public void drawFieldImage(double x, double y, double w, double h) {
+            if (fieldImage != null) gc.drawImage(fieldImage, x, y, w, h);
+        }
+
+        @Override
+        public void save() {
+            gc.save();
+        }
+
+        @Override
+        public void restore() {
+            gc.restore();
+        }
+
+        @Override
+        public void translate(double x, double y) {
+            gc.translate(x, y);
+        }
+
+        @Override
+        public void rotate(double degrees) {
+            gc.rotate(degrees);
+        }
+    }
+}
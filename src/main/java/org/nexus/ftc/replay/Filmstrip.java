@@ -0,0 +1,370 @@
+package org.nexus.ftc.replay;
+
+import javafx.application.Platform;
+import javafx.geometry.Point2D;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.control.Label;
+import javafx.scene.control.Slider;
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.layout.Pane;
+import javafx.scene.layout.VBox;
+import javafx.scene.paint.Color;
+import javafx.stage.Popup;
+import javafx.stage.Window;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.DoubleConsumer;
+
+/**
+ * Row of field thumbnails above the timeline slider, each showing the loaded
+ * replay at the moment under its middle, and a larger preview that follows the
+ * pointer while hovering over or dragging along the timeline.
+ *
+ * <p>Thumbnails are rendered by a {@link ThumbnailRenderer} on a small pool of
+ * background threads, at the strip's height in device pixels, and kept in a
+ * {@link ThumbnailCache}. The FX thread only ever looks them up and draws them:
+ * a tile still rendering is left blank, and the preview shows the tile under the
+ * pointer until its own picture arrives. At most one preview is rendering at a
+ * time and it is always for where the pointer is now, so scrubbing quickly
+ * never builds up a queue.
+ */
+final class Filmstrip extends Pane {
+
+    static final double HEIGHT = 40;
+    private static final double PREVIEW_SIZE = 160;
+    private static final long CACHE_BYTES = 48L << 20;
+    private static final Color PLACEHOLDER = Color.web("#333");
+
+    private static final ExecutorService RENDERERS = Executors.newFixedThreadPool(
+            Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1)), r -> {
+                Thread thread = new Thread(r, "thumbnail-renderer");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    private final Slider slider;
+    private final Canvas canvas = new Canvas();
+    private final ThumbnailCache cache = new ThumbnailCache(CACHE_BYTES);
+    // Tiles submitted and not back yet
+    private final Set<Long> pending = new HashSet<>();
+    // Tiles on screen at the last redraw; a queued tile that scrolled away is skipped
+    private volatile Set<Long> visible = new HashSet<>();
+
+    private final Popup preview = new Popup();
+    private final ImageView previewImage = new ImageView();
+    private final Label previewLabel = new Label();
+
+    private Replay replay;
+    private int robotColor;
+    private ThumbnailRenderer renderer;
+    private boolean building;
+    private boolean buildAgain;
+    // Bumped for every new renderer, so thumbnails of an earlier one are dropped; read by the renderers
+    private volatile int generation;
+    private boolean redrawQueued;
+
+    // Preview: elapsed time under the pointer, or -1 when hidden
+    private long hoverElapsedMs = -1;
+    private boolean previewRendering;
+
+    Filmstrip(Slider slider, DoubleConsumer onSeek) {
+        this.slider = slider;
+        setPrefHeight(HEIGHT);
+        setMinHeight(HEIGHT);
+        prefWidthProperty().bind(slider.widthProperty());
+        getChildren().add(canvas);
+        canvas.widthProperty().bind(widthProperty());
+        canvas.heightProperty().bind(heightProperty());
+        canvas.widthProperty().addListener(obs -> redraw());
+        canvas.heightProperty().addListener(obs -> redraw());
+        slider.minProperty().addListener(obs -> redraw());
+        slider.maxProperty().addListener(obs -> redraw());
+
+        previewImage.setFitWidth(PREVIEW_SIZE);
+        previewImage.setFitHeight(PREVIEW_SIZE);
+        previewImage.setSmooth(true);
+        previewLabel.setStyle("-fx-text-fill: #eee;");
+        VBox previewBox = new VBox(2, previewImage, previewLabel);
+        previewBox.setStyle("-fx-padding: 4; -fx-background-color: #222; -fx-border-color: #555;");
+        preview.getContent().add(previewBox);
+
+        setOnMouseMoved(e -> hover(e.getX()));
+        setOnMouseExited(e -> hidePreview());
+        setOnMouseClicked(e -> {
+            double[] track = MatchStrip.track(slider);
+            if (track[1] <= 0) return;
+            double fraction = Math.max(0, Math.min(1, (e.getX() - track[0]) / track[1]));
+            onSeek.accept(slider.getMin() + fraction * (slider.getMax() - slider.getMin()));
+        });
+
+        // Scrubbing along the slider shows the preview too
+        slider.addEventFilter(MouseEvent.MOUSE_MOVED, e -> hover(e.getX()));
+        slider.addEventFilter(MouseEvent.MOUSE_DRAGGED, e -> hover(e.getX()));
+        slider.addEventFilter(MouseEvent.MOUSE_EXITED, e -> {
+            if (!e.isPrimaryButtonDown()) hidePreview();
+        });
+        slider.addEventFilter(MouseEvent.MOUSE_RELEASED, e -> {
+            if (!slider.isHover()) hidePreview();
+        });
+    }
+
+    /** Shows thumbnails of a replay, drawn with its robot's color, or nothing for null. */
+    void setReplay(Replay replay, int robotColor) {
+        this.replay = replay;
+        this.robotColor = robotColor;
+        renderer = null;
+        generation++;
+        cache.clear();
+        pending.clear();
+        hidePreview();
+        redraw();
+        build();
+    }
+
+    /** Follows a replay that has grown since it was shown. */
+    void refresh() {
+        if (replay == null || (renderer != null && renderer.frames == replay.frameCount())) return;
+        build();
+    }
+
+    /** Makes or extends a renderer for the frames the replay has now, off the FX thread. */
+    private void build() {
+        if (replay == null || replay.isEmpty()) return;
+        if (building) {
+            buildAgain = true;
+            return;
+        }
+        building = true;
+        buildAgain = false;
+        Replay target = replay;
+        int color = robotColor;
+        // A growing replay extends the current renderer rather than simplifying every frame again
+        ThumbnailRenderer base = renderer;
+        RENDERERS.execute(() -> {
+            ThumbnailRenderer built;
+            try {
+                built = base != null ? base.extend() : new ThumbnailRenderer(target, color);
+            } catch (RuntimeException e) {
+                System.err.println("Could not prepare thumbnails: " + e.getMessage());
+                built = null;
+            }
+            ThumbnailRenderer result = built;
+            Platform.runLater(() -> {
+                building = false;
+                if (result != null && result.replay == replay) install(result);
+                if (buildAgain) build();
+            });
+        });
+    }
+
+    private void install(ThumbnailRenderer built) {
+        if (renderer != null && renderer.startMs == built.startMs) {
+            // Only pictures near the old end can change as a replay grows
+            long stableElapsedMs = renderer.stableEndMs - renderer.startMs;
+            cache.removeIf(key -> elapsedOf(key) > stableElapsedMs);
+        } else {
+            // Nothing cached yet, or a live replay dropped its oldest frames and every elapsed time moved
+            cache.clear();
+        }
+        renderer = built;
+        generation++;
+        pending.clear();
+        redraw();
+    }
+
+    private void queueRedraw() {
+        if (redrawQueued) return;
+        redrawQueued = true;
+        Platform.runLater(() -> {
+            redrawQueued = false;
+            redraw();
+        });
+    }
+
+    private void redraw() {
+        GraphicsContext g = canvas.getGraphicsContext2D();
+        double w = canvas.getWidth();
+        double h = canvas.getHeight();
+        g.clearRect(0, 0, w, h);
+        if (renderer == null) return;
+
+        double[] track = MatchStrip.track(slider);
+        int tiles = tileCount(track);
+        if (tiles == 0) return;
+        double tileWidth = track[1] / tiles;
+        int sizePx = devicePixels(h);
+        long coveredElapsedMs = renderer.endMs - renderer.startMs;
+        boolean growing = renderer.frames < replay.frameCount();
+        Set<Long> onScreen = new HashSet<>();
+        g.setImageSmoothing(true);
+        for (int i = 0; i < tiles; i++) {
+            double x = track[0] + i * tileWidth + (tileWidth - h) / 2;
+            long elapsedMs = tileElapsedMs(i, tiles);
+            long key = key(sizePx, elapsedMs);
+            onScreen.add(key);
+            Image image = cache.get(key);
+            if (image != null) {
+                g.drawImage(image, x, 0, h, h);
+                continue;
+            }
+            g.setFill(PLACEHOLDER);
+            g.fillRect(x, 0, h, h);
+            // Past the frames the renderer has, wait for the next one rather than draw the last pose
+            if (!growing || elapsedMs <= coveredElapsedMs) request(elapsedMs, sizePx);
+        }
+        visible = onScreen;
+    }
+
+    /** Square tiles as tall as the strip, as many as fit along the slider's track. */
+    private int tileCount(double[] track) {
+        double h = canvas.getHeight();
+        if (h <= 0 || track[1] < h) return 0;
+        return (int) (track[1] / h);
+    }
+
+    /**
+     * The moment shown by tile {@code i}: the middle of the stretch of timeline it
+     * sits over, rounded to a 1-2-5 step no longer than that stretch. Tiles keep
+     * their moments, and their cached pictures, while the timeline grows or the
+     * window is resized, until the step changes.
+     */
+    private long tileElapsedMs(int i, int tiles) {
+        double perTile = (slider.getMax() - slider.getMin()) / tiles;
+        long step = 1;
+        while (step * 10 <= perTile) step *= 10;
+        if (step * 5 <= perTile) {
+            step *= 5;
+        } else if (step * 2 <= perTile) {
+            step *= 2;
+        }
+        double elapsedMs = slider.getMin() - renderer.startMs + (i + 0.5) * perTile;
+        return Math.max(0, Math.round(elapsedMs / step) * step);
+    }
+
+    private void request(long elapsedMs, int sizePx) {
+        long key = key(sizePx, elapsedMs);
+        if (!pending.add(key)) return;
+        ThumbnailRenderer source = renderer;
+        int current = generation;
+        RENDERERS.execute(() -> {
+            if (current != generation) return;
+            boolean wanted = visible.contains(key);
+            Image image = wanted ? render(source, elapsedMs, sizePx) : null;
+            Platform.runLater(() -> {
+                if (current != generation) return;
+                if (!wanted) {
+                    pending.remove(key);
+                    // It may have come back on screen since it was skipped
+                    if (visible.contains(key)) queueRedraw();
+                    return;
+                }
+                // A tile that failed stays pending, so it is not tried again on every redraw
+                if (image == null) return;
+                pending.remove(key);
+                cache.put(key, image);
+                queueRedraw();
+            });
+        });
+    }
+
+    private void hover(double x) {
+        if (renderer == null) return;
+        double[] track = MatchStrip.track(slider);
+        if (track[1] <= 0) return;
+        // One preview per pixel of the track; moving within a pixel reuses it
+        double fraction = Math.round(Math.max(0, Math.min(track[1], x - track[0]))) / track[1];
+        double timeMs = slider.getMin() + fraction * (slider.getMax() - slider.getMin());
+        hoverElapsedMs = Math.max(0, Math.round(timeMs - renderer.startMs));
+
+        int sizePx = devicePixels(PREVIEW_SIZE);
+        Image image = cache.get(key(sizePx, hoverElapsedMs));
+        if (image == null) {
+            // Until the preview arrives, enlarge the tile under the pointer
+            int tiles = tileCount(track);
+            if (tiles > 0) {
+                int tile = Math.min(tiles - 1, (int) (fraction * tiles));
+                image = cache.get(key(devicePixels(canvas.getHeight()), tileElapsedMs(tile, tiles)));
+            }
+            renderPreview();
+        }
+        if (image != null) previewImage.setImage(image);
+
+        long t = (long) timeMs;
+        previewLabel.setText(String.format("%d:%02d.%03d", t / 60_000, t / 1000 % 60, t % 1000));
+        Point2D anchor = slider.localToScreen(track[0] + fraction * track[1], 0);
+        if (anchor == null) return;
+        double left = anchor.getX() - PREVIEW_SIZE / 2 - 4;
+        double top = anchor.getY() - HEIGHT - PREVIEW_SIZE - 32;
+        if (preview.isShowing()) {
+            preview.setX(left);
+            preview.setY(top);
+        } else {
+            preview.show(slider, left, top);
+        }
+    }
+
+    /** Renders the preview for wherever the pointer is once the one in flight is done. */
+    private void renderPreview() {
+        if (previewRendering || hoverElapsedMs < 0 || renderer == null) return;
+        previewRendering = true;
+        ThumbnailRenderer source = renderer;
+        int current = generation;
+        long elapsedMs = hoverElapsedMs;
+        int sizePx = devicePixels(PREVIEW_SIZE);
+        RENDERERS.execute(() -> {
+            Image image = current == generation ? render(source, elapsedMs, sizePx) : null;
+            Platform.runLater(() -> {
+                previewRendering = false;
+                if (current != generation || image == null) return;
+                cache.put(key(sizePx, elapsedMs), image);
+                if (hoverElapsedMs == elapsedMs) {
+                    previewImage.setImage(image);
+                } else if (hoverElapsedMs >= 0) {
+                    Image latest = cache.get(key(sizePx, hoverElapsedMs));
+                    if (latest != null) {
+                        previewImage.setImage(latest);
+                    } else {
+                        renderPreview();
+                    }
+                }
+            });
+        });
+    }
+
+    private void hidePreview() {
+        hoverElapsedMs = -1;
+        preview.hide();
+    }
+
+    /** Renders one thumbnail on a pool thread; null if it failed. */
+    private static Image render(ThumbnailRenderer source, long elapsedMs, int sizePx) {
+        try {
+            return source.render(source.startMs + elapsedMs, sizePx);
+        } catch (RuntimeException e) {
+            System.err.println("Could not render thumbnail: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /** Pixels on screen for a length in scene units, following the window's display scale. */
+    private int devicePixels(double length) {
+        Window window = getScene() != null ? getScene().getWindow() : null;
+        double scale = window != null ? window.getOutputScaleY() : 1;
+        return Math.max(1, (int) Math.round(length * scale));
+    }
+
+    // Size in the top bits, milliseconds after the replay's start below them
+    private static long key(int sizePx, long elapsedMs) {
+        return (long) sizePx << 40 | elapsedMs;
+    }
+
+    private static long elapsedOf(long key) {
+        return key & ((1L << 40) - 1);
+    }
+}
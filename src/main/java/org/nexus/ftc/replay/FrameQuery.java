@@ -0,0 +1,846 @@
+package org.nexus.ftc.replay;
+
+import java.text.ParseException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A condition over a replay's frames, such as
+ * {@code shooterRPM > 3000 && intakeState == RUNNING}, and the time intervals
+ * where it holds.
+ *
+ * <p>Conditions compare custom-data keys, or the pose fields {@code x},
+ * {@code y}, {@code heading} and {@code time}, with numbers, strings or each
+ * other using {@code == != < <= > >=}, and combine them with
+ * {@code && || !} and parentheses. A bare key holds where it is true or
+ * nonzero, or for a text key wherever it has a value. An unquoted word facing
+ * a key is read as a string unless it names a key itself, so enum states need
+ * no quotes; {@code "..."} forces a string and backticks quote key names with
+ * spaces or symbols. A frame with no value for a key never satisfies a
+ * comparison on it, and a replay without the key never matches.
+ *
+ * <p>Frames are evaluated a block of {@link ZoneMap#BLOCK_SIZE} at a time. The
+ * {@link ZoneMap}s of the keys a query reads tell whether the condition must
+ * hold throughout a block, or cannot hold anywhere in it, and such blocks are
+ * decided without reading their frames. A parsed query is immutable and may
+ * be run from any number of threads, each with its own zone maps.
+ */
+final class FrameQuery {
+
+    /** Pose fields that can be queried like keys, unless the replay has a custom key of the same name. */
+    static final List<String> POSE_FIELDS = Arrays.asList("x", "y", "heading", "time");
+
+    // Block verdicts, ordered so that && is the minimum, || the maximum and ! the complement
+    private static final int NEVER = 0;
+    private static final int MAYBE = 1;
+    private static final int ALWAYS = 2;
+
+    private final String text;
+    private final Expr expr;
+
+    private FrameQuery(String text, Expr expr) {
+        this.text = text;
+        this.expr = expr;
+    }
+
+    static FrameQuery parse(String text) throws ParseException {
+        return new FrameQuery(text, new Parser(text).parse());
+    }
+
+    String text() {
+        return text;
+    }
+
+    /**
+     * Finds every interval of consecutive frames where the query holds.
+     * {@code zoneMaps} caches summaries by key name between runs on the same
+     * replay; pass an empty map for a one-off run.
+     */
+    Matches run(Replay replay, Map<String, ZoneMap> zoneMaps) {
+        Node root = expr.bind(new Binding(replay, zoneMaps));
+        int count = replay.frameCount();
+        IntervalList intervals = new IntervalList();
+        int runStart = -1;
+        int matchedFrames = 0;
+        int blocks = 0;
+        int skippedBlocks = 0;
+
+        for (int from = 0; from < count; from += ZoneMap.BLOCK_SIZE, blocks++) {
+            int to = Math.min(count, from + ZoneMap.BLOCK_SIZE);
+            int verdict = root.block(blocks);
+            if (verdict == ALWAYS) {
+                if (runStart < 0) runStart = from;
+                matchedFrames += to - from;
+                skippedBlocks++;
+            } else if (verdict == NEVER) {
+                if (runStart >= 0) intervals.add(runStart, from - 1);
+                runStart = -1;
+                skippedBlocks++;
+            } else {
+                for (int f = from; f < to; f++) {
+                    if (root.test(f)) {
+                        if (runStart < 0) runStart = f;
+                        matchedFrames++;
+                    } else if (runStart >= 0) {
+                        intervals.add(runStart, f - 1);
+                        runStart = -1;
+                    }
+                }
+            }
+        }
+        if (runStart >= 0) intervals.add(runStart, count - 1);
+        return new Matches(replay, intervals, matchedFrames, blocks, skippedBlocks);
+    }
+
+    /**
+     * Runs of frames where a query held, in time order. Each interval spans from
+     * its first matching frame's time to its last's, so a single matching frame
+     * gives an interval of zero length.
+     */
+    static final class Matches {
+        final int count;
+        final long[] startMs;
+        final long[] endMs;
+        final int[] firstFrame;
+        final int[] lastFrame;
+        final int matchedFrames;
+        final int blocks;
+        final int skippedBlocks;
+
+        private Matches(Replay replay, IntervalList intervals, int matchedFrames, int blocks, int skippedBlocks) {
+            this.count = intervals.size;
+            this.firstFrame = Arrays.copyOf(intervals.first, count);
+            this.lastFrame = Arrays.copyOf(intervals.last, count);
+            this.startMs = new long[count];
+            this.endMs = new long[count];
+            for (int i = 0; i < count; i++) {
+                startMs[i] = replay.timeMs(firstFrame[i]);
+                endMs[i] = replay.timeMs(lastFrame[i]);
+            }
+            this.matchedFrames = matchedFrames;
+            this.blocks = blocks;
+            this.skippedBlocks = skippedBlocks;
+        }
+
+        boolean isEmpty() {
+            return count == 0;
+        }
+
+        /** Index of the first interval starting after {@code timeMs}, or -1. */
+        int after(double timeMs) {
+            int i = insertionPoint(timeMs);
+            while (i < count && startMs[i] <= timeMs) i++;
+            return i < count ? i : -1;
+        }
+
+        /** Index of the last interval starting before {@code timeMs}, or -1. */
+        int before(double timeMs) {
+            int i = insertionPoint(timeMs) - 1;
+            while (i >= 0 && startMs[i] >= timeMs) i--;
+            return i;
+        }
+
+        private int insertionPoint(double timeMs) {
+            int i = Arrays.binarySearch(startMs, 0, count, (long) Math.floor(timeMs));
+            return i >= 0 ? i : -i - 1;
+        }
+
+        long totalMs() {
+            long total = 0;
+            for (int i = 0; i < count; i++) {
+                total += endMs[i] - startMs[i];
+            }
+            return total;
+        }
+    }
+
+    private static final class IntervalList {
+        int[] first = new int[16];
+        int[] last = new int[16];
+        int size;
+
+        void add(int from, int to) {
+            if (size == first.length) {
+                first = Arrays.copyOf(first, size * 2);
+                last = Arrays.copyOf(last, size * 2);
+            }
+            first[size] = from;
+            last[size] = to;
+            size++;
+        }
+    }
+
+    private enum Op {
+        EQ("=="), NE("!="), LT("<"), LE("<="), GT(">"), GE(">=");
+
+        final String symbol;
+
+        Op(String symbol) {
+            this.symbol = symbol;
+        }
+
+        /** Whether the operator holds for a comparison result {@code cmp} of left against right. */
+        boolean holds(int cmp) {
+            switch (this) {
+                case EQ:
+                    return cmp == 0;
+                case NE:
+                    return cmp != 0;
+                case LT:
+                    return cmp < 0;
+                case LE:
+                    return cmp <= 0;
+                case GT:
+                    return cmp > 0;
+                default:
+                    return cmp >= 0;
+            }
+        }
+
+        /** The operator with its operands swapped: {@code a < b} is {@code b > a}. */
+        Op flip() {
+            switch (this) {
+                case LT:
+                    return GT;
+                case LE:
+                    return GE;
+                case GT:
+                    return LT;
+                case GE:
+                    return LE;
+                default:
+                    return this;
+            }
+        }
+
+        /** Verdict for a block whose present values lie in [lo, hi], against {@code c}. */
+        int verdict(double lo, double hi, boolean full, double c) {
+            if (lo > hi) return NEVER;
+            boolean all;
+            boolean none;
+            switch (this) {
+                case EQ:
+                    all = lo == c && hi == c;
+                    none = c < lo || c > hi;
+                    break;
+                case NE:
+                    all = c < lo || c > hi;
+                    none = lo == c && hi == c;
+                    break;
+                case LT:
+                    all = hi < c;
+                    none = lo >= c;
+                    break;
+                case LE:
+                    all = hi <= c;
+                    none = lo > c;
+                    break;
+                case GT:
+                    all = lo > c;
+                    none = hi <= c;
+                    break;
+                default:
+                    all = lo >= c;
+                    none = hi < c;
+                    break;
+            }
+            // A block with missing values can still rule itself out, but never in
+            if (none) return NEVER;
+            return all && full ? ALWAYS : MAYBE;
+        }
+    }
+
+    private static int compare(double a, double b) {
+        return a < b ? -1 : a > b ? 1 : 0;
+    }
+
+    /** A query bound to one replay's columns. */
+    private abstract static class Node {
+        abstract boolean test(int frame);
+
+        /** Verdict for a complete block, or {@link #MAYBE} when it must be read frame by frame. */
+        abstract int block(int block);
+    }
+
+    private static final class And extends Node {
+        private final Node left;
+        private final Node right;
+
+        And(Node left, Node right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        boolean test(int frame) {
+            return left.test(frame) && right.test(frame);
+        }
+
+        @Override
+        int block(int block) {
+            int l = left.block(block);
+            return l == NEVER ? NEVER : Math.min(l, right.block(block));
+        }
+    }
+
+    private static final class Or extends Node {
+        private final Node left;
+        private final Node right;
+
+        Or(Node left, Node right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        boolean test(int frame) {
+            return left.test(frame) || right.test(frame);
+        }
+
+        @Override
+        int block(int block) {
+            int l = left.block(block);
+            return l == ALWAYS ? ALWAYS : Math.max(l, right.block(block));
+        }
+    }
+
+    private static final class Not extends Node {
+        private final Node inner;
+
+        Not(Node inner) {
+            this.inner = inner;
+        }
+
+        @Override
+        boolean test(int frame) {
+            return !inner.test(frame);
+        }
+
+        @Override
+        int block(int block) {
+            return ALWAYS - inner.block(block);
+        }
+    }
+
+    private static final class Constant extends Node {
+        private final boolean value;
+
+        Constant(boolean value) {
+            this.value = value;
+        }
+
+        @Override
+        boolean test(int frame) {
+            return value;
+        }
+
+        @Override
+        int block(int block) {
+            return value ? ALWAYS : NEVER;
+        }
+    }
+
+    /** Base for comparisons against a constant that a zone map can decide per block. */
+    private abstract static class Summarized extends Node {
+        final ZoneMap zoneMap;
+        final Op op;
+        final double constant;
+
+        Summarized(ZoneMap zoneMap, Op op, double constant) {
+            this.zoneMap = zoneMap;
+            this.op = op;
+            this.constant = constant;
+        }
+
+        @Override
+        int block(int block) {
+            if (!zoneMap.summarizes() || block >= zoneMap.blockCount()) return MAYBE;
+            return op.verdict(zoneMap.min(block), zoneMap.max(block), zoneMap.full(block), constant);
+        }
+    }
+
+    /** A numeric or boolean column against a number. */
+    private static final class NumberCompare extends Summarized {
+        private final CustomColumn column;
+
+        NumberCompare(CustomColumn column, ZoneMap zoneMap, Op op, double constant) {
+            super(zoneMap, op, constant);
+            this.column = column;
+        }
+
+        @Override
+        boolean test(int frame) {
+            double v = column.number(frame);
+            return !Double.isNaN(v) && op.holds(compare(v, constant));
+        }
+    }
+
+    /** Equality of an in-memory text column with a string, by dictionary code; code 0 never matches. */
+    private static final class CodeCompare extends Summarized {
+        private final CustomColumn.Text column;
+        private final int code;
+
+        CodeCompare(CustomColumn.Text column, ZoneMap zoneMap, Op op, int code) {
+            super(zoneMap, op, code);
+            this.column = column;
+            this.code = code;
+        }
+
+        @Override
+        boolean test(int frame) {
+            int c = column.code(frame);
+            return c != 0 && (c == code) == (op == Op.EQ);
+        }
+    }
+
+    /** Any column's display text against a string. */
+    private static final class TextCompare extends Node {
+        private final CustomColumn column;
+        private final Op op;
+        private final String constant;
+
+        TextCompare(CustomColumn column, Op op, String constant) {
+            this.column = column;
+            this.op = op;
+            this.constant = constant;
+        }
+
+        @Override
+        boolean test(int frame) {
+            String s = column.text(frame);
+            return s != null && op.holds(s.compareTo(constant));
+        }
+
+        @Override
+        int block(int block) {
+            return MAYBE;
+        }
+    }
+
+    /** Two columns against each other, as numbers unless either is text. */
+    private static final class ColumnCompare extends Node {
+        private final CustomColumn left;
+        private final Op op;
+        private final CustomColumn right;
+        private final boolean numeric;
+
+        ColumnCompare(CustomColumn left, Op op, CustomColumn right) {
+            this.left = left;
+            this.op = op;
+            this.right = right;
+            this.numeric = left.kind() != CustomColumn.Kind.TEXT && right.kind() != CustomColumn.Kind.TEXT;
+        }
+
+        @Override
+        boolean test(int frame) {
+            if (numeric) {
+                double a = left.number(frame);
+                double b = right.number(frame);
+                return !Double.isNaN(a) && !Double.isNaN(b) && op.holds(compare(a, b));
+            }
+            String a = left.text(frame);
+            String b = right.text(frame);
+            return a != null && b != null && op.holds(a.compareTo(b));
+        }
+
+        @Override
+        int block(int block) {
+            return MAYBE;
+        }
+    }
+
+    /** A bare text key: holds wherever the key has a value. */
+    private static final class Present extends Node {
+        private final CustomColumn column;
+        private final ZoneMap zoneMap;
+
+        Present(CustomColumn column, ZoneMap zoneMap) {
+            this.column = column;
+            this.zoneMap = zoneMap;
+        }
+
+        @Override
+        boolean test(int frame) {
+            return column.has(frame);
+        }
+
+        @Override
+        int block(int block) {
+            if (!zoneMap.summarizes() || block >= zoneMap.blockCount()) return MAYBE;
+            if (zoneMap.min(block) > zoneMap.max(block)) return NEVER;
+            return zoneMap.full(block) ? ALWAYS : MAYBE;
+        }
+    }
+
+    /** A pose field read as a numeric column, so it is compared and summarized like custom data. */
+    private static final class PoseColumn extends CustomColumn {
+        private final Replay replay;
+        private final int field;
+
+        PoseColumn(Replay replay, String name) {
+            super(name);
+            this.replay = replay;
+            this.field = POSE_FIELDS.indexOf(name);
+        }
+
+        @Override
+        Kind kind() {
+            return Kind.NUMERIC;
+        }
+
+        @Override
+        boolean has(int frame) {
+            return true;
+        }
+
+        @Override
+        double number(int frame) {
+            switch (field) {
+                case 0:
+                    return replay.x(frame);
+                case 1:
+                    return replay.y(frame);
+                case 2:
+                    return replay.heading(frame);
+                default:
+                    return replay.timeMs(frame);
+            }
+        }
+
+        @Override
+        String text(int frame) {
+            return formatNumber(number(frame));
+        }
+
+        @Override
+        void trimToSize(int frameCount) {
+            // Nothing is held
+        }
+
+        @Override
+        long memoryBytes() {
+            return 0;
+        }
+    }
+
+    /** Resolves names against one replay and hands out up-to-date zone maps. */
+    private static final class Binding {
+        final Replay replay;
+        final Map<String, ZoneMap> zoneMaps;
+
+        Binding(Replay replay, Map<String, ZoneMap> zoneMaps) {
+            this.replay = replay;
+            this.zoneMaps = zoneMaps;
+        }
+
+        /** The column for a key or pose field, or null if this replay has neither. */
+        CustomColumn column(String name) {
+            int key = replay.keyIndex(name);
+            if (key >= 0) return replay.column(key);
+            if (!POSE_FIELDS.contains(name)) return null;
+            ZoneMap cached = zoneMaps.get(name);
+            if (cached != null && cached.replay == replay && cached.column instanceof PoseColumn) {
+                return cached.column;
+            }
+            return new PoseColumn(replay, name);
+        }
+
+        ZoneMap zoneMap(CustomColumn column) {
+            ZoneMap map = zoneMaps.get(column.key);
+            // A column replaced since, e.g. numeric turned text, needs a new map
+            if (map == null || map.replay != replay || map.column != column) {
+                map = new ZoneMap(replay, column);
+                zoneMaps.put(column.key, map);
+            }
+            map.update();
+            return map;
+        }
+    }
+
+    /** One side of a comparison as written. */
+    private static final class Term {
+        static final int NAME = 0;
+        static final int KEY = 1;
+        static final int NUMBER = 2;
+        static final int STRING = 3;
+
+        final int kind;
+        final String text;
+        final double number;
+
+        Term(int kind, String text, double number) {
+            this.kind = kind;
+            this.text = text;
+            this.number = number;
+        }
+
+        boolean isLiteral() {
+            return kind == NUMBER || kind == STRING;
+        }
+    }
+
+    private abstract static class Expr {
+        abstract Node bind(Binding binding);
+    }
+
+    private static final class Logic extends Expr {
+        private final boolean and;
+        private final Expr left;
+        private final Expr right;
+
+        Logic(boolean and, Expr left, Expr right) {
+            this.and = and;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        Node bind(Binding binding) {
+            Node l = left.bind(binding);
+            Node r = right.bind(binding);
+            return and ? new And(l, r) : new Or(l, r);
+        }
+    }
+
+    private static final class Negation extends Expr {
+        private final Expr inner;
+
+        Negation(Expr inner) {
+            this.inner = inner;
+        }
+
+        @Override
+        Node bind(Binding binding) {
+            return new Not(inner.bind(binding));
+        }
+    }
+
+    /** A key on its own, as a condition. */
+    private static final class Bare extends Expr {
+        private final Term term;
+
+        Bare(Term term) {
+            this.term = term;
+        }
+
+        @Override
+        Node bind(Binding binding) {
+            CustomColumn column = binding.column(term.text);
+            if (column == null) return new Constant(false);
+            if (column.kind() == CustomColumn.Kind.TEXT) return new Present(column, binding.zoneMap(column));
+            return new NumberCompare(column, binding.zoneMap(column), Op.NE, 0);
+        }
+    }
+
+    private static final class Comparison extends Expr {
+        private final Term left;
+        private final Op op;
+        private final Term right;
+
+        Comparison(Term left, Op op, Term right) {
+            this.left = left;
+            this.op = op;
+            this.right = right;
+        }
+
+        @Override
+        Node bind(Binding binding) {
+            CustomColumn l = resolve(binding, left);
+            CustomColumn r = resolve(binding, right);
+            if (l != null && r != null) return new ColumnCompare(l, op, r);
+            if (l != null) return against(binding, l, op, literal(right));
+            if (r != null) return against(binding, r, op.flip(), literal(left));
+            // A name that is not a key, opposite a literal or another such name, is a key this replay lacks
+            if (!left.isLiteral() || !right.isLiteral()) return new Constant(false);
+
+            Object a = literal(left);
+            Object b = literal(right);
+            int cmp = a instanceof Double && b instanceof Double
+                    ? compare((Double) a, (Double) b) : a.toString().compareTo(b.toString());
+            return new Constant(op.holds(cmp));
+        }
+
+        /** The column a key or bare word refers to, or null for literals and names this replay lacks. */
+        private static CustomColumn resolve(Binding binding, Term term) {
+            return term.isLiteral() ? null : binding.column(term.text);
+        }
+
+        private static Object literal(Term term) {
+            return term.kind == Term.NUMBER ? (Object) term.number : term.text;
+        }
+
+        private static Node against(Binding binding, CustomColumn column, Op op, Object value) {
+            if (column.kind() == CustomColumn.Kind.TEXT) {
+                String text = value instanceof Double ? CustomColumn.formatNumber((Double) value) : (String) value;
+                if (column instanceof CustomColumn.Text && (op == Op.EQ || op == Op.NE)) {
+                    CustomColumn.Text dictionary = (CustomColumn.Text) column;
+                    int code = dictionary.codeOf(text);
+                    // A value not logged yet may still arrive while the replay loads or is live
+                    if (code != 0) return new CodeCompare(dictionary, binding.zoneMap(column), op, code);
+                }
+                return new TextCompare(column, op, text);
+            }
+
+            double number;
+            if (value instanceof Double) {
+                number = (Double) value;
+            } else if (column.kind() == CustomColumn.Kind.BOOLEAN && isBoolean((String) value)) {
+                number = value.equals("true") ? 1 : 0;
+            } else {
+                try {
+                    number = Double.parseDouble((String) value);
+                } catch (NumberFormatException e) {
+                    return new TextCompare(column, op, (String) value);
+                }
+            }
+            return new NumberCompare(column, binding.zoneMap(column), op, number);
+        }
+
+        private static boolean isBoolean(String value) {
+            return value.equals("true") || value.equals("false");
+        }
+    }
+
+    /**
+     * Recursive descent over:
+     * <pre>
+     * or         := and ('||' and)*
+     * and        := unary ('&amp;&amp;' unary)*
+     * unary      := '!' unary | '(' or ')' | comparison
+     * comparison := term (op term)?
+     * term       := name | `key` | number | "string"
+     * </pre>
+     */
+    private static final class Parser {
+        private final String text;
+        private int pos;
+
+        Parser(String text) {
+            this.text = text;
+        }
+
+        Expr parse() throws ParseException {
+            skipSpace();
+            if (pos == text.length()) throw new ParseException("Empty query", 0);
+            Expr expr = parseOr();
+            skipSpace();
+            if (pos < text.length()) throw error("Unexpected '" + text.charAt(pos) + "'");
+            return expr;
+        }
+
+        private Expr parseOr() throws ParseException {
+            Expr left = parseAnd();
+            while (accept("||")) {
+                left = new Logic(false, left, parseAnd());
+            }
+            return left;
+        }
+
+        private Expr parseAnd() throws ParseException {
+            Expr left = parseUnary();
+            while (accept("&&")) {
+                left = new Logic(true, left, parseUnary());
+            }
+            return left;
+        }
+
+        private Expr parseUnary() throws ParseException {
+            skipSpace();
+            if (peek('!') && !text.startsWith("!=", pos)) {
+                pos++;
+                return new Negation(parseUnary());
+            }
+            if (accept("(")) {
+                Expr inner = parseOr();
+                if (!accept(")")) throw error("Expected ')'");
+                return inner;
+            }
+            return parseComparison();
+        }
+
+        private Expr parseComparison() throws ParseException {
+            skipSpace();
+            int start = pos;
+            Term left = parseTerm();
+            Op op = parseOp();
+            if (op == null) {
+                if (left.isLiteral()) throw new ParseException("Expected a key or comparison at column " + (start + 1), start);
+                return new Bare(left);
+            }
+            return new Comparison(left, op, parseTerm());
+        }
+
+        private Op parseOp() {
+            skipSpace();
+            // Two-character operators first, so "<=" is not read as "<"
+            for (String symbol : new String[] {"==", "!=", "<=", ">=", "<", ">"}) {
+                if (text.startsWith(symbol, pos)) {
+                    pos += symbol.length();
+                    for (Op op : Op.values()) {
+                        if (op.symbol.equals(symbol)) return op;
+                    }
+                }
+            }
+            return null;
+        }
+
+        private Term parseTerm() throws ParseException {
+            skipSpace();
+            if (pos == text.length()) throw error("Expected a key or value");
+            char c = text.charAt(pos);
+            if (c == '"' || c == '\'' || c == '`') {
+                int close = text.indexOf(c, pos + 1);
+                if (close < 0) throw error("Unclosed " + c);
+                String value = text.substring(pos + 1, close);
+                pos = close + 1;
+                return new Term(c == '`' ? Term.KEY : Term.STRING, value, 0);
+            }
+            if (Character.isDigit(c) || ((c == '-' || c == '.') && pos + 1 < text.length()
+                    && (Character.isDigit(text.charAt(pos + 1)) || text.charAt(pos + 1) == '.'))) {
+                int start = pos++;
+                while (pos < text.length() && isNumberChar(text.charAt(pos), text.charAt(pos - 1))) pos++;
+                String number = text.substring(start, pos);
+                try {
+                    return new Term(Term.NUMBER, number, Double.parseDouble(number));
+                } catch (NumberFormatException e) {
+                    throw new ParseException("Bad number '" + number + "'", start);
+                }
+            }
+            if (Character.isLetter(c) || c == '_') {
+                int start = pos;
+                while (pos < text.length() && isNameChar(text.charAt(pos))) pos++;
+                return new Term(Term.NAME, text.substring(start, pos), 0);
+            }
+            throw error("Unexpected '" + c + "'");
+        }
+
+        private static boolean isNumberChar(char c, char previous) {
+            return Character.isDigit(c) || c == '.' || c == 'e' || c == 'E'
+                    || ((c == '-' || c == '+') && (previous == 'e' || previous == 'E'));
+        }
+
+        private static boolean isNameChar(char c) {
+            return Character.isLetterOrDigit(c) || c == '_' || c == '.';
+        }
+
+        private boolean accept(String token) {
+            skipSpace();
+            if (!text.startsWith(token, pos)) return false;
+            pos += token.length();
+            return true;
+        }
+
+        private boolean peek(char c) {
+            return pos < text.length() && text.charAt(pos) == c;
+        }
+
+        private void skipSpace() {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) pos++;
+        }
+
+        private ParseException error(String message) {
+            return new ParseException(message + " at column " + (pos + 1), pos);
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package org.nexus.ftc.replay;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Bounded single-producer/single-consumer queue of frames between a live source
+ * and the FX thread. The producer writes through the {@link FrameSink} methods
+ * into preallocated slots and publishes each frame with one ordered store; the
+ * consumer copies published frames into another sink with {@link #drainTo}.
+ * Neither side takes a lock, and slots are reused, so a steady stream of frames
+ * allocates nothing beyond the strings it carries.
+ *
+ * <p>When the ring is full the producer waits for the consumer rather than
+ * dropping frames.
+ */
+final class FrameRing implements FrameSink {
+
+    static final int DEFAULT_CAPACITY = 4096;
+
+    private static final long FULL_WAIT_NS = 100_000L;
+
+    private final Slot[] slots;
+    private final int mask;
+
+    // Next slot to read (written by the consumer) and next slot to publish (written by the producer)
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+
+    // Producer state
+    private long cachedHead;
+    private Slot writing;
+    private final Slot discard = new Slot();
+    private volatile boolean closed;
+
+    // Latest header, replaced as a whole so the consumer never sees half of one
+    private volatile Header header;
+    private Header drainedHeader;
+
+    FrameRing(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        slots = new Slot[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = new Slot();
+        }
+        mask = size - 1;
+    }
+
+    int capacity() {
+        return slots.length;
+    }
+
+    /** Frames published so far. */
+    long published() {
+        return tail.get();
+    }
+
+    /** Unblocks a producer waiting for space; later frames are discarded. */
+    void close() {
+        closed = true;
+    }
+
+    // ---- Producer side
+
+    @Override
+    public void header(String team, String match, long date) {
+        header = new Header(team, match, date);
+    }
+
+    @Override
+    public void beginFrame() {
+        long t = tail.get();
+        while (t - cachedHead >= slots.length) {
+            cachedHead = head.get();
+            if (t - cachedHead < slots.length) break;
+            if (closed) {
+                writing = discard;
+                writing.clear();
+                return;
+            }
+            LockSupport.parkNanos(FULL_WAIT_NS);
+        }
+        writing = slots[(int) t & mask];
+        writing.clear();
+    }
+
+    @Override
+    public void putNumber(String key, double value) {
+        writing.add(key, CustomColumn.Kind.NUMERIC, value, null);
+    }
+
+    @Override
+    public void putBoolean(String key, boolean value) {
+        writing.add(key, CustomColumn.Kind.BOOLEAN, value ? 1 : 0, null);
+    }
+
+    @Override
+    public void putText(String key, String value) {
+        writing.add(key, CustomColumn.Kind.TEXT, 0, value);
+    }
+
+    @Override
+    public void endFrame(long timeMs, double x, double y, double heading) {
+        if (writing == discard) return;
+        writing.timeMs = timeMs;
+        writing.x = x;
+        writing.y = y;
+        writing.heading = heading;
+        writing = null;
+        // Ordered store: the slot's contents are visible before the new tail
+        tail.lazySet(tail.get() + 1);
+    }
+
+    // ---- Consumer side
+
+    /**
+     * Passes up to {@code max} published frames to {@code sink}, preceded by the
+     * header if it changed since the last drain.
+     *
+     * @return the number of frames passed on
+     */
+    int drainTo(FrameSink sink, int max) {
+        Header latestHeader = header;
+        if (latestHeader != drainedHeader) {
+            drainedHeader = latestHeader;
+            sink.header(latestHeader.team, latestHeader.match, latestHeader.date);
+        }
+
+        long h = head.get();
+        int n = (int) Math.min(tail.get() - h, max);
+        for (int i = 0; i < n; i++) {
+            slots[(int) (h + i) & mask].drainTo(sink);
+        }
+        head.lazySet(h + n);
+        return n;
+    }
+
+    private static final class Header {
+        final String team;
+        final String match;
+        final long date;
+
+        Header(String team, String match, long date) {
+            this.team = team;
+            this.match = match;
+            this.date = date;
+        }
+    }
+
+    /** One frame: pose plus its custom values in arrival order. */
+    private static final class Slot {
+        long timeMs;
+        double x;
+        double y;
+        double heading;
+
+        int count;
+        String[] keys = new String[8];
+        CustomColumn.Kind[] kinds = new CustomColumn.Kind[8];
+        double[] numbers = new double[8];
+        String[] texts = new String[8];
+
+        void clear() {
+            // Drop references so a reused slot does not keep old strings alive
+            Arrays.fill(keys, 0, count, null);
+            Arrays.fill(texts, 0, count, null);
+            count = 0;
+        }
+
+        void add(String key, CustomColumn.Kind kind, double number, String text) {
+            if (count == keys.length) {
+                int capacity = count * 2;
+                keys = Arrays.copyOf(keys, capacity);
+                kinds = Arrays.copyOf(kinds, capacity);
+                numbers = Arrays.copyOf(numbers, capacity);
+                texts = Arrays.copyOf(texts, capacity);
+            }
+            keys[count] = key;
+            kinds[count] = kind;
+            numbers[count] = number;
+            texts[count] = text;
+            count++;
+        }
+
+        void drainTo(FrameSink sink) {
+            sink.beginFrame();
+            for (int i = 0; i < count; i++) {
+                switch (kinds[i]) {
+                    case NUMERIC:
+                        sink.putNumber(keys[i], numbers[i]);
+                        break;
+                    case BOOLEAN:
+                        sink.putBoolean(keys[i], numbers[i] != 0);
+                        break;
+                    default:
+                        sink.putText(keys[i], texts[i]);
+                        break;
+                }
+            }
+            sink.endFrame(timeMs, x, y, heading);
+        }
+    }
+}
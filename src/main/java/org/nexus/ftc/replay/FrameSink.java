@@ -0,0 +1,50 @@
+package org.nexus.ftc.replay;
+
+/**
+ * Receives a replay one frame at a time, as produced by {@link ReplayLoader}.
+ * {@link ReplayData} stores what it receives; other sinks such as
+ * {@link MatchMetrics} fold frames into summaries without keeping them.
+ *
+ * <p>For each frame the loader calls {@link #beginFrame()}, then the {@code put}
+ * methods for its custom data, then {@link #endFrame}.
+ */
+interface FrameSink {
+
+    void header(String team, String match, long date);
+
+    void beginFrame();
+
+    void putNumber(String key, double value);
+
+    void putBoolean(String key, boolean value);
+
+    void putText(String key, String value);
+
+    void endFrame(long timeMs, double x, double y, double heading);
+
+    /** Sends every frame of an already opened replay to a sink. */
+    static void feed(Replay replay, FrameSink sink) {
+        sink.header(replay.team(), replay.match(), replay.date());
+        int keyCount = replay.keyCount();
+        int frameCount = replay.frameCount();
+        for (int i = 0; i < frameCount; i++) {
+            sink.beginFrame();
+            for (int k = 0; k < keyCount; k++) {
+                CustomColumn column = replay.column(k);
+                if (!column.has(i)) continue;
+                switch (column.kind()) {
+                    case NUMERIC:
+                        sink.putNumber(column.key, column.number(i));
+                        break;
+                    case BOOLEAN:
+                        sink.putBoolean(column.key, column.number(i) != 0);
+                        break;
+                    default:
+                        sink.putText(column.key, column.text(i));
+                        break;
+                }
+            }
+            sink.endFrame(replay.timeMs(i), replay.x(i), replay.y(i), replay.heading(i));
+        }
+    }
+}
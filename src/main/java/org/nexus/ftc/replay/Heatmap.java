@@ -0,0 +1,130 @@
+package org.nexus.ftc.replay;
+
+import java.awt.Color;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Field heatmaps over any number of replays. Each file is reduced to an
+ * {@link OccupancyGrid} on a fork-join pool, streaming JSON through the grid
+ * rather than storing its frames, and the grids are summed. Per-file grids are
+ * cached by path, size and modification time, so adding a match to a heatmap
+ * of a whole event only reads the new file.
+ *
+ * <p>{@link #render} turns a grid into one small ARGB image, one pixel per
+ * cell, for the viewer to scale over the field.
+ */
+final class Heatmap {
+
+    private static final double OCCUPANCY_MIN_ALPHA = 0.25;
+    private static final double OCCUPANCY_MAX_ALPHA = 0.75;
+    private static final double KEY_ALPHA = 0.65;
+
+    private static final class Cached {
+        final long size;
+        final long modified;
+        final OccupancyGrid grid;
+
+        Cached(long size, long modified, OccupancyGrid grid) {
+            this.size = size;
+            this.modified = modified;
+            this.grid = grid;
+        }
+    }
+
+    // Per-file grids by path and key; safe to fill from several builds at once
+    private final Map<String, Cached> cache = new ConcurrentHashMap<>();
+
+    /** Sums the grids of every file on a pool of the given size; unreadable files are left out. */
+    OccupancyGrid build(List<File> files, String key, int threads) throws InterruptedException {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            return pool.submit(() -> files.parallelStream()
+                    .map(file -> grid(file, key))
+                    .filter(grid -> grid != null)
+                    .collect(() -> new OccupancyGrid(key), OccupancyGrid::merge, OccupancyGrid::merge)).get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /** The grid of one file, from the cache if the file has not changed since. */
+    OccupancyGrid grid(File file, String key) {
+        String cacheKey = file.getPath() + '\n' + (key != null ? key : "");
+        long size = file.length();
+        long modified = file.lastModified();
+        Cached cached = cache.get(cacheKey);
+        if (cached != null && cached.size == size && cached.modified == modified) return cached.grid;
+
+        OccupancyGrid grid;
+        try {
+            if (MappedReplay.isBinaryReplay(file)) {
+                grid = OccupancyGrid.of(MappedReplay.open(file), key);
+            } else {
+                grid = new OccupancyGrid(key);
+                new ReplayLoader(file, grid, ReplayLoader.Listener.NONE).load();
+                grid.replays = 1;
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Skipping " + file + ": " + e.getMessage());
+            return null;
+        }
+        cache.put(cacheKey, new Cached(size, modified, grid));
+        return grid;
+    }
+
+    /**
+     * Colors each cell from blue (little time, or a low key value) to red, as
+     * {@link FieldView} colors trails. Occupancy is shown on a square-root scale
+     * so rarely visited cells still show; with a key, cells are colored by its
+     * time-weighted mean between the lowest and highest cell. Cells with no data
+     * are transparent. Row 0 of the result is the far side of the field.
+     */
+    static int[] render(OccupancyGrid grid) {
+        int cells = OccupancyGrid.CELLS;
+        int[] argb = new int[cells * cells];
+
+        boolean byKey = grid.keySum != null;
+        double low = Double.POSITIVE_INFINITY;
+        double high = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < argb.length; i++) {
+            if (byKey) {
+                if (grid.keySeconds[i] <= 0) continue;
+                double mean = grid.keySum[i] / grid.keySeconds[i];
+                low = Math.min(low, mean);
+                high = Math.max(high, mean);
+            } else {
+                high = Math.max(high, grid.seconds[i]);
+            }
+        }
+        if (!byKey && high <= 0) return argb;
+
+        for (int row = 0; row < cells; row++) {
+            for (int column = 0; column < cells; column++) {
+                int i = row * cells + column;
+                double t;
+                double alpha;
+                if (byKey) {
+                    if (grid.keySeconds[i] <= 0) continue;
+                    double mean = grid.keySum[i] / grid.keySeconds[i];
+                    t = high > low ? (mean - low) / (high - low) : 0.5;
+                    alpha = KEY_ALPHA;
+                } else {
+                    if (grid.seconds[i] <= 0) continue;
+                    t = Math.sqrt(grid.seconds[i] / high);
+                    alpha = OCCUPANCY_MIN_ALPHA + (OCCUPANCY_MAX_ALPHA - OCCUPANCY_MIN_ALPHA) * t;
+                }
+                int rgb = Color.HSBtoRGB((float) (240.0 * (1 - t) / 360.0), 0.9f, 1.0f) & 0xFFFFFF;
+                argb[(cells - 1 - row) * cells + column] = (int) Math.round(alpha * 255) << 24 | rgb;
+            }
+        }
+        return argb;
+    }
+}
@@ -0,0 +1,231 @@
+package org.nexus.ftc.replay;
+
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.collections.transformation.FilteredList;
+import javafx.collections.transformation.SortedList;
+import javafx.geometry.Pos;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.TableCell;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableRow;
+import javafx.scene.control.TableView;
+import javafx.scene.control.TextField;
+import javafx.scene.input.KeyCode;
+import javafx.scene.layout.BorderPane;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+import javafx.stage.DirectoryChooser;
+
+import java.io.File;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Sortable, filterable table of every replay under a folder, backed by a
+ * {@link LibraryIndex}. Choosing a folder lists its cached entries at once, then
+ * checks the folder on a background thread and fills in new or changed files as
+ * they are scanned. Double-click or Enter opens a replay.
+ */
+final class LibraryBrowser extends BorderPane {
+
+    // Indexing and saving run one at a time, off the FX thread
+    private static final ExecutorService INDEXER = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "library-indexer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final LibraryIndex index;
+    private final Consumer<File> onOpen;
+    private final ObservableList<LibraryIndex.Entry> rows = FXCollections.observableArrayList();
+    private final FilteredList<LibraryIndex.Entry> filtered = new FilteredList<>(rows);
+    private final TableView<LibraryIndex.Entry> table = new TableView<>();
+    private final TextField filterField = new TextField();
+    private final Label folderLabel = new Label("No folder chosen");
+    private final Label statusLabel = new Label();
+
+    // Entries scanned on worker threads, waiting to be shown
+    private final ConcurrentLinkedQueue<LibraryIndex.Entry> scanned = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+    private File root;
+    // Bumped for every folder opened, so results for an earlier one are dropped
+    private volatile int generation;
+
+    LibraryBrowser(LibraryIndex index, Consumer<File> onOpen) {
+        this.index = index;
+        this.onOpen = onOpen;
+        getStylesheets().add(getClass().getResource("/dark-table.css").toExternalForm());
+        setStyle("-fx-padding: 10; -fx-background-color: #222;");
+
+        Button folderButton = new Button("Choose Folder...");
+        folderButton.setOnAction(e -> {
+            DirectoryChooser chooser = new DirectoryChooser();
+            chooser.setTitle("Replay Library Folder");
+            if (root != null && root.isDirectory()) chooser.setInitialDirectory(root);
+            File selected = chooser.showDialog(getScene().getWindow());
+            if (selected != null) open(selected);
+        });
+        Button rescanButton = new Button("Rescan");
+        rescanButton.setOnAction(e -> {
+            if (root != null) open(root);
+        });
+
+        filterField.setPromptText("Filter by team, match or file");
+        filterField.textProperty().addListener((obs, oldVal, newVal) -> {
+            String needle = newVal.trim().toLowerCase(Locale.ROOT);
+            filtered.setPredicate(needle.isEmpty() ? null : entry -> contains(entry.team, needle)
+                    || contains(entry.match, needle) || contains(entry.file().getName(), needle));
+        });
+        HBox.setHgrow(filterField, Priority.ALWAYS);
+        folderLabel.setStyle("-fx-text-fill: #eee;");
+        statusLabel.setStyle("-fx-text-fill: #aaa;");
+
+        HBox top = new HBox(10, folderButton, rescanButton, folderLabel, filterField);
+        top.setAlignment(Pos.CENTER_LEFT);
+        top.setStyle("-fx-padding: 0 0 10 0;");
+        setTop(top);
+
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm");
+        table.getColumns().add(column("Team", entry -> entry.team, team -> team));
+        table.getColumns().add(column("Match", entry -> entry.match, match -> match));
+        table.getColumns().add(column("Date", entry -> entry.date,
+                date -> date > 0 ? dateFormat.format(new Date(date)) : ""));
+        table.getColumns().add(column("Frames", entry -> entry.frameCount,
+                frames -> frames >= 0 ? Integer.toString(frames) : ""));
+        table.getColumns().add(column("Duration", entry -> entry.durationMs, LibraryBrowser::formatDuration));
+        table.getColumns().add(column("File", entry -> entry.file().getName(), name -> name));
+        table.setColumnResizePolicy(TableView.CONSTRAINED_RESIZE_POLICY);
+        table.setPlaceholder(new Label("Choose a folder of replays"));
+
+        SortedList<LibraryIndex.Entry> sorted = new SortedList<>(filtered);
+        sorted.comparatorProperty().bind(table.comparatorProperty());
+        table.setItems(sorted);
+
+        table.setRowFactory(view -> {
+            TableRow<LibraryIndex.Entry> row = new TableRow<>();
+            row.setOnMouseClicked(e -> {
+                if (e.getClickCount() == 2 && !row.isEmpty()) onOpen.accept(row.getItem().file());
+            });
+            return row;
+        });
+        table.setOnKeyPressed(e -> {
+            LibraryIndex.Entry selected = table.getSelectionModel().getSelectedItem();
+            if (e.getCode() == KeyCode.ENTER && selected != null) onOpen.accept(selected.file());
+        });
+        setCenter(table);
+        setBottom(statusLabel);
+
+        File lastRoot = index.lastRoot();
+        if (lastRoot != null && lastRoot.isDirectory()) open(lastRoot);
+    }
+
+    /** Lists a folder from the cache, then brings it up to date in the background. */
+    void open(File folder) {
+        root = folder;
+        int current = ++generation;
+        index.setLastRoot(folder);
+        folderLabel.setText(folder.getPath());
+        rows.setAll(index.cached(folder));
+        scanned.clear();
+        statusLabel.setText(rows.size() + " replays (cached), checking for changes...");
+
+        long start = System.nanoTime();
+        INDEXER.execute(() -> {
+            try {
+                AtomicInteger changed = new AtomicInteger();
+                List<LibraryIndex.Entry> all = index.refresh(folder, Runtime.getRuntime().availableProcessors(),
+                        entry -> {
+                            changed.incrementAndGet();
+                            if (current == generation) onScanned(entry);
+                        });
+                index.save();
+                double seconds = (System.nanoTime() - start) / 1e9;
+                Platform.runLater(() -> {
+                    if (current != generation) return;
+                    scanned.clear();
+                    rows.setAll(all);
+                    statusLabel.setText(String.format("%d replays, %d indexed in %.2f s",
+                            all.size(), changed.get(), seconds));
+                });
+            } catch (IOException | RuntimeException e) {
+                Platform.runLater(() -> statusLabel.setText("Could not index " + folder + ": " + e.getMessage()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+    }
+
+    /** Shows an entry the viewer has just recorded from a replay it loaded completely. */
+    void showRecorded(LibraryIndex.Entry entry) {
+        replaceRow(entry);
+    }
+
+    private void onScanned(LibraryIndex.Entry entry) {
+        scanned.add(entry);
+        // Coalesce so thousands of small files cannot flood the FX event queue
+        if (drainScheduled.compareAndSet(false, true)) {
+            Platform.runLater(() -> {
+                drainScheduled.set(false);
+                Map<String, LibraryIndex.Entry> batch = new HashMap<>();
+                for (LibraryIndex.Entry e; (e = scanned.poll()) != null; ) {
+                    batch.put(e.path, e);
+                }
+                for (int i = 0; i < rows.size() && !batch.isEmpty(); i++) {
+                    LibraryIndex.Entry replacement = batch.remove(rows.get(i).path);
+                    if (replacement != null) rows.set(i, replacement);
+                }
+                rows.addAll(batch.values());
+                statusLabel.setText(rows.size() + " replays, indexing...");
+            });
+        }
+    }
+
+    private void replaceRow(LibraryIndex.Entry entry) {
+        for (int i = 0; i < rows.size(); i++) {
+            if (rows.get(i).path.equals(entry.path)) {
+                rows.set(i, entry);
+                return;
+            }
+        }
+    }
+
+    private static <T extends Comparable<T>> TableColumn<LibraryIndex.Entry, T> column(
+            String title, Function<LibraryIndex.Entry, T> value, Function<T, String> format) {
+        TableColumn<LibraryIndex.Entry, T> column = new TableColumn<>(title);
+        column.setCellValueFactory(cell -> new ReadOnlyObjectWrapper<>(value.apply(cell.getValue())));
+        column.setCellFactory(col -> new TableCell<LibraryIndex.Entry, T>() {
+            @Override
+            protected void updateItem(T item, boolean empty) {
+                super.updateItem(item, empty);
+                setText(empty || item == null ? null : format.apply(item));
+            }
+        });
+        return column;
+    }
+
+    private static String formatDuration(long durationMs) {
+        if (durationMs < 0) return "";
+        long seconds = durationMs / 1000;
+        return String.format("%d:%02d", seconds / 60, seconds % 60);
+    }
+
+    private static boolean contains(String text, String needle) {
+        return text != null && text.toLowerCase(Locale.ROOT).contains(needle);
+    }
+}
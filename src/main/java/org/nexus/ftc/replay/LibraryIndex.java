@@ -0,0 +1,437 @@
+package org.nexus.ftc.replay;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+// Gson's streaming reader and writer keep the index free of reflection
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * On-disk cache of what is in every replay the viewer has seen, keyed by path
+ * and checked against the file's size and modification time. A folder of
+ * thousands of matches can be listed straight from the cache. Only new or
+ * changed files are read again, and only their header.
+ *
+ * <p>A {@code .replay} file is read until its {@code frames} array starts, plus
+ * the first frame's timestamp and, from the end of the file, the last one.
+ * Its frame count is only known once the viewer has loaded it completely (see
+ * {@link #record}). A {@code .replayb} file is mapped, and its header holds
+ * everything.
+ */
+final class LibraryIndex {
+
+    static final File DEFAULT_FILE = new File(System.getProperty("user.home"),
+            ".ftc-replay-viewer" + File.separator + "library.json");
+
+    private static final int VERSION = 1;
+
+    // Bytes read from the end of a JSON replay looking for the last timestamp
+    private static final int TAIL_BYTES = 64 * 1024;
+    private static final int MAX_TAIL_BYTES = 1 << 20;
+    private static final String TIME_KEY = "\"timeMs\"";
+
+    /** One replay's summary. Immutable; a changed file gets a new entry. */
+    static final class Entry {
+        final String path;
+        final long size;
+        final long modified;
+        final String team;
+        final String match;
+        final long date;
+        /** -1 until a JSON replay has been loaded completely. */
+        final int frameCount;
+        /** -1 if the replay has no frames or they could not be found. */
+        final long durationMs;
+
+        Entry(String path, long size, long modified, String team, String match, long date,
+              int frameCount, long durationMs) {
+            this.path = path;
+            this.size = size;
+            this.modified = modified;
+            this.team = team;
+            this.match = match;
+            this.date = date;
+            this.frameCount = frameCount;
+            this.durationMs = durationMs;
+        }
+
+        File file() {
+            return new File(path);
+        }
+
+        boolean matches(File file) {
+            return file.length() == size && file.lastModified() == modified;
+        }
+    }
+
+    private final File indexFile;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private volatile String lastRoot;
+
+    private LibraryIndex(File indexFile) {
+        this.indexFile = indexFile;
+    }
+
+    /** Reads the cache. A missing or unreadable cache gives an empty index. */
+    static LibraryIndex load(File indexFile) {
+        LibraryIndex index = new LibraryIndex(indexFile);
+        if (!indexFile.isFile()) return index;
+
+        try (JsonReader reader = new JsonReader(new BufferedReader(new InputStreamReader(
+                new FileInputStream(indexFile), StandardCharsets.UTF_8)))) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if (name.equals("version") && reader.nextInt() != VERSION) {
+                    // Written by another version; rebuild rather than misread
+                    return index;
+                } else if (name.equals("root")) {
+                    index.lastRoot = nextStringOrNull(reader);
+                } else if (name.equals("entries")) {
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        Entry entry = readEntry(reader);
+                        index.entries.put(entry.path, entry);
+                    }
+                    reader.endArray();
+                } else if (!name.equals("version")) {
+                    reader.skipValue();
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Ignoring library index " + indexFile + ": " + e.getMessage());
+            index.entries.clear();
+        }
+        return index;
+    }
+
+    /** Writes the cache through a temporary file, so a crash never leaves half an index. */
+    synchronized void save() throws IOException {
+        File dir = indexFile.getAbsoluteFile().getParentFile();
+        Files.createDirectories(dir.toPath());
+        File temp = File.createTempFile("library", ".tmp", dir);
+        try {
+            try (JsonWriter json = new JsonWriter(Files.newBufferedWriter(temp.toPath(), StandardCharsets.UTF_8))) {
+                json.beginObject();
+                json.name("version").value(VERSION);
+                json.name("root").value(lastRoot);
+                json.name("entries").beginArray();
+                for (Entry entry : entries.values()) {
+                    writeEntry(json, entry);
+                }
+                json.endArray();
+                json.endObject();
+            }
+            Files.move(temp.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp.toPath());
+        }
+    }
+
+    /** The folder last browsed, or null. */
+    File lastRoot() {
+        return lastRoot != null ? new File(lastRoot) : null;
+    }
+
+    void setLastRoot(File root) {
+        lastRoot = root.getAbsolutePath();
+    }
+
+    /** Cached entries for replays under {@code root}, without touching the files. */
+    List<Entry> cached(File root) {
+        String prefix = root.getAbsolutePath() + File.separator;
+        List<Entry> under = new ArrayList<>();
+        for (Entry entry : entries.values()) {
+            if (entry.path.startsWith(prefix)) under.add(entry);
+        }
+        return under;
+    }
+
+    /**
+     * Brings the entries under {@code root} up to date: new and changed files
+     * are scanned on {@code threads} workers, and entries for deleted files are
+     * dropped. {@code onEntry} sees each newly scanned entry on the worker that
+     * scanned it.
+     *
+     * @return every entry under {@code root} after the refresh
+     */
+    List<Entry> refresh(File root, int threads, Consumer<Entry> onEntry) throws IOException, InterruptedException {
+        List<File> files = ReplayAnalyzer.findReplays(root);
+
+        List<Entry> current = new ArrayList<>(files.size());
+        List<File> stale = new ArrayList<>();
+        Set<String> present = new HashSet<>();
+        for (File file : files) {
+            String path = file.getAbsolutePath();
+            present.add(path);
+            Entry entry = entries.get(path);
+            if (entry != null && entry.matches(file)) {
+                current.add(entry);
+            } else {
+                stale.add(file);
+            }
+        }
+        for (Entry entry : cached(root)) {
+            if (!present.contains(entry.path)) entries.remove(entry.path);
+        }
+        if (stale.isEmpty()) return current;
+
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, stale.size())));
+        try {
+            List<Future<Entry>> pending = new ArrayList<>(stale.size());
+            for (File file : stale) {
+                pending.add(pool.submit(() -> {
+                    Entry entry = scan(file);
+                    entries.put(entry.path, entry);
+                    onEntry.accept(entry);
+                    return entry;
+                }));
+            }
+            for (int i = 0; i < pending.size(); i++) {
+                try {
+                    current.add(pending.get(i).get());
+                } catch (ExecutionException e) {
+                    // One unreadable file does not hide the rest of the library
+                    System.err.println("Could not index " + stale.get(i) + ": " + e.getCause().getMessage());
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        return current;
+    }
+
+    /** Replaces a file's entry with exact numbers from a replay loaded completely. */
+    Entry record(File file, Replay replay) {
+        long durationMs = replay.isEmpty() ? -1 : replay.endTimeMs() - replay.startTimeMs();
+        Entry entry = new Entry(file.getAbsolutePath(), file.length(), file.lastModified(), replay.team(),
+                replay.match(), replay.date(), replay.frameCount(), durationMs);
+        entries.put(entry.path, entry);
+        return entry;
+    }
+
+    /** Reads a replay's summary from its header, without parsing its frames. */
+    static Entry scan(File file) throws IOException {
+        String path = file.getAbsolutePath();
+        long size = file.length();
+        long modified = file.lastModified();
+
+        if (MappedReplay.isBinaryReplay(file)) {
+            Replay replay = MappedReplay.open(file);
+            long durationMs = replay.isEmpty() ? -1 : replay.endTimeMs() - replay.startTimeMs();
+            return new Entry(path, size, modified, replay.team(), replay.match(), replay.date(),
+                    replay.frameCount(), durationMs);
+        }
+
+        String team = null;
+        String match = null;
+        long date = 0;
+        long firstTimeMs = Long.MIN_VALUE;
+        try (JsonReader reader = new JsonReader(new BufferedReader(new InputStreamReader(
+                new FileInputStream(file), StandardCharsets.UTF_8), 8192))) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                switch (name) {
+                    case "team":
+                        team = nextStringOrNull(reader);
+                        break;
+                    case "match":
+                        match = nextStringOrNull(reader);
+                        break;
+                    case "date":
+                        date = reader.nextLong();
+                        break;
+                    case "frames":
+                        // Recorders write the header first, so nothing after this is needed
+                        reader.beginArray();
+                        if (reader.hasNext()) firstTimeMs = firstTimestamp(reader);
+                        break;
+                    default:
+                        reader.skipValue();
+                        break;
+                }
+                if (name.equals("frames")) break;
+            }
+        } catch (IllegalStateException | NumberFormatException e) {
+            throw new IOException("Invalid replay file format: " + e.getMessage(), e);
+        }
+
+        long durationMs = -1;
+        if (firstTimeMs != Long.MIN_VALUE) {
+            long lastTimeMs = lastTimestamp(file);
+            if (lastTimeMs != Long.MIN_VALUE) durationMs = Math.max(0, lastTimeMs - firstTimeMs);
+        }
+        return new Entry(path, size, modified, team, match, date, -1, durationMs);
+    }
+
+    /** Reads the first frame object, returning its {@code timeMs}. */
+    private static long firstTimestamp(JsonReader reader) throws IOException {
+        long timeMs = 0;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (reader.nextName().equals("timeMs")) {
+                timeMs = reader.nextLong();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return timeMs;
+    }
+
+    /**
+     * Finds the last frame's {@code "timeMs"} by reading backwards from the end,
+     * widening the window for frames with a lot of custom data. A custom key of
+     * the same name is skipped: only a key of an object that is an array element
+     * counts.
+     */
+    static long lastTimestamp(File file) throws IOException {
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            long length = in.length();
+            for (int window = TAIL_BYTES; ; window *= 2) {
+                int n = (int) Math.min(length, window);
+                byte[] tail = new byte[n];
+                in.seek(length - n);
+                in.readFully(tail);
+                String text = new String(tail, StandardCharsets.ISO_8859_1);
+
+                for (int key = text.lastIndexOf(TIME_KEY); key >= 0; key = text.lastIndexOf(TIME_KEY, key - 1)) {
+                    int level = frameLevel(text, key);
+                    // The enclosing object starts before the window
+                    if (level < 0) break;
+                    if (level == 0) continue;
+                    int i = text.indexOf(':', key) + 1;
+                    while (i > 0 && i < n && Character.isWhitespace(text.charAt(i))) i++;
+                    int end = i;
+                    while (end < n && "-+.eE0123456789".indexOf(text.charAt(end)) >= 0) end++;
+                    if (i > 0 && end > i) return (long) Double.parseDouble(text.substring(i, end));
+                }
+                if (n == length || window >= MAX_TAIL_BYTES) return Long.MIN_VALUE;
+            }
+        }
+    }
+
+    /**
+     * Whether the key starting at {@code key} belongs to an object that is an
+     * array element, as frames are, rather than a value such as
+     * {@code customData}: 1 if so, 0 if not, -1 if the object starts before
+     * {@code text} does.
+     */
+    private static int frameLevel(String text, int key) {
+        int depth = 0;
+        boolean inString = false;
+        for (int i = key - 1; i >= 0; i--) {
+            char c = text.charAt(i);
+            if (c == '"') {
+                int backslashes = 0;
+                while (i - backslashes - 1 >= 0 && text.charAt(i - backslashes - 1) == '\\') backslashes++;
+                if (backslashes % 2 == 0) inString = !inString;
+            } else if (inString) {
+                continue;
+            } else if (c == '}' || c == ']') {
+                depth++;
+            } else if (c == '{' || c == '[') {
+                if (depth > 0) {
+                    depth--;
+                    continue;
+                }
+                if (c == '[') return 0;
+                int before = i - 1;
+                while (before >= 0 && Character.isWhitespace(text.charAt(before))) before--;
+                if (before < 0) return -1;
+                char prev = text.charAt(before);
+                return prev == '[' || prev == ',' ? 1 : 0;
+            }
+        }
+        return -1;
+    }
+
+    private static Entry readEntry(JsonReader reader) throws IOException {
+        String path = null;
+        long size = 0;
+        long modified = 0;
+        String team = null;
+        String match = null;
+        long date = 0;
+        int frameCount = -1;
+        long durationMs = -1;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "path":
+                    path = reader.nextString();
+                    break;
+                case "size":
+                    size = reader.nextLong();
+                    break;
+                case "modified":
+                    modified = reader.nextLong();
+                    break;
+                case "team":
+                    team = nextStringOrNull(reader);
+                    break;
+                case "match":
+                    match = nextStringOrNull(reader);
+                    break;
+                case "date":
+                    date = reader.nextLong();
+                    break;
+                case "frames":
+                    frameCount = reader.nextInt();
+                    break;
+                case "durationMs":
+                    durationMs = reader.nextLong();
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+        if (path == null) throw new IOException("Library entry without a path");
+        return new Entry(path, size, modified, team, match, date, frameCount, durationMs);
+    }
+
+    private static void writeEntry(JsonWriter json, Entry entry) throws IOException {
+        json.beginObject();
+        json.name("path").value(entry.path);
+        json.name("size").value(entry.size);
+        json.name("modified").value(entry.modified);
+        json.name("team").value(entry.team);
+        json.name("match").value(entry.match);
+        json.name("date").value(entry.date);
+        json.name("frames").value(entry.frameCount);
+        json.name("durationMs").value(entry.durationMs);
+        json.endObject();
+    }
+
+    private static String nextStringOrNull(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        return reader.nextString();
+    }
+}
@@ -0,0 +1,124 @@
+package org.nexus.ftc.replay;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+
+/**
+ * Feeds a match that is still running into a {@link FrameRing} on a daemon
+ * thread, either by tailing a {@code .replay} file as the recorder appends to it
+ * or by accepting newline-delimited frame JSON on a local TCP port. The socket
+ * only listens on the loopback interface; one client is served at a time, and a
+ * new one may connect after the previous one hangs up.
+ */
+final class LiveSource {
+
+    static final int DEFAULT_PORT = 5805;
+
+    private final FrameRing ring;
+    private final File file;
+    private final ServerSocket server;
+    private final Thread thread;
+
+    private volatile boolean stopped;
+    private volatile ReplayLoader loader;
+    private volatile Socket client;
+    private volatile String status;
+
+    private LiveSource(FrameRing ring, File file, ServerSocket server) {
+        this.ring = ring;
+        this.file = file;
+        this.server = server;
+        this.thread = new Thread(this::run, "live-source");
+        this.thread.setDaemon(true);
+    }
+
+    /** Follows a replay file that is still being written. */
+    static LiveSource tail(File file, FrameRing ring) {
+        LiveSource source = new LiveSource(ring, file, null);
+        source.status = "Tailing " + file.getName();
+        return source;
+    }
+
+    /** Listens on a local port; binding happens here so a port in use is reported right away. */
+    static LiveSource listen(int port, FrameRing ring) throws IOException {
+        ServerSocket server = new ServerSocket(port, 1, InetAddress.getLoopbackAddress());
+        LiveSource source = new LiveSource(ring, null, server);
+        source.status = "Listening on port " + port;
+        return source;
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    /** Stops reading and releases the file or socket. Frames already in the ring stay there. */
+    void stop() {
+        stopped = true;
+        ring.close();
+        ReplayLoader current = loader;
+        if (current != null) current.cancel();
+        closeQuietly(client);
+        closeQuietly(server);
+        thread.interrupt();
+    }
+
+    /** A short description of what the source is doing, for the status bar. */
+    String status() {
+        return status;
+    }
+
+    private void run() {
+        try {
+            if (file != null) {
+                ReplayLoader tailLoader = ReplayLoader.tailing(file, ring, ReplayLoader.Listener.NONE);
+                loader = tailLoader;
+                if (stopped) return;
+                int frames = tailLoader.load();
+                if (!stopped) status = "Finished " + file.getName() + " (" + frames + " frames)";
+            } else {
+                serve();
+            }
+        } catch (IOException | RuntimeException e) {
+            if (!stopped) {
+                System.err.println("Live source stopped: " + e.getMessage());
+                status = "error: " + e.getMessage();
+            }
+        }
+    }
+
+    private void serve() throws IOException {
+        while (!stopped) {
+            try (Socket socket = server.accept()) {
+                client = socket;
+                socket.setTcpNoDelay(true);
+                status = "Receiving from " + socket.getRemoteSocketAddress();
+
+                ReplayLoader streamLoader = new ReplayLoader(null, ring, ReplayLoader.Listener.NONE);
+                loader = streamLoader;
+                try (InputStream in = socket.getInputStream()) {
+                    streamLoader.loadFrameStream(in);
+                } catch (IOException | RuntimeException e) {
+                    // A bad or dropped client does not end the session
+                    if (!stopped) System.err.println("Live client disconnected: " + e.getMessage());
+                }
+                status = "Listening on port " + server.getLocalPort();
+            } catch (IOException e) {
+                if (!stopped) throw e;
+            }
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable == null) return;
+        try {
+            closeable.close();
+        } catch (IOException ignored) {
+            // Already closed
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package org.nexus.ftc.replay;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads a {@code .replayb} file (see {@link BinaryReplayWriter}) through a
+ * read-only memory mapping. Opening only parses the header and the string and
+ * key tables; poses and custom values are read straight from the mapping, so
+ * the OS pages frames in as they are played or scrubbed and heap use does not
+ * grow with the file.
+ *
+ * <p>All reads use absolute positions, so one instance can be shared between threads.
+ */
+final class MappedReplay implements Replay {
+
+    private final MappedByteBuffer buffer;
+    private final int frameCount;
+    private final long date;
+    private final String team;
+    private final String match;
+    private final int poseOffset;
+    private final int customOffset;
+    private final int indexOffset;
+    private final String[] strings;
+    private final CustomColumn[] columns;
+    private final CustomColumn.Kind[] kinds;
+
+    private MappedReplay(File file, MappedByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+
+        if (!hasMagic(buffer, 0)) {
+            throw new IOException("Not a " + BinaryReplayWriter.EXTENSION + " file: " + file);
+        }
+        int version = buffer.getInt(8);
+        if (version != BinaryReplayWriter.VERSION) {
+            throw new IOException("Unsupported " + BinaryReplayWriter.EXTENSION + " version " + version);
+        }
+        frameCount = buffer.getInt(12);
+        int keyCount = buffer.getInt(16);
+        date = buffer.getLong(20);
+        int teamString = buffer.getInt(28);
+        int matchString = buffer.getInt(32);
+        poseOffset = (int) buffer.getLong(36);
+        customOffset = (int) buffer.getLong(44);
+        int footerOffset = (int) buffer.getLong(52);
+
+        // A file whose header was never patched (writer crashed) has zero offsets
+        if (footerOffset <= 0 || !hasMagic(buffer, buffer.capacity() - BinaryReplayWriter.MAGIC.length)) {
+            throw new IOException("Truncated " + BinaryReplayWriter.EXTENSION + " file: " + file);
+        }
+
+        int pos = footerOffset;
+        strings = new String[buffer.getInt(pos)];
+        pos += 4;
+        for (int i = 0; i < strings.length; i++) {
+            int length = buffer.getInt(pos);
+            byte[] bytes = new byte[length];
+            for (int b = 0; b < length; b++) {
+                bytes[b] = buffer.get(pos + 4 + b);
+            }
+            strings[i] = new String(bytes, StandardCharsets.UTF_8);
+            pos += 4 + length;
+        }
+
+        CustomColumn.Kind[] allKinds = CustomColumn.Kind.values();
+        columns = new CustomColumn[keyCount];
+        kinds = new CustomColumn.Kind[keyCount];
+        for (int k = 0; k < keyCount; k++) {
+            kinds[k] = allKinds[buffer.get(pos + 4)];
+            columns[k] = new MappedColumn(strings[buffer.getInt(pos)], k);
+            pos += 5;
+        }
+        indexOffset = pos;
+
+        team = teamString >= 0 ? strings[teamString] : null;
+        match = matchString >= 0 ? strings[matchString] : null;
+    }
+
+    static MappedReplay open(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+             FileChannel channel = raf.getChannel()) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException(file + " is larger than 2 GB; split the log before converting it");
+            }
+            if (size < BinaryReplayWriter.HEADER_SIZE) {
+                throw new IOException("Not a " + BinaryReplayWriter.EXTENSION + " file: " + file);
+            }
+            // The mapping stays valid after the channel is closed
+            return new MappedReplay(file, channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        }
+    }
+
+    private static boolean hasMagic(MappedByteBuffer buffer, int pos) {
+        for (int i = 0; i < BinaryReplayWriter.MAGIC.length; i++) {
+            if (buffer.get(pos + i) != BinaryReplayWriter.MAGIC[i]) return false;
+        }
+        return true;
+    }
+
+    static boolean isBinaryReplay(File file) {
+        return file.getName().endsWith(BinaryReplayWriter.EXTENSION);
+    }
+
+    @Override
+    public String team() {
+        return team;
+    }
+
+    @Override
+    public String match() {
+        return match;
+    }
+
+    @Override
+    public long date() {
+        return date;
+    }
+
+    @Override
+    public int frameCount() {
+        return frameCount;
+    }
+
+    @Override
+    public long timeMs(int frame) {
+        return buffer.getLong(poseOffset + frame * BinaryReplayWriter.POSE_SIZE);
+    }
+
+    @Override
+    public double x(int frame) {
+        return buffer.getDouble(poseOffset + frame * BinaryReplayWriter.POSE_SIZE + 8);
+    }
+
+    @Override
+    public double y(int frame) {
+        return buffer.getDouble(poseOffset + frame * BinaryReplayWriter.POSE_SIZE + 16);
+    }
+
+    @Override
+    public double heading(int frame) {
+        return buffer.getDouble(poseOffset + frame * BinaryReplayWriter.POSE_SIZE + 24);
+    }
+
+    @Override
+    public int keyCount() {
+        return columns.length;
+    }
+
+    @Override
+    public CustomColumn column(int key) {
+        return columns[key];
+    }
+
+    /** Position of the key's value in the frame's custom record, or -1 if it has none. */
+    private int valuePosition(int frame, int key) {
+        int pos = customOffset + buffer.getInt(indexOffset + 4 * frame);
+        int entries = buffer.getShort(pos) & 0xFFFF;
+        pos += 2;
+        for (int e = 0; e < entries; e++) {
+            int entryKey = buffer.getShort(pos) & 0xFFFF;
+            pos += 2;
+            if (entryKey == key) return pos;
+            switch (kinds[entryKey]) {
+                case NUMERIC:
+                    pos += 8;
+                    break;
+                case BOOLEAN:
+                    pos += 1;
+                    break;
+                default:
+                    pos += 4;
+                    break;
+            }
+        }
+        return -1;
+    }
+
+    /** A custom-data key read from each frame's record in the mapping. */
+    private final class MappedColumn extends CustomColumn {
+        private final int id;
+
+        MappedColumn(String key, int id) {
+            super(key);
+            this.id = id;
+        }
+
+        @Override
+        Kind kind() {
+            return kinds[id];
+        }
+
+        @Override
+        boolean has(int frame) {
+            return valuePosition(frame, id) >= 0;
+        }
+
+        @Override
+        double number(int frame) {
+            int pos = valuePosition(frame, id);
+            if (pos < 0) return Double.NaN;
+            switch (kinds[id]) {
+                case NUMERIC:
+                    return buffer.getDouble(pos);
+                case BOOLEAN:
+                    return buffer.get(pos);
+                default:
+                    return Double.NaN;
+            }
+        }
+
+        @Override
+        String text(int frame) {
+            int pos = valuePosition(frame, id);
+            if (pos < 0) return null;
+            switch (kinds[id]) {
+                case NUMERIC:
+                    return formatNumber(buffer.getDouble(pos));
+                case BOOLEAN:
+                    return buffer.get(pos) != 0 ? "true" : "false";
+                default:
+                    return strings[buffer.getInt(pos)];
+            }
+        }
+
+        @Override
+        void trimToSize(int frameCount) {
+            // Nothing is held on the heap
+        }
+
+        @Override
+        long memoryBytes() {
+            return 0;
+        }
+    }
+}
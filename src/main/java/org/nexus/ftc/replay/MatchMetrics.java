@@ -0,0 +1,179 @@
+package org.nexus.ftc.replay;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Per-match summary computed while a replay streams past: path length, speeds,
+ * time spent on each field tile and min/max/mean of every numeric custom key.
+ * Holds a constant amount of state per key, never the frames themselves.
+ *
+ * <p>Speed is measured over at least {@link #SPEED_WINDOW_MS}: over a single
+ * frame, odometry noise and timestamps truncated to whole milliseconds dominate,
+ * and the maximum grows with the log rate. Only the last window's positions are
+ * kept for it.
+ */
+class MatchMetrics implements FrameSink {
+
+    // The 12 ft field is a 6 x 6 grid of 2 ft tiles
+    static final int TILES = 6;
+    static final double TILE_SIZE_INCHES = 24;
+
+    // As long as EventDetector.Motion smooths over
+    static final long SPEED_WINDOW_MS = 100;
+
+    String file;
+    String team;
+    String match;
+    long date;
+    int frameCount;
+    long startTimeMs;
+    long endTimeMs;
+    double pathLengthInches;
+    double maxSpeedInchesPerSec;
+
+    // Seconds on each tile, indexed [row * TILES + column] from the field origin
+    final double[] tileSeconds = new double[TILES * TILES];
+    final Map<String, KeyStats> keyStats = new TreeMap<>();
+
+    private double lastX;
+    private double lastY;
+
+    // Frames of the last speed window, oldest first from windowStart; it wraps around
+    private long[] windowTimes = new long[16];
+    private double[] windowX = new double[16];
+    private double[] windowY = new double[16];
+    private int windowStart;
+    private int windowSize;
+
+    /** Running statistics for one numeric key. */
+    static final class KeyStats {
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        double sum;
+        long count;
+
+        void add(double value) {
+            if (value < min) min = value;
+            if (value > max) max = value;
+            sum += value;
+            count++;
+        }
+
+        double mean() {
+            return count > 0 ? sum / count : Double.NaN;
+        }
+    }
+
+    MatchMetrics(String file) {
+        this.file = file;
+    }
+
+    double durationSeconds() {
+        return (endTimeMs - startTimeMs) / 1000.0;
+    }
+
+    double averageSpeedInchesPerSec() {
+        double seconds = durationSeconds();
+        return seconds > 0 ? pathLengthInches / seconds : 0;
+    }
+
+    static int tileOf(double x, double y) {
+        int column = (int) Math.max(0, Math.min(TILES - 1, Math.floor(x / TILE_SIZE_INCHES)));
+        int row = (int) Math.max(0, Math.min(TILES - 1, Math.floor(y / TILE_SIZE_INCHES)));
+        return row * TILES + column;
+    }
+
+    @Override
+    public void header(String team, String match, long date) {
+        this.team = team;
+        this.match = match;
+        this.date = date;
+    }
+
+    @Override
+    public void beginFrame() {
+    }
+
+    @Override
+    public void putNumber(String key, double value) {
+        KeyStats stats = keyStats.get(key);
+        if (stats == null) {
+            stats = new KeyStats();
+            keyStats.put(key, stats);
+        }
+        stats.add(value);
+    }
+
+    @Override
+    public void putBoolean(String key, boolean value) {
+    }
+
+    @Override
+    public void putText(String key, String value) {
+    }
+
+    @Override
+    public void endFrame(long timeMs, double x, double y, double heading) {
+        if (frameCount == 0) {
+            startTimeMs = timeMs;
+        } else {
+            double distance = Math.hypot(x - lastX, y - lastY);
+            pathLengthInches += distance;
+
+            long dtMs = timeMs - endTimeMs;
+            if (dtMs > 0) {
+                // Credit the interval to where the robot was at its start
+                tileSeconds[tileOf(lastX, lastY)] += dtMs / 1000.0;
+            }
+        }
+        updateMaxSpeed(timeMs, x, y);
+        endTimeMs = timeMs;
+        lastX = x;
+        lastY = y;
+        frameCount++;
+    }
+
+    /**
+     * Adds a frame to the speed window and takes the speed from the newest frame
+     * at least {@link #SPEED_WINDOW_MS} older, if there is one.
+     */
+    private void updateMaxSpeed(long timeMs, double x, double y) {
+        int capacity = windowTimes.length;
+        // Drop frames while the next one is old enough to measure from
+        while (windowSize >= 2 && timeMs - windowTimes[(windowStart + 1) % capacity] >= SPEED_WINDOW_MS) {
+            windowStart = (windowStart + 1) % capacity;
+            windowSize--;
+        }
+        if (windowSize > 0) {
+            long dtMs = timeMs - windowTimes[windowStart];
+            if (dtMs >= SPEED_WINDOW_MS) {
+                double distance = Math.hypot(x - windowX[windowStart], y - windowY[windowStart]);
+                maxSpeedInchesPerSec = Math.max(maxSpeedInchesPerSec, distance * 1000.0 / dtMs);
+            }
+        }
+
+        if (windowSize == capacity) {
+            // Unwrap into arrays twice the size; a high log rate needs more frames per window
+            long[] times = new long[capacity * 2];
+            double[] xs = new double[capacity * 2];
+            double[] ys = new double[capacity * 2];
+            for (int i = 0; i < windowSize; i++) {
+                int j = (windowStart + i) % capacity;
+                times[i] = windowTimes[j];
+                xs[i] = windowX[j];
+                ys[i] = windowY[j];
+            }
+            windowTimes = times;
+            windowX = xs;
+            windowY = ys;
+            windowStart = 0;
+            capacity *= 2;
+        }
+        int end = (windowStart + windowSize) % capacity;
+        windowTimes[end] = timeMs;
+        windowX[end] = x;
+        windowY[end] = y;
+        windowSize++;
+    }
+}
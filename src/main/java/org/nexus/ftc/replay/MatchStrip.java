@@ -0,0 +1,89 @@
+package org.nexus.ftc.replay;
+
+import javafx.scene.Node;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.control.Slider;
+import javafx.scene.layout.Pane;
+import javafx.scene.paint.Color;
+
+import java.util.function.DoubleConsumer;
+
+/**
+ * Thin bar under the timeline slider marking the intervals a {@link FrameQuery}
+ * matched. Positions follow the slider's track, so a highlight sits under the
+ * thumb when playback is inside it. Clicking seeks to that moment.
+ */
+final class MatchStrip extends Pane {
+
+    private static final double HEIGHT = 6;
+    // Even a single matching frame stays visible
+    private static final double MIN_WIDTH_PX = 2;
+    private static final Color MATCH_COLOR = Color.web("#FFB74D");
+    private static final Color BACKGROUND = Color.web("#444");
+
+    private final Slider slider;
+    private final Canvas canvas = new Canvas();
+    private FrameQuery.Matches matches;
+
+    MatchStrip(Slider slider, DoubleConsumer onSeek) {
+        this.slider = slider;
+        setPrefHeight(HEIGHT);
+        setMinHeight(HEIGHT);
+        prefWidthProperty().bind(slider.widthProperty());
+        getChildren().add(canvas);
+        canvas.widthProperty().bind(widthProperty());
+        canvas.heightProperty().bind(heightProperty());
+        canvas.widthProperty().addListener(obs -> redraw());
+        slider.minProperty().addListener(obs -> redraw());
+        slider.maxProperty().addListener(obs -> redraw());
+
+        setOnMouseClicked(e -> {
+            double[] track = track(slider);
+            if (track[1] <= 0) return;
+            double fraction = Math.max(0, Math.min(1, (e.getX() - track[0]) / track[1]));
+            onSeek.accept(slider.getMin() + fraction * (slider.getMax() - slider.getMin()));
+        });
+    }
+
+    /** Shows a query's matches, or nothing for null. */
+    void setMatches(FrameQuery.Matches matches) {
+        this.matches = matches;
+        redraw();
+    }
+
+    private void redraw() {
+        GraphicsContext g = canvas.getGraphicsContext2D();
+        double w = canvas.getWidth();
+        double h = canvas.getHeight();
+        g.clearRect(0, 0, w, h);
+        if (matches == null) return;
+
+        double[] track = track(slider);
+        g.setFill(BACKGROUND);
+        g.fillRect(track[0], 0, track[1], h);
+
+        double span = slider.getMax() - slider.getMin();
+        if (span <= 0) return;
+        double scale = track[1] / span;
+        g.setFill(MATCH_COLOR);
+        for (int i = 0; i < matches.count; i++) {
+            double x0 = track[0] + (matches.startMs[i] - slider.getMin()) * scale;
+            double x1 = track[0] + (matches.endMs[i] - slider.getMin()) * scale;
+            g.fillRect(x0, 0, Math.max(MIN_WIDTH_PX, x1 - x0), h);
+        }
+    }
+
+    /**
+     * Left edge and length of the thumb's travel, in the coordinates of the
+     * slider and of the strips sized to match it.
+     */
+    static double[] track(Slider slider) {
+        // The thumb's center runs from half its width inside the slider's padding to the same distance from the end
+        Node thumb = slider.lookup(".thumb");
+        double thumbWidth = thumb != null ? thumb.getLayoutBounds().getWidth() : 0;
+        double left = slider.getInsets().getLeft() + thumbWidth / 2;
+        double right = slider.getInsets().getRight() + thumbWidth / 2;
+        return new double[] {left, Math.max(0, slider.getWidth() - left - right)};
+    }
+}
@@ -0,0 +1,127 @@
+package org.nexus.ftc.replay;
+
+/**
+ * Time the robot spent in each 2-inch cell of the field, and optionally the
+ * time-weighted sum of one numeric custom key there. Each interval between
+ * frames is credited to the cell the robot was in at its start, as
+ * {@link MatchMetrics} does for tiles; gaps longer than {@link #MAX_GAP_MS}
+ * are logging pauses rather than time on the field and are left out.
+ *
+ * <p>A grid is filled from one replay, either streamed in as a
+ * {@link FrameSink} or read from an open {@link Replay}, and grids of many
+ * replays are added together with {@link #merge}. Everything is held in a
+ * few flat arrays, so a grid costs the same whatever the replay's length.
+ */
+final class OccupancyGrid implements FrameSink {
+
+    static final int CELLS = 72;
+    static final double CELL_INCHES = FieldPainter.FIELD_SIZE_INCHES / CELLS;
+    static final long MAX_GAP_MS = 1000;
+
+    /** Key whose values are summed, or null for occupancy only. */
+    final String key;
+    // Indexed [row * CELLS + column] from the field origin, like MatchMetrics tiles
+    final double[] seconds = new double[CELLS * CELLS];
+    final double[] keySeconds;
+    final double[] keySum;
+    int replays;
+
+    // Frame being streamed in, and the one before it
+    private double frameValue = Double.NaN;
+    private long lastTimeMs;
+    private int lastCell = -1;
+    private double lastValue = Double.NaN;
+
+    OccupancyGrid(String key) {
+        this.key = key;
+        this.keySeconds = key != null ? new double[CELLS * CELLS] : null;
+        this.keySum = key != null ? new double[CELLS * CELLS] : null;
+    }
+
+    /** Reads an open replay directly, touching only the pose and the chosen key's column. */
+    static OccupancyGrid of(Replay replay, String key) {
+        OccupancyGrid grid = new OccupancyGrid(key);
+        int keyIndex = key != null ? replay.keyIndex(key) : -1;
+        CustomColumn column = keyIndex >= 0 ? replay.column(keyIndex) : null;
+        int count = replay.frameCount();
+        for (int i = 0; i < count; i++) {
+            grid.add(replay.timeMs(i), replay.x(i), replay.y(i), column != null ? column.number(i) : Double.NaN);
+        }
+        grid.replays = 1;
+        return grid;
+    }
+
+    static int cellOf(double x, double y) {
+        int column = (int) Math.max(0, Math.min(CELLS - 1, Math.floor(x / CELL_INCHES)));
+        int row = (int) Math.max(0, Math.min(CELLS - 1, Math.floor(y / CELL_INCHES)));
+        return row * CELLS + column;
+    }
+
+    /** Adds a frame; {@code value} is the chosen key's value in it, NaN when absent. */
+    void add(long timeMs, double x, double y, double value) {
+        if (lastCell >= 0) {
+            long dtMs = timeMs - lastTimeMs;
+            if (dtMs > 0 && dtMs <= MAX_GAP_MS) {
+                double dt = dtMs / 1000.0;
+                seconds[lastCell] += dt;
+                if (keySum != null && !Double.isNaN(lastValue)) {
+                    keySeconds[lastCell] += dt;
+                    keySum[lastCell] += lastValue * dt;
+                }
+            }
+        }
+        lastTimeMs = timeMs;
+        lastCell = cellOf(x, y);
+        lastValue = value;
+    }
+
+    /** Adds another grid of the same key into this one. */
+    void merge(OccupancyGrid other) {
+        for (int i = 0; i < seconds.length; i++) {
+            seconds[i] += other.seconds[i];
+        }
+        if (keySum != null) {
+            for (int i = 0; i < keySum.length; i++) {
+                keySeconds[i] += other.keySeconds[i];
+                keySum[i] += other.keySum[i];
+            }
+        }
+        replays += other.replays;
+    }
+
+    double totalSeconds() {
+        double total = 0;
+        for (double s : seconds) {
+            total += s;
+        }
+        return total;
+    }
+
+    @Override
+    public void header(String team, String match, long date) {
+    }
+
+    @Override
+    public void beginFrame() {
+        frameValue = Double.NaN;
+    }
+
+    @Override
+    public void putNumber(String key, double value) {
+        if (key.equals(this.key)) frameValue = value;
+    }
+
+    @Override
+    public void putBoolean(String key, boolean value) {
+        if (key.equals(this.key)) frameValue = value ? 1 : 0;
+    }
+
+    @Override
+    public void putText(String key, String value) {
+    }
+
+    @Override
+    public void endFrame(long timeMs, double x, double y, double heading) {
+        add(timeMs, x, y, frameValue);
+    }
+}
@@ -0,0 +1,210 @@
+package org.nexus.ftc.replay;
+
+import java.util.Arrays;
+
+/**
+ * A replay's path simplified with Douglas–Peucker to a tolerance in field inches,
+ * usually half a canvas pixel. Only the kept vertices are ever stroked, so a
+ * trail costs a few hundred segments however many frames the replay has. Each
+ * segment carries a metric for coloring it: average speed over the frames it
+ * spans, or a custom key's value at its end.
+ *
+ * <p>A trail can be {@link #extend extended} as its replay grows. Only the frames
+ * after the last vertex that was kept on its own merit are simplified again, so
+ * following a replay that is still loading or live costs time proportional to
+ * the new frames. Not thread-safe.
+ */
+final class PathTrail {
+
+    /** Metric selector for {@link #build}: no coloring. */
+    static final int METRIC_NONE = -2;
+    /** Metric selector for {@link #build}: speed in inches per second. */
+    static final int METRIC_SPEED = -1;
+
+    final double toleranceInches;
+    final int metricKey;
+
+    // Frames simplified so far
+    int sourceFrames;
+
+    // Kept vertices, in frame order; only the first size entries are valid
+    int size;
+    int[] frames = new int[64];
+    double[] x = new double[64];
+    double[] y = new double[64];
+
+    // metric[i] belongs to the segment from vertex i to vertex i + 1; NaN if unknown
+    float[] metric = new float[64];
+    float metricMin = Float.POSITIVE_INFINITY;
+    float metricMax = Float.NEGATIVE_INFINITY;
+
+    private PathTrail(double toleranceInches, int metricKey) {
+        this.toleranceInches = toleranceInches;
+        this.metricKey = metricKey;
+    }
+
+    /**
+     * Simplifies the frames the replay has so far. {@code metricKey} is a custom
+     * key id, {@link #METRIC_SPEED} or {@link #METRIC_NONE}.
+     */
+    static PathTrail build(Replay replay, double toleranceInches, int metricKey) {
+        PathTrail trail = new PathTrail(toleranceInches, metricKey);
+        trail.extend(replay);
+        return trail;
+    }
+
+    /** An independent copy, to {@link #extend} while this one is still being read. */
+    PathTrail copy() {
+        PathTrail copy = new PathTrail(toleranceInches, metricKey);
+        copy.sourceFrames = sourceFrames;
+        copy.size = size;
+        copy.frames = Arrays.copyOf(frames, frames.length);
+        copy.x = Arrays.copyOf(x, x.length);
+        copy.y = Arrays.copyOf(y, y.length);
+        copy.metric = Arrays.copyOf(metric, metric.length);
+        copy.metricMin = metricMin;
+        copy.metricMax = metricMax;
+        return copy;
+    }
+
+    /**
+     * Adds the frames that arrived since the last call.
+     *
+     * @return the first vertex that changed; vertices before it are as they were
+     */
+    int extend(Replay replay) {
+        int count = replay.frameCount();
+        if (count <= sourceFrames) return size;
+
+        // The last vertex was only kept because it ended the path; simplify again from the one before it
+        int from = size >= 2 ? size - 2 : 0;
+        int startFrame = size >= 2 ? frames[from] : 0;
+        size = from;
+
+        int[] kept = simplify(replay, startFrame, count, toleranceInches);
+        ensureCapacity(size + kept.length);
+        CustomColumn column = metricKey >= 0 && metricKey < replay.keyCount() ? replay.column(metricKey) : null;
+        for (int frame : kept) {
+            frames[size] = frame;
+            x[size] = replay.x(frame);
+            y[size] = replay.y(frame);
+            if (size > 0) {
+                float value;
+                if (metricKey == METRIC_SPEED) {
+                    value = averageSpeed(replay, frames[size - 1], frame);
+                } else if (column != null) {
+                    value = (float) column.number(frame);
+                } else {
+                    value = Float.NaN;
+                }
+                metric[size - 1] = value;
+                if (!Float.isNaN(value)) {
+                    metricMin = Math.min(metricMin, value);
+                    metricMax = Math.max(metricMax, value);
+                }
+            }
+            size++;
+        }
+        sourceFrames = count;
+        return from;
+    }
+
+    /** Number of kept vertices at or before {@code frame}. */
+    int verticesUpTo(int frame) {
+        int i = Arrays.binarySearch(frames, 0, size, frame);
+        return i >= 0 ? i + 1 : -i - 1;
+    }
+
+    /** The metric scaled to [0, 1] over this trail's range, or NaN if the segment has none. */
+    double normalizedMetric(int segment) {
+        float value = metric[segment];
+        if (Float.isNaN(value)) return Double.NaN;
+        return metricMax > metricMin ? (value - metricMin) / (metricMax - metricMin) : 0.5;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= frames.length) return;
+        int newCapacity = Math.max(capacity, frames.length * 2);
+        frames = Arrays.copyOf(frames, newCapacity);
+        x = Arrays.copyOf(x, newCapacity);
+        y = Arrays.copyOf(y, newCapacity);
+        metric = Arrays.copyOf(metric, newCapacity);
+    }
+
+    private static float averageSpeed(Replay replay, int from, int to) {
+        double distance = 0;
+        for (int f = from; f < to; f++) {
+            distance += Math.hypot(replay.x(f + 1) - replay.x(f), replay.y(f + 1) - replay.y(f));
+        }
+        long dtMs = replay.timeMs(to) - replay.timeMs(from);
+        return dtMs > 0 ? (float) (distance * 1000.0 / dtMs) : Float.NaN;
+    }
+
+    /**
+     * Iterative Douglas–Peucker over frames {@code first..end - 1}, so long still
+     * stretches cannot overflow the call stack. Returns the kept frames in order.
+     */
+    private static int[] simplify(Replay replay, int first, int end, double tolerance) {
+        int count = end - first;
+        if (count <= 2) {
+            int[] all = new int[count];
+            for (int i = 0; i < count; i++) all[i] = first + i;
+            return all;
+        }
+
+        boolean[] keep = new boolean[count];
+        keep[0] = true;
+        keep[count - 1] = true;
+        int[] stack = new int[64];
+        int top = 0;
+        stack[top++] = first;
+        stack[top++] = end - 1;
+
+        while (top > 0) {
+            int last = stack[--top];
+            int start = stack[--top];
+            if (last - start < 2) continue;
+
+            double ax = replay.x(start);
+            double ay = replay.y(start);
+            double dx = replay.x(last) - ax;
+            double dy = replay.y(last) - ay;
+            double lengthSquared = dx * dx + dy * dy;
+
+            int farthest = -1;
+            double farthestDistance = tolerance;
+            for (int i = start + 1; i < last; i++) {
+                double px = replay.x(i) - ax;
+                double py = replay.y(i) - ay;
+                // Distance to the chord segment, not the line through it, so driving past
+                // an end and back along the same line is kept
+                double t = lengthSquared > 0 ? Math.max(0, Math.min(1, (px * dx + py * dy) / lengthSquared)) : 0;
+                double distance = Math.hypot(px - t * dx, py - t * dy);
+                if (distance > farthestDistance) {
+                    farthestDistance = distance;
+                    farthest = i;
+                }
+            }
+            if (farthest < 0) continue;
+
+            keep[farthest - first] = true;
+            if (top + 4 > stack.length) {
+                stack = Arrays.copyOf(stack, stack.length * 2);
+            }
+            stack[top++] = start;
+            stack[top++] = farthest;
+            stack[top++] = farthest;
+            stack[top++] = last;
+        }
+
+        int kept = 0;
+        for (boolean k : keep) {
+            if (k) kept++;
+        }
+        int[] result = new int[kept];
+        for (int i = 0, j = 0; i < count; i++) {
+            if (keep[i]) result[j++] = first + i;
+        }
+        return result;
+    }
+}
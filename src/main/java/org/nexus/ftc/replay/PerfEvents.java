@@ -0,0 +1,186 @@
+package org.nexus.ftc.replay;
+
+import java.io.File;
+import java.io.IOException;
+import java.text.ParseException;
+import java.time.Duration;
+
+import jdk.jfr.Category;
+import jdk.jfr.Configuration;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Frequency;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Period;
+import jdk.jfr.Recording;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * JDK Flight Recorder events for the measurements in {@link PerfStats}, and a
+ * recording the viewer can start and dump on demand. Events also appear in
+ * recordings started with {@code -XX:StartFlightRecording}.
+ *
+ * <p>The per-redraw event is only created while a recording has it enabled, so
+ * with no recording running the hot path allocates nothing.
+ */
+final class PerfEvents {
+
+    private static final EventType RENDER_TYPE = EventType.getEventType(RenderEvent.class);
+
+    private static Recording recording;
+
+    private PerfEvents() {
+    }
+
+    @Name("org.nexus.ftc.replay.Render")
+    @Label("Replay Render")
+    @Category({"FTC Replay Viewer", "Rendering"})
+    @Description("One redraw of the field canvas and the panels that follow the playhead")
+    @StackTrace(false)
+    static final class RenderEvent extends Event {
+        @Label("Field Canvas")
+        @Timespan(Timespan.NANOSECONDS)
+        long renderTime;
+
+        @Label("Panels")
+        @Timespan(Timespan.NANOSECONDS)
+        long panelTime;
+    }
+
+    @Name("org.nexus.ftc.replay.Load")
+    @Label("Replay Load")
+    @Category({"FTC Replay Viewer", "Loading"})
+    @StackTrace(false)
+    static final class LoadEvent extends Event {
+        @Label("File")
+        String file;
+
+        @Label("Size")
+        @DataAmount
+        long bytes;
+
+        @Label("Frames")
+        int frames;
+
+        @Label("Bytes per Second")
+        @DataAmount(DataAmount.BYTES)
+        @Frequency
+        double bytesPerSecond;
+
+        @Label("Frames per Second")
+        @Frequency
+        double framesPerSecond;
+    }
+
+    @Name("org.nexus.ftc.replay.Summary")
+    @Label("Viewer Performance Summary")
+    @Category({"FTC Replay Viewer", "Rendering"})
+    @Description("Averages over the last few hundred ticks, sampled periodically")
+    @Period("1 s")
+    @StackTrace(false)
+    static final class SummaryEvent extends Event {
+        @Label("Average Render")
+        @Timespan(Timespan.NANOSECONDS)
+        long averageRender;
+
+        @Label("Max Render")
+        @Timespan(Timespan.NANOSECONDS)
+        long maxRender;
+
+        @Label("Average Panels")
+        @Timespan(Timespan.NANOSECONDS)
+        long averagePanels;
+
+        @Label("Average Tick Interval")
+        @Timespan(Timespan.NANOSECONDS)
+        long averageTick;
+
+        @Label("Dropped Ticks")
+        long droppedTicks;
+
+        @Label("Heap Used")
+        @DataAmount
+        long heapUsed;
+    }
+
+    /** Emits {@link SummaryEvent} once a second from the given stats while a recording wants it. */
+    static void install(PerfStats stats) {
+        FlightRecorder.addPeriodicEvent(SummaryEvent.class, () -> {
+            SummaryEvent event = new SummaryEvent();
+            event.averageRender = (long) (stats.averageRenderMs() * 1e6);
+            event.maxRender = (long) (stats.maxRenderMs() * 1e6);
+            event.averagePanels = (long) (stats.averagePanelMs() * 1e6);
+            event.averageTick = (long) (stats.averageTickMs() * 1e6);
+            event.droppedTicks = stats.droppedTicks();
+            Runtime runtime = Runtime.getRuntime();
+            event.heapUsed = runtime.totalMemory() - runtime.freeMemory();
+            event.commit();
+        });
+    }
+
+    static void render(long renderNs, long panelNs) {
+        if (!RENDER_TYPE.isEnabled()) return;
+        RenderEvent event = new RenderEvent();
+        event.renderTime = renderNs;
+        event.panelTime = panelNs;
+        event.commit();
+    }
+
+    static void load(File file, int frames, long elapsedNs) {
+        load(file.getPath(), file.length(), frames, elapsedNs);
+    }
+
+    /** A load that read {@code bytes} of {@code source}, e.g. one match of an archive. */
+    static void load(String source, long bytes, int frames, long elapsedNs) {
+        LoadEvent event = new LoadEvent();
+        if (!event.shouldCommit()) return;
+        double seconds = Math.max(elapsedNs, 1) / 1e9;
+        event.file = source;
+        event.bytes = bytes;
+        event.frames = frames;
+        event.bytesPerSecond = event.bytes / seconds;
+        event.framesPerSecond = frames / seconds;
+        event.commit();
+    }
+
+    static synchronized boolean isRecording() {
+        return recording != null;
+    }
+
+    /** Starts a recording with the JDK's default settings plus the viewer's events. */
+    static synchronized void startRecording() throws IOException, ParseException {
+        if (recording != null) return;
+        Recording r = new Recording(Configuration.getConfiguration("default"));
+        r.setName("FTC Replay Viewer");
+        r.enable(RenderEvent.class);
+        r.enable(LoadEvent.class);
+        r.enable(SummaryEvent.class).withPeriod(Duration.ofSeconds(1));
+        r.start();
+        recording = r;
+    }
+
+    static synchronized void stopRecording() {
+        if (recording == null) return;
+        recording.close();
+        recording = null;
+    }
+
+    /**
+     * Writes everything recorded so far by any running recording, including one
+     * started from the command line, to a {@code .jfr} file.
+     */
+    static void dump(File out) throws IOException {
+        FlightRecorder recorder = FlightRecorder.getFlightRecorder();
+        if (recorder.getRecordings().isEmpty()) {
+            throw new IOException("No flight recording is running");
+        }
+        try (Recording snapshot = recorder.takeSnapshot()) {
+            snapshot.dump(out.toPath());
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package org.nexus.ftc.replay;
+
+import javafx.animation.Animation;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.util.Duration;
+
+/**
+ * Small translucent overlay with the numbers from {@link PerfStats}: redraw
+ * cost, frame pacing with a histogram of tick intervals, heap use, the memory
+ * the loaded replay's frames take and the last load's throughput. It repaints
+ * a few times a second on its own timeline, not on every pulse, so leaving it
+ * open barely shows up in its own numbers.
+ */
+final class PerfHud extends Canvas {
+
+    private static final double WIDTH = 230;
+    private static final double HEIGHT = 183;
+    private static final double LINE = 15;
+    private static final Duration REFRESH = Duration.millis(250);
+    private static final Font FONT = Font.font("Monospaced", 11);
+
+    private final PerfStats stats;
+    private final Timeline timeline;
+    private final int[] histogram = new int[PerfStats.BUCKET_LIMITS_MS.length + 1];
+
+    PerfHud(PerfStats stats) {
+        super(WIDTH, HEIGHT);
+        this.stats = stats;
+        setMouseTransparent(true);
+        setVisible(false);
+        timeline = new Timeline(new KeyFrame(REFRESH, e -> redraw()));
+        timeline.setCycleCount(Animation.INDEFINITE);
+    }
+
+    void setShowing(boolean showing) {
+        setVisible(showing);
+        if (showing) {
+            redraw();
+            timeline.play();
+        } else {
+            timeline.stop();
+        }
+    }
+
+    boolean isShowing() {
+        return isVisible();
+    }
+
+    private void redraw() {
+        GraphicsContext gc = getGraphicsContext2D();
+        gc.clearRect(0, 0, WIDTH, HEIGHT);
+        gc.setFill(Color.rgb(0, 0, 0, 0.7));
+        gc.fillRoundRect(0, 0, WIDTH, HEIGHT, 8, 8);
+
+        gc.setFont(FONT);
+        gc.setFill(Color.WHITE);
+        Runtime runtime = Runtime.getRuntime();
+        long heapMb = (runtime.totalMemory() - runtime.freeMemory()) >> 20;
+        double y = LINE;
+        gc.fillText(String.format("render  %5.2f ms  max %5.2f", stats.averageRenderMs(), stats.maxRenderMs()), 8, y);
+        gc.fillText(String.format("panels  %5.2f ms  max %5.2f", stats.averagePanelMs(), stats.maxPanelMs()), 8, y += LINE);
+        gc.fillText(String.format("tick    %5.2f ms  (%.1f)", stats.averageTickMs(), stats.expectedTickMs()), 8, y += LINE);
+        gc.fillText(String.format("dropped %d / %d", stats.droppedTicks(), stats.totalTicks()), 8, y += LINE);
+        gc.fillText(String.format("heap    %d / %d MB", heapMb, runtime.maxMemory() >> 20), 8, y += LINE);
+        gc.fillText(String.format("frames  %d KB", stats.replayBytes() / 1024), 8, y += LINE);
+        gc.fillText(String.format("load    %.1f MB/s  %.0f fr/s", stats.loadBytesPerSecond() / (1024 * 1024),
+                stats.loadFramesPerSecond()), 8, y += LINE);
+
+        drawHistogram(gc, 8, y + 8, WIDTH - 16, HEIGHT - y - 14);
+    }
+
+    /** Bars for each pacing bucket, green up to one display period, amber below 2x, red beyond. */
+    private void drawHistogram(GraphicsContext gc, double left, double top, double width, double height) {
+        stats.pacingHistogram(histogram);
+        int max = 1;
+        for (int count : histogram) {
+            max = Math.max(max, count);
+        }
+
+        double expectedMs = stats.expectedTickMs();
+        double barWidth = width / histogram.length;
+        for (int i = 0; i < histogram.length; i++) {
+            double lowerMs = i == 0 ? 0 : PerfStats.BUCKET_LIMITS_MS[i - 1];
+            if (lowerMs < expectedMs * 1.25) {
+                gc.setFill(Color.LIMEGREEN);
+            } else if (lowerMs < expectedMs * 2) {
+                gc.setFill(Color.ORANGE);
+            } else {
+                gc.setFill(Color.TOMATO);
+            }
+            double barHeight = (height - 2) * histogram[i] / max;
+            gc.fillRect(left + i * barWidth + 1, top + height - barHeight, barWidth - 2, barHeight);
+        }
+        gc.setStroke(Color.gray(0.6));
+        gc.setLineWidth(1);
+        gc.strokeLine(left, top + height + 0.5, left + width, top + height + 0.5);
+    }
+}
@@ -0,0 +1,169 @@
+package org.nexus.ftc.replay;
+
+import java.util.Arrays;
+
+/**
+ * Timings of the viewer's hot paths, kept in fixed rings of primitives so
+ * recording a sample allocates nothing and costs a couple of stores. The rings
+ * always record; the HUD and the JFR summary event only read them, so showing
+ * the numbers does not change them.
+ *
+ * <p>Ticks, render and panel timings are recorded on the FX thread. Load
+ * throughput may be reported from a loader thread. Readers on other threads
+ * (the JFR periodic hook) see approximate values.
+ */
+final class PerfStats {
+
+    /** Samples kept for averages, maxima and the pacing histogram. */
+    static final int WINDOW = 256;
+
+    /** Upper bounds (ms) of the pacing histogram buckets; the last bucket is everything above. */
+    static final double[] BUCKET_LIMITS_MS = {8, 12, 17, 20, 25, 33, 50, 100};
+
+    private static final long DEFAULT_TICK_NS = 16_666_667L;
+    private static final long MIN_TICK_NS = 4_000_000L;
+    // Ticks between re-estimates of the display period; a power of two
+    private static final int ESTIMATE_INTERVAL = 64;
+
+    private final long[] tickIntervals = new long[WINDOW];
+    private final long[] renderTimes = new long[WINDOW];
+    private final long[] panelTimes = new long[WINDOW];
+    private int tickCount;
+    private int renderCount;
+    private long lastTickNs;
+
+    // Display period estimate: the shortest recent interval, i.e. one vsync
+    private long expectedTickNs = DEFAULT_TICK_NS;
+    private long droppedTicks;
+    private long totalTicks;
+
+    private volatile double loadBytesPerSecond;
+    private volatile double loadFramesPerSecond;
+    private volatile long replayBytes;
+
+    /** Records an animation pulse; {@code nowNs} is the timestamp the timer was handed. */
+    void tick(long nowNs) {
+        if (lastTickNs != 0) {
+            long interval = nowNs - lastTickNs;
+            tickIntervals[tickCount++ & (WINDOW - 1)] = interval;
+            totalTicks++;
+            // Kept current here rather than by the HUD, so drops are counted right with it hidden
+            if ((tickCount & (ESTIMATE_INTERVAL - 1)) == 0) updateExpectedTick();
+            // Every display period that passed without a pulse is a dropped tick
+            long missed = (interval + expectedTickNs / 2) / expectedTickNs - 1;
+            if (missed > 0) droppedTicks += missed;
+        }
+        lastTickNs = nowNs;
+    }
+
+    /** Playback stopped; the gap until it starts again is not a pacing problem. */
+    void pauseTicks() {
+        lastTickNs = 0;
+    }
+
+    /** Records one redraw: field canvas time and time spent updating the side panels and timeline. */
+    void recordRender(long renderNs, long panelNs) {
+        int i = renderCount++ & (WINDOW - 1);
+        renderTimes[i] = renderNs;
+        panelTimes[i] = panelNs;
+        PerfEvents.render(renderNs, panelNs);
+    }
+
+    /** Latest load throughput, updated while a replay streams in. */
+    void recordLoadRate(double bytesPerSecond, double framesPerSecond) {
+        loadBytesPerSecond = bytesPerSecond;
+        loadFramesPerSecond = framesPerSecond;
+    }
+
+    /** Heap held by the loaded replay's frames; 0 for a memory-mapped one. */
+    void recordReplayMemory(long bytes) {
+        replayBytes = bytes;
+    }
+
+    /** Re-estimates the display period from the recent intervals. */
+    private void updateExpectedTick() {
+        int n = Math.min(tickCount, WINDOW);
+        long min = Long.MAX_VALUE;
+        for (int i = 0; i < n; i++) {
+            min = Math.min(min, tickIntervals[i]);
+        }
+        if (n > 0) expectedTickNs = Math.max(MIN_TICK_NS, min);
+    }
+
+    double averageRenderMs() {
+        return average(renderTimes, renderCount);
+    }
+
+    double maxRenderMs() {
+        return max(renderTimes, renderCount);
+    }
+
+    double averagePanelMs() {
+        return average(panelTimes, renderCount);
+    }
+
+    double maxPanelMs() {
+        return max(panelTimes, renderCount);
+    }
+
+    double averageTickMs() {
+        return average(tickIntervals, tickCount);
+    }
+
+    double expectedTickMs() {
+        return expectedTickNs / 1e6;
+    }
+
+    long droppedTicks() {
+        return droppedTicks;
+    }
+
+    long totalTicks() {
+        return totalTicks;
+    }
+
+    double loadBytesPerSecond() {
+        return loadBytesPerSecond;
+    }
+
+    double loadFramesPerSecond() {
+        return loadFramesPerSecond;
+    }
+
+    long replayBytes() {
+        return replayBytes;
+    }
+
+    /** Fills {@code counts} (length {@code BUCKET_LIMITS_MS.length + 1}) with the recent tick intervals. */
+    void pacingHistogram(int[] counts) {
+        Arrays.fill(counts, 0);
+        int n = Math.min(tickCount, WINDOW);
+        for (int i = 0; i < n; i++) {
+            double ms = tickIntervals[i] / 1e6;
+            int bucket = 0;
+            while (bucket < BUCKET_LIMITS_MS.length && ms >= BUCKET_LIMITS_MS[bucket]) {
+                bucket++;
+            }
+            counts[bucket]++;
+        }
+    }
+
+    private static double average(long[] samples, int count) {
+        int n = Math.min(count, WINDOW);
+        if (n == 0) return 0;
+        long sum = 0;
+        for (int i = 0; i < n; i++) {
+            sum += samples[i];
+        }
+        return sum / (n * 1e6);
+    }
+
+    private static double max(long[] samples, int count) {
+        int n = Math.min(count, WINDOW);
+        long max = 0;
+        for (int i = 0; i < n; i++) {
+            max = Math.max(max, samples[i]);
+        }
+        return max / 1e6;
+    }
+}
@@ -0,0 +1,159 @@
+package org.nexus.ftc.replay;
+
+import javafx.application.Platform;
+import javafx.geometry.Pos;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.TextField;
+import javafx.scene.input.KeyCode;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+
+import java.text.ParseException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.DoubleConsumer;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Query field for the loaded replay. Enter runs a {@link FrameQuery} and marks
+ * the matching intervals on the {@link MatchStrip}; pressing Enter again, or
+ * Next and Previous, jumps between them. Queries run off the FX thread and keep
+ * the replay's zone maps, so editing and re-running a query only reads the
+ * columns it has not seen before.
+ */
+final class QueryBar extends HBox {
+
+    // Queries run one at a time, off the FX thread; the zone maps belong to this thread
+    private static final ExecutorService RUNNER = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "query-runner");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final TextField queryField = new TextField();
+    private final Label statusLabel = new Label();
+    private final MatchStrip strip;
+    private final DoubleConsumer onSeek;
+    private final DoubleSupplier playhead;
+
+    private Replay replay;
+    private Map<String, ZoneMap> zoneMaps = new HashMap<>();
+    private FrameQuery query;
+    private FrameQuery.Matches matches;
+    // Bumped for every replay or query, so a result for an earlier one is dropped
+    private int generation;
+
+    QueryBar(MatchStrip strip, DoubleConsumer onSeek, DoubleSupplier playhead) {
+        super(10);
+        this.strip = strip;
+        this.onSeek = onSeek;
+        this.playhead = playhead;
+        setAlignment(Pos.CENTER_LEFT);
+        setStyle("-fx-padding: 5 10 5 10; -fx-background-color: #2a2a2a;");
+
+        Label title = new Label("Find:");
+        title.setStyle("-fx-text-fill: #eee;");
+        queryField.setPromptText("e.g. shooterRPM > 3000 && intakeState == RUNNING");
+        queryField.setOnKeyPressed(e -> {
+            if (e.getCode() == KeyCode.ENTER) {
+                if (query != null && query.text().equals(queryField.getText().trim()) && matches != null) {
+                    jump(!e.isShiftDown());
+                } else {
+                    run();
+                }
+                e.consume();
+            } else if (e.getCode() == KeyCode.ESCAPE) {
+                queryField.clear();
+                run();
+                e.consume();
+            }
+        });
+        HBox.setHgrow(queryField, Priority.ALWAYS);
+
+        Button previousButton = new Button("Previous");
+        previousButton.setOnAction(e -> jump(false));
+        Button nextButton = new Button("Next");
+        nextButton.setOnAction(e -> jump(true));
+        statusLabel.setStyle("-fx-text-fill: #aaa;");
+
+        getChildren().addAll(title, queryField, previousButton, nextButton, statusLabel);
+    }
+
+    void setReplay(Replay replay) {
+        this.replay = replay;
+        zoneMaps = new HashMap<>();
+        matches = null;
+        strip.setMatches(null);
+        refresh();
+    }
+
+    /** Runs the current query again, e.g. after more frames arrived. */
+    void refresh() {
+        if (query != null) submit(query);
+    }
+
+    private void run() {
+        String text = queryField.getText().trim();
+        if (text.isEmpty()) {
+            generation++;
+            query = null;
+            matches = null;
+            strip.setMatches(null);
+            statusLabel.setText("");
+            return;
+        }
+        try {
+            query = FrameQuery.parse(text);
+        } catch (ParseException e) {
+            generation++;
+            query = null;
+            matches = null;
+            strip.setMatches(null);
+            statusLabel.setText(e.getMessage());
+            return;
+        }
+        submit(query);
+    }
+
+    private void submit(FrameQuery q) {
+        if (replay == null) return;
+        int current = ++generation;
+        Replay target = replay;
+        Map<String, ZoneMap> maps = zoneMaps;
+        statusLabel.setText("Searching...");
+        RUNNER.execute(() -> {
+            long start = System.nanoTime();
+            FrameQuery.Matches result;
+            try {
+                result = q.run(target, maps);
+            } catch (RuntimeException e) {
+                Platform.runLater(() -> {
+                    if (current == generation) statusLabel.setText("Query failed: " + e.getMessage());
+                });
+                return;
+            }
+            double ms = (System.nanoTime() - start) / 1e6;
+            Platform.runLater(() -> {
+                if (current != generation) return;
+                matches = result;
+                strip.setMatches(result);
+                statusLabel.setText(String.format("%d matches, %.1f s total (%.1f ms, %d of %d blocks skipped)",
+                        result.count, result.totalMs() / 1000.0, ms, result.skippedBlocks, result.blocks));
+            });
+        });
+    }
+
+    /** Seeks to the start of the next or previous match, wrapping around at either end. */
+    private void jump(boolean forward) {
+        if (matches == null || matches.isEmpty()) return;
+        double now = playhead.getAsDouble();
+        int i = forward ? matches.after(now) : matches.before(now);
+        if (i < 0) i = forward ? 0 : matches.count - 1;
+        onSeek.accept(matches.startMs[i]);
+        statusLabel.setText(String.format("Match %d of %d: %.1f s", i + 1, matches.count,
+                (matches.endMs[i] - matches.startMs[i]) / 1000.0));
+    }
+}
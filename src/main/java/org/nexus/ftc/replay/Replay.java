@@ -0,0 +1,68 @@
+package org.nexus.ftc.replay;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Read access to a recorded match, independent of where the frames live. Frame
+ * indices run from 0 to {@link #frameCount()} - 1 in timestamp order; custom data
+ * is exposed one {@link CustomColumn} per key.
+ */
+interface Replay {
+
+    /** Opens a replay of either format, blocking until a JSON file is fully parsed. */
+    static Replay open(File file) throws IOException {
+        if (ReplayArchive.isArchive(file)) {
+            throw new IOException(file.getName() + " is an archive of several matches; open one of them from it");
+        }
+        if (MappedReplay.isBinaryReplay(file)) {
+            return MappedReplay.open(file);
+        }
+        ReplayData replay = new ReplayData();
+        new ReplayLoader(file, replay, ReplayLoader.Listener.NONE).load();
+        replay.trimToSize();
+        return replay;
+    }
+
+    String team();
+
+    String match();
+
+    long date();
+
+    int frameCount();
+
+    long timeMs(int frame);
+
+    double x(int frame);
+
+    double y(int frame);
+
+    double heading(int frame);
+
+    int keyCount();
+
+    CustomColumn column(int key);
+
+    default boolean isEmpty() {
+        return frameCount() == 0;
+    }
+
+    default long startTimeMs() {
+        return isEmpty() ? 0 : timeMs(0);
+    }
+
+    default long endTimeMs() {
+        int count = frameCount();
+        return count == 0 ? 0 : timeMs(count - 1);
+    }
+
+    /** Key id for a custom-data name, or -1 if no frame recorded it. */
+    default int keyIndex(String name) {
+        int count = keyCount();
+        for (int i = 0; i < count; i++) {
+            if (column(i).key.equals(name)) return i;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,261 @@
+package org.nexus.ftc.replay;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Gson imports for JSON output
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+/**
+ * Headless batch analysis of every replay under a directory. Files are streamed
+ * through {@link MatchMetrics} on a fork-join pool, so each worker holds one
+ * file's summary rather than its frames and memory stays bounded however many
+ * matches there are.
+ *
+ * <pre>
+ * ReplayAnalyzer &lt;dir&gt; [--json] [--out file] [--threads n]
+ * </pre>
+ */
+public final class ReplayAnalyzer {
+
+    private ReplayAnalyzer() {
+    }
+
+    static List<File> findReplays(File root) throws IOException {
+        try (Stream<Path> paths = Files.walk(root.toPath())) {
+            return paths.filter(Files::isRegularFile)
+                    .map(Path::toFile)
+                    .filter(f -> f.getName().endsWith(".replay") || MappedReplay.isBinaryReplay(f))
+                    .sorted(Comparator.comparing(File::getPath))
+                    .collect(Collectors.toList());
+        }
+    }
+
+    static MatchMetrics analyze(File file) {
+        MatchMetrics metrics = new MatchMetrics(file.getPath());
+        try {
+            if (MappedReplay.isBinaryReplay(file)) {
+                FrameSink.feed(MappedReplay.open(file), metrics);
+            } else {
+                new ReplayLoader(file, metrics, ReplayLoader.Listener.NONE).load();
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Skipping " + file + ": " + e.getMessage());
+            return null;
+        }
+        return metrics;
+    }
+
+    /** Analyzes files in parallel on a pool of the given size; unreadable files are left out. */
+    static List<MatchMetrics> analyzeAll(List<File> files, int threads) throws InterruptedException {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            return pool.submit(() -> files.parallelStream()
+                    .map(ReplayAnalyzer::analyze)
+                    .filter(m -> m != null)
+                    .collect(Collectors.toList())).get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    static void writeCsv(List<MatchMetrics> results, Writer out) {
+        // Every numeric key seen in any match gets min/max/mean columns
+        Set<String> keys = new TreeSet<>();
+        for (MatchMetrics m : results) {
+            keys.addAll(m.keyStats.keySet());
+        }
+
+        PrintWriter csv = new PrintWriter(out);
+        StringBuilder header = new StringBuilder(
+                "file,team,match,date,frames,duration_s,path_length_in,max_speed_in_s,avg_speed_in_s");
+        for (int tile = 0; tile < MatchMetrics.TILES * MatchMetrics.TILES; tile++) {
+            header.append(",tile_").append(tile / MatchMetrics.TILES).append('_')
+                    .append(tile % MatchMetrics.TILES).append("_s");
+        }
+        for (String key : keys) {
+            header.append(',').append(csvField(key + "_min"))
+                    .append(',').append(csvField(key + "_max"))
+                    .append(',').append(csvField(key + "_mean"));
+        }
+        csv.println(header);
+
+        for (MatchMetrics m : results) {
+            StringBuilder row = new StringBuilder();
+            row.append(csvField(m.file)).append(',')
+                    .append(csvField(m.team)).append(',')
+                    .append(csvField(m.match)).append(',')
+                    .append(m.date).append(',')
+                    .append(m.frameCount).append(',')
+                    .append(m.durationSeconds()).append(',')
+                    .append(m.pathLengthInches).append(',')
+                    .append(m.maxSpeedInchesPerSec).append(',')
+                    .append(m.averageSpeedInchesPerSec());
+            for (double seconds : m.tileSeconds) {
+                row.append(',').append(seconds);
+            }
+            for (String key : keys) {
+                MatchMetrics.KeyStats stats = m.keyStats.get(key);
+                if (stats == null) {
+                    row.append(",,,");
+                } else {
+                    row.append(',').append(stats.min).append(',').append(stats.max).append(',').append(stats.mean());
+                }
+            }
+            csv.println(row);
+        }
+        csv.flush();
+    }
+
+    static void writeJson(List<MatchMetrics> results, Writer out) {
+        List<Map<String, Object>> matches = new ArrayList<>();
+        for (MatchMetrics m : results) {
+            Map<String, Object> match = new LinkedHashMap<>();
+            match.put("file", m.file);
+            match.put("team", m.team);
+            match.put("match", m.match);
+            match.put("date", m.date);
+            match.put("frames", m.frameCount);
+            match.put("durationSeconds", m.durationSeconds());
+            match.put("pathLengthInches", m.pathLengthInches);
+            match.put("maxSpeedInchesPerSec", m.maxSpeedInchesPerSec);
+            match.put("avgSpeedInchesPerSec", m.averageSpeedInchesPerSec());
+            match.put("tileSeconds", m.tileSeconds);
+
+            Map<String, Object> keys = new LinkedHashMap<>();
+            for (Map.Entry<String, MatchMetrics.KeyStats> entry : m.keyStats.entrySet()) {
+                Map<String, Object> stats = new LinkedHashMap<>();
+                stats.put("min", entry.getValue().min);
+                stats.put("max", entry.getValue().max);
+                stats.put("mean", entry.getValue().mean());
+                keys.put(entry.getKey(), stats);
+            }
+            match.put("customData", keys);
+            matches.add(match);
+        }
+
+        Gson gson = new GsonBuilder().setPrettyPrinting().serializeSpecialFloatingPointValues().create();
+        PrintWriter json = new PrintWriter(out);
+        json.println(gson.toJson(matches));
+        json.flush();
+    }
+
+    /** {@code value} as one CSV field, quoted only if it needs to be; null is empty. */
+    static String csvField(String value) {
+        if (value == null) return "";
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) return value;
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    /** {@code args[i]}, the value after an option; prints {@code usage} and exits if the option came last. */
+    static String optionValue(String[] args, int i, String usage) {
+        if (i >= args.length) exitWithUsage(args[i - 1] + " needs a value", usage);
+        return args[i];
+    }
+
+    static int intOption(String[] args, int i, String usage) {
+        String value = optionValue(args, i, usage);
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            exitWithUsage(args[i - 1] + " needs a whole number, not " + value, usage);
+            return 0;
+        }
+    }
+
+    static double numberOption(String[] args, int i, String usage) {
+        String value = optionValue(args, i, usage);
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            exitWithUsage(args[i - 1] + " needs a number, not " + value, usage);
+            return 0;
+        }
+    }
+
+    static void exitWithUsage(String problem, String usage) {
+        System.err.println(problem);
+        System.err.println(usage);
+        System.exit(2);
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        String usage = "Usage: ReplayAnalyzer <dir> [--json] [--out file] [--threads n]";
+        File root = null;
+        File outFile = null;
+        boolean json = false;
+        int threads = Runtime.getRuntime().availableProcessors();
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--json":
+                    json = true;
+                    break;
+                case "--out":
+                    outFile = new File(optionValue(args, ++i, usage));
+                    break;
+                case "--threads":
+                    threads = intOption(args, ++i, usage);
+                    break;
+                default:
+                    root = new File(args[i]);
+                    break;
+            }
+        }
+        if (root == null || !root.isDirectory() || threads < 1) {
+            System.err.println(usage);
+            System.exit(2);
+        }
+
+        List<File> files = findReplays(root);
+        long bytes = 0;
+        for (File f : files) {
+            bytes += f.length();
+        }
+
+        long start = System.nanoTime();
+        List<MatchMetrics> results = analyzeAll(files, threads);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        long frames = 0;
+        for (MatchMetrics m : results) {
+            frames += m.frameCount;
+        }
+
+        try (Writer out = outFile != null
+                ? Files.newBufferedWriter(outFile.toPath(), StandardCharsets.UTF_8)
+                : new OutputStreamWriter(System.out, StandardCharsets.UTF_8)) {
+            if (json) {
+                writeJson(results, out);
+            } else {
+                writeCsv(results, out);
+            }
+        }
+
+        // Throughput goes to stderr so it never mixes with the report
+        System.err.printf("Analyzed %d of %d replays (%.1f MB, %d frames) in %.2f s on %d threads: "
+                        + "%.1f MB/s, %.0f frames/s%n",
+                results.size(), files.size(), bytes / 1e6, frames, seconds, threads,
+                bytes / 1e6 / seconds, frames / seconds);
+    }
+}
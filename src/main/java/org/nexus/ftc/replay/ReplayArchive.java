@@ -0,0 +1,678 @@
+package org.nexus.ftc.replay;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+// Gson's streaming writer produces the same JSON the recorder does
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * Reads a season archive written by {@link ReplayArchiveWriter}. Opening one
+ * reads only its directory; {@link #read} then decodes a single match, or the
+ * blocks of it that cover a stretch of time, into a {@link FrameSink}, with
+ * positional reads, so any number of threads may read one archive at once.
+ *
+ * <pre>
+ * ReplayArchive pack &lt;out.replaya&gt; &lt;file or dir&gt;... [--threads n]
+ * ReplayArchive unpack &lt;archive&gt; &lt;dir&gt; [--match name] [--from s] [--to s] [--binary]
+ * ReplayArchive list &lt;archive&gt;
+ * </pre>
+ */
+final class ReplayArchive implements Closeable {
+
+    /** One match's place in the archive, from the directory. */
+    static final class Entry {
+        /** Where the match came from, relative to the folder that was packed. */
+        final String name;
+        final String team;
+        final String match;
+        final long date;
+        final int frameCount;
+        final long startTimeMs;
+        final long endTimeMs;
+        final String[] keys;
+        final CustomColumn.Kind[] kinds;
+        final long dictionaryOffset;
+        final int dictionaryLength;
+        final long[] blockStartMs;
+        final int[] blockFrames;
+        final long[] blockOffset;
+        final int[] blockLength;
+
+        Entry(String name, String team, String match, long date, int frameCount, long startTimeMs, long endTimeMs,
+              String[] keys, CustomColumn.Kind[] kinds, long dictionaryOffset, int dictionaryLength,
+              long[] blockStartMs, int[] blockFrames, long[] blockOffset, int[] blockLength) {
+            this.name = name;
+            this.team = team;
+            this.match = match;
+            this.date = date;
+            this.frameCount = frameCount;
+            this.startTimeMs = startTimeMs;
+            this.endTimeMs = endTimeMs;
+            this.keys = keys;
+            this.kinds = kinds;
+            this.dictionaryOffset = dictionaryOffset;
+            this.dictionaryLength = dictionaryLength;
+            this.blockStartMs = blockStartMs;
+            this.blockFrames = blockFrames;
+            this.blockOffset = blockOffset;
+            this.blockLength = blockLength;
+        }
+
+        int blockCount() {
+            return blockOffset.length;
+        }
+
+        /** Bytes the match takes in the archive. */
+        long storedBytes() {
+            long bytes = dictionaryLength;
+            for (int length : blockLength) {
+                bytes += length;
+            }
+            return bytes;
+        }
+
+        /** The block holding the frame at {@code timeMs}: the last to start no later. */
+        int blockAt(long timeMs) {
+            int i = Arrays.binarySearch(blockStartMs, timeMs);
+            if (i < 0) i = -i - 2;
+            // Blocks can start at the same time; the first of them may hold earlier frames of it
+            while (i > 0 && blockStartMs[i] == timeMs) i--;
+            return Math.max(0, i);
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    private final File file;
+    private final FileChannel channel;
+    private final List<Entry> entries;
+
+    private ReplayArchive(File file, FileChannel channel) throws IOException {
+        this.file = file;
+        this.channel = channel;
+
+        long size = channel.size();
+        int trailerSize = ReplayArchiveWriter.TRAILER_SIZE;
+        if (size < ReplayArchiveWriter.HEADER_SIZE + trailerSize) {
+            throw new IOException("Not a " + ReplayArchiveWriter.EXTENSION + " file: " + file);
+        }
+        ByteBuffer header = ByteBuffer.wrap(readBytes(0, ReplayArchiveWriter.HEADER_SIZE));
+        ByteBuffer trailer = ByteBuffer.wrap(readBytes(size - trailerSize, trailerSize));
+        if (!hasMagic(header, 0) || !hasMagic(trailer, 8)) {
+            throw new IOException("Not a " + ReplayArchiveWriter.EXTENSION + " file, or not completely written: " + file);
+        }
+        int version = header.getInt(8);
+        if (version != ReplayArchiveWriter.VERSION) {
+            throw new IOException("Unsupported " + ReplayArchiveWriter.EXTENSION + " version " + version + ": " + file);
+        }
+
+        long directoryOffset = trailer.getLong(0);
+        long directoryLength = size - trailerSize - directoryOffset;
+        if (directoryOffset < ReplayArchiveWriter.HEADER_SIZE || directoryLength > Integer.MAX_VALUE) {
+            throw new IOException("Corrupt archive directory: " + file);
+        }
+        Input in = new Input(readBytes(directoryOffset, (int) directoryLength));
+        CustomColumn.Kind[] allKinds = CustomColumn.Kind.values();
+        int matchCount = in.readVarInt();
+        List<Entry> list = new ArrayList<>(matchCount);
+        for (int m = 0; m < matchCount; m++) {
+            String name = in.readString();
+            String team = in.readString();
+            String match = in.readString();
+            long date = in.readSigned();
+            int frameCount = in.readVarInt();
+            long startTimeMs = in.readSigned();
+            long endTimeMs = in.readSigned();
+            int keyCount = in.readVarInt();
+            String[] keys = new String[keyCount];
+            CustomColumn.Kind[] kinds = new CustomColumn.Kind[keyCount];
+            for (int k = 0; k < keyCount; k++) {
+                keys[k] = in.readString();
+                kinds[k] = allKinds[in.readByte()];
+            }
+            long dictionaryOffset = in.readVarLong();
+            int dictionaryLength = in.readVarInt();
+            int blockCount = in.readVarInt();
+            long[] blockStartMs = new long[blockCount];
+            int[] blockFrames = new int[blockCount];
+            long[] blockOffset = new long[blockCount];
+            int[] blockLength = new int[blockCount];
+            for (int b = 0; b < blockCount; b++) {
+                blockStartMs[b] = in.readSigned();
+                blockFrames[b] = in.readVarInt();
+                blockOffset[b] = in.readVarLong();
+                blockLength[b] = in.readVarInt();
+            }
+            list.add(new Entry(name, team, match, date, frameCount, startTimeMs, endTimeMs, keys, kinds,
+                    dictionaryOffset, dictionaryLength, blockStartMs, blockFrames, blockOffset, blockLength));
+        }
+        entries = Collections.unmodifiableList(list);
+    }
+
+    static ReplayArchive open(File file) throws IOException {
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            return new ReplayArchive(file, channel);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        } catch (RuntimeException e) {
+            // A truncated or damaged directory runs off the end of its bytes
+            channel.close();
+            throw new IOException("Corrupt archive directory: " + file, e);
+        }
+    }
+
+    static boolean isArchive(File file) {
+        return file.getName().endsWith(ReplayArchiveWriter.EXTENSION);
+    }
+
+    List<Entry> entries() {
+        return entries;
+    }
+
+    /** The match packed under {@code name}, or null. */
+    Entry entry(String name) {
+        for (Entry entry : entries) {
+            if (entry.name.equals(name)) return entry;
+        }
+        return null;
+    }
+
+    /** Decodes a whole match into memory. */
+    ReplayData read(Entry entry) throws IOException {
+        ReplayData replay = new ReplayData();
+        read(entry, Long.MIN_VALUE, Long.MAX_VALUE, replay);
+        replay.trimToSize();
+        return replay;
+    }
+
+    /**
+     * Sends the match's frames from {@code fromMs} to {@code toMs} inclusive to a
+     * sink. Only the blocks that overlap that time are read from disk.
+     */
+    void read(Entry entry, long fromMs, long toMs, FrameSink sink) throws IOException {
+        sink.header(entry.team, entry.match, entry.date);
+        if (entry.blockCount() == 0 || fromMs > toMs) return;
+
+        Input dictionaryInput = new Input(readBytes(entry.dictionaryOffset, entry.dictionaryLength));
+        String[] dictionary = new String[dictionaryInput.readVarInt()];
+        for (int i = 0; i < dictionary.length; i++) {
+            dictionary[i] = dictionaryInput.readString();
+        }
+
+        Block block = new Block(entry, dictionary);
+        for (int b = entry.blockAt(fromMs); b < entry.blockCount() && entry.blockStartMs[b] <= toMs; b++) {
+            block.decode(readBytes(entry.blockOffset[b], entry.blockLength[b]), entry.blockFrames[b]);
+            block.send(fromMs, toMs, sink);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private byte[] readBytes(long position, int length) throws IOException {
+        byte[] bytes = new byte[length];
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of " + file);
+            }
+        }
+        return bytes;
+    }
+
+    private static boolean hasMagic(ByteBuffer buffer, int pos) {
+        for (int i = 0; i < ReplayArchiveWriter.MAGIC.length; i++) {
+            if (buffer.get(pos + i) != ReplayArchiveWriter.MAGIC[i]) return false;
+        }
+        return true;
+    }
+
+    /** One block's frames decoded into columns, reused from block to block. */
+    private static final class Block {
+        private final Entry entry;
+        private final String[] dictionary;
+        private final long[] timeMs = new long[ReplayArchiveWriter.BLOCK_FRAMES];
+        private final double[] x = new double[ReplayArchiveWriter.BLOCK_FRAMES];
+        private final double[] y = new double[ReplayArchiveWriter.BLOCK_FRAMES];
+        private final double[] heading = new double[ReplayArchiveWriter.BLOCK_FRAMES];
+        private final int[] present = new int[ReplayArchiveWriter.BLOCK_FRAMES];
+        // Per key in the block: its id, and its values (NaN when missing) or dictionary codes (-1)
+        private int sections;
+        private int[] sectionKeys = new int[8];
+        private double[][] numbers = new double[8][];
+        private int[][] codes = new int[8][];
+        private int frames;
+
+        Block(Entry entry, String[] dictionary) {
+            this.entry = entry;
+            this.dictionary = dictionary;
+        }
+
+        void decode(byte[] bytes, int frameCount) {
+            Input in = new Input(bytes);
+            frames = frameCount;
+            long time = 0;
+            long qx = 0;
+            long qy = 0;
+            long qh = 0;
+            for (int i = 0; i < frames; i++) {
+                time += in.readSigned();
+                qx += in.readSigned();
+                qy += in.readSigned();
+                qh += in.readSigned();
+                timeMs[i] = time;
+                x[i] = qx / ReplayArchiveWriter.POSITION_SCALE;
+                y[i] = qy / ReplayArchiveWriter.POSITION_SCALE;
+                heading[i] = qh / ReplayArchiveWriter.HEADING_SCALE;
+            }
+
+            sections = in.readVarInt();
+            if (sections > sectionKeys.length) {
+                sectionKeys = Arrays.copyOf(sectionKeys, sections);
+                numbers = Arrays.copyOf(numbers, sections);
+                codes = Arrays.copyOf(codes, sections);
+            }
+            for (int s = 0; s < sections; s++) {
+                int key = in.readVarInt();
+                int end = in.readVarInt();
+                end += in.pos;
+                sectionKeys[s] = key;
+                decodeSection(in, s, entry.kinds[key]);
+                in.pos = end;
+            }
+        }
+
+        private void decodeSection(Input in, int s, CustomColumn.Kind kind) {
+            // Frames that have a value, from the runs without and with one
+            int count = 0;
+            int frame = 0;
+            int runCount = in.readVarInt();
+            for (int r = 0; r < runCount; r++) {
+                int run = in.readVarInt();
+                if (r % 2 == 1) {
+                    for (int i = 0; i < run; i++) present[count++] = frame + i;
+                }
+                frame += run;
+            }
+
+            if (kind == CustomColumn.Kind.TEXT) {
+                int[] c = codes[s];
+                if (c == null) c = codes[s] = new int[ReplayArchiveWriter.BLOCK_FRAMES];
+                Arrays.fill(c, 0, frames, -1);
+                int runs = in.readVarInt();
+                int v = 0;
+                for (int r = 0; r < runs; r++) {
+                    int code = in.readVarInt();
+                    int run = in.readVarInt();
+                    for (int i = 0; i < run; i++) c[present[v++]] = code;
+                }
+                return;
+            }
+
+            double[] n = numbers[s];
+            if (n == null) n = numbers[s] = new double[ReplayArchiveWriter.BLOCK_FRAMES];
+            Arrays.fill(n, 0, frames, Double.NaN);
+            if (kind == CustomColumn.Kind.BOOLEAN) {
+                double value = in.readByte();
+                int runs = in.readVarInt();
+                int v = 0;
+                for (int r = 0; r < runs; r++) {
+                    int run = in.readVarInt();
+                    for (int i = 0; i < run; i++) n[present[v++]] = value;
+                    value = 1 - value;
+                }
+                return;
+            }
+
+            int decimals = in.readByte();
+            if (decimals == ReplayArchiveWriter.RAW_DOUBLES) {
+                for (int v = 0; v < count; v++) n[present[v]] = in.readDouble();
+            } else {
+                double scale = ReplayArchiveWriter.POW10[decimals];
+                long q = 0;
+                for (int v = 0; v < count; v++) {
+                    q += in.readSigned();
+                    n[present[v]] = q / scale;
+                }
+            }
+        }
+
+        void send(long fromMs, long toMs, FrameSink sink) {
+            for (int i = 0; i < frames; i++) {
+                if (timeMs[i] < fromMs || timeMs[i] > toMs) continue;
+                sink.beginFrame();
+                for (int s = 0; s < sections; s++) {
+                    int key = sectionKeys[s];
+                    switch (entry.kinds[key]) {
+                        case NUMERIC:
+                            if (!Double.isNaN(numbers[s][i])) sink.putNumber(entry.keys[key], numbers[s][i]);
+                            break;
+                        case BOOLEAN:
+                            if (!Double.isNaN(numbers[s][i])) sink.putBoolean(entry.keys[key], numbers[s][i] != 0);
+                            break;
+                        default:
+                            if (codes[s][i] >= 0) sink.putText(entry.keys[key], dictionary[codes[s][i]]);
+                            break;
+                    }
+                }
+                sink.endFrame(timeMs[i], x[i], y[i], heading[i]);
+            }
+        }
+    }
+
+    /** Reads the varint encodings of {@link ReplayArchiveWriter} from a byte array. */
+    private static final class Input {
+        private final byte[] buffer;
+        int pos;
+
+        Input(byte[] buffer) {
+            this.buffer = buffer;
+        }
+
+        int readByte() {
+            return buffer[pos++] & 0xFF;
+        }
+
+        long readVarLong() {
+            long value = 0;
+            int shift = 0;
+            while (true) {
+                byte b = buffer[pos++];
+                value |= (long) (b & 0x7F) << shift;
+                if (b >= 0) return value;
+                shift += 7;
+            }
+        }
+
+        int readVarInt() {
+            return (int) readVarLong();
+        }
+
+        long readSigned() {
+            long value = readVarLong();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        double readDouble() {
+            long bits = 0;
+            for (int i = 0; i < 8; i++) {
+                bits = bits << 8 | (buffer[pos++] & 0xFF);
+            }
+            return Double.longBitsToDouble(bits);
+        }
+
+        String readString() {
+            int length = readVarInt() - 1;
+            if (length < 0) return null;
+            String value = new String(buffer, pos, length, StandardCharsets.UTF_8);
+            pos += length;
+            return value;
+        }
+    }
+
+    /** Packs replays into an archive, encoding several at once; matches keep the order of {@code files}. */
+    static void pack(List<File> files, List<String> names, File out, int threads) throws IOException, InterruptedException {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try (ReplayArchiveWriter writer = new ReplayArchiveWriter(out)) {
+            // A few files per thread at a time, so only their encoded bytes are held before writing
+            int window = threads * 4;
+            for (int start = 0; start < files.size(); start += window) {
+                List<Integer> batch = new ArrayList<>();
+                for (int i = start; i < Math.min(files.size(), start + window); i++) {
+                    batch.add(i);
+                }
+                List<ReplayArchiveWriter.Encoded> encoded = pool.submit(() -> batch.parallelStream()
+                        .map(i -> encode(files.get(i), names.get(i)))
+                        .collect(Collectors.toList())).get();
+                for (ReplayArchiveWriter.Encoded match : encoded) {
+                    if (match != null) writer.add(match);
+                }
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Error) throw (Error) cause;
+            throw new IOException("Could not pack " + out + ": " + cause.getMessage(), cause);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static ReplayArchiveWriter.Encoded encode(File file, String name) {
+        try {
+            return ReplayArchiveWriter.encode(name, Replay.open(file));
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Skipping " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /** Writes a replay as {@code .replay} JSON, in the recorder's field order. */
+    static void writeJson(Replay replay, Writer out) throws IOException {
+        JsonWriter json = new JsonWriter(out);
+        json.beginObject();
+        json.name("team").value(replay.team());
+        json.name("match").value(replay.match());
+        json.name("date").value(replay.date());
+        json.name("frames").beginArray();
+        int keyCount = replay.keyCount();
+        for (int i = 0; i < replay.frameCount(); i++) {
+            json.beginObject();
+            json.name("timeMs").value(replay.timeMs(i));
+            json.name("x").value(replay.x(i));
+            json.name("y").value(replay.y(i));
+            json.name("heading").value(replay.heading(i));
+            json.name("customData").beginObject();
+            for (int k = 0; k < keyCount; k++) {
+                CustomColumn column = replay.column(k);
+                if (!column.has(i)) continue;
+                json.name(column.key);
+                switch (column.kind()) {
+                    case NUMERIC:
+                        double value = column.number(i);
+                        // Whole numbers as the recorder wrote them, without a trailing ".0"
+                        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+                            json.value((long) value);
+                        } else {
+                            json.value(value);
+                        }
+                        break;
+                    case BOOLEAN:
+                        json.value(column.number(i) != 0);
+                        break;
+                    default:
+                        json.value(column.text(i));
+                        break;
+                }
+            }
+            json.endObject();
+            json.endObject();
+        }
+        json.endArray();
+        json.endObject();
+        json.flush();
+    }
+
+    /**
+     * The file an entry unpacks to under {@code dir}, keeping the folders it was
+     * packed from, with the extension of the format it is written in.
+     */
+    private static File unpackedFile(File dir, Entry entry, boolean binary) {
+        File file = new File(dir, entry.name);
+        if (binary) return BinaryReplayWriter.binaryFileFor(file);
+        String name = file.getName();
+        if (!name.endsWith(BinaryReplayWriter.EXTENSION)) return file;
+        return new File(file.getParentFile(),
+                name.substring(0, name.length() - BinaryReplayWriter.EXTENSION.length()) + ".replay");
+    }
+
+    private static final String USAGE = String.join(System.lineSeparator(),
+            "Usage: ReplayArchive pack <out" + ReplayArchiveWriter.EXTENSION + "> <file or dir>... [--threads n]",
+            "       ReplayArchive unpack <archive> <dir> [--match name] [--from s] [--to s] [--binary]",
+            "       ReplayArchive list <archive>");
+
+    private static void usage() {
+        System.err.println(USAGE);
+        System.exit(2);
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 2) usage();
+        List<String> paths = new ArrayList<>();
+        int threads = Runtime.getRuntime().availableProcessors();
+        String matchName = null;
+        double fromSeconds = 0;
+        double toSeconds = Double.POSITIVE_INFINITY;
+        boolean binary = false;
+
+        for (int i = 1; i < args.length; i++) {
+            switch (args[i]) {
+                case "--threads":
+                    threads = ReplayAnalyzer.intOption(args, ++i, USAGE);
+                    break;
+                case "--match":
+                    matchName = ReplayAnalyzer.optionValue(args, ++i, USAGE);
+                    break;
+                case "--from":
+                    fromSeconds = ReplayAnalyzer.numberOption(args, ++i, USAGE);
+                    break;
+                case "--to":
+                    toSeconds = ReplayAnalyzer.numberOption(args, ++i, USAGE);
+                    break;
+                case "--binary":
+                    binary = true;
+                    break;
+                default:
+                    paths.add(args[i]);
+                    break;
+            }
+        }
+        if (threads < 1) usage();
+
+        long start = System.nanoTime();
+        switch (args[0]) {
+            case "pack": {
+                if (paths.size() < 2) usage();
+                File out = new File(paths.get(0));
+                List<File> files = new ArrayList<>();
+                List<String> names = new ArrayList<>();
+                for (String path : paths.subList(1, paths.size())) {
+                    File input = new File(path);
+                    if (input.isDirectory()) {
+                        Path root = input.toPath();
+                        for (File file : ReplayAnalyzer.findReplays(input)) {
+                            files.add(file);
+                            names.add(root.relativize(file.toPath()).toString().replace(File.separatorChar, '/'));
+                        }
+                    } else {
+                        files.add(input);
+                        names.add(input.getName());
+                    }
+                }
+                long inBytes = 0;
+                for (File file : files) {
+                    inBytes += file.length();
+                }
+                pack(files, names, out, threads);
+                try (ReplayArchive archive = open(out)) {
+                    System.out.printf("Packed %d of %d replays into %s (%d KB -> %d KB, %.1fx) in %d ms%n",
+                            archive.entries().size(), files.size(), out, inBytes / 1024, out.length() / 1024,
+                            (double) inBytes / out.length(), (System.nanoTime() - start) / 1_000_000);
+                }
+                break;
+            }
+            case "unpack": {
+                if (paths.size() != 2) usage();
+                File dir = new File(paths.get(1));
+                int frames = 0;
+                int matches = 0;
+                int collisions = 0;
+                Map<String, String> written = new HashMap<>();
+                try (ReplayArchive archive = open(new File(paths.get(0)))) {
+                    for (Entry entry : archive.entries()) {
+                        if (matchName != null && !entry.name.equals(matchName)) continue;
+                        File out = unpackedFile(dir, entry, binary);
+                        String outPath = out.getCanonicalPath();
+                        if (!outPath.startsWith(dir.getCanonicalPath() + File.separator)) {
+                            System.err.println("Skipping " + entry.name + ": outside " + dir);
+                            continue;
+                        }
+                        // e.g. a.replay and a.replayb packed side by side both unpack to one name
+                        String earlier = written.putIfAbsent(outPath, entry.name);
+                        if (earlier != null) {
+                            System.err.println("Skipping " + entry.name + ": " + out + " already holds " + earlier);
+                            collisions++;
+                            continue;
+                        }
+                        ReplayData replay = new ReplayData();
+                        archive.read(entry, entry.startTimeMs + Math.round(fromSeconds * 1000),
+                                Double.isInfinite(toSeconds) ? Long.MAX_VALUE
+                                        : entry.startTimeMs + Math.round(toSeconds * 1000), replay);
+                        replay.trimToSize();
+
+                        File parent = out.getParentFile();
+                        if (parent != null) Files.createDirectories(parent.toPath());
+                        if (binary) {
+                            BinaryReplayWriter.write(replay, out);
+                        } else {
+                            try (Writer writer = Files.newBufferedWriter(out.toPath(), StandardCharsets.UTF_8)) {
+                                writeJson(replay, writer);
+                            }
+                        }
+                        frames += replay.frameCount();
+                        matches++;
+                    }
+                }
+                if (matchName != null && matches == 0) {
+                    System.err.println("No match named " + matchName + "; see ReplayArchive list");
+                    System.exit(1);
+                }
+                System.out.printf("Unpacked %d matches (%d frames) into %s in %d ms%n", matches, frames, dir,
+                        (System.nanoTime() - start) / 1_000_000);
+                if (collisions > 0) {
+                    System.err.println(collisions + " matches were not unpacked: their names collide with another's");
+                    System.exit(1);
+                }
+                break;
+            }
+            case "list": {
+                if (paths.size() != 1) usage();
+                try (ReplayArchive archive = open(new File(paths.get(0)))) {
+                    for (Entry entry : archive.entries()) {
+                        System.out.printf("%s\t%s\t%s\t%d frames\t%.1f s\t%d KB%n", entry.name, entry.team,
+                                entry.match, entry.frameCount, (entry.endTimeMs - entry.startTimeMs) / 1000.0,
+                                entry.storedBytes() / 1024);
+                    }
+                }
+                break;
+            }
+            default:
+                usage();
+                break;
+        }
+    }
+}
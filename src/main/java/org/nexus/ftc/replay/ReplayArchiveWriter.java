@@ -0,0 +1,447 @@
+package org.nexus.ftc.replay;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Packs many replays into one {@code .replaya} season archive, read back by
+ * {@link ReplayArchive}. Each match is cut into blocks of {@link #BLOCK_FRAMES}
+ * frames that decode on their own, and a directory at the end of the file lists
+ * every match and block, so one match, or one stretch of it, is read without
+ * touching the rest. Layout (version 1):
+ *
+ * <pre>
+ * header     magic "FTCRPLYA", int version
+ * matches    per match: its text dictionary {varint count, strings}, then its blocks
+ * block      poses: per frame, zig-zag varint deltas of timeMs, x, y and heading
+ *                   in steps of 1 ms, 1/{@link #POSITION_SCALE} in and 1/{@link #HEADING_SCALE} degree
+ *            varint sectionCount, per key with a value in the block:
+ *                   varint keyId, varint byteLength,
+ *                   varint runCount, frame runs alternating without/with a value, starting without,
+ *                   then the values of the frames that have one, by the key's kind:
+ *                   NUMERIC  byte decimals d, then zig-zag varint deltas of value x 10^d,
+ *                            or 8-byte doubles when d is {@link #RAW_DOUBLES}
+ *                   BOOLEAN  byte first value, varint runCount, runs of alternating value
+ *                   TEXT     varint runCount, per run {varint dictionary code, varint length}
+ * directory  varint matchCount, per match: string name, string team, string match,
+ *            varlong date, varint frameCount, varlong startTimeMs, varlong endTimeMs,
+ *            varint keyCount x {string name, byte kind},
+ *            varlong dictionaryOffset, varint dictionaryLength,
+ *            varint blockCount x {varlong startTimeMs, varint frameCount, varlong offset, varint length}
+ * trailer    long directoryOffset, magic "FTCRPLYA"
+ * </pre>
+ *
+ * Varints are unsigned LEB128; signed values (times included) are zig-zag encoded
+ * first. Strings are a varint of byte length + 1 (0 for null) and UTF-8 bytes.
+ * Poses are rounded to their steps; custom numbers are exact, since logged values
+ * almost always have a few decimal places and those that do not are kept whole.
+ */
+final class ReplayArchiveWriter implements Closeable {
+
+    static final byte[] MAGIC = "FTCRPLYA".getBytes(StandardCharsets.US_ASCII);
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 12;
+    static final int TRAILER_SIZE = 16;
+    static final String EXTENSION = ".replaya";
+
+    /** Frames per block, the unit an archive is read in. */
+    static final int BLOCK_FRAMES = 1024;
+    static final double POSITION_SCALE = 1000;
+    static final double HEADING_SCALE = 100;
+    /** Decimal places tried for a block of custom numbers before storing them as doubles. */
+    static final int MAX_DECIMALS = 9;
+    static final int RAW_DOUBLES = 0xFF;
+    static final double[] POW10 = {1, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9};
+
+    private static final double MAX_EXACT = 1L << 53;
+
+    /** One match encoded in memory, with offsets relative to its first byte. */
+    static final class Encoded {
+        final String name;
+        final String team;
+        final String match;
+        final long date;
+        final int frameCount;
+        final long startTimeMs;
+        final long endTimeMs;
+        final String[] keys;
+        final CustomColumn.Kind[] kinds;
+        final byte[] bytes;
+        final int dictionaryLength;
+        final long[] blockStartMs;
+        final int[] blockFrames;
+        final int[] blockOffset;
+        final int[] blockLength;
+
+        private Encoded(String name, Replay replay, String[] keys, CustomColumn.Kind[] kinds, byte[] bytes,
+                        int dictionaryLength, long[] blockStartMs, int[] blockFrames, int[] blockOffset,
+                        int[] blockLength) {
+            this.name = name;
+            this.team = replay.team();
+            this.match = replay.match();
+            this.date = replay.date();
+            this.frameCount = replay.frameCount();
+            this.startTimeMs = replay.startTimeMs();
+            this.endTimeMs = replay.endTimeMs();
+            this.keys = keys;
+            this.kinds = kinds;
+            this.bytes = bytes;
+            this.dictionaryLength = dictionaryLength;
+            this.blockStartMs = blockStartMs;
+            this.blockFrames = blockFrames;
+            this.blockOffset = blockOffset;
+            this.blockLength = blockLength;
+        }
+    }
+
+    private final DataOutputStream data;
+    private final List<ReplayArchive.Entry> entries = new ArrayList<>();
+    private long position;
+
+    ReplayArchiveWriter(File out) throws IOException {
+        data = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(out), 1 << 16));
+        data.write(MAGIC);
+        data.writeInt(VERSION);
+        position = HEADER_SIZE;
+    }
+
+    /** Appends a match; {@code name} identifies it in the archive, usually the file it came from. */
+    void add(String name, Replay replay) throws IOException {
+        add(encode(name, replay));
+    }
+
+    /** Appends a match encoded earlier, possibly on another thread. */
+    void add(Encoded match) throws IOException {
+        data.write(match.bytes);
+        long[] blockOffset = new long[match.blockOffset.length];
+        for (int b = 0; b < blockOffset.length; b++) {
+            blockOffset[b] = position + match.blockOffset[b];
+        }
+        entries.add(new ReplayArchive.Entry(match.name, match.team, match.match, match.date, match.frameCount,
+                match.startTimeMs, match.endTimeMs, match.keys, match.kinds, position, match.dictionaryLength,
+                match.blockStartMs, match.blockFrames, blockOffset, match.blockLength));
+        position += match.bytes.length;
+    }
+
+    /** Writes the directory; the archive is readable once this returns. */
+    @Override
+    public void close() throws IOException {
+        try {
+            Output directory = new Output();
+            directory.writeVarLong(entries.size());
+            for (ReplayArchive.Entry entry : entries) {
+                directory.writeString(entry.name);
+                directory.writeString(entry.team);
+                directory.writeString(entry.match);
+                directory.writeSigned(entry.date);
+                directory.writeVarLong(entry.frameCount);
+                directory.writeSigned(entry.startTimeMs);
+                directory.writeSigned(entry.endTimeMs);
+                directory.writeVarLong(entry.keys.length);
+                for (int k = 0; k < entry.keys.length; k++) {
+                    directory.writeString(entry.keys[k]);
+                    directory.writeByte(entry.kinds[k].ordinal());
+                }
+                directory.writeVarLong(entry.dictionaryOffset);
+                directory.writeVarLong(entry.dictionaryLength);
+                directory.writeVarLong(entry.blockCount());
+                for (int b = 0; b < entry.blockCount(); b++) {
+                    directory.writeSigned(entry.blockStartMs[b]);
+                    directory.writeVarLong(entry.blockFrames[b]);
+                    directory.writeVarLong(entry.blockOffset[b]);
+                    directory.writeVarLong(entry.blockLength[b]);
+                }
+            }
+            data.write(directory.buffer, 0, directory.size);
+            data.writeLong(position);
+            data.write(MAGIC);
+        } finally {
+            data.close();
+        }
+    }
+
+    /** Encodes a whole match. Reads only the replay, so matches can be encoded in parallel. */
+    static Encoded encode(String name, Replay replay) throws IOException {
+        int frameCount = replay.frameCount();
+        int keyCount = replay.keyCount();
+        String[] keys = new String[keyCount];
+        CustomColumn.Kind[] kinds = new CustomColumn.Kind[keyCount];
+        CustomColumn[] columns = new CustomColumn[keyCount];
+        for (int k = 0; k < keyCount; k++) {
+            columns[k] = replay.column(k);
+            keys[k] = columns[k].key;
+            kinds[k] = columns[k].kind();
+        }
+
+        // Blocks first, since they fill the dictionary that precedes them
+        int blockCount = (frameCount + BLOCK_FRAMES - 1) / BLOCK_FRAMES;
+        long[] blockStartMs = new long[blockCount];
+        int[] blockFrames = new int[blockCount];
+        int[] blockOffset = new int[blockCount];
+        int[] blockLength = new int[blockCount];
+        Map<String, Integer> dictionary = new LinkedHashMap<>();
+        Output blocks = new Output();
+        Output section = new Output();
+        int[] runs = new int[BLOCK_FRAMES + 1];
+        for (int b = 0; b < blockCount; b++) {
+            int from = b * BLOCK_FRAMES;
+            int to = Math.min(frameCount, from + BLOCK_FRAMES);
+            blockStartMs[b] = replay.timeMs(from);
+            blockFrames[b] = to - from;
+            blockOffset[b] = blocks.size;
+            encodeBlock(replay, from, to, columns, dictionary, blocks, section, runs);
+            blockLength[b] = blocks.size - blockOffset[b];
+        }
+
+        Output match = new Output();
+        match.writeVarLong(dictionary.size());
+        for (String value : dictionary.keySet()) {
+            match.writeString(value);
+        }
+        int dictionaryLength = match.size;
+        if ((long) dictionaryLength + blocks.size > Integer.MAX_VALUE) {
+            throw new IOException("Match too large for " + EXTENSION + ": " + name);
+        }
+        for (int b = 0; b < blockCount; b++) {
+            blockOffset[b] += dictionaryLength;
+        }
+        match.write(blocks.buffer, 0, blocks.size);
+        return new Encoded(name, replay, keys, kinds, match.toByteArray(), dictionaryLength,
+                blockStartMs, blockFrames, blockOffset, blockLength);
+    }
+
+    private static void encodeBlock(Replay replay, int from, int to, CustomColumn[] columns,
+                                    Map<String, Integer> dictionary, Output out, Output section, int[] runs) {
+        long time = 0;
+        long x = 0;
+        long y = 0;
+        long heading = 0;
+        for (int i = from; i < to; i++) {
+            long t = replay.timeMs(i);
+            long qx = Math.round(replay.x(i) * POSITION_SCALE);
+            long qy = Math.round(replay.y(i) * POSITION_SCALE);
+            long qh = Math.round(replay.heading(i) * HEADING_SCALE);
+            out.writeSigned(t - time);
+            out.writeSigned(qx - x);
+            out.writeSigned(qy - y);
+            out.writeSigned(qh - heading);
+            time = t;
+            x = qx;
+            y = qy;
+            heading = qh;
+        }
+
+        int sections = 0;
+        for (CustomColumn column : columns) {
+            if (hasAny(column, from, to)) sections++;
+        }
+        out.writeVarLong(sections);
+        for (int k = 0; k < columns.length; k++) {
+            if (!hasAny(columns[k], from, to)) continue;
+            section.size = 0;
+            encodeColumn(columns[k], from, to, dictionary, section, runs);
+            out.writeVarLong(k);
+            out.writeVarLong(section.size);
+            out.write(section.buffer, 0, section.size);
+        }
+    }
+
+    private static boolean hasAny(CustomColumn column, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (column.has(i)) return true;
+        }
+        return false;
+    }
+
+    private static void encodeColumn(CustomColumn column, int from, int to, Map<String, Integer> dictionary,
+                                     Output out, int[] runs) {
+        // Runs of frames without and with a value; most keys are logged every frame, which is one run
+        int runCount = 0;
+        int run = 0;
+        boolean present = false;
+        int values = 0;
+        for (int i = from; i < to; i++) {
+            boolean has = column.has(i);
+            if (has != present) {
+                runs[runCount++] = run;
+                run = 0;
+                present = has;
+            }
+            run++;
+            if (has) values++;
+        }
+        runs[runCount++] = run;
+        out.writeVarLong(runCount);
+        for (int r = 0; r < runCount; r++) {
+            out.writeVarLong(runs[r]);
+        }
+
+        switch (column.kind()) {
+            case NUMERIC: {
+                double[] v = new double[values];
+                int n = 0;
+                for (int i = from; i < to; i++) {
+                    if (column.has(i)) v[n++] = column.number(i);
+                }
+                int decimals = decimals(v);
+                out.writeByte(decimals);
+                if (decimals == RAW_DOUBLES) {
+                    for (double value : v) {
+                        out.writeDouble(value);
+                    }
+                } else {
+                    double scale = POW10[decimals];
+                    long previous = 0;
+                    for (double value : v) {
+                        long q = (long) Math.rint(value * scale);
+                        out.writeSigned(q - previous);
+                        previous = q;
+                    }
+                }
+                break;
+            }
+            case BOOLEAN: {
+                runCount = 0;
+                run = 0;
+                boolean first = true;
+                boolean current = false;
+                for (int i = from; i < to; i++) {
+                    if (!column.has(i)) continue;
+                    boolean value = column.number(i) != 0;
+                    if (first) {
+                        first = false;
+                        current = value;
+                        out.writeByte(value ? 1 : 0);
+                    } else if (value != current) {
+                        runs[runCount++] = run;
+                        run = 0;
+                        current = value;
+                    }
+                    run++;
+                }
+                runs[runCount++] = run;
+                out.writeVarLong(runCount);
+                for (int r = 0; r < runCount; r++) {
+                    out.writeVarLong(runs[r]);
+                }
+                break;
+            }
+            default: {
+                // Runs of one dictionary code, counted first so the run count can lead
+                int textRuns = 0;
+                String last = null;
+                for (int i = from; i < to; i++) {
+                    String value = column.text(i);
+                    if (value == null) continue;
+                    if (!value.equals(last)) textRuns++;
+                    last = value;
+                }
+                out.writeVarLong(textRuns);
+                last = null;
+                run = 0;
+                for (int i = from; i < to; i++) {
+                    String value = column.text(i);
+                    if (value == null) continue;
+                    if (last != null && !value.equals(last)) {
+                        writeTextRun(out, dictionary, last, run);
+                        run = 0;
+                    }
+                    last = value;
+                    run++;
+                }
+                if (last != null) writeTextRun(out, dictionary, last, run);
+                break;
+            }
+        }
+    }
+
+    private static void writeTextRun(Output out, Map<String, Integer> dictionary, String value, int length) {
+        Integer code = dictionary.get(value);
+        if (code == null) {
+            code = dictionary.size();
+            dictionary.put(value, code);
+        }
+        out.writeVarLong(code);
+        out.writeVarLong(length);
+    }
+
+    /** Fewest decimal places that hold every value exactly, or {@link #RAW_DOUBLES}. */
+    private static int decimals(double[] values) {
+        for (int d = 0; d <= MAX_DECIMALS; d++) {
+            double scale = POW10[d];
+            boolean exact = true;
+            for (double value : values) {
+                double scaled = value * scale;
+                // Decoding divides by the same power of ten, so this round trip is what the reader sees
+                if (!(Math.abs(scaled) < MAX_EXACT) || Math.rint(scaled) / scale != value) {
+                    exact = false;
+                    break;
+                }
+            }
+            if (exact) return d;
+        }
+        return RAW_DOUBLES;
+    }
+
+    /** A growable byte array with the varint encodings of the format. */
+    private static final class Output {
+        byte[] buffer = new byte[1 << 12];
+        int size;
+
+        void writeByte(int value) {
+            if (size == buffer.length) buffer = Arrays.copyOf(buffer, size * 2);
+            buffer[size++] = (byte) value;
+        }
+
+        void write(byte[] bytes, int offset, int length) {
+            if (size + length > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + length));
+            }
+            System.arraycopy(bytes, offset, buffer, size, length);
+            size += length;
+        }
+
+        void writeVarLong(long value) {
+            while ((value & ~0x7FL) != 0) {
+                writeByte((int) (value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            writeByte((int) value);
+        }
+
+        void writeSigned(long value) {
+            writeVarLong((value << 1) ^ (value >> 63));
+        }
+
+        void writeDouble(double value) {
+            long bits = Double.doubleToLongBits(value);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                writeByte((int) (bits >>> shift));
+            }
+        }
+
+        void writeString(String value) {
+            if (value == null) {
+                writeVarLong(0);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(bytes.length + 1L);
+            write(bytes, 0, bytes.length);
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, size);
+        }
+    }
+}
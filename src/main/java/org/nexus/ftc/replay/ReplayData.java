@@ -0,0 +1,244 @@
+package org.nexus.ftc.replay;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Replay information stored column by column: one primitive array per pose
+ * field and one {@link CustomColumn} per custom-data key, so a long log costs a
+ * few bytes per value instead of a map of boxed objects per frame.
+ *
+ * <p>Frames are appended through {@link FrameSink} by a single writer (usually
+ * the loader thread). Other
+ * threads may read any frame below {@link #frameCount()} while loading is still
+ * in progress.
+ */
+class ReplayData implements Replay, FrameSink {
+    String team;
+    String match;
+    long date;
+
+    private long[] timeMs = new long[CustomColumn.INITIAL_CAPACITY];
+    private double[] x = new double[CustomColumn.INITIAL_CAPACITY];
+    private double[] y = new double[CustomColumn.INITIAL_CAPACITY];
+    private double[] heading = new double[CustomColumn.INITIAL_CAPACITY];
+
+    // Shared key dictionary: key id -> column (copy-on-write), and name -> key id for the writer
+    private volatile CustomColumn[] columns = new CustomColumn[0];
+    private final Map<String, Integer> keyIds = new HashMap<>();
+
+    // Written last by endFrame() so readers see complete frames only
+    private volatile int frameCount;
+
+    @Override
+    public String team() {
+        return team;
+    }
+
+    @Override
+    public String match() {
+        return match;
+    }
+
+    @Override
+    public long date() {
+        return date;
+    }
+
+    @Override
+    public int frameCount() {
+        return frameCount;
+    }
+
+    @Override
+    public long timeMs(int frame) {
+        return timeMs[frame];
+    }
+
+    @Override
+    public double x(int frame) {
+        return x[frame];
+    }
+
+    @Override
+    public double y(int frame) {
+        return y[frame];
+    }
+
+    @Override
+    public double heading(int frame) {
+        return heading[frame];
+    }
+
+    @Override
+    public int keyCount() {
+        return columns.length;
+    }
+
+    @Override
+    public CustomColumn column(int key) {
+        return columns[key];
+    }
+
+    @Override
+    public void header(String team, String match, long date) {
+        this.team = team;
+        this.match = match;
+        this.date = date;
+    }
+
+    /** Starts writing the next frame. */
+    @Override
+    public void beginFrame() {
+        int frame = frameCount;
+        if (frame == timeMs.length) {
+            int capacity = frame * 2;
+            timeMs = Arrays.copyOf(timeMs, capacity);
+            x = Arrays.copyOf(x, capacity);
+            y = Arrays.copyOf(y, capacity);
+            heading = Arrays.copyOf(heading, capacity);
+        }
+    }
+
+    @Override
+    public void putNumber(String key, double value) {
+        CustomColumn column = columnFor(key, CustomColumn.Kind.NUMERIC);
+        if (column instanceof CustomColumn.Numeric) {
+            ((CustomColumn.Numeric) column).put(frameCount, value);
+        } else {
+            putText(key, CustomColumn.formatNumber(value));
+        }
+    }
+
+    @Override
+    public void putBoolean(String key, boolean value) {
+        CustomColumn column = columnFor(key, CustomColumn.Kind.BOOLEAN);
+        if (column instanceof CustomColumn.Bool) {
+            ((CustomColumn.Bool) column).put(frameCount, value);
+        } else {
+            putText(key, Boolean.toString(value));
+        }
+    }
+
+    @Override
+    public void putText(String key, String value) {
+        int id = keyId(key, CustomColumn.Kind.TEXT);
+        CustomColumn column = columns[id];
+        if (!(column instanceof CustomColumn.Text)) {
+            // Mixed types: fall back to strings for the whole key
+            column = CustomColumn.Text.copyOf(column, frameCount);
+            CustomColumn[] copy = columns.clone();
+            copy[id] = column;
+            columns = copy;
+        }
+        ((CustomColumn.Text) column).put(frameCount, value);
+    }
+
+    /** Publishes the frame started by {@link #beginFrame()}. */
+    @Override
+    public void endFrame(long time, double frameX, double frameY, double frameHeading) {
+        int frame = frameCount;
+        timeMs[frame] = time;
+        x[frame] = frameX;
+        y[frame] = frameY;
+        heading[frame] = frameHeading;
+        frameCount = frame + 1;
+    }
+
+    /** Releases spare capacity once loading has finished. */
+    void trimToSize() {
+        int count = frameCount;
+        timeMs = Arrays.copyOf(timeMs, count);
+        x = Arrays.copyOf(x, count);
+        y = Arrays.copyOf(y, count);
+        heading = Arrays.copyOf(heading, count);
+        for (CustomColumn column : columns) {
+            column.trimToSize(count);
+        }
+        frameCount = count;
+    }
+
+    /**
+     * Drops the oldest frames so a live session cannot grow without bound. Must be
+     * called by the writer; frame indices shift down by {@code count}.
+     *
+     * <p>The remaining frames are copied into new arrays that are then swapped in,
+     * so readers on other threads never see an array mid-shift; arrays keep their
+     * capacity, so an index that was valid stays in bounds. A reader that is
+     * partway through the frames when this runs can still see them move under it
+     * and must find its place again by timestamp, as {@link EventIndex} does.
+     */
+    void discardOldest(int count) {
+        int frames = frameCount;
+        count = Math.min(count, frames);
+        int remaining = frames - count;
+
+        // Shrink first so readers that look at the count from now on stay below it
+        frameCount = remaining;
+        timeMs = shifted(timeMs, count, remaining);
+        x = shifted(x, count, remaining);
+        y = shifted(y, count, remaining);
+        heading = shifted(heading, count, remaining);
+        for (CustomColumn column : columns) {
+            // Only the heap column types are ever stored here
+            if (column instanceof CustomColumn.Numeric) {
+                ((CustomColumn.Numeric) column).discardOldest(count, frames);
+            } else if (column instanceof CustomColumn.Bool) {
+                ((CustomColumn.Bool) column).discardOldest(count, frames);
+            } else {
+                ((CustomColumn.Text) column).discardOldest(count, frames);
+            }
+        }
+    }
+
+    private static long[] shifted(long[] values, int count, int remaining) {
+        long[] copy = new long[values.length];
+        System.arraycopy(values, count, copy, 0, remaining);
+        return copy;
+    }
+
+    private static double[] shifted(double[] values, int count, int remaining) {
+        double[] copy = new double[values.length];
+        System.arraycopy(values, count, copy, 0, remaining);
+        return copy;
+    }
+
+    /** Approximate heap used by the frame data. */
+    long memoryBytes() {
+        long bytes = 32L * timeMs.length;
+        for (CustomColumn column : columns) {
+            bytes += column.memoryBytes();
+        }
+        return bytes;
+    }
+
+    private CustomColumn columnFor(String key, CustomColumn.Kind kind) {
+        int id = keyId(key, kind);
+        return columns[id];
+    }
+
+    private int keyId(String key, CustomColumn.Kind kind) {
+        Integer id = keyIds.get(key);
+        if (id != null) return id;
+
+        CustomColumn column;
+        switch (kind) {
+            case NUMERIC:
+                column = new CustomColumn.Numeric(key);
+                break;
+            case BOOLEAN:
+                column = new CustomColumn.Bool(key);
+                break;
+            default:
+                column = new CustomColumn.Text(key);
+                break;
+        }
+        int newId = columns.length;
+        CustomColumn[] copy = Arrays.copyOf(columns, newId + 1);
+        copy[newId] = column;
+        columns = copy;
+        keyIds.put(key, newId);
+        return newId;
+    }
+}
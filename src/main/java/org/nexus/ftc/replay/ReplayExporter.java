@@ -0,0 +1,665 @@
+package org.nexus.ftc.replay;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Line2D;
+import java.awt.geom.Path2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.ImageWriter;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.ImageOutputStream;
+
+/**
+ * Renders a replay, or part of one, to images at a fixed frame rate with no
+ * window open: a numbered PNG sequence, an animated GIF, or raw RGB frames on
+ * stdout for an encoder such as ffmpeg. Overlays are drawn the same way the
+ * viewer draws them, through {@link FieldPainter} on an off-screen AWT image.
+ *
+ * <p>Frames are split into short chunks rendered in parallel, each worker with
+ * its own image and tracks. PNGs are encoded and written by the workers; GIF and
+ * raw output is collected back in frame order by the calling thread.
+ *
+ * <pre>
+ * ReplayExporter &lt;replay&gt; [overlay...] [--out dir] [--gif file] [--raw]
+ *     [--fps 60] [--size 800] [--from s] [--to s] [--trail] [--threads n]
+ * </pre>
+ */
+public final class ReplayExporter {
+
+    static final double DEFAULT_FPS = 60;
+    static final int DEFAULT_SIZE = 800;
+
+    // Frames per task: small enough to balance across cores and bound buffered output
+    private static final int CHUNK_FRAMES = 8;
+
+    // Fast deflate: files about 40% larger than the ImageIO writer's, written more than twice as fast
+    private static final int PNG_DEFLATE_LEVEL = 2;
+
+    private static final Color TIME_COLOR = new Color(0xEEEEEE);
+    private static final Font TIME_FONT = new Font(Font.MONOSPACED, Font.BOLD, 18);
+
+    /** Collects rendered frames in order: {@link #capture} runs on a worker, {@link #write} on the caller. */
+    interface OrderedOutput<T> {
+        T capture(BufferedImage frame);
+
+        void write(T captured) throws IOException;
+    }
+
+    private final List<Replay> replays;
+    private final int size;
+    private final double fps;
+    private final double fromMs;
+    private final int frameCount;
+    private final BufferedImage background;
+    private final PathTrail[] trails;
+    private final Trajectory[] trajectories;
+
+    /**
+     * @param replays the replay to export followed by any overlays, aligned to their starts
+     * @param fromMs  start of the range, in ms after the first replay's start
+     * @param toMs    end of the range, clamped to the longest replay
+     * @param trail   whether to draw each robot's path up to the current time
+     */
+    ReplayExporter(List<Replay> replays, int size, double fps, double fromMs, double toMs, boolean trail)
+            throws IOException {
+        this.replays = replays;
+        this.size = size;
+        this.fps = fps;
+
+        long durationMs = 0;
+        for (Replay replay : replays) {
+            durationMs = Math.max(durationMs, replay.endTimeMs() - replay.startTimeMs());
+        }
+        this.fromMs = Math.max(0, Math.min(fromMs, durationMs));
+        double endMs = Math.max(this.fromMs, Math.min(toMs, durationMs));
+        this.frameCount = (int) Math.floor((endMs - this.fromMs) * fps / 1000) + 1;
+
+        background = new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = createGraphics(background);
+        BufferedImage fieldImage;
+        try (InputStream in = ReplayExporter.class.getResourceAsStream("/field_background.png")) {
+            fieldImage = in != null ? ImageIO.read(in) : null;
+        }
+        new FieldPainter(new AwtSurface(g, fieldImage)).paintField(size, size);
+        g.dispose();
+
+        // Built once and only read while rendering
+        trajectories = new Trajectory[replays.size()];
+        for (int i = 0; i < trajectories.length; i++) {
+            trajectories[i] = Trajectory.build(replays.get(i));
+        }
+        trails = new PathTrail[trail ? replays.size() : 0];
+        double tolerance = FieldView.TRAIL_TOLERANCE_PX / FieldPainter.scale(size);
+        for (int i = 0; i < trails.length; i++) {
+            trails[i] = PathTrail.build(replays.get(i), tolerance, PathTrail.METRIC_NONE);
+        }
+    }
+
+    int frameCount() {
+        return frameCount;
+    }
+
+    /**
+     * Renders every frame on {@code threads} workers, writing PNGs into
+     * {@code pngDir} and passing frames to {@code ordered}; either may be null.
+     */
+    <T> void export(int threads, File pngDir, OrderedOutput<T> ordered) throws IOException, InterruptedException {
+        BlockingQueue<Renderer> renderers = new ArrayBlockingQueue<>(threads);
+        for (int i = 0; i < threads; i++) {
+            renderers.add(new Renderer());
+        }
+
+        int chunks = (frameCount + CHUNK_FRAMES - 1) / CHUNK_FRAMES;
+        // A couple of chunks beyond the worker count keeps every core busy while the caller writes
+        int window = threads + 2;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            ArrayDeque<Future<List<T>>> pending = new ArrayDeque<>();
+            int next = 0;
+            while (next < chunks || !pending.isEmpty()) {
+                while (next < chunks && pending.size() < window) {
+                    int first = next++ * CHUNK_FRAMES;
+                    int end = Math.min(frameCount, first + CHUNK_FRAMES);
+                    pending.add(pool.submit(() -> {
+                        Renderer renderer = renderers.take();
+                        try {
+                            return renderer.render(first, end, pngDir, ordered);
+                        } finally {
+                            renderers.put(renderer);
+                        }
+                    }));
+                }
+                List<T> captured = await(pending.poll());
+                if (ordered != null) {
+                    for (T frame : captured) {
+                        ordered.write(frame);
+                    }
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+            // Workers hand their renderer back as they stop; wait so none is disposed mid-frame or missed
+            pool.awaitTermination(1, TimeUnit.MINUTES);
+            for (Renderer renderer : renderers) {
+                renderer.dispose();
+            }
+        }
+    }
+
+    private static <T> T await(Future<T> future) throws IOException, InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) throw (IOException) cause;
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw new IOException(cause);
+        }
+    }
+
+    static File pngFile(File dir, int frame) {
+        return new File(dir, String.format("frame_%05d.png", frame));
+    }
+
+    private static Graphics2D createGraphics(BufferedImage image) {
+        Graphics2D g = image.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, RenderingHints.VALUE_STROKE_PURE);
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        return g;
+    }
+
+    /** One worker's image, graphics and tracks, reused for every chunk it renders. */
+    private final class Renderer {
+        private final BufferedImage image = new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB);
+        private final Graphics2D g = createGraphics(image);
+        private final FieldPainter painter = new FieldPainter(new AwtSurface(g, null));
+        private final List<ReplayTrack> tracks = new ArrayList<>();
+        private final List<Color> trackColors = new ArrayList<>();
+        private final Path2D.Double path = new Path2D.Double();
+        private final BasicStroke trailStroke = new BasicStroke(2, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND);
+        private final PngEncoder png = new PngEncoder(size, size, PNG_DEFLATE_LEVEL);
+
+        Renderer() {
+            for (int i = 0; i < replays.size(); i++) {
+                ReplayTrack track = new ReplayTrack(replays.get(i), ReplayTrack.PALETTE[i % ReplayTrack.PALETTE.length],
+                        trajectories[i]);
+                tracks.add(track);
+                trackColors.add(new Color(track.color));
+            }
+        }
+
+        <T> List<T> render(int first, int end, File pngDir, OrderedOutput<T> ordered) throws IOException {
+            List<T> captured = new ArrayList<>(end - first);
+            for (int frame = first; frame < end; frame++) {
+                draw(fromMs + frame * 1000 / fps);
+                if (pngDir != null) png.write(image, pngFile(pngDir, frame));
+                if (ordered != null) captured.add(ordered.capture(image));
+            }
+            return captured;
+        }
+
+        private void draw(double elapsedMs) {
+            g.drawImage(background, 0, 0, null);
+
+            double scale = FieldPainter.scale(size);
+            double robotSize = FieldPainter.ROBOT_SIZE_INCHES * scale;
+            for (int i = 0; i < tracks.size(); i++) {
+                ReplayTrack track = tracks.get(i);
+                track.sampleElapsed(elapsedMs);
+                if (track.frame < 0) continue;
+
+                double canvasX = toCanvasX(track.x, scale);
+                double canvasY = toCanvasY(track.y, scale);
+                if (trails.length > 0) {
+                    drawTrail(trails[i], track, trackColors.get(i), canvasX, canvasY, scale);
+                }
+                painter.paintRobot(canvasX, canvasY, track.heading, robotSize, track.color);
+            }
+
+            long timeMs = (long) elapsedMs;
+            g.setColor(TIME_COLOR);
+            g.setFont(TIME_FONT);
+            g.drawString(String.format("%d:%02d.%03d", timeMs / 60_000, timeMs / 1000 % 60, timeMs % 1000),
+                    (int) FieldPainter.BORDER, (int) FieldPainter.BORDER - 16);
+        }
+
+        /** The simplified path up to the last vertex passed, then on to the robot's interpolated position. */
+        private void drawTrail(PathTrail trail, ReplayTrack track, Color color, double canvasX, double canvasY,
+                               double scale) {
+            int vertices = trail.verticesUpTo(track.frame);
+            if (vertices == 0) return;
+
+            path.reset();
+            path.moveTo(toCanvasX(trail.x[0], scale), toCanvasY(trail.y[0], scale));
+            for (int v = 1; v < vertices; v++) {
+                path.lineTo(toCanvasX(trail.x[v], scale), toCanvasY(trail.y[v], scale));
+            }
+            path.lineTo(canvasX, canvasY);
+            g.setColor(color);
+            g.setStroke(trailStroke);
+            g.draw(path);
+        }
+
+        private double toCanvasX(double x, double scale) {
+            return FieldPainter.BORDER + x * scale;
+        }
+
+        private double toCanvasY(double y, double scale) {
+            return size - FieldPainter.BORDER - y * scale;
+        }
+
+        void dispose() {
+            g.dispose();
+            png.dispose();
+        }
+    }
+
+    /**
+     * Minimal truecolor PNG writer for rendered frames. The ImageIO writer spends
+     * most of its time choosing a filter for every row; rendered frames are flat
+     * enough that unfiltered rows at a low deflate level stay within half again its size.
+     */
+    static final class PngEncoder {
+        private static final byte[] SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+
+        private final int width;
+        private final int height;
+        private final Deflater deflater;
+        private final CRC32 crc = new CRC32();
+        private final byte[] row;
+        private byte[] compressed = new byte[1 << 16];
+
+        PngEncoder(int width, int height, int level) {
+            this.width = width;
+            this.height = height;
+            this.deflater = new Deflater(level);
+            this.row = new byte[1 + width * 3];
+        }
+
+        /** Writes a {@code TYPE_INT_RGB} image of this encoder's size. */
+        void write(BufferedImage image, File file) throws IOException {
+            int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+            deflater.reset();
+            int length = 0;
+            for (int y = 0; y < height; y++) {
+                // Filter type 0 (none), then the row's RGB bytes
+                row[0] = 0;
+                for (int x = 0, p = y * width, b = 1; x < width; x++, p++) {
+                    int rgb = pixels[p];
+                    row[b++] = (byte) (rgb >> 16);
+                    row[b++] = (byte) (rgb >> 8);
+                    row[b++] = (byte) rgb;
+                }
+                deflater.setInput(row);
+                length = drain(length);
+            }
+            deflater.finish();
+            while (!deflater.finished()) {
+                length = deflate(length);
+            }
+
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(file.toPath()), 1 << 16))) {
+                out.write(SIGNATURE);
+                ByteBuffer header = ByteBuffer.allocate(13).putInt(width).putInt(height)
+                        .put((byte) 8).put((byte) 2).put((byte) 0).put((byte) 0).put((byte) 0);
+                writeChunk(out, "IHDR", header.array(), 13);
+                writeChunk(out, "IDAT", compressed, length);
+                writeChunk(out, "IEND", compressed, 0);
+            }
+        }
+
+        private int drain(int length) {
+            while (!deflater.needsInput()) {
+                length = deflate(length);
+            }
+            return length;
+        }
+
+        private int deflate(int length) {
+            if (length == compressed.length) {
+                compressed = Arrays.copyOf(compressed, length * 2);
+            }
+            return length + deflater.deflate(compressed, length, compressed.length - length);
+        }
+
+        private void writeChunk(DataOutputStream out, String type, byte[] data, int length) throws IOException {
+            byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+            crc.reset();
+            crc.update(typeBytes);
+            crc.update(data, 0, length);
+            out.writeInt(length);
+            out.write(typeBytes);
+            out.write(data, 0, length);
+            out.writeInt((int) crc.getValue());
+        }
+
+        void dispose() {
+            deflater.end();
+        }
+    }
+
+    /** Packed 24-bit RGB, the layout ffmpeg reads as {@code -f rawvideo -pix_fmt rgb24}. */
+    static final class RawOutput implements OrderedOutput<byte[]> {
+        private final OutputStream out;
+
+        RawOutput(OutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public byte[] capture(BufferedImage frame) {
+            int[] pixels = ((DataBufferInt) frame.getRaster().getDataBuffer()).getData();
+            byte[] rgb = new byte[pixels.length * 3];
+            for (int i = 0, b = 0; i < pixels.length; i++) {
+                int p = pixels[i];
+                rgb[b++] = (byte) (p >> 16);
+                rgb[b++] = (byte) (p >> 8);
+                rgb[b++] = (byte) p;
+            }
+            return rgb;
+        }
+
+        @Override
+        public void write(byte[] captured) throws IOException {
+            out.write(captured);
+        }
+    }
+
+    /**
+     * An endlessly looping animated GIF. Frames are reduced to the default
+     * 256-color palette on the workers; GIF delays are whole hundredths of a
+     * second, so the frame rate is rounded to fit.
+     */
+    static final class GifOutput implements OrderedOutput<BufferedImage> {
+        private static final String FORMAT = "javax_imageio_gif_image_1.0";
+
+        private final ImageWriter writer = ImageIO.getImageWritersByFormatName("gif").next();
+        private final ImageOutputStream stream;
+        private final String delay;
+        private boolean first = true;
+
+        GifOutput(File file, double fps) throws IOException {
+            Files.deleteIfExists(file.toPath());
+            stream = ImageIO.createImageOutputStream(file);
+            writer.setOutput(stream);
+            writer.prepareWriteSequence(null);
+            delay = Long.toString(Math.max(2, Math.round(100 / fps)));
+        }
+
+        @Override
+        public BufferedImage capture(BufferedImage frame) {
+            BufferedImage indexed = new BufferedImage(frame.getWidth(), frame.getHeight(),
+                    BufferedImage.TYPE_BYTE_INDEXED);
+            Graphics2D g = indexed.createGraphics();
+            g.drawImage(frame, 0, 0, null);
+            g.dispose();
+            return indexed;
+        }
+
+        @Override
+        public void write(BufferedImage captured) throws IOException {
+            IIOMetadata metadata = writer.getDefaultImageMetadata(
+                    ImageTypeSpecifier.createFromRenderedImage(captured), null);
+            IIOMetadataNode root = (IIOMetadataNode) metadata.getAsTree(FORMAT);
+
+            IIOMetadataNode control = new IIOMetadataNode("GraphicControlExtension");
+            control.setAttribute("disposalMethod", "none");
+            control.setAttribute("userInputFlag", "FALSE");
+            control.setAttribute("transparentColorFlag", "FALSE");
+            control.setAttribute("delayTime", delay);
+            control.setAttribute("transparentColorIndex", "0");
+            root.appendChild(control);
+
+            if (first) {
+                // Netscape extension: loop forever
+                IIOMetadataNode extensions = new IIOMetadataNode("ApplicationExtensions");
+                IIOMetadataNode loop = new IIOMetadataNode("ApplicationExtension");
+                loop.setAttribute("applicationID", "NETSCAPE");
+                loop.setAttribute("authenticationCode", "2.0");
+                loop.setUserObject(new byte[]{1, 0, 0});
+                extensions.appendChild(loop);
+                root.appendChild(extensions);
+                first = false;
+            }
+
+            metadata.setFromTree(FORMAT, root);
+            writer.writeToSequence(new IIOImage(captured, null, metadata), null);
+        }
+
+        void close() throws IOException {
+            try {
+                writer.endWriteSequence();
+            } finally {
+                stream.close();
+                writer.dispose();
+            }
+        }
+    }
+
+    /** Draws through Java 2D, keeping the few shapes and strokes it needs for reuse. */
+    static final class AwtSurface implements FieldPainter.Surface {
+        private final Graphics2D g;
+        private final BufferedImage fieldImage;
+        private final ArrayDeque<AffineTransform> saved = new ArrayDeque<>();
+        private final Rectangle2D.Double rect = new Rectangle2D.Double();
+        private final Line2D.Double line = new Line2D.Double();
+        private final Path2D.Double polygon = new Path2D.Double();
+        private Color fill = Color.BLACK;
+        private Color stroke = Color.BLACK;
+        private double lineWidth = -1;
+
+        AwtSurface(Graphics2D g, BufferedImage fieldImage) {
+            this.g = g;
+            this.fieldImage = fieldImage;
+        }
+
+        @Override
+        public void setFill(int rgb) {
+            if (fill.getRGB() != (0xFF000000 | rgb)) fill = new Color(rgb);
+        }
+
+        @Override
+        public void setStroke(int rgb) {
+            if (stroke.getRGB() != (0xFF000000 | rgb)) stroke = new Color(rgb);
+        }
+
+        @Override
+        public void setLineWidth(double width) {
+            if (width != lineWidth) {
+                lineWidth = width;
+                g.setStroke(new BasicStroke((float) width));
+            }
+        }
+
+        @Override
+        public void fillRect(double x, double y, double w, double h) {
+            rect.setRect(x, y, w, h);
+            g.setColor(fill);
+            g.fill(rect);
+        }
+
+        @Override
+        public void strokeRect(double x, double y, double w, double h) {
+            rect.setRect(x, y, w, h);
+            g.setColor(stroke);
+            g.draw(rect);
+        }
+
+        @Override
+        public void strokeLine(double x1, double y1, double x2, double y2) {
+            line.setLine(x1, y1, x2, y2);
+            g.setColor(stroke);
+            g.draw(line);
+        }
+
+        @Override
+        public void fillPolygon(double[] xs, double[] ys, int count) {
+            polygon.reset();
+            polygon.moveTo(xs[0], ys[0]);
+            for (int i = 1; i < count; i++) {
+                polygon.lineTo(xs[i], ys[i]);
+            }
+            polygon.closePath();
+            g.setColor(fill);
+            g.fill(polygon);
+        }
+
+        @Override
+        public void drawFieldImage(double x, double y, double w, double h) {
+            if (fieldImage == null) return;
+            g.drawImage(fieldImage, (int) Math.round(x), (int) Math.round(y),
+                    (int) Math.round(w), (int) Math.round(h), null);
+        }
+
+        @Override
+        public void save() {
+            saved.push(g.getTransform());
+        }
+
+        @Override
+        public void restore() {
+            g.setTransform(saved.pop());
+        }
+
+        @Override
+        public void translate(double x, double y) {
+            g.translate(x, y);
+        }
+
+        @Override
+        public void rotate(double degrees) {
+            g.rotate(Math.toRadians(degrees));
+        }
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        // No window is ever opened
+        System.setProperty("java.awt.headless", "true");
+        String usage = String.join(System.lineSeparator(),
+                "Usage: ReplayExporter <replay> [overlay...] [--out dir] [--gif file] [--raw]",
+                "           [--fps 60] [--size 800] [--from s] [--to s] [--trail] [--threads n]",
+                "--raw writes rgb24 frames to stdout, e.g. | ffmpeg -f rawvideo -pix_fmt rgb24"
+                        + " -s 800x800 -r 60 -i - match.mp4 (it cannot be combined with --gif)");
+
+        List<File> files = new ArrayList<>();
+        File outDir = null;
+        File gifFile = null;
+        boolean raw = false;
+        boolean trail = false;
+        double fps = DEFAULT_FPS;
+        int size = DEFAULT_SIZE;
+        double fromSeconds = 0;
+        double toSeconds = Double.MAX_VALUE;
+        int threads = Runtime.getRuntime().availableProcessors();
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--out":
+                    outDir = new File(ReplayAnalyzer.optionValue(args, ++i, usage));
+                    break;
+                case "--gif":
+                    gifFile = new File(ReplayAnalyzer.optionValue(args, ++i, usage));
+                    break;
+                case "--raw":
+                    raw = true;
+                    break;
+                case "--trail":
+                    trail = true;
+                    break;
+                case "--fps":
+                    fps = ReplayAnalyzer.numberOption(args, ++i, usage);
+                    break;
+                case "--size":
+                    size = ReplayAnalyzer.intOption(args, ++i, usage);
+                    break;
+                case "--from":
+                    fromSeconds = ReplayAnalyzer.numberOption(args, ++i, usage);
+                    break;
+                case "--to":
+                    toSeconds = ReplayAnalyzer.numberOption(args, ++i, usage);
+                    break;
+                case "--threads":
+                    threads = ReplayAnalyzer.intOption(args, ++i, usage);
+                    break;
+                default:
+                    files.add(new File(args[i]));
+                    break;
+            }
+        }
+        if (files.isEmpty() || (outDir == null && gifFile == null && !raw) || (gifFile != null && raw)
+                || fps <= 0 || size <= 2 * FieldPainter.BORDER || threads < 1) {
+            System.err.println(usage);
+            System.exit(2);
+        }
+        if (outDir != null) {
+            Files.createDirectories(outDir.toPath());
+        }
+
+        List<Replay> replays = new ArrayList<>();
+        for (File file : files) {
+            replays.add(Replay.open(file));
+        }
+        ReplayExporter exporter = new ReplayExporter(replays, size, fps, fromSeconds * 1000, toSeconds * 1000, trail);
+
+        long start = System.nanoTime();
+        if (gifFile != null) {
+            GifOutput gif = new GifOutput(gifFile, fps);
+            try {
+                exporter.export(threads, outDir, gif);
+            } finally {
+                gif.close();
+            }
+        } else if (raw) {
+            OutputStream out = new BufferedOutputStream(System.out, 1 << 20);
+            exporter.export(threads, outDir, new RawOutput(out));
+            out.flush();
+        } else {
+            exporter.export(threads, outDir, null);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        // Stats go to stderr so they never mix with raw frames
+        int frames = exporter.frameCount();
+        double matchSeconds = (frames - 1) / fps;
+        System.err.printf("Exported %d frames (%.1f s of match) at %dx%d in %.2f s on %d threads: "
+                        + "%.0f frames/s, %.1fx real time%n",
+                frames, matchSeconds, size, size, seconds, threads, frames / seconds, matchSeconds / seconds);
+    }
+}
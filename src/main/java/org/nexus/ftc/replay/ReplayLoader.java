@@ -0,0 +1,381 @@
+package org.nexus.ftc.replay;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+
+// Gson imports for JSON parsing
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+/**
+ * Streams a JSON {@code .replay} file with Gson's {@link JsonReader} instead of
+ * binding the whole document at once. Frames go straight to a {@link FrameSink},
+ * usually the columns of a {@link ReplayData}, and the {@link Listener} is told
+ * as batches become readable, so callers can start showing a replay long before the end of
+ * the file has been reached.
+ *
+ * <p>{@link #load()} blocks and is meant to be called from a background thread.
+ * A loader made with {@link #tailing} keeps waiting at the end of the file for
+ * the recorder to append more, and {@link #loadFrameStream} reads the
+ * newline-delimited frames a live recorder sends over a socket.
+ */
+class ReplayLoader {
+
+    /** Receives parse results. Called on the loading thread. */
+    interface Listener {
+        Listener NONE = new Listener() { };
+
+        default void onHeader(String team, String match, long date) {
+        }
+
+        /** Frames below {@code frameCount} have been passed to the sink. */
+        default void onFrames(int frameCount) {
+        }
+
+        default void onProgress(long bytesRead, long totalBytes, double bytesPerSecond) {
+        }
+    }
+
+    static final int BATCH_SIZE = 512;
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final long PROGRESS_INTERVAL_NS = 100_000_000L;
+    private static final long TAIL_POLL_MS = 2;
+
+    private final File file;
+    private final FrameSink target;
+    private final Listener listener;
+    private final TypeAdapter<JsonElement> treeAdapter = new Gson().getAdapter(JsonElement.class);
+    private boolean tail;
+    private volatile boolean cancelled;
+
+    private String team;
+    private String match;
+    private long date;
+    private boolean headerSent;
+    private boolean headerChanged;
+
+    ReplayLoader(File file, FrameSink target, Listener listener) {
+        this.file = file;
+        this.target = target;
+        this.listener = listener;
+    }
+
+    /**
+     * A loader for a replay that is still being written. At the end of the file
+     * it polls for more data instead of stopping, until the JSON document is
+     * complete or the loader is cancelled.
+     */
+    static ReplayLoader tailing(File file, FrameSink target, Listener listener) {
+        ReplayLoader loader = new ReplayLoader(file, target, listener);
+        loader.tail = true;
+        return loader;
+    }
+
+    /** Asks a running {@link #load()} to stop at the next batch boundary. */
+    void cancel() {
+        cancelled = true;
+    }
+
+    boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Parses the file, reporting the header, frame batches and progress to the listener.
+     *
+     * @return the number of frames read
+     */
+    int load() throws IOException {
+        long totalBytes = file.length();
+        long startNs = System.nanoTime();
+        long lastProgressNs = startNs;
+        int frameCount = 0;
+
+        InputStream source = new FileInputStream(file);
+        if (tail) {
+            source = new TailInputStream(source, this);
+        }
+        try (CountingInputStream counter = new CountingInputStream(new BufferedInputStream(source, BUFFER_SIZE));
+             JsonReader reader = new JsonReader(new InputStreamReader(counter, StandardCharsets.UTF_8))) {
+
+            reader.beginObject();
+            while (reader.hasNext() && !cancelled) {
+                String name = reader.nextName();
+                if (readHeaderField(name, reader)) {
+                    headerChanged = headerSent;
+                    continue;
+                }
+                switch (name) {
+                    case "frames":
+                        // Most recorders write the header first, so the UI can show it now
+                        sendHeader();
+                        reader.beginArray();
+                        while (reader.hasNext()) {
+                            readFrame(reader, false);
+                            frameCount++;
+                            if (frameCount % BATCH_SIZE == 0) {
+                                listener.onFrames(frameCount);
+                                if (cancelled) return frameCount;
+
+                                long now = System.nanoTime();
+                                if (now - lastProgressNs >= PROGRESS_INTERVAL_NS) {
+                                    lastProgressNs = now;
+                                    reportProgress(counter.count, totalBytes, startNs, now);
+                                }
+                            }
+                        }
+                        reader.endArray();
+                        if (frameCount % BATCH_SIZE != 0) {
+                            listener.onFrames(frameCount);
+                        }
+                        break;
+                    default:
+                        reader.skipValue();
+                        break;
+                }
+            }
+            if (cancelled) return frameCount;
+            reader.endObject();
+
+            // Header fields written after the frames (or a file with no frames at all)
+            if (!headerSent || headerChanged) {
+                target.header(team, match, date);
+                listener.onHeader(team, match, date);
+            }
+            reportProgress(totalBytes, totalBytes, startNs, System.nanoTime());
+        } catch (IllegalStateException | NumberFormatException e) {
+            // JsonReader reports structural problems as IllegalStateException
+            throw new JsonSyntaxException(e.getMessage(), e);
+        }
+        return frameCount;
+    }
+
+    /**
+     * Reads frame objects one after another until the stream ends or the loader
+     * is cancelled; live recorders send one per line. Each object has the fields
+     * of an entry in a file's {@code frames} array, and may also carry
+     * {@code team}, {@code match} and {@code date}. An object with only those
+     * updates the header without adding a frame. The stream is not closed.
+     *
+     * @return the number of frames read
+     */
+    int loadFrameStream(InputStream in) throws IOException {
+        int frameCount = 0;
+        JsonReader reader = new JsonReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        // Lenient mode accepts a sequence of top-level values
+        reader.setLenient(true);
+        try {
+            while (!cancelled && reader.peek() != JsonToken.END_DOCUMENT) {
+                if (readFrame(reader, true)) {
+                    frameCount++;
+                    if (frameCount % BATCH_SIZE == 0) {
+                        listener.onFrames(frameCount);
+                    }
+                }
+            }
+        } catch (IllegalStateException | NumberFormatException e) {
+            throw new JsonSyntaxException(e.getMessage(), e);
+        }
+        listener.onFrames(frameCount);
+        return frameCount;
+    }
+
+    private void sendHeader() {
+        if (headerSent) return;
+        headerSent = true;
+        target.header(team, match, date);
+        listener.onHeader(team, match, date);
+    }
+
+    private void reportProgress(long bytesRead, long totalBytes, long startNs, long now) {
+        double seconds = (now - startNs) / 1e9;
+        listener.onProgress(bytesRead, totalBytes, seconds > 0 ? bytesRead / seconds : 0);
+    }
+
+    /**
+     * Reads one frame object. With {@code headerFields}, header fields in the
+     * object are applied too, and an object holding nothing else is not a frame.
+     *
+     * @return whether a frame was passed to the sink
+     */
+    private boolean readFrame(JsonReader reader, boolean headerFields) throws IOException {
+        long timeMs = 0;
+        double x = 0;
+        double y = 0;
+        double heading = 0;
+        boolean started = !headerFields;
+        boolean header = false;
+
+        if (started) {
+            target.beginFrame();
+        }
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (headerFields && readHeaderField(name, reader)) {
+                header = true;
+                continue;
+            }
+            if (!started) {
+                target.beginFrame();
+                started = true;
+            }
+            switch (name) {
+                case "timeMs":
+                    timeMs = reader.nextLong();
+                    break;
+                case "x":
+                    x = reader.nextDouble();
+                    break;
+                case "y":
+                    y = reader.nextDouble();
+                    break;
+                case "heading":
+                    heading = reader.nextDouble();
+                    break;
+                case "customData":
+                    readCustomData(reader);
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+        if (started) {
+            target.endFrame(timeMs, x, y, heading);
+        }
+        if (header) {
+            headerSent = true;
+            target.header(team, match, date);
+            listener.onHeader(team, match, date);
+        }
+        return started;
+    }
+
+    private boolean readHeaderField(String name, JsonReader reader) throws IOException {
+        switch (name) {
+            case "team":
+                team = nextStringOrNull(reader);
+                return true;
+            case "match":
+                match = nextStringOrNull(reader);
+                return true;
+            case "date":
+                date = reader.nextLong();
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private void readCustomData(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return;
+        }
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String key = reader.nextName();
+            // Pick the column type from the JSON token instead of boxing every value
+            switch (reader.peek()) {
+                case NUMBER:
+                    target.putNumber(key, reader.nextDouble());
+                    break;
+                case BOOLEAN:
+                    target.putBoolean(key, reader.nextBoolean());
+                    break;
+                case STRING:
+                    target.putText(key, reader.nextString());
+                    break;
+                case NULL:
+                    reader.nextNull();
+                    break;
+                default:
+                    // Nested objects and arrays are kept as their JSON text
+                    target.putText(key, treeAdapter.read(reader).toString());
+                    break;
+            }
+        }
+        reader.endObject();
+    }
+
+    private static String nextStringOrNull(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        return reader.nextString();
+    }
+
+    /** Waits at end of file for more data, as {@code tail -f} does, until the loader is cancelled. */
+    private static final class TailInputStream extends FilterInputStream {
+        private final ReplayLoader loader;
+
+        TailInputStream(InputStream in, ReplayLoader loader) {
+            super(in);
+            this.loader = loader;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) > 0 ? one[0] & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            while (true) {
+                int n = super.read(b, off, len);
+                if (n != -1 || loader.cancelled) return n;
+                try {
+                    Thread.sleep(TAIL_POLL_MS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Stopped waiting for " + loader.file.getName());
+                }
+            }
+        }
+    }
+
+    /** Counts bytes pulled through the stream so progress can be reported. */
+    private static final class CountingInputStream extends FilterInputStream {
+        volatile long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) count++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) count += n;
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package org.nexus.ftc.replay;
+
+/**
+ * One replay drawn on the field: the replay, its time index and trajectory, the
+ * color its robot is drawn in, and the pose from the last {@link #sample}. The
+ * pose comes from the {@link Trajectory}: a replay that arrives whole brings one
+ * built on the thread that opened it, and one still growing builds it from its
+ * first frames and keeps it up to date. The frame for discrete data comes from
+ * the index, which reuses its last answer, so following playback costs O(1) per
+ * track per tick regardless of how many frames the replay has.
+ *
+ * <p>A reference run being compared with the loaded replay carries a
+ * {@link RunAlignment} and follows the loaded replay's clock through it
+ * rather than its own.
+ */
+final class ReplayTrack {
+
+    /** Robot colors (0xRRGGBB); the first replay keeps the original blue. */
+    static final int[] PALETTE = {
+            0x0000FF, 0xFF8C00, 0x32CD32, 0xFF00FF, 0x00CED1,
+            0xFFD700, 0xDC143C, 0x9370DB, 0xF5F5F5, 0x8B4513
+    };
+
+    final Replay replay;
+    final TimeIndex timeIndex;
+    final int color;
+    final RunAlignment alignment;
+    private Trajectory trajectory;
+    private final double[] pose = new double[3];
+
+    // Pose at the last sample, on the smoothed path between frame and frame + 1
+    int frame = -1;
+    double fraction;
+    double x;
+    double y;
+    double heading;
+
+    /** A track for a replay still growing, which builds its trajectory on first sample. */
+    ReplayTrack(Replay replay, int color) {
+        this(replay, color, null);
+    }
+
+    /** A track with a trajectory already built for {@code replay}, e.g. by a loader or parallel renderers. */
+    ReplayTrack(Replay replay, int color, Trajectory trajectory) {
+        this(replay, color, trajectory, null);
+    }
+
+    /** The reference side of an alignment, sampled at the moments matching the run's. */
+    ReplayTrack(RunAlignment alignment, int color) {
+        this(alignment.reference, color, alignment.referenceTrajectory, alignment);
+    }
+
+    private ReplayTrack(Replay replay, int color, Trajectory trajectory, RunAlignment alignment) {
+        this.replay = replay;
+        this.timeIndex = new TimeIndex(replay);
+        this.color = color;
+        this.trajectory = trajectory;
+        this.alignment = alignment;
+    }
+
+    /** Samples the pose at a time in this replay's own clock. */
+    void sample(double timeMs) {
+        frame = timeIndex.frameAt(timeMs);
+        if (frame < 0) return;
+        fraction = timeIndex.fraction(frame, timeMs);
+
+        if (trajectory == null) {
+            trajectory = Trajectory.build(replay);
+        } else {
+            trajectory.update();
+        }
+        trajectory.poseAt(timeMs, pose);
+        x = pose[0];
+        y = pose[1];
+        heading = pose[2];
+    }
+
+    /**
+     * Samples the moment {@code elapsedMs} after this replay's first frame, or for
+     * an aligned reference, the moment matching that long into the run.
+     */
+    void sampleElapsed(double elapsedMs) {
+        if (alignment != null) {
+            sample(alignment.referenceTimeAt(alignment.startMs + elapsedMs));
+        } else {
+            sample(replay.startTimeMs() + elapsedMs);
+        }
+    }
+
+    /** Frame closest to the last sample, for showing discrete data such as custom keys. */
+    int nearestFrame() {
+        return fraction < 0.5 ? frame : Math.min(frame + 1, replay.frameCount() - 1);
+    }
+
+    long durationMs() {
+        return replay.endTimeMs() - replay.startTimeMs();
+    }
+}
@@ -1,53 +1,134 @@
 package org.nexus.ftc.replay;
 
 import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.concurrent.Task;
+import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.control.Hyperlink;
 import javafx.scene.Scene;
-import javafx.scene.canvas.Canvas;
-import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.control.*;
 import javafx.scene.image.Image;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.KeyEvent;
 import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.StackPane;
 import javafx.scene.layout.VBox;
 import javafx.scene.paint.Color;
+import javafx.stage.DirectoryChooser;
 import javafx.stage.FileChooser;
 import javafx.stage.Stage;
+import javafx.util.StringConverter;
 import javafx.animation.AnimationTimer;
 
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.text.ParseException;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
 
 // Gson imports for JSON parsing
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-import com.google.gson.JsonObject;
-import com.google.gson.reflect.TypeToken;
 import com.google.gson.JsonSyntaxException;
 
 public class ReplayViewer extends Application {
 
-    private Canvas fieldCanvas;
-    private GraphicsContext gc;
-    private ReplayData replayData;
+    private static final String TRAIL_TRACK_COLOR = "Track color";
+    private static final String TRAIL_SPEED = "Speed";
+    private static final String HEATMAP_TIME_SPENT = "Time spent";
+
+    // Live sessions keep at most this many frames, dropping the oldest quarter when full
+    private static final int LIVE_MAX_FRAMES = 1 << 17;
+    private static final int LIVE_DRAIN_PER_PULSE = 8192;
+    private static final long LIVE_REFRESH_INTERVAL_NS = 500_000_000L;
+
+    // Playback speed range, as powers of two: 1/128x to 32x
+    private static final double MIN_SPEED_LOG2 = -7;
+    private static final double MAX_SPEED_LOG2 = 5;
+
+    // Longest wall-clock step one tick may advance; a stalled window does not jump ahead
+    private static final long MAX_TICK_NS = 100_000_000L;
+
+    private FieldView fieldView;
+    private Replay replayData;
     private int currentFrameIndex = 0;
     private boolean isPlaying = false;
     private double playbackSpeed = 1;
     private Slider timelineSlider;
+    private Button playButton;
     private Label timeLabel;
     private AnimationTimer animationTimer;
     private VBox customDataPanel;
+    private VBox matchInfoBox;
+    private CustomDataPanel frameDataPanel;
+    private TelemetryChart telemetryChart;
+    private MatchStrip matchStrip;
+    private Filmstrip filmstrip;
+    private EventStrip eventStrip;
+    private DeviationChart deviationChart;
+    private TitledPane deviationPane;
+    private QueryBar queryBar;
+    private CheckBox trailCheckBox;
+    private CheckBox ghostCheckBox;
+    private ComboBox<String> trailColorBox;
     private Image fieldBackgroundImage;
+    private ProgressBar loadProgressBar;
+    private Label loadStatusLabel;
+
+    // Replay currently streaming in on a background thread, if any
+    private ReplayLoader activeLoader;
+    // Binary replay or archive entry being opened on a background thread, if any
+    private Task<Trajectory> activeOpener;
+
+    // Live session: the source fills the ring on its own thread and each pulse drains it into liveReplay
+    private LiveSource liveSource;
+    private FrameRing liveRing;
+    private ReplayData liveReplay;
+    private long lastLiveRefreshNs;
+    private int liveKeyCount;
+
+    // Always recording; the HUD and flight recordings only read it
+    private final PerfStats perfStats = new PerfStats();
+    private PerfHud perfHud;
+    private CheckMenuItem perfHudItem;
+
+    // Read the first time the library is opened or a replay finishes loading
+    private LibraryIndex libraryIndex;
+    // Created the first time the library is opened
+    private Stage libraryStage;
+    private LibraryBrowser libraryBrowser;
+
+    // Heatmap over the field: per-file grids are cached, so growing the file set only reads new files
+    private final Heatmap heatmap = new Heatmap();
+    private final List<File> heatmapFiles = new ArrayList<>();
+    private boolean heatmapShown;
+    private String heatmapKey;
+    private int heatmapGeneration;
+
+    // Event detection: built-in detectors by menu item, in menu order, then keys being watched (NaN: any change)
+    private final List<CheckMenuItem> eventDetectorItems = new ArrayList<>();
+    private final List<Supplier<EventDetector>> eventDetectorFactories = new ArrayList<>();
+    private final Map<String, Double> watchedKeys = new LinkedHashMap<>();
+
+    // Replays on the field; the first is the loaded replay, the rest are overlays aligned to its start
+    private final List<ReplayTrack> tracks = new ArrayList<>();
+    private ReplayTrack primaryTrack;
 
     // Add timing variables as instance fields
     private long lastUpdateTime = 0;
-    private double accumulatedTime = 0;
+    private double playbackTimeMs = 0;
+
+    // Set while the slider is moved from code, so its listener does not treat it as a scrub
+    private boolean updatingSlider = false;
 
     @Override
     public void start(Stage primaryStage) {
@@ -56,18 +137,42 @@ public class ReplayViewer extends Application {
 
         fieldBackgroundImage = new Image(getClass().getResource("/field_background.png").toExternalForm());
         // Field canvas (top-down view)
-        fieldCanvas = new Canvas(800, 800);
-        gc = fieldCanvas.getGraphicsContext2D();
-        drawEmptyField();
-        root.setCenter(fieldCanvas);
+        fieldView = new FieldView(800, 800, fieldBackgroundImage);
+        root.setCenter(fieldView);
+
+        // Performance overlay in the field's corner, hidden until asked for
+        perfHud = new PerfHud(perfStats);
+        StackPane.setAlignment(perfHud, Pos.TOP_LEFT);
+        StackPane.setMargin(perfHud, new Insets(8));
+        fieldView.getChildren().add(perfHud);
+        PerfEvents.install(perfStats);
 
         // Control panel
         VBox controlPanel = createControlPanel();
         root.setRight(controlPanel);
 
-        // Playback controls
+        // Playback controls, under a collapsible chart of one custom key
         HBox playbackControls = createPlaybackControls();
-        root.setBottom(playbackControls);
+        telemetryChart = new TelemetryChart(timeMs -> {
+            pausePlayback();
+            seekToTime(timeMs);
+        });
+        telemetryChart.setStyle("-fx-padding: 5; -fx-background-color: #222;");
+        TitledPane chartPane = new TitledPane("Telemetry Chart", telemetryChart);
+        chartPane.setExpanded(false);
+        queryBar = new QueryBar(matchStrip, timeMs -> {
+            pausePlayback();
+            seekToTime(timeMs);
+        }, () -> playbackTimeMs);
+        deviationChart = new DeviationChart(timeMs -> {
+            pausePlayback();
+            seekToTime(timeMs);
+        });
+        deviationChart.setStyle("-fx-padding: 5; -fx-background-color: #222;");
+        deviationPane = new TitledPane("Run Comparison", deviationChart);
+        deviationPane.setVisible(false);
+        deviationPane.setManaged(false);
+        root.setBottom(new VBox(chartPane, deviationPane, queryBar, playbackControls));
 
         // Menu bar for loading files
         HBox menuBar = createMenuBar(primaryStage);
@@ -86,6 +191,30 @@ public class ReplayViewer extends Application {
 
         customDataPanel.setStyle("-fx-padding: 5; -fx-background-color: #222; -fx-text-fill: #eee;");
 
+        // Arrow keys step one frame, one second with Shift, or to the next event with Ctrl (Cmd); F3 toggles the HUD
+        scene.addEventFilter(KeyEvent.KEY_PRESSED, e -> {
+            if (e.getCode() == KeyCode.F3) {
+                perfHudItem.setSelected(!perfHudItem.isSelected());
+                e.consume();
+                return;
+            }
+            if (e.getCode() != KeyCode.LEFT && e.getCode() != KeyCode.RIGHT) return;
+            // Leave arrow keys to text fields, such as the query
+            if (e.getTarget() instanceof TextInputControl) return;
+            if (replayData == null) return;
+
+            int direction = e.getCode() == KeyCode.RIGHT ? 1 : -1;
+            pausePlayback();
+            if (e.isShortcutDown()) {
+                jumpToEvent(direction > 0);
+            } else if (e.isShiftDown()) {
+                seekToTime(playbackTimeMs + direction * 1000);
+            } else {
+                stepFrames(direction);
+            }
+            e.consume();
+        });
+
         primaryStage.setTitle("FTC Match Replay Viewer");
         primaryStage.setScene(scene);
         primaryStage.show();
@@ -101,183 +230,131 @@ public class ReplayViewer extends Application {
         animationTimer = new AnimationTimer() {
             @Override
             public void handle(long now) {
+                // While following a live session, stay on its newest frame
+                boolean followLive = false;
+                if (liveSource != null) {
+                    followLive = isPlaying && replayData == liveReplay && playbackTimeMs >= liveReplay.endTimeMs();
+                    drainLive(now);
+                }
                 if (!isPlaying || replayData == null) return;
-
-                if (lastUpdateTime == 0) {
+                perfStats.tick(now);
+                if (followLive) {
+                    seekToTime(liveReplay.endTimeMs());
                     lastUpdateTime = now;
                     return;
                 }
 
-                // Convert nanoseconds to milliseconds
-                long elapsedMs = (now - lastUpdateTime) / 1_000_000;
-                long adjustedElapsedMs = (long)(elapsedMs * playbackSpeed);
-
-                // Limit large jumps
-                adjustedElapsedMs = Math.min(adjustedElapsedMs, 100);
-
-                // Add elapsed time to accumulated time
-                accumulatedTime += adjustedElapsedMs;
-
-                // Find current frame
-                FrameData currentFrame = replayData.frames.get(currentFrameIndex);
-
-                // Calculate target time
-                long targetTime = currentFrame.timeMs + (long)accumulatedTime;
-
-                // Advance to the correct frame based on target time
-                while (currentFrameIndex < replayData.frames.size() - 1 &&
-                        replayData.frames.get(currentFrameIndex + 1).timeMs <= targetTime) {
-                    FrameData nextFrame = replayData.frames.get(currentFrameIndex + 1);
-                    // Subtract the time difference from accumulated time
-                    accumulatedTime -= (nextFrame.timeMs - currentFrame.timeMs);
-                    currentFrameIndex++;
-                    currentFrame = nextFrame;
-                }
-
-                // Update display with interpolation
-                if (currentFrameIndex < replayData.frames.size() - 1) {
-                    FrameData nextFrame = replayData.frames.get(currentFrameIndex + 1);
-                    double timeDiff = nextFrame.timeMs - currentFrame.timeMs;
-                    double factor = timeDiff > 0 ? accumulatedTime / timeDiff : 0;
-                    factor = Math.max(0, Math.min(1, factor));
-                    updateDisplayWithInterpolation(currentFrame, nextFrame, factor);
-                } else {
-                    // At the last frame
-                    updateDisplay();
+                if (lastUpdateTime == 0) {
+                    lastUpdateTime = now;
+                    return;
                 }
 
-                // Update slider position
-                updateTimelineSlider();
+                // Advance by the exact wall time since the last pulse, scaled after limiting large gaps
+                double elapsedMs = Math.min(now - lastUpdateTime, MAX_TICK_NS) / 1e6;
+                double targetTime = playbackTimeMs + elapsedMs * playbackSpeed;
 
-                // Loop playback when reaching the end
-                if (currentFrameIndex >= replayData.frames.size() - 1 &&
-                        accumulatedTime >= (replayData.frames.get(replayData.frames.size() - 1).timeMs -
-                                replayData.frames.get(Math.max(0, replayData.frames.size() - 2)).timeMs)) {
-                    currentFrameIndex = 0;
-                    accumulatedTime = 0;
-                    lastUpdateTime = 0; // Reset timer
+                // Loop playback when reaching the end; a live session waits for more frames instead
+                if (targetTime > timelineEndMs()) {
+                    targetTime = liveSource != null ? timelineEndMs() : replayData.startTimeMs();
                 }
 
+                seekToTime(targetTime);
                 lastUpdateTime = now;
             }
         };
     }
 
-    private void updateTimelineSlider() {
-        if (replayData == null) return;
-
-        double percentage = 100.0 * currentFrameIndex / (replayData.frames.size() - 1);
-        timelineSlider.setValue(percentage);
-    }
+    /**
+     * Moves playback to a moment in match time and redraws it. Playback, scrubbing
+     * and keyboard stepping all go through here.
+     */
+    private void seekToTime(double timeMs) {
+        if (replayData == null || replayData.isEmpty()) return;
 
-    private void updateDisplayWithInterpolation(FrameData frame1, FrameData frame2, double factor) {
-        // Clamp factor to [0,1]
-        factor = Math.max(0, Math.min(1, factor));
+        playbackTimeMs = Math.max(replayData.startTimeMs(), Math.min(timelineEndMs(), timeMs));
 
-        // Interpolate position and heading
-        double x = frame1.x + (frame2.x - frame1.x) * factor;
-        double y = frame1.y + (frame2.y - frame1.y) * factor;
-        double heading = interpolateAngle(frame1.heading, frame2.heading, factor);
+        // Every track is sampled the same time after its own start
+        double elapsedMs = playbackTimeMs - replayData.startTimeMs();
+        for (ReplayTrack track : tracks) {
+            track.sampleElapsed(elapsedMs);
+        }
+        currentFrameIndex = primaryTrack.frame;
 
-        // Draw the interpolated position
-        drawEmptyField();
-        drawRobot(x, y, heading);
+        // Draw the interpolated positions
+        long drawStart = System.nanoTime();
+        fieldView.drawRobots(tracks);
+        long panelStart = System.nanoTime();
 
         // Use closest frame's data for display
-        updateCustomDataDisplay(factor < 0.5 ? frame1 : frame2);
+        updateCustomDataDisplay(primaryTrack.nearestFrame());
+        updateTimeDisplay((long) playbackTimeMs);
+        updateTimelineSlider();
+        telemetryChart.setPlayhead(playbackTimeMs);
+        deviationChart.setPlayhead(playbackTimeMs);
+        perfStats.recordRender(panelStart - drawStart, System.nanoTime() - panelStart);
+    }
 
-        // Update time display
-        long interpolatedTimeMs = frame1.timeMs + (long)((frame2.timeMs - frame1.timeMs) * factor);
-        updateTimeDisplay(interpolatedTimeMs);
+    /** End of the shared timeline: the longest track, measured from the loaded replay's start. */
+    private double timelineEndMs() {
+        long durationMs = 0;
+        for (ReplayTrack track : tracks) {
+            // An aligned reference runs on the loaded replay's clock
+            if (track.alignment == null) durationMs = Math.max(durationMs, track.durationMs());
+        }
+        return replayData.startTimeMs() + durationMs;
     }
 
-    // Helper method for angle interpolation (handles wraparound correctly)
-    private double interpolateAngle(double a, double b, double factor) {
-        // Normalize angles to [0, 360)
-        a = ((a % 360) + 360) % 360;
-        b = ((b % 360) + 360) % 360;
+    private void stepFrames(int delta) {
+        if (replayData == null || replayData.isEmpty()) return;
 
-        // Find the shortest path
-        double diff = b - a;
-        if (diff > 180) {
-            diff -= 360;
-        } else if (diff < -180) {
-            diff += 360;
+        // Stepping back from between two frames lands on the earlier one first
+        int target = currentFrameIndex + delta;
+        if (delta < 0 && playbackTimeMs > replayData.timeMs(currentFrameIndex)) {
+            target++;
         }
+        target = Math.max(0, Math.min(replayData.frameCount() - 1, target));
+        seekToTime(replayData.timeMs(target));
+    }
 
-        // Interpolate
-        double result = a + diff * factor;
+    private void updateTimelineSlider() {
+        if (replayData == null) return;
 
-        // Normalize result
-        return ((result % 360) + 360) % 360;
+        updatingSlider = true;
+        timelineSlider.setMin(replayData.startTimeMs());
+        timelineSlider.setMax(Math.max(timelineEndMs(), replayData.startTimeMs() + 1));
+        timelineSlider.setValue(playbackTimeMs);
+        updatingSlider = false;
     }
 
-    private void updateTimeDisplay(long timeMs) {
-        long seconds = timeMs / 1000;
-        long minutes = seconds / 60;
-        seconds %= 60;
-        long millis = timeMs % 1000;
-        timeLabel.setText(String.format("Time: %d:%02d.%03d", minutes, seconds, millis));
+    private void startPlayback() {
+        isPlaying = true;
+        playButton.setText("Pause");
+        lastUpdateTime = 0; // Reset timer to prevent jumps
+        animationTimer.start();
     }
 
-    private void drawEmptyField() {
-        // Draw the FTC field background image inside the border
-        double borderX = 50;
-        double borderY = 50;
-        double borderWidth = fieldCanvas.getWidth() - 100;
-        double borderHeight = fieldCanvas.getHeight() - 100;
-
-        // Fill background with dark color
-        gc.setFill(Color.web("#222222"));
-        gc.fillRect(0, 0, fieldCanvas.getWidth(), fieldCanvas.getHeight());
-
-        // Draw image inside border
-        if (fieldBackgroundImage != null) {
-            gc.drawImage(fieldBackgroundImage, borderX, borderY, borderWidth, borderHeight);
+    private void pausePlayback() {
+        isPlaying = false;
+        perfStats.pauseTicks();
+        // Live sessions are drained by the same timer
+        if (liveSource == null) {
+            animationTimer.stop();
         }
+        lastUpdateTime = 0;
+        playButton.setText("Play");
 
-        // Draw field elements (perimeter, grid, etc.) with dark gray
-        gc.setStroke(Color.web("#444444"));
-        gc.setLineWidth(3);
-        gc.strokeRect(borderX, borderY, borderWidth, borderHeight);
-
-        gc.setLineWidth(0.5);
-        for (int i = 0; i <= 6; i++) {
-            double x = borderX + i * borderWidth / 6;
-            double y = borderY + i * borderHeight / 6;
-            gc.strokeLine(borderX, y, borderX + borderWidth, y);
-            gc.strokeLine(x, borderY, x, borderY + borderHeight);
+        // Show the exact frame playback stopped on, even if the panel was throttled
+        if (replayData != null && !replayData.isEmpty()) {
+            updateCustomDataDisplay(currentFrameIndex);
         }
     }
 
-    private void drawRobot(double x, double y, double heading) {
-        // Convert field coordinates to canvas coordinates
-        double fieldSize = 12 * 12; // 12 feet in inches
-        double scale = (fieldCanvas.getWidth() - 100) / fieldSize;
-
-        double canvasX = 50 + (x * scale);
-        double canvasY = fieldCanvas.getHeight() - 50 - (y * scale);
-
-        // Draw robot (18" x 18" square)
-        double robotSize = 18 * scale;
-
-        gc.save();
-        gc.translate(canvasX, canvasY);
-        gc.rotate(-heading); // Negative because canvas Y is inverted
-
-        // Robot body
-        gc.setFill(Color.BLUE);
-        gc.fillRect(-robotSize/2, -robotSize/2, robotSize, robotSize);
-
-        // Direction indicator
-        gc.setFill(Color.RED);
-        gc.fillPolygon(
-                new double[]{robotSize/2, robotSize/2 - 10, robotSize/2 - 10},
-                new double[]{0, -10, 10},
-                3
-        );
-
-        gc.restore();
+    private void updateTimeDisplay(long timeMs) {
+        long seconds = timeMs / 1000;
+        long minutes = seconds / 60;
+        seconds %= 60;
+        long millis = timeMs % 1000;
+        timeLabel.setText(String.format("Time: %d:%02d.%03d", minutes, seconds, millis));
     }
 
     private VBox createControlPanel() {
@@ -291,67 +368,149 @@ public class ReplayViewer extends Application {
         // Create panel for custom data that will be updated when replay is loaded
         customDataPanel = new VBox(5);
         customDataPanel.setStyle("-fx-padding: 5;");
-
-        panel.getChildren().addAll(title, customDataPanel);
+        matchInfoBox = new VBox(5);
+        frameDataPanel = new CustomDataPanel();
+        VBox.setVgrow(frameDataPanel, Priority.ALWAYS);
+        VBox.setVgrow(customDataPanel, Priority.ALWAYS);
+        customDataPanel.getChildren().addAll(matchInfoBox, frameDataPanel);
+
+        // Path trail options
+        trailCheckBox = new CheckBox("Path trail");
+        ghostCheckBox = new CheckBox("Future path");
+        trailColorBox = new ComboBox<>();
+        trailColorBox.getItems().addAll(TRAIL_TRACK_COLOR, TRAIL_SPEED);
+        trailColorBox.setValue(TRAIL_TRACK_COLOR);
+        trailCheckBox.setStyle("-fx-text-fill: #eee;");
+        ghostCheckBox.setStyle("-fx-text-fill: #eee;");
+        trailCheckBox.setOnAction(e -> applyTrailOptions());
+        ghostCheckBox.setOnAction(e -> applyTrailOptions());
+        trailColorBox.setOnAction(e -> applyTrailOptions());
+        HBox trailOptions = new HBox(10, trailCheckBox, ghostCheckBox);
+        Label trailColorLabel = new Label("Trail color:");
+        trailColorLabel.setStyle("-fx-text-fill: #eee;");
+        HBox trailColor = new HBox(10, trailColorLabel, trailColorBox);
+        trailColor.setAlignment(Pos.CENTER_LEFT);
+
+        panel.getChildren().addAll(title, trailOptions, trailColor, customDataPanel);
         return panel;
     }
 
+    private void applyTrailOptions() {
+        String color = trailColorBox.getValue();
+        int metric = PathTrail.METRIC_NONE;
+        if (TRAIL_SPEED.equals(color)) {
+            metric = PathTrail.METRIC_SPEED;
+        } else if (color != null && !TRAIL_TRACK_COLOR.equals(color) && replayData != null) {
+            metric = replayData.keyIndex(color);
+        }
+        fieldView.setTrailOptions(trailCheckBox.isSelected(), ghostCheckBox.isSelected(), metric);
+        seekToTime(playbackTimeMs);
+    }
+
+    /** Offers the loaded replay's numeric keys as trail colorings, keeping the current choice if it still exists. */
+    private void updateTrailColorKeys() {
+        String selected = trailColorBox.getValue();
+        List<String> items = new ArrayList<>();
+        items.add(TRAIL_TRACK_COLOR);
+        items.add(TRAIL_SPEED);
+        for (int key = 0; key < replayData.keyCount(); key++) {
+            CustomColumn column = replayData.column(key);
+            if (column.kind() == CustomColumn.Kind.NUMERIC) {
+                items.add(column.key);
+            }
+        }
+        trailColorBox.getItems().setAll(items);
+        trailColorBox.setValue(items.contains(selected) ? selected : TRAIL_TRACK_COLOR);
+        applyTrailOptions();
+    }
+
     private HBox createPlaybackControls() {
         HBox controls = new HBox(10);
         controls.setStyle("-fx-padding: 10; -fx-background-color: #333; -fx-text-fill: #eee;");
-        Button playButton = new Button("Play");
+        playButton = new Button("Play");
         playButton.setOnAction(e -> {
-            isPlaying = !isPlaying;
-            playButton.setText(isPlaying ? "Pause" : "Play");
-
             if (isPlaying) {
-                lastUpdateTime = 0; // Reset timer to prevent jumps
-                animationTimer.start();
+                pausePlayback();
             } else {
-                animationTimer.stop();
+                startPlayback();
             }
         });
 
         Button resetButton = new Button("Reset");
         resetButton.setOnAction(e -> {
-            isPlaying = false;
-            animationTimer.stop();
-            currentFrameIndex = 0;
-            accumulatedTime = 0;
-            lastUpdateTime = 0;
-            updateDisplay();
-            updateTimelineSlider();
-            playButton.setText("Play");
+            pausePlayback();
+            if (replayData != null) {
+                seekToTime(replayData.startTimeMs());
+            }
         });
 
         timelineSlider = new Slider();
         timelineSlider.setPrefWidth(500);
+        // Slider values are milliseconds of match time
         timelineSlider.valueProperty().addListener((obs, oldVal, newVal) -> {
-            if (replayData != null) {
+            if (replayData != null && !updatingSlider) {
                 // Stop playback when moving slider
-                isPlaying = false;
-                animationTimer.stop();
-
-                currentFrameIndex = (int)Math.floor(newVal.doubleValue() * (replayData.frames.size() - 1) / 100);
-                accumulatedTime = 0;
-                lastUpdateTime = 0;
-                updateDisplay();
-                playButton.setText("Play");
+                pausePlayback();
+                seekToTime(newVal.doubleValue());
             }
         });
 
-        // Ultra-slow speed slider
-        Slider speedSlider = new Slider(0.01, 1.0, 0.05);
-        speedSlider.setPrefWidth(150);
+        // Highlights for query matches, aligned under the slider's track
+        matchStrip = new MatchStrip(timelineSlider, timeMs -> {
+            pausePlayback();
+            seekToTime(timeMs);
+        });
+        // Thumbnails of the loaded replay along the slider, with a preview while hovering or scrubbing
+        filmstrip = new Filmstrip(timelineSlider, timeMs -> {
+            pausePlayback();
+            seekToTime(timeMs);
+        });
+        // Detected events, with query matches below them
+        eventStrip = new EventStrip(timelineSlider, timeMs -> {
+            pausePlayback();
+            seekToTime(timeMs);
+        }, this::createEventDetectors);
+        VBox timelineBox = new VBox(2, filmstrip, timelineSlider, eventStrip, matchStrip);
+        timelineBox.setAlignment(Pos.CENTER);
+
+        // Speed slider on a log scale, from ultra-slow to fast-forward; each tick doubles the speed
+        Slider speedSlider = new Slider(MIN_SPEED_LOG2, MAX_SPEED_LOG2, 0);
+        speedSlider.setPrefWidth(220);
         speedSlider.setShowTickMarks(true);
         speedSlider.setShowTickLabels(true);
-        speedSlider.setMajorTickUnit(0.1);
-        speedSlider.setValue(1);
+        speedSlider.setMajorTickUnit(2);
+        speedSlider.setMinorTickCount(1);
+        speedSlider.setLabelFormatter(new StringConverter<Double>() {
+            @Override
+            public String toString(Double log2) {
+                double speed = Math.pow(2, log2);
+                return speed >= 1 ? String.format("%.0fx", speed) : String.format("1/%.0f", 1 / speed);
+            }
+
+            @Override
+            public Double fromString(String text) {
+                // Inverse of toString: "4x" or "1/4"; anything else keeps the current speed
+                try {
+                    String trimmed = text.trim();
+                    boolean fraction = trimmed.startsWith("1/");
+                    if (fraction) trimmed = trimmed.substring(2);
+                    if (trimmed.endsWith("x")) trimmed = trimmed.substring(0, trimmed.length() - 1);
+                    double value = Double.parseDouble(trimmed);
+                    if (value > 0 && value < Double.POSITIVE_INFINITY) {
+                        double log2 = Math.log(value) / Math.log(2);
+                        return fraction ? -log2 : log2;
+                    }
+                } catch (NumberFormatException e) {
+                    // Falls through to the current speed
+                }
+                return speedSlider.getValue();
+            }
+        });
 
         Label speedLabel = new Label("Speed: 1.00x"); // Initial label matches slider
 
         speedSlider.valueProperty().addListener((obs, oldVal, newVal) -> {
-            playbackSpeed = newVal.doubleValue();
+            playbackSpeed = Math.pow(2, newVal.doubleValue());
 
             // Format the speed label with a fraction for very slow speeds
             if (playbackSpeed < 0.1) {
@@ -369,7 +528,7 @@ public class ReplayViewer extends Application {
         timeLabel.setStyle("-fx-text-fill: #eee;");
         speedLabel.setStyle("-fx-text-fill: #eee;");
         speedControls.getChildren().addAll(speedLabel, speedSlider);
-        controls.getChildren().addAll(playButton, resetButton, timelineSlider, timeLabel, speedControls);
+        controls.getChildren().addAll(playButton, resetButton, timelineBox, timeLabel, speedControls);
         return controls;
     }
 
@@ -379,8 +538,102 @@ public class ReplayViewer extends Application {
         menuBar.setAlignment(Pos.TOP_RIGHT); // Align to top right
 
         Button loadButton = new Button("Load Replay");
+        Button overlayButton = new Button("Overlay Replays");
+        Button clearOverlaysButton = new Button("Clear Overlays");
+        Button libraryButton = new Button("Library");
         Button creditsButton = new Button("Credits");
 
+        MenuItem tailItem = new MenuItem("Tail Growing Replay...");
+        MenuItem listenItem = new MenuItem("Listen on Port...");
+        MenuItem stopLiveItem = new MenuItem("Stop Live");
+        MenuButton liveButton = new MenuButton("Live", null, tailItem, listenItem, stopLiveItem);
+        tailItem.setOnAction(e -> {
+            FileChooser fileChooser = new FileChooser();
+            fileChooser.setTitle("Tail Replay File");
+            fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Replay Files", "*.replay"));
+            File selectedFile = fileChooser.showOpenDialog(primaryStage);
+            if (selectedFile != null) {
+                FrameRing ring = new FrameRing(FrameRing.DEFAULT_CAPACITY);
+                startLive(LiveSource.tail(selectedFile, ring), ring);
+            }
+        });
+        listenItem.setOnAction(e -> {
+            TextInputDialog dialog = new TextInputDialog(Integer.toString(LiveSource.DEFAULT_PORT));
+            dialog.setTitle("Live Telemetry");
+            dialog.setHeaderText("Listen for newline-delimited frame JSON on localhost");
+            dialog.setContentText("Port:");
+            dialog.showAndWait().ifPresent(text -> {
+                try {
+                    FrameRing ring = new FrameRing(FrameRing.DEFAULT_CAPACITY);
+                    startLive(LiveSource.listen(Integer.parseInt(text.trim()), ring), ring);
+                } catch (NumberFormatException ex) {
+                    showError("Invalid port: " + text);
+                } catch (IOException ex) {
+                    showError("Could not listen on port " + text + ": " + ex.getMessage());
+                }
+            });
+        });
+        stopLiveItem.setOnAction(e -> stopLive());
+
+        perfHudItem = new CheckMenuItem("Performance HUD (F3)");
+        MenuItem recordItem = new MenuItem("Start JFR Recording");
+        MenuItem dumpItem = new MenuItem("Dump JFR to File...");
+        MenuButton perfButton = new MenuButton("Perf", null, perfHudItem, recordItem, dumpItem);
+        MenuButton heatmapButton = createHeatmapMenu(primaryStage);
+        MenuButton eventsButton = createEventsMenu();
+
+        MenuItem compareItem = new MenuItem("Compare with Reference...");
+        MenuItem stopCompareItem = new MenuItem("Stop Comparing");
+        MenuButton compareButton = new MenuButton("Compare", null, compareItem, stopCompareItem);
+        compareItem.setOnAction(e -> {
+            if (replayData == null || isLoading() || replayData == liveReplay) {
+                showError("Load a complete replay first, then choose the reference run to compare it with");
+                return;
+            }
+            FileChooser fileChooser = new FileChooser();
+            fileChooser.setTitle("Reference Run");
+            fileChooser.getExtensionFilters().add(
+                    new FileChooser.ExtensionFilter("Replay Files", "*.replay", "*" + BinaryReplayWriter.EXTENSION)
+            );
+            File selectedFile = fileChooser.showOpenDialog(primaryStage);
+            if (selectedFile != null) {
+                compareWith(selectedFile);
+            }
+        });
+        stopCompareItem.setOnAction(e -> {
+            stopComparing();
+            updateMatchInfoDisplay();
+            seekToTime(playbackTimeMs);
+        });
+        perfHudItem.selectedProperty().addListener((obs, oldVal, newVal) -> perfHud.setShowing(newVal));
+        recordItem.setOnAction(e -> {
+            try {
+                if (PerfEvents.isRecording()) {
+                    PerfEvents.stopRecording();
+                    recordItem.setText("Start JFR Recording");
+                } else {
+                    PerfEvents.startRecording();
+                    recordItem.setText("Stop JFR Recording");
+                }
+            } catch (IOException | ParseException ex) {
+                showError("Could not start flight recording: " + ex.getMessage());
+            }
+        });
+        dumpItem.setOnAction(e -> {
+            FileChooser fileChooser = new FileChooser();
+            fileChooser.setTitle("Dump Flight Recording");
+            fileChooser.setInitialFileName("replay-viewer.jfr");
+            fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Flight Recordings", "*.jfr"));
+            File selectedFile = fileChooser.showSaveDialog(primaryStage);
+            if (selectedFile == null) return;
+            try {
+                PerfEvents.dump(selectedFile);
+                setStatus("Wrote flight recording to " + selectedFile.getName());
+            } catch (IOException ex) {
+                showError("Could not dump flight recording: " + ex.getMessage());
+            }
+        });
+
         creditsButton.setOnAction(e -> {
             Alert alert = new Alert(Alert.AlertType.INFORMATION);
             alert.setTitle("Credits");
@@ -402,157 +655,786 @@ public class ReplayViewer extends Application {
             FileChooser fileChooser = new FileChooser();
             fileChooser.setTitle("Open Replay File");
             fileChooser.getExtensionFilters().add(
-                    new FileChooser.ExtensionFilter("Replay Files", "*.replay")
+                    new FileChooser.ExtensionFilter("Replay Files", "*.replay", "*" + BinaryReplayWriter.EXTENSION,
+                            "*" + ReplayArchiveWriter.EXTENSION)
             );
             File selectedFile = fileChooser.showOpenDialog(primaryStage);
 
             if (selectedFile != null) {
                 loadReplayFile(selectedFile);
-                isPlaying = false;
-                animationTimer.stop();
-                currentFrameIndex = 0;
-                updateDisplay();
             }
         });
+        overlayButton.setOnAction(e -> {
+            FileChooser fileChooser = new FileChooser();
+            fileChooser.setTitle("Overlay Replay Files");
+            fileChooser.getExtensionFilters().add(
+                    new FileChooser.ExtensionFilter("Replay Files", "*.replay", "*" + BinaryReplayWriter.EXTENSION)
+            );
+            List<File> selectedFiles = fileChooser.showOpenMultipleDialog(primaryStage);
+
+            if (selectedFiles != null && !selectedFiles.isEmpty()) {
+                loadOverlays(selectedFiles);
+            }
+        });
+        libraryButton.setOnAction(e -> showLibrary(primaryStage));
+        clearOverlaysButton.setOnAction(e -> {
+            if (replayData == null) return;
+            stopComparing();
+            tracks.subList(1, tracks.size()).clear();
+            refreshFieldHeatmap();
+            updateMatchInfoDisplay();
+            seekToTime(playbackTimeMs);
+        });
 
-        menuBar.getChildren().addAll(loadButton, creditsButton);
+        loadProgressBar = new ProgressBar(0);
+        loadProgressBar.setPrefWidth(150);
+        loadProgressBar.setVisible(false);
+        loadStatusLabel = new Label();
+        loadStatusLabel.setStyle("-fx-text-fill: #eee;");
+
+        menuBar.getChildren().addAll(loadStatusLabel, loadProgressBar, loadButton, libraryButton, overlayButton,
+                clearOverlaysButton, compareButton, liveButton, heatmapButton, eventsButton, perfButton, creditsButton);
         return menuBar;
     }
 
-    private void loadReplayFile(File file) {
-        try {
-            // Create Gson instance for JSON parsing
-            Gson gson = new GsonBuilder().create();
+    /**
+     * Which events are marked on the timeline: the built-in detectors, each on
+     * or off, and custom keys to watch for changes or for crossing a threshold.
+     */
+    private MenuButton createEventsMenu() {
+        addEventDetector("Stops", EventDetector.Stop::new);
+        addEventDetector("Sharp turns", EventDetector.SharpTurn::new);
+        addEventDetector("Speed drops (collisions)", EventDetector.SpeedDrop::new);
+        addEventDetector("Timestamp gaps", EventDetector.TimeGap::new);
+
+        MenuItem watchItem = new MenuItem("Watch Key...");
+        MenuItem clearItem = new MenuItem("Stop Watching Keys");
+        watchItem.setOnAction(e -> {
+            if (replayData == null || replayData.keyCount() == 0) {
+                showError("Load a replay with custom data first");
+                return;
+            }
+            List<String> choices = new ArrayList<>();
+            for (int key = 0; key < replayData.keyCount(); key++) {
+                choices.add(replayData.column(key).key);
+            }
+            ChoiceDialog<String> dialog = new ChoiceDialog<>(choices.get(0), choices);
+            dialog.setTitle("Watch Key");
+            dialog.setHeaderText("Mark every change of a state or flag, or a number crossing a threshold");
+            dialog.setContentText("Key:");
+            dialog.showAndWait().ifPresent(key -> {
+                double threshold = Double.NaN;
+                if (replayData.column(replayData.keyIndex(key)).kind() == CustomColumn.Kind.NUMERIC) {
+                    TextInputDialog thresholdDialog = new TextInputDialog();
+                    thresholdDialog.setTitle("Watch Key");
+                    thresholdDialog.setHeaderText("Mark where " + key + " crosses a value; leave empty for every change");
+                    thresholdDialog.setContentText("Threshold:");
+                    String text = thresholdDialog.showAndWait().orElse(null);
+                    if (text == null) return;
+                    if (!text.trim().isEmpty()) {
+                        try {
+                            threshold = Double.parseDouble(text.trim());
+                        } catch (NumberFormatException ex) {
+                            showError("Invalid threshold: " + text);
+                            return;
+                        }
+                    }
+                }
+                watchedKeys.put(key, threshold);
+                eventStrip.restart();
+            });
+        });
+        clearItem.setOnAction(e -> {
+            if (watchedKeys.isEmpty()) return;
+            watchedKeys.clear();
+            eventStrip.restart();
+        });
 
-            // Read the file content
-            try (FileReader reader = new FileReader(file)) {
-                // Parse JSON into ReplayData object
-                replayData = gson.fromJson(reader, ReplayData.class);
+        MenuButton button = new MenuButton("Events");
+        button.getItems().addAll(eventDetectorItems);
+        button.getItems().addAll(new SeparatorMenuItem(), watchItem, clearItem);
+        return button;
+    }
 
-                if (replayData == null || replayData.frames == null || replayData.frames.isEmpty()) {
-                    throw new JsonSyntaxException("Invalid replay file format or empty data");
+    private void addEventDetector(String name, Supplier<EventDetector> factory) {
+        CheckMenuItem item = new CheckMenuItem(name);
+        item.setSelected(true);
+        item.setOnAction(e -> eventStrip.restart());
+        eventDetectorItems.add(item);
+        eventDetectorFactories.add(factory);
+    }
+
+    /** A fresh detector for each event kind switched on in the Events menu. */
+    private List<EventDetector> createEventDetectors() {
+        List<EventDetector> detectors = new ArrayList<>();
+        for (int i = 0; i < eventDetectorItems.size(); i++) {
+            if (eventDetectorItems.get(i).isSelected()) detectors.add(eventDetectorFactories.get(i).get());
+        }
+        watchedKeys.forEach((key, threshold) -> detectors.add(new EventDetector.KeyChange(key, threshold)));
+        return detectors;
+    }
+
+    /** Seeks to the next or previous detected event and names it in the status bar. */
+    private void jumpToEvent(boolean forward) {
+        EventIndex.Snapshot events = eventStrip.events();
+        int i = forward ? events.after(playbackTimeMs) : events.before(playbackTimeMs);
+        if (i < 0) {
+            setStatus(events.isEmpty() ? "No events found" : forward ? "No later events" : "No earlier events");
+            return;
+        }
+        seekToTime(events.timeMs[i]);
+        setStatus(String.format("Event %d of %d: %s", i + 1, events.count, events.label[i]));
+    }
+
+    /**
+     * Heatmap of the replays on the field, or of a set of files that grows as more
+     * are added, colored by time spent or by a custom key.
+     */
+    private MenuButton createHeatmapMenu(Stage primaryStage) {
+        MenuItem fieldItem = new MenuItem("Replays on Field");
+        MenuItem folderItem = new MenuItem("Folder...");
+        MenuItem addItem = new MenuItem("Add Replays...");
+        MenuItem keyItem = new MenuItem("Color by Key...");
+        MenuItem hideItem = new MenuItem("Hide Heatmap");
+        fieldItem.setOnAction(e -> {
+            heatmapFiles.clear();
+            heatmapShown = true;
+            rebuildHeatmap();
+        });
+        folderItem.setOnAction(e -> {
+            DirectoryChooser chooser = new DirectoryChooser();
+            chooser.setTitle("Heatmap of Every Replay in Folder");
+            File folder = chooser.showDialog(primaryStage);
+            if (folder == null) return;
+            try {
+                heatmapFiles.clear();
+                heatmapFiles.addAll(ReplayAnalyzer.findReplays(folder));
+                heatmapShown = true;
+                rebuildHeatmap();
+            } catch (IOException ex) {
+                showError("Could not list " + folder + ": " + ex.getMessage());
+            }
+        });
+        addItem.setOnAction(e -> {
+            FileChooser fileChooser = new FileChooser();
+            fileChooser.setTitle("Add Replays to Heatmap");
+            fileChooser.getExtensionFilters().add(
+                    new FileChooser.ExtensionFilter("Replay Files", "*.replay", "*" + BinaryReplayWriter.EXTENSION)
+            );
+            List<File> selectedFiles = fileChooser.showOpenMultipleDialog(primaryStage);
+            if (selectedFiles == null) return;
+            for (File file : selectedFiles) {
+                if (!heatmapFiles.contains(file)) heatmapFiles.add(file);
+            }
+            heatmapShown = true;
+            rebuildHeatmap();
+        });
+        keyItem.setOnAction(e -> {
+            List<String> choices = new ArrayList<>();
+            choices.add(HEATMAP_TIME_SPENT);
+            if (replayData != null) {
+                for (int key = 0; key < replayData.keyCount(); key++) {
+                    CustomColumn column = replayData.column(key);
+                    if (column.kind() != CustomColumn.Kind.TEXT) choices.add(column.key);
                 }
+            }
+            ChoiceDialog<String> dialog = new ChoiceDialog<>(heatmapKey != null ? heatmapKey : HEATMAP_TIME_SPENT, choices);
+            dialog.setTitle("Heatmap");
+            dialog.setHeaderText("Color the heatmap by time spent, or by where a key is high");
+            dialog.setContentText("Key:");
+            dialog.showAndWait().ifPresent(choice -> {
+                heatmapKey = HEATMAP_TIME_SPENT.equals(choice) ? null : choice;
+                heatmapShown = true;
+                rebuildHeatmap();
+            });
+        });
+        hideItem.setOnAction(e -> {
+            heatmapShown = false;
+            heatmapGeneration++;
+            fieldView.setHeatmap(null);
+        });
+        return new MenuButton("Heatmap", null, fieldItem, folderItem, addItem, keyItem, hideItem);
+    }
+
+    /**
+     * Loads a reference run and time-aligns it with the loaded replay in the
+     * background, then draws it on the field following the loaded replay's clock
+     * and shows the error between them along the timeline.
+     */
+    private void compareWith(File file) {
+        Replay run = replayData;
+        Task<RunAlignment> task = new Task<RunAlignment>() {
+            @Override
+            protected RunAlignment call() throws IOException {
+                return RunAlignment.align(run, Replay.open(file));
+            }
+        };
+        long start = System.nanoTime();
+        setStatus("Aligning with " + file.getName() + "...");
+        task.setOnSucceeded(e -> {
+            if (replayData != run) return;
+            RunAlignment alignment = task.getValue();
+            stopComparing();
+            tracks.add(new ReplayTrack(alignment, ReplayTrack.PALETTE[tracks.size() % ReplayTrack.PALETTE.length]));
+            deviationChart.setComparison(alignment);
+            deviationPane.setVisible(true);
+            deviationPane.setManaged(true);
+            deviationPane.setExpanded(true);
+            setStatus(String.format("Aligned %s in %.2f s", file.getName(), (System.nanoTime() - start) / 1e9));
+            updateMatchInfoDisplay();
+            seekToTime(playbackTimeMs);
+        });
+        task.setOnFailed(e -> {
+            if (replayData != run) return;
+            setStatus("");
+            showError("Could not compare with " + file.getName() + ": " + task.getException().getMessage());
+        });
+
+        Thread thread = new Thread(task, "run-aligner");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void stopComparing() {
+        tracks.removeIf(track -> track.alignment != null);
+        deviationChart.setComparison(null);
+        deviationPane.setVisible(false);
+        deviationPane.setManaged(false);
+    }
+
+    /** Rebuilds a heatmap of the replays on the field after they changed. */
+    private void refreshFieldHeatmap() {
+        if (heatmapFiles.isEmpty()) rebuildHeatmap();
+    }
+
+    /** Recomputes the heatmap off the FX thread; a rebuild started later replaces this one. */
+    private void rebuildHeatmap() {
+        if (!heatmapShown) return;
+        int generation = ++heatmapGeneration;
+        List<File> files = new ArrayList<>(heatmapFiles);
+        List<Replay> onField = new ArrayList<>();
+        for (ReplayTrack track : tracks) {
+            onField.add(track.replay);
+        }
+        String key = heatmapKey;
+
+        Task<OccupancyGrid> task = new Task<OccupancyGrid>() {
+            @Override
+            protected OccupancyGrid call() throws InterruptedException {
+                if (!files.isEmpty()) {
+                    return heatmap.build(files, key, Runtime.getRuntime().availableProcessors());
+                }
+                OccupancyGrid grid = new OccupancyGrid(key);
+                for (Replay replay : onField) {
+                    grid.merge(OccupancyGrid.of(replay, key));
+                }
+                return grid;
+            }
+        };
+        long start = System.nanoTime();
+        setStatus("Building heatmap...");
+        task.setOnSucceeded(e -> {
+            if (generation != heatmapGeneration) return;
+            OccupancyGrid grid = task.getValue();
+            fieldView.setHeatmap(Heatmap.render(grid));
+            setStatus(String.format("Heatmap: %d replays, %.1f min on field (%.2f s)", grid.replays,
+                    grid.totalSeconds() / 60, (System.nanoTime() - start) / 1e9));
+        });
+        task.setOnFailed(e -> {
+            if (generation != heatmapGeneration) return;
+            setStatus("");
+            showError("Could not build heatmap: " + task.getException().getMessage());
+        });
+
+        Thread thread = new Thread(task, "heatmap-builder");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void showLibrary(Stage owner) {
+        if (libraryStage == null) {
+            libraryBrowser = new LibraryBrowser(libraryIndex(), this::loadReplayFile);
+            libraryStage = new Stage();
+            libraryStage.initOwner(owner);
+            libraryStage.setTitle("Replay Library");
+            libraryStage.setScene(new Scene(libraryBrowser, 900, 600, Color.web("#222222")));
+        }
+        libraryStage.show();
+        libraryStage.toFront();
+    }
+
+    private LibraryIndex libraryIndex() {
+        if (libraryIndex == null) {
+            libraryIndex = LibraryIndex.load(LibraryIndex.DEFAULT_FILE);
+        }
+        return libraryIndex;
+    }
+
+    /** Caches a completely loaded replay's exact frame count, whether or not the library is open. */
+    private void recordInLibrary(File file, Replay replay) {
+        LibraryIndex index = libraryIndex();
+        LibraryIndex.Entry entry = index.record(file, replay);
+        if (libraryBrowser != null) {
+            libraryBrowser.showRecorded(entry);
+        }
 
-                // Display match info
-                System.out.println("Loaded match: " + replayData.match);
-                System.out.println("Team: " + replayData.team);
-                System.out.println("Date: " + new java.util.Date(replayData.date));
-                System.out.println("Frame count: " + replayData.frames.size());
+        Thread thread = new Thread(() -> {
+            try {
+                index.save();
+            } catch (IOException e) {
+                System.err.println("Could not save library index: " + e.getMessage());
+            }
+        }, "library-save");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void loadReplayFile(File file) {
+        stopLive();
+        cancelLoad();
+
+        if (ReplayArchive.isArchive(file)) {
+            loadFromArchive(file);
+            return;
+        }
+
+        if (MappedReplay.isBinaryReplay(file)) {
+            // Binary replays open in constant time; frames are paged in as the trajectory reads them
+            showInBackground(file.getPath(), file.length(), file.getName(), "Opening " + file.getName() + "...",
+                    () -> MappedReplay.open(file));
+            return;
+        }
+
+        // Parse on a background thread; frames are handed to the FX thread in batches
+        ReplayLoadTask task = new ReplayLoadTask(file);
+        activeLoader = task.loader;
+
+        loadProgressBar.progressProperty().bind(task.progressProperty());
+        loadStatusLabel.textProperty().bind(task.messageProperty());
+        loadProgressBar.setVisible(true);
+
+        task.setOnSucceeded(e -> {
+            if (activeLoader != task.loader) return;
+            finishLoad();
+            task.replay.trimToSize();
+            task.refresh();
+            PerfEvents.load(file, task.replay.frameCount(), System.nanoTime() - task.startNs);
+            telemetryChart.refresh();
+            queryBar.refresh();
+            filmstrip.refresh();
+            eventStrip.refresh();
+            refreshFieldHeatmap();
+            fieldView.invalidateTrails();
+            updateTrailColorKeys();
+
+            if (task.replay.isEmpty()) {
+                showError("Invalid JSON format: Invalid replay file format or empty data");
+                return;
+            }
+
+            printMatchInfo();
+            perfStats.recordReplayMemory(task.replay.memoryBytes());
+            recordInLibrary(file, task.replay);
 
-                // Update UI with loaded data
-                timelineSlider.setValue(0);
-                updateMatchInfoDisplay();
+            updateMatchInfoDisplay();
+            seekToTime(playbackTimeMs);
+        });
+        task.setOnFailed(e -> {
+            if (activeLoader != task.loader) return;
+            finishLoad();
+
+            Throwable error = task.getException();
+            if (error instanceof JsonSyntaxException) {
+                System.err.println("Error parsing JSON: " + error.getMessage());
+                showError("Invalid JSON format: " + error.getMessage());
+            } else if (error instanceof IOException) {
+                System.err.println("Error reading file: " + error.getMessage());
+                showError("Could not read file: " + error.getMessage());
+            } else {
+                System.err.println("Error loading replay file: " + error.getMessage());
+                showError("Error: " + error.getMessage());
             }
-        } catch (JsonSyntaxException e) {
-            System.err.println("Error parsing JSON: " + e.getMessage());
-            showError("Invalid JSON format: " + e.getMessage());
+        });
+
+        Thread thread = new Thread(task, "replay-loader");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /** Asks which match of a season archive to show, then decodes just that one. */
+    private void loadFromArchive(File file) {
+        List<ReplayArchive.Entry> entries;
+        try (ReplayArchive archive = ReplayArchive.open(file)) {
+            entries = archive.entries();
         } catch (IOException e) {
             System.err.println("Error reading file: " + e.getMessage());
-            showError("Could not read file: " + e.getMessage());
-        } catch (Exception e) {
-            System.err.println("Error loading replay file: " + e.getMessage());
-            showError("Error: " + e.getMessage());
+            showError("Could not read archive: " + e.getMessage());
+            return;
+        }
+        if (entries.isEmpty()) {
+            showError(file.getName() + " holds no matches");
+            return;
         }
+
+        ReplayArchive.Entry chosen = entries.get(0);
+        if (entries.size() > 1) {
+            ChoiceDialog<ReplayArchive.Entry> dialog = new ChoiceDialog<>(entries.get(0), entries);
+            dialog.setTitle("Open from Archive");
+            dialog.setHeaderText(file.getName() + " holds " + entries.size() + " matches");
+            dialog.setContentText("Match:");
+            chosen = dialog.showAndWait().orElse(null);
+            if (chosen == null) return;
+        }
+
+        ReplayArchive.Entry entry = chosen;
+        // Only the entry's blocks are read, so its load rate counts just those bytes
+        showInBackground(file.getPath() + "!" + entry.name, entry.storedBytes(), entry.name,
+                "Unpacking " + entry.name + "...", () -> {
+            try (ReplayArchive archive = ReplayArchive.open(file)) {
+                return archive.read(entry);
+            }
+        });
     }
 
-    private void showError(String message) {
-        // In a real application, show this in a dialog
-        System.err.println(message);
+    /**
+     * Opens a replay that arrives whole on a background thread, builds its
+     * trajectory there too, then shows it unless another load has started since.
+     * {@code source} and {@code bytes} describe what is read, for the load event.
+     */
+    private void showInBackground(String source, long bytes, String name, String message, Callable<Replay> open) {
+        Task<Trajectory> task = new Task<Trajectory>() {
+            @Override
+            protected Trajectory call() throws Exception {
+                updateMessage(message);
+                return Trajectory.build(open.call());
+            }
+        };
+        long openStart = System.nanoTime();
+        activeOpener = task;
+        loadProgressBar.progressProperty().bind(task.progressProperty());
+        loadStatusLabel.textProperty().bind(task.messageProperty());
+        loadProgressBar.setVisible(true);
+
+        task.setOnSucceeded(e -> {
+            if (activeOpener != task) return;
+            finishLoad();
+            Trajectory trajectory = task.getValue();
+            Replay replay = trajectory.replay();
+            PerfEvents.load(source, bytes, replay.frameCount(), System.nanoTime() - openStart);
+            if (replay.isEmpty()) {
+                showError(name + " has no frames");
+                return;
+            }
+            showReplay(replay, trajectory);
+            printMatchInfo();
+        });
+        task.setOnFailed(e -> {
+            if (activeOpener != task) return;
+            finishLoad();
+            System.err.println("Error reading file: " + task.getException().getMessage());
+            showError("Could not read " + name + ": " + task.getException().getMessage());
+        });
+
+        Thread thread = new Thread(task, "replay-opener");
+        thread.setDaemon(true);
+        thread.start();
     }
 
-    private void updateMatchInfoDisplay() {
-        if (replayData == null) return;
+    /**
+     * Parses several replays in parallel and adds them as overlays on the shared
+     * timeline. With nothing loaded yet, the first file becomes the main replay.
+     */
+    private void loadOverlays(List<File> files) {
+        Task<List<Trajectory>> task = new Task<List<Trajectory>>() {
+            @Override
+            protected List<Trajectory> call() {
+                AtomicInteger done = new AtomicInteger();
+                updateMessage("Loading " + files.size() + " replays...");
+                return files.parallelStream().map(file -> {
+                    try {
+                        Trajectory trajectory = Trajectory.build(Replay.open(file));
+                        updateProgress(done.incrementAndGet(), files.size());
+                        return trajectory;
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(file.getName() + ": " + e.getMessage(), e);
+                    }
+                }).collect(Collectors.toList());
+            }
+        };
 
-        // Update match info in the control panel
-        customDataPanel.getChildren().clear();
+        boolean showProgress = !isLoading();
+        if (showProgress) {
+            loadProgressBar.progressProperty().bind(task.progressProperty());
+            loadStatusLabel.textProperty().bind(task.messageProperty());
+            loadProgressBar.setVisible(true);
+        }
 
-        Label teamLabel = new Label("Team: " + replayData.team);
-        Label matchLabel = new Label("Match: " + replayData.match);
-        Label dateLabel = new Label("Date: " + new java.util.Date(replayData.date));
-        Label framesLabel = new Label("Total Frames: " + replayData.frames.size());
-        Label durationLabel = new Label(String.format("Match Duration: %.1f seconds",
-                replayData.frames.get(replayData.frames.size()-1).timeMs / 1000.0));
+        task.setOnSucceeded(e -> {
+            if (showProgress) finishLoad();
 
-        teamLabel.setStyle("-fx-text-fill: #eee;");
-        matchLabel.setStyle("-fx-text-fill: #eee;");
-        dateLabel.setStyle("-fx-text-fill: #eee;");
-        framesLabel.setStyle("-fx-text-fill: #eee;");
-        durationLabel.setStyle("-fx-text-fill: #eee;");
+            List<Trajectory> trajectories = task.getValue();
+            int first = 0;
+            if (replayData == null) {
+                showReplay(trajectories.get(0).replay(), trajectories.get(0));
+                first = 1;
+            }
+            for (int i = first; i < trajectories.size(); i++) {
+                Trajectory trajectory = trajectories.get(i);
+                if (trajectory.replay().isEmpty()) continue;
+                tracks.add(new ReplayTrack(trajectory.replay(),
+                        ReplayTrack.PALETTE[tracks.size() % ReplayTrack.PALETTE.length], trajectory));
+            }
+            refreshFieldHeatmap();
+            updateMatchInfoDisplay();
+            seekToTime(playbackTimeMs);
+        });
+        task.setOnFailed(e -> {
+            if (showProgress) finishLoad();
+            System.err.println("Error loading overlays: " + task.getException().getMessage());
+            showError("Error: " + task.getException().getMessage());
+        });
 
-        customDataPanel.getChildren().addAll(teamLabel, matchLabel, dateLabel, framesLabel, durationLabel);
+        Thread thread = new Thread(task, "overlay-loader");
+        thread.setDaemon(true);
+        thread.start();
     }
 
-    private void updateDisplay() {
-        if (replayData == null || replayData.frames.isEmpty()) return;
+    private void startLive(LiveSource source, FrameRing ring) {
+        stopLive();
+        cancelLoad();
+
+        liveRing = ring;
+        liveReplay = new ReplayData();
+        liveKeyCount = 0;
+        liveSource = source;
+        source.start();
+        setStatus(source.status());
+        animationTimer.start();
+    }
 
-        // Get current frame
-        FrameData frame = replayData.frames.get(currentFrameIndex);
+    private void stopLive() {
+        if (liveSource == null) return;
+        liveSource.stop();
+        // Keep whatever had already arrived
+        drainLive(System.nanoTime());
+        liveSource = null;
+        liveRing = null;
+        setStatus("");
+        if (!isPlaying) {
+            animationTimer.stop();
+        }
+    }
 
-        // Update time label
-        updateTimeDisplay(frame.timeMs);
+    /**
+     * Moves frames that arrived since the last pulse into the live replay. Runs on
+     * the FX thread, which is the replay's only writer while the session lasts.
+     */
+    private void drainLive(long now) {
+        liveRing.drainTo(liveReplay, LIVE_DRAIN_PER_PULSE);
+        if (liveReplay.frameCount() > LIVE_MAX_FRAMES) {
+            liveReplay.discardOldest(LIVE_MAX_FRAMES / 4);
+            // Frame indices moved, so cached trails and chart levels are stale
+            fieldView.invalidateTrails();
+            telemetryChart.refresh();
+        }
 
-        // Redraw field
-        drawEmptyField();
-        drawRobot(frame.x, frame.y, frame.heading);
+        if (replayData != liveReplay) {
+            if (liveReplay.isEmpty()) return;
+            // First frames are in: show them and follow the live edge
+            showReplay(liveReplay);
+            seekToTime(liveReplay.endTimeMs());
+            startPlayback();
+        } else if (!isPlaying) {
+            updateTimelineSlider();
+        }
 
-        // Update custom data display
-        updateCustomDataDisplay(frame);
+        if (now - lastLiveRefreshNs >= LIVE_REFRESH_INTERVAL_NS) {
+            lastLiveRefreshNs = now;
+            telemetryChart.refresh();
+            queryBar.refresh();
+            filmstrip.refresh();
+            eventStrip.refresh();
+            if (liveReplay.keyCount() != liveKeyCount) {
+                liveKeyCount = liveReplay.keyCount();
+                updateTrailColorKeys();
+            }
+            updateMatchInfoDisplay();
+            setStatus(String.format("Live: %s, %d frames", liveSource.status(), liveRing.published()));
+        }
     }
 
-    private void updateCustomDataDisplay(FrameData frame) {
-        if (frame == null || frame.customData == null) return;
+    private void setStatus(String text) {
+        // The label is bound while a file is loading
+        if (!loadStatusLabel.textProperty().isBound()) {
+            loadStatusLabel.setText(text);
+        }
+    }
 
-        // Update the custom data section of the control panel
-        VBox dataBox = new VBox(5);
-        dataBox.setStyle("-fx-padding: 5; -fx-border-color: #cccccc; -fx-border-radius: 5;");
+    /** Shows a replay still growing, whose trajectory is built from its first frames. */
+    private void showReplay(Replay replay) {
+        showReplay(replay, null);
+    }
 
-        Label frameDataTitle = new Label("Frame Data");
-        frameDataTitle.setStyle("-fx-font-weight: bold; -fx-text-fill: #eee;");
-        dataBox.getChildren().add(frameDataTitle);
+    private void showReplay(Replay replay, Trajectory trajectory) {
+        replayData = replay;
+        perfStats.recordReplayMemory(replay instanceof ReplayData ? ((ReplayData) replay).memoryBytes() : 0);
+        primaryTrack = new ReplayTrack(replay, ReplayTrack.PALETTE[0], trajectory);
+        tracks.clear();
+        tracks.add(primaryTrack);
+        stopComparing();
+        frameDataPanel.setReplay(replay);
+        telemetryChart.setReplay(replay);
+        queryBar.setReplay(replay);
+        filmstrip.setReplay(replay, primaryTrack.color);
+        eventStrip.setReplay(replay);
+        refreshFieldHeatmap();
+        pausePlayback();
+        currentFrameIndex = 0;
+        updateMatchInfoDisplay();
+        updateTrailColorKeys();
+        seekToTime(replay.startTimeMs());
+    }
+
+    private void printMatchInfo() {
+        // Display match info
+        System.out.println("Loaded match: " + replayData.match());
+        System.out.println("Team: " + replayData.team());
+        System.out.println("Date: " + new java.util.Date(replayData.date()));
+        System.out.println("Frame count: " + replayData.frameCount());
+    }
+
+    private boolean isLoading() {
+        return activeLoader != null || activeOpener != null;
+    }
 
-        // Add position data
-        dataBox.getChildren().add(new Label(String.format("X: %.2f", frame.x)));
-        dataBox.getChildren().add(new Label(String.format("Y: %.2f", frame.y)));
-        dataBox.getChildren().add(new Label(String.format("Heading: %.2f°", frame.heading)));
+    /** Stops the load in progress, if any; whatever it produces afterwards is dropped. */
+    private void cancelLoad() {
+        if (activeLoader != null) activeLoader.cancel();
+        if (activeOpener != null) activeOpener.cancel();
+        if (isLoading()) finishLoad();
+    }
 
-        // Add separator
-        Label customDataTitle = new Label("Custom Data");
-        customDataTitle.setStyle("-fx-font-weight: bold; -fx-padding: 5 0 0 0;-fx-text-fill: #eee;");
-        dataBox.getChildren().add(customDataTitle);
+    private void finishLoad() {
+        activeLoader = null;
+        activeOpener = null;
+        loadProgressBar.progressProperty().unbind();
+        loadStatusLabel.textProperty().unbind();
+        loadProgressBar.setVisible(false);
+    }
 
-        // Add all custom data entries
-        for (Map.Entry<String, Object> entry : frame.customData.entrySet()) {
-            dataBox.getChildren().add(new Label(entry.getKey() + ": " + entry.getValue()));
+    /**
+     * Runs a {@link ReplayLoader} and publishes its progress to the FX thread. Once
+     * the first batch of frames is readable the new replay replaces the current one,
+     * so playback can start while the rest of the file is still streaming in.
+     */
+    private class ReplayLoadTask extends Task<Integer> implements ReplayLoader.Listener {
+        final ReplayLoader loader;
+        final ReplayData replay = new ReplayData();
+        private final File file;
+        private final AtomicBoolean refreshScheduled = new AtomicBoolean();
+        volatile long startNs;
+
+        ReplayLoadTask(File file) {
+            this.file = file;
+            this.loader = new ReplayLoader(file, replay, this);
+            updateMessage("Loading " + file.getName() + "...");
         }
 
-        // Replace previous custom data display
-        if (customDataPanel.getChildren().size() > 5) {
-            customDataPanel.getChildren().set(customDataPanel.getChildren().size() - 1, dataBox);
-        } else {
-            customDataPanel.getChildren().add(dataBox);
+        @Override
+        protected Integer call() throws IOException {
+            startNs = System.nanoTime();
+            return loader.load();
         }
 
-        for (javafx.scene.Node node : dataBox.getChildren()) {
-            if (node instanceof Label) {
-                ((Label) node).setStyle("-fx-text-fill: #eee;");
+        @Override
+        protected void cancelled() {
+            loader.cancel();
+        }
+
+        @Override
+        public void onHeader(String team, String match, long date) {
+            Platform.runLater(() -> {
+                if (replayData == replay) {
+                    updateMatchInfoDisplay();
+                    seekToTime(playbackTimeMs);
+                }
+            });
+        }
+
+        @Override
+        public void onFrames(int frameCount) {
+            // Coalesce batches so a fast parser cannot flood the FX event queue
+            if (refreshScheduled.compareAndSet(false, true)) {
+                Platform.runLater(this::refresh);
+            }
+        }
+
+        @Override
+        public void onProgress(long bytesRead, long totalBytes, double bytesPerSecond) {
+            updateProgress(bytesRead, totalBytes);
+            double seconds = Math.max(System.nanoTime() - startNs, 1) / 1e9;
+            perfStats.recordLoadRate(bytesPerSecond, replay.frameCount() / seconds);
+            updateMessage(String.format("Loading %s: %.0f%% (%.1f MB/s)", file.getName(),
+                    totalBytes > 0 ? 100.0 * bytesRead / totalBytes : 0, bytesPerSecond / (1024 * 1024)));
+        }
+
+        void refresh() {
+            refreshScheduled.set(false);
+            if (loader.isCancelled()) return;
+
+            if (replayData != replay && !replay.isEmpty()) {
+                // First frames are in: switch over to the new replay
+                showReplay(replay);
+            } else if (replayData == replay) {
+                // Let the timeline reach the frames that just arrived, and look for events in them
+                updateTimelineSlider();
+                eventStrip.refresh();
             }
         }
     }
 
-    // Data classes to hold replay information
-    private static class ReplayData {
-        String team;
-        String match;
-        long date;
-        List<FrameData> frames = new ArrayList<>();
+    private void showError(String message) {
+        // In a real application, show this in a dialog
+        System.err.println(message);
     }
 
-    private static class FrameData {
-        long timeMs;
-        double x;
-        double y;
-        double heading;
-        Map<String, Object> customData = new HashMap<>();
+    private void updateMatchInfoDisplay() {
+        if (replayData == null) return;
+
+        // Update match info in the control panel
+        matchInfoBox.getChildren().clear();
+
+        Label teamLabel = new Label("Team: " + replayData.team());
+        Label matchLabel = new Label("Match: " + replayData.match());
+        Label dateLabel = new Label("Date: " + new java.util.Date(replayData.date()));
+        Label framesLabel = new Label("Total Frames: " + replayData.frameCount());
+        Label durationLabel = new Label(String.format("Match Duration: %.1f seconds",
+                replayData.endTimeMs() / 1000.0));
+
+        teamLabel.setStyle("-fx-text-fill: #eee;");
+        matchLabel.setStyle("-fx-text-fill: #eee;");
+        dateLabel.setStyle("-fx-text-fill: #eee;");
+        framesLabel.setStyle("-fx-text-fill: #eee;");
+        durationLabel.setStyle("-fx-text-fill: #eee;");
+
+        matchInfoBox.getChildren().addAll(teamLabel, matchLabel, dateLabel, framesLabel, durationLabel);
+
+        // Legend for overlaid replays, in their robot colors
+        for (int i = 1; i < tracks.size(); i++) {
+            Replay overlay = tracks.get(i).replay;
+            Label overlayLabel = new Label(String.format("\u25A0 Team %s, Match %s (%.1f s)%s",
+                    overlay.team(), overlay.match(), tracks.get(i).durationMs() / 1000.0,
+                    tracks.get(i).alignment != null ? ", reference, aligned" : ""));
+            overlayLabel.setStyle(String.format("-fx-text-fill: #%06X;", tracks.get(i).color));
+            matchInfoBox.getChildren().add(overlayLabel);
+        }
+    }
+
+    private void updateCustomDataDisplay(int frame) {
+        if (replayData == null) return;
+
+        // Only refresh at the panel's own rate while playing
+        frameDataPanel.update(frame, !isPlaying);
     }
 
     public static void main(String[] args) {
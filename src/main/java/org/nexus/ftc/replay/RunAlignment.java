@@ -0,0 +1,261 @@
+package org.nexus.ftc.replay;
+
+import java.util.stream.IntStream;
+
+/**
+ * Time alignment of a run against a reference run of the same routine, by
+ * dynamic time warping over their x, y and heading. The run's clock is the
+ * shared timeline: {@link #referenceTimeAt} gives the moment of the reference
+ * that matches each moment of the run, so a run that does the same thing
+ * slightly earlier or later still lines up, and the pose error along that
+ * timeline shows where the paths really differ.
+ *
+ * <p>Both replays are resampled onto an even {@link #STEP_MS} grid from their
+ * {@link Trajectory}. The warping path is kept within {@link #BAND_MS} of the
+ * diagonal between the two runs' ends (a Sakoe-Chiba band), so the work is
+ * proportional to the run's length rather than its square. Costs are computed
+ * in parallel a chunk of rows at a time; the recurrence then sweeps each chunk
+ * with just two rows of totals. Backtracking uses two bits per cell of the band,
+ * under 4 MB for two 10-minute runs.
+ */
+final class RunAlignment {
+
+    static final double STEP_MS = 20;
+    static final double BAND_MS = 4000;
+    /** Heading error that costs as much as an inch of position error. */
+    static final double DEGREES_PER_INCH = 10;
+
+    private static final int CHUNK_ROWS = 256;
+    // Grid points per frame beyond which a run's timestamps are taken to be broken
+    private static final int MAX_STEPS_PER_FRAME = 64;
+    private static final byte DIAGONAL = 0;
+    private static final byte UP = 1;
+    private static final byte LEFT = 2;
+
+    final Replay run;
+    final Replay reference;
+    /** Built while resampling the reference, for drawing it without building it again. */
+    final Trajectory referenceTrajectory;
+    final long startMs;
+    final int size;
+
+    // Per run grid point: the matching reference time, and pose error against the reference there
+    private final double[] referenceMs;
+    final float[] positionError;
+    final float[] headingError;
+    private double meanPositionError;
+    private double maxPositionError;
+
+    private RunAlignment(Replay run, Trajectory referenceTrajectory, int size) {
+        this.run = run;
+        this.reference = referenceTrajectory.replay();
+        this.referenceTrajectory = referenceTrajectory;
+        this.startMs = run.startTimeMs();
+        this.size = size;
+        this.referenceMs = new double[size];
+        this.positionError = new float[size];
+        this.headingError = new float[size];
+    }
+
+    static RunAlignment align(Replay run, Replay reference) {
+        if (run.isEmpty() || reference.isEmpty()) {
+            throw new IllegalArgumentException("Both runs need frames to be compared");
+        }
+        Trajectory referenceTrajectory = Trajectory.build(reference);
+        float[] a = resample(Trajectory.build(run));
+        float[] b = resample(referenceTrajectory);
+        int n = a.length / 3;
+        int m = b.length / 3;
+        RunAlignment alignment = new RunAlignment(run, referenceTrajectory, n);
+        int[] match = warp(a, n, b, m);
+
+        double total = 0;
+        for (int i = 0; i < n; i++) {
+            alignment.referenceMs[i] = reference.startTimeMs() + match[i] * STEP_MS;
+            double dx = a[3 * i] - b[3 * match[i]];
+            double dy = a[3 * i + 1] - b[3 * match[i] + 1];
+            float error = (float) Math.sqrt(dx * dx + dy * dy);
+            alignment.positionError[i] = error;
+            alignment.headingError[i] = (float) Trajectory.shortestArc(b[3 * match[i] + 2], a[3 * i + 2]);
+            total += error;
+            alignment.maxPositionError = Math.max(alignment.maxPositionError, error);
+        }
+        alignment.meanPositionError = total / n;
+        return alignment;
+    }
+
+    /** Poses at every grid point as x, y, heading triples. */
+    private static float[] resample(Trajectory trajectory) {
+        Replay replay = trajectory.replay();
+        long start = replay.startTimeMs();
+        long steps = (long) ((replay.endTimeMs() - start) / STEP_MS) + 1;
+        // The grid spans the whole run, so one wild timestamp would otherwise ask for billions of points
+        if (steps < 1 || steps > (long) MAX_STEPS_PER_FRAME * replay.frameCount()) {
+            throw new IllegalArgumentException(String.format(
+                    "%s spans %.0f s with only %d frames; its timestamps have gaps too long to align",
+                    replay.match(), (replay.endTimeMs() - start) / 1000.0, replay.frameCount()));
+        }
+        int count = (int) steps;
+        float[] poses = new float[3 * count];
+        double[] pose = new double[3];
+        for (int i = 0; i < count; i++) {
+            trajectory.poseAt(start + i * STEP_MS, pose);
+            poses[3 * i] = (float) pose[0];
+            poses[3 * i + 1] = (float) pose[1];
+            poses[3 * i + 2] = (float) pose[2];
+        }
+        return poses;
+    }
+
+    /**
+     * Banded DTW of {@code a} (n poses) against {@code b} (m poses). Returns, for
+     * each i, the j the warping path matched it with (the middle one when the path
+     * stays on row i for several columns).
+     */
+    private static int[] warp(float[] a, int n, float[] b, int m) {
+        // The band follows the straight line from (0, 0) to (n - 1, m - 1), wide enough to stay connected
+        double slope = n > 1 ? (m - 1) / (double) (n - 1) : 0;
+        int half = (int) Math.max(BAND_MS / STEP_MS, Math.ceil(slope) + 1);
+        int width = 2 * half + 1;
+
+        byte[] moves = new byte[(int) (((long) n * width + 3) / 4)];
+        double[] previous = new double[width];
+        double[] current = new double[width];
+        float[] costs = new float[CHUNK_ROWS * width];
+
+        for (int chunk = 0; chunk < n; chunk += CHUNK_ROWS) {
+            int rows = Math.min(CHUNK_ROWS, n - chunk);
+            int first = chunk;
+            IntStream.range(0, rows).parallel().forEach(r -> fillCosts(a, b, m, first + r, slope, half, costs, r * width));
+
+            for (int r = 0; r < rows; r++) {
+                int i = first + r;
+                int lo = bandStart(i, slope, half);
+                int previousLo = i > 0 ? bandStart(i - 1, slope, half) : 0;
+                for (int k = 0; k < width; k++) {
+                    int j = lo + k;
+                    if (j < 0 || j >= m) {
+                        current[k] = Double.POSITIVE_INFINITY;
+                        continue;
+                    }
+                    double cost = costs[r * width + k];
+                    if (i == 0 && j == 0) {
+                        current[k] = cost;
+                        continue;
+                    }
+                    double best = Double.POSITIVE_INFINITY;
+                    byte move = DIAGONAL;
+                    if (i > 0) {
+                        int d = j - 1 - previousLo;
+                        if (d >= 0 && d < width && previous[d] < best) {
+                            best = previous[d];
+                        }
+                        int u = j - previousLo;
+                        if (u >= 0 && u < width && previous[u] < best) {
+                            best = previous[u];
+                            move = UP;
+                        }
+                    }
+                    if (k > 0 && current[k - 1] < best) {
+                        best = current[k - 1];
+                        move = LEFT;
+                    }
+                    current[k] = best + cost;
+                    setMove(moves, (long) i * width + k, move);
+                }
+                double[] swap = previous;
+                previous = current;
+                current = swap;
+            }
+        }
+
+        // Walk back from the end, noting the range of j the path covers on each row
+        int[] minJ = new int[n];
+        int[] maxJ = new int[n];
+        int i = n - 1;
+        int j = m - 1;
+        minJ[i] = j;
+        maxJ[i] = j;
+        while (i > 0 || j > 0) {
+            int k = j - bandStart(i, slope, half);
+            byte move = getMove(moves, (long) i * width + k);
+            if (move == UP || (move == DIAGONAL && i > 0)) {
+                i--;
+                if (move == DIAGONAL) j--;
+                minJ[i] = j;
+                maxJ[i] = j;
+            } else {
+                j--;
+                minJ[i] = j;
+            }
+        }
+        int[] match = new int[n];
+        for (int r = 0; r < n; r++) {
+            match[r] = (minJ[r] + maxJ[r]) >>> 1;
+        }
+        return match;
+    }
+
+    private static int bandStart(int i, double slope, int half) {
+        return (int) Math.round(i * slope) - half;
+    }
+
+    private static void fillCosts(float[] a, float[] b, int m, int i, double slope, int half, float[] costs, int offset) {
+        int lo = bandStart(i, slope, half);
+        float ax = a[3 * i];
+        float ay = a[3 * i + 1];
+        float ah = a[3 * i + 2];
+        for (int k = 0; k < 2 * half + 1; k++) {
+            int j = lo + k;
+            if (j < 0 || j >= m) continue;
+            float dx = ax - b[3 * j];
+            float dy = ay - b[3 * j + 1];
+            float dh = Math.abs(ah - b[3 * j + 2]);
+            if (dh > 180) dh = 360 - dh;
+            costs[offset + k] = (float) Math.sqrt(dx * dx + dy * dy) + dh / (float) DEGREES_PER_INCH;
+        }
+    }
+
+    private static void setMove(byte[] moves, long cell, byte move) {
+        int index = (int) (cell >>> 2);
+        int shift = (int) (cell & 3) * 2;
+        moves[index] = (byte) ((moves[index] & ~(3 << shift)) | (move << shift));
+    }
+
+    private static byte getMove(byte[] moves, long cell) {
+        return (byte) ((moves[(int) (cell >>> 2)] >>> ((int) (cell & 3) * 2)) & 3);
+    }
+
+    /** Grid index for a time on the run's clock, clamped to the run. */
+    private double gridPosition(double runMs) {
+        return Math.max(0, Math.min(size - 1, (runMs - startMs) / STEP_MS));
+    }
+
+    /** The reference's own time matching {@code runMs} on the run's clock. */
+    double referenceTimeAt(double runMs) {
+        double g = gridPosition(runMs);
+        int k = Math.min((int) g, size - 1);
+        if (k + 1 >= size) return referenceMs[k];
+        return referenceMs[k] + (g - k) * (referenceMs[k + 1] - referenceMs[k]);
+    }
+
+    float positionErrorAt(double runMs) {
+        return positionError[(int) Math.round(gridPosition(runMs))];
+    }
+
+    float headingErrorAt(double runMs) {
+        return headingError[(int) Math.round(gridPosition(runMs))];
+    }
+
+    double meanPositionError() {
+        return meanPositionError;
+    }
+
+    double maxPositionError() {
+        return maxPositionError;
+    }
+
+    long runEndMs() {
+        return startMs + (long) ((size - 1) * STEP_MS);
+    }
+}
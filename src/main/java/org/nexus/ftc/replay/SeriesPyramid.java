@@ -0,0 +1,111 @@
+package org.nexus.ftc.replay;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Level-of-detail summary of one numeric custom key. Level 0 holds the raw
+ * values as floats; each level above stores the min and max of pairs of buckets
+ * from the level below. The min/max of any frame range is then assembled from
+ * O(log n) buckets, so a chart can reduce a window of any size to one column per
+ * pixel without touching every sample in it.
+ *
+ * <p>Built once per key in O(n); immutable afterwards.
+ */
+final class SeriesPyramid {
+
+    final int key;
+    final int frameCount;
+
+    // values[i] for level 0, then min/max per level (index 0 unused)
+    private final float[] values;
+    private final List<float[]> mins = new ArrayList<>();
+    private final List<float[]> maxs = new ArrayList<>();
+
+    private SeriesPyramid(int key, float[] values) {
+        this.key = key;
+        this.frameCount = values.length;
+        this.values = values;
+        mins.add(null);
+        maxs.add(null);
+
+        float[] belowMin = values;
+        float[] belowMax = values;
+        while (belowMin.length > 1) {
+            int size = (belowMin.length + 1) / 2;
+            float[] min = new float[size];
+            float[] max = new float[size];
+            for (int i = 0; i < size; i++) {
+                int a = 2 * i;
+                int b = Math.min(a + 1, belowMin.length - 1);
+                min[i] = minIgnoringNaN(belowMin[a], belowMin[b]);
+                max[i] = maxIgnoringNaN(belowMax[a], belowMax[b]);
+            }
+            mins.add(min);
+            maxs.add(max);
+            belowMin = min;
+            belowMax = max;
+        }
+    }
+
+    /** Reads a key's values from the replay (NaN where a frame has none) and builds the levels. */
+    static SeriesPyramid build(Replay replay, int key) {
+        int count = replay.frameCount();
+        CustomColumn column = replay.column(key);
+        float[] values = new float[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = (float) column.number(i);
+        }
+        return new SeriesPyramid(key, values);
+    }
+
+    float value(int frame) {
+        return values[frame];
+    }
+
+    /**
+     * Min and max over frames {@code from..to} inclusive, written to {@code out[0]}
+     * and {@code out[1]}. Both are NaN if no frame in the range has a value.
+     */
+    void range(int from, int to, float[] out) {
+        float min = Float.NaN;
+        float max = Float.NaN;
+        int i = Math.max(0, from);
+        int end = Math.min(to, frameCount - 1);
+        while (i <= end) {
+            // Largest aligned bucket starting at i that fits in the range
+            int level = 0;
+            while (level + 1 < mins.size()
+                    && (i & ((1 << (level + 1)) - 1)) == 0
+                    && i + (1 << (level + 1)) - 1 <= end) {
+                level++;
+            }
+            float lo;
+            float hi;
+            if (level == 0) {
+                lo = values[i];
+                hi = lo;
+            } else {
+                lo = mins.get(level)[i >> level];
+                hi = maxs.get(level)[i >> level];
+            }
+            min = minIgnoringNaN(min, lo);
+            max = maxIgnoringNaN(max, hi);
+            i += 1 << level;
+        }
+        out[0] = min;
+        out[1] = max;
+    }
+
+    private static float minIgnoringNaN(float a, float b) {
+        if (Float.isNaN(a)) return b;
+        if (Float.isNaN(b)) return a;
+        return Math.min(a, b);
+    }
+
+    private static float maxIgnoringNaN(float a, float b) {
+        if (Float.isNaN(a)) return b;
+        if (Float.isNaN(b)) return a;
+        return Math.max(a, b);
+    }
+}
@@ -0,0 +1,215 @@
+package org.nexus.ftc.replay;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Random;
+
+// Gson's streaming writer produces the same JSON the recorder does
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * Generates replays that look like real matches, for benchmarks and for trying
+ * the viewer without robot logs. The robot drives between random waypoints with
+ * limited speed and acceleration, turns toward where it is going and pauses to
+ * score. Loop times jitter around the requested rate with an occasional stall.
+ * Custom keys cycle through motor powers, noisy currents, booleans and state
+ * names. The same seed always gives the same file.
+ *
+ * <pre>
+ * SyntheticReplay &lt;out.replay&gt; [--hz 50] [--seconds 150] [--keys 20] [--seed 1]
+ * </pre>
+ */
+final class SyntheticReplay {
+
+    static final double MAX_SPEED_INCHES_PER_SEC = 60;
+    static final double MAX_ACCEL_INCHES_PER_SEC2 = 80;
+    static final double MAX_TURN_DEG_PER_SEC = 180;
+
+    private static final String[] STATES = {"IDLE", "INTAKE", "TRANSFER", "SCORING", "PARKED"};
+
+    final double hz;
+    final double seconds;
+    final int keys;
+    final long seed;
+
+    SyntheticReplay(double hz, double seconds, int keys, long seed) {
+        this.hz = hz;
+        this.seconds = seconds;
+        this.keys = keys;
+        this.seed = seed;
+    }
+
+    /** Writes the replay as {@code .replay} JSON. */
+    void write(Writer out) throws IOException {
+        JsonWriter json = new JsonWriter(out);
+        json.beginObject();
+        json.name("team").value("3796");
+        json.name("match").value("Synthetic " + (long) hz + "Hz " + (long) seconds + "s");
+        json.name("date").value(1_700_000_000_000L + seed);
+        json.name("frames").beginArray();
+
+        Random random = new Random(seed);
+        Robot robot = new Robot(random);
+        double[] walk = new double[keys];
+        double periodMs = 1000.0 / hz;
+        double timeMs = 0;
+        int frame = 0;
+
+        while (timeMs <= seconds * 1000) {
+            json.beginObject();
+            json.name("timeMs").value((long) timeMs);
+            // Odometry noise of a few hundredths of an inch
+            json.name("x").value(robot.x + random.nextGaussian() * 0.02);
+            json.name("y").value(robot.y + random.nextGaussian() * 0.02);
+            json.name("heading").value(((robot.heading % 360) + 360) % 360);
+
+            json.name("customData").beginObject();
+            for (int k = 0; k < keys; k++) {
+                int motor = k / 4;
+                switch (k % 4) {
+                    case 0:
+                        walk[k] = Math.max(-1, Math.min(1, walk[k] + random.nextGaussian() * 0.02));
+                        json.name("motor" + motor + ".power").value(Math.round(walk[k] * 1000) / 1000.0);
+                        break;
+                    case 1:
+                        json.name("motor" + motor + ".currentAmps")
+                                .value(Math.round((1.5 + robot.speed / 20 + random.nextGaussian() * 0.3) * 100) / 100.0);
+                        break;
+                    case 2:
+                        json.name("sensor" + motor + ".triggered").value(robot.paused && (frame / 25 + k) % 3 == 0);
+                        break;
+                    default:
+                        json.name("subsystem" + motor + ".state").value(STATES[(robot.leg + k) % STATES.length]);
+                        break;
+                }
+            }
+            json.endObject();
+            json.endObject();
+
+            // Loop time jitters by 15%, and about one loop in a hundred stalls
+            double dtMs = periodMs * (0.85 + 0.3 * random.nextDouble());
+            if (random.nextInt(100) == 0) dtMs += 20 + random.nextInt(40);
+            robot.step(dtMs / 1000.0);
+            timeMs += dtMs;
+            frame++;
+        }
+
+        json.endArray();
+        json.endObject();
+        json.flush();
+    }
+
+    void write(File file) throws IOException {
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(file.toPath()),
+                StandardCharsets.UTF_8), 1 << 16)) {
+            write(out);
+        }
+    }
+
+    /** Drives between random waypoints with trapezoidal speed and a turn-rate limit. */
+    private static final class Robot {
+        private final Random random;
+        double x = 9;
+        double y = 9;
+        double heading;
+        double speed;
+        int leg;
+        boolean paused;
+
+        private double targetX;
+        private double targetY;
+        private double pauseLeft;
+
+        Robot(Random random) {
+            this.random = random;
+            nextWaypoint();
+        }
+
+        void step(double dt) {
+            if (paused) {
+                pauseLeft -= dt;
+                if (pauseLeft <= 0) {
+                    paused = false;
+                    nextWaypoint();
+                }
+                return;
+            }
+
+            double dx = targetX - x;
+            double dy = targetY - y;
+            double distance = Math.hypot(dx, dy);
+            if (distance < 0.5) {
+                speed = 0;
+                paused = true;
+                pauseLeft = 0.5 + 1.5 * random.nextDouble();
+                leg++;
+                return;
+            }
+
+            // Accelerate, cruise, and brake in time to stop at the waypoint
+            double brakingSpeed = Math.sqrt(2 * MAX_ACCEL_INCHES_PER_SEC2 * distance);
+            double wanted = Math.min(MAX_SPEED_INCHES_PER_SEC, brakingSpeed);
+            speed = Math.min(wanted, speed + MAX_ACCEL_INCHES_PER_SEC2 * dt);
+            double move = Math.min(distance, speed * dt);
+            x += dx / distance * move;
+            y += dy / distance * move;
+
+            double wantedHeading = Math.toDegrees(Math.atan2(dy, dx));
+            double turn = ((wantedHeading - heading) % 360 + 540) % 360 - 180;
+            double maxTurn = MAX_TURN_DEG_PER_SEC * dt;
+            heading += Math.max(-maxTurn, Math.min(maxTurn, turn));
+        }
+
+        private void nextWaypoint() {
+            // Stay a robot's half-width inside the perimeter
+            targetX = 9 + random.nextDouble() * 126;
+            targetY = 9 + random.nextDouble() * 126;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        String usage = "Usage: SyntheticReplay <out.replay> [--hz 50] [--seconds 150] [--keys 20] [--seed 1]";
+        File out = null;
+        double hz = 50;
+        double seconds = 150;
+        int keys = 20;
+        long seed = 1;
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--hz":
+                    hz = ReplayAnalyzer.numberOption(args, ++i, usage);
+                    break;
+                case "--seconds":
+                    seconds = ReplayAnalyzer.numberOption(args, ++i, usage);
+                    break;
+                case "--keys":
+                    keys = ReplayAnalyzer.intOption(args, ++i, usage);
+                    break;
+                case "--seed":
+                    String value = ReplayAnalyzer.optionValue(args, ++i, usage);
+                    try {
+                        seed = Long.parseLong(value);
+                    } catch (NumberFormatException e) {
+                        ReplayAnalyzer.exitWithUsage("--seed needs a whole number, not " + value, usage);
+                    }
+                    break;
+                default:
+                    out = new File(args[i]);
+                    break;
+            }
+        }
+        if (out == null || hz <= 0 || seconds < 0 || keys < 0) {
+            System.err.println(usage);
+            System.exit(2);
+        }
+
+        new SyntheticReplay(hz, seconds, keys, seed).write(out);
+        System.out.printf("Wrote %s (%d KB)%n", out, out.length() / 1024);
+    }
+}
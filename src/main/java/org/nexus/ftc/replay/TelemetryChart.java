@@ -0,0 +1,373 @@
+package org.nexus.ftc.replay;
+
+import javafx.application.Platform;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.control.ComboBox;
+import javafx.scene.control.Label;
+import javafx.scene.input.MouseButton;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Pane;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.VBox;
+import javafx.scene.paint.Color;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.DoubleConsumer;
+
+/**
+ * Plots one numeric custom key against match time. The visible window is reduced
+ * to one min/max column per pixel through the key's {@link SeriesPyramid}, so the
+ * cost of a redraw depends on the chart's width rather than the replay's length.
+ * The plot is cached on its own canvas and only redrawn when the key, window or
+ * size changes; the playhead lives on a canvas above it.
+ *
+ * <p>Scroll to zoom around the cursor, drag to pan, click to seek and
+ * double-click to show the whole match again.
+ */
+class TelemetryChart extends VBox {
+
+    private static final double MIN_SPAN_MS = 100;
+    private static final double CLICK_SLOP_PX = 3;
+    private static final Color SERIES_COLOR = Color.web("#4FC3F7");
+
+    // Pyramids are built off the FX thread; one at a time is plenty
+    private static final ExecutorService BUILDER = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "chart-builder");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final ComboBox<String> keySelector = new ComboBox<>();
+    private final ObservableList<String> keys = FXCollections.observableArrayList();
+    private final Pane plotPane = new Pane();
+    private final Canvas plotCanvas = new Canvas();
+    private final Canvas playheadCanvas = new Canvas();
+    private final DoubleConsumer onSeek;
+
+    private Replay replay;
+    private TimeIndex timeIndex;
+    private final Map<Integer, SeriesPyramid> pyramids = new HashMap<>();
+    private SeriesPyramid pyramid;
+    private int generation;
+
+    // Visible window in match time
+    private double viewStartMs;
+    private double viewEndMs;
+    private double playheadMs = Double.NaN;
+    private double playheadX = -1;
+
+    // One entry per pixel column, reused between redraws
+    private float[] columnMin = new float[0];
+    private float[] columnMax = new float[0];
+    private float[] columnFirst = new float[0];
+    private float[] columnLast = new float[0];
+    private final float[] range = new float[2];
+
+    private double pressX;
+    private double dragX;
+    private boolean dragged;
+
+    TelemetryChart(DoubleConsumer onSeek) {
+        super(5);
+        this.onSeek = onSeek;
+
+        Label title = new Label("Telemetry");
+        title.setStyle("-fx-font-weight: bold; -fx-text-fill: #eee;");
+        keySelector.setItems(keys);
+        keySelector.setPromptText("Numeric key");
+        keySelector.valueProperty().addListener((obs, oldKey, newKey) -> selectKey(newKey));
+        HBox header = new HBox(10, title, keySelector);
+
+        plotPane.getChildren().addAll(plotCanvas, playheadCanvas);
+        plotPane.setPrefHeight(160);
+        plotPane.setMinHeight(80);
+        plotCanvas.widthProperty().bind(plotPane.widthProperty());
+        plotCanvas.heightProperty().bind(plotPane.heightProperty());
+        playheadCanvas.widthProperty().bind(plotPane.widthProperty());
+        playheadCanvas.heightProperty().bind(plotPane.heightProperty());
+        plotCanvas.widthProperty().addListener(obs -> redraw());
+        plotCanvas.heightProperty().addListener(obs -> redraw());
+        VBox.setVgrow(plotPane, Priority.ALWAYS);
+
+        installMouseHandlers();
+        getChildren().addAll(header, plotPane);
+        redraw();
+    }
+
+    void setReplay(Replay replay) {
+        this.replay = replay;
+        this.timeIndex = new TimeIndex(replay);
+        generation++;
+        pyramids.clear();
+        pyramid = null;
+        viewStartMs = replay.startTimeMs();
+        viewEndMs = replay.endTimeMs();
+
+        String selected = keySelector.getValue();
+        keys.clear();
+        refresh();
+        if (selected != null && keys.contains(selected)) {
+            selectKey(selected);
+        } else {
+            keySelector.setValue(null);
+            redraw();
+        }
+    }
+
+    /**
+     * Picks up frames and keys that arrived since the replay was set. Cached
+     * pyramids that no longer cover every frame are rebuilt.
+     */
+    void refresh() {
+        if (replay == null) return;
+
+        for (int key = 0; key < replay.keyCount(); key++) {
+            CustomColumn column = replay.column(key);
+            if (column.kind() != CustomColumn.Kind.TEXT && !keys.contains(column.key)) {
+                keys.add(column.key);
+            }
+        }
+
+        // A window showing the whole match keeps doing so as the match grows
+        boolean wholeMatch = viewEndMs >= replay.endTimeMs() - 1 || viewEndMs <= viewStartMs;
+        if (wholeMatch) {
+            viewStartMs = replay.startTimeMs();
+            viewEndMs = replay.endTimeMs();
+        }
+
+        if (pyramid != null && pyramid.frameCount != replay.frameCount()) {
+            pyramids.clear();
+            build(pyramid.key);
+        } else {
+            redraw();
+        }
+    }
+
+    /** Moves the playhead, paging the window along if the playhead leaves it. */
+    void setPlayhead(double timeMs) {
+        playheadMs = timeMs;
+        if (replay != null && (timeMs < viewStartMs || timeMs > viewEndMs) && viewEndMs > viewStartMs) {
+            double span = viewEndMs - viewStartMs;
+            setView(timeMs - (timeMs < viewStartMs ? span : 0), span);
+            return;
+        }
+        drawPlayhead();
+    }
+
+    private void selectKey(String name) {
+        if (replay == null || name == null) {
+            pyramid = null;
+            redraw();
+            return;
+        }
+        if (!name.equals(keySelector.getValue())) {
+            keySelector.setValue(name);
+            return;
+        }
+        int key = replay.keyIndex(name);
+        SeriesPyramid cached = pyramids.get(key);
+        if (cached != null) {
+            pyramid = cached;
+            redraw();
+        } else {
+            build(key);
+        }
+    }
+
+    private void build(int key) {
+        Replay target = replay;
+        int buildGeneration = generation;
+        BUILDER.execute(() -> {
+            SeriesPyramid built = SeriesPyramid.build(target, key);
+            Platform.runLater(() -> {
+                if (buildGeneration != generation) return;
+                pyramids.put(key, built);
+                String name = keySelector.getValue();
+                if (name != null && replay.keyIndex(name) == key) {
+                    pyramid = built;
+                    redraw();
+                }
+            });
+        });
+    }
+
+    private void setView(double startMs, double spanMs) {
+        double first = replay.startTimeMs();
+        double last = Math.max(replay.endTimeMs(), first + MIN_SPAN_MS);
+        spanMs = Math.max(MIN_SPAN_MS, Math.min(spanMs, last - first));
+        viewStartMs = Math.max(first, Math.min(startMs, last - spanMs));
+        viewEndMs = viewStartMs + spanMs;
+        redraw();
+    }
+
+    private double toTime(double x) {
+        return viewStartMs + x * (viewEndMs - viewStartMs) / Math.max(1, plotCanvas.getWidth());
+    }
+
+    private void installMouseHandlers() {
+        plotPane.setOnScroll(e -> {
+            if (replay == null || e.getDeltaY() == 0) return;
+            double anchor = toTime(e.getX());
+            double factor = Math.pow(1.25, -e.getDeltaY() / 40);
+            double span = (viewEndMs - viewStartMs) * factor;
+            double ratio = e.getX() / Math.max(1, plotCanvas.getWidth());
+            setView(anchor - span * ratio, span);
+            e.consume();
+        });
+        plotPane.setOnMousePressed(e -> {
+            pressX = e.getX();
+            dragX = e.getX();
+            dragged = false;
+        });
+        plotPane.setOnMouseDragged(e -> {
+            if (replay == null) return;
+            if (Math.abs(e.getX() - pressX) > CLICK_SLOP_PX) dragged = true;
+            if (!dragged) return;
+            double msPerPixel = (viewEndMs - viewStartMs) / Math.max(1, plotCanvas.getWidth());
+            setView(viewStartMs - (e.getX() - dragX) * msPerPixel, viewEndMs - viewStartMs);
+            dragX = e.getX();
+        });
+        plotPane.setOnMouseClicked(e -> {
+            if (replay == null || dragged || e.getButton() != MouseButton.PRIMARY) return;
+            if (e.getClickCount() == 2) {
+                setView(replay.startTimeMs(), replay.endTimeMs() - replay.startTimeMs());
+            } else {
+                onSeek.accept(toTime(e.getX()));
+            }
+        });
+    }
+
+    private void redraw() {
+        GraphicsContext gc = plotCanvas.getGraphicsContext2D();
+        double width = plotCanvas.getWidth();
+        double height = plotCanvas.getHeight();
+
+        gc.setFill(Color.web("#1A1A1A"));
+        gc.fillRect(0, 0, width, height);
+        playheadCanvas.getGraphicsContext2D().clearRect(0, 0, width, height);
+        playheadX = -1;
+        gc.setStroke(Color.web("#333333"));
+        gc.setLineWidth(1);
+        for (int i = 1; i < 4; i++) {
+            double y = Math.floor(height * i / 4) + 0.5;
+            gc.strokeLine(0, y, width, y);
+        }
+
+        int columns = (int) width;
+        if (pyramid == null || columns <= 0 || viewEndMs <= viewStartMs) {
+            gc.setFill(Color.web("#888888"));
+            gc.fillText(replay == null ? "No replay loaded" : "Select a numeric key", 10, 20);
+            drawPlayhead();
+            return;
+        }
+
+        int frames = Math.min(pyramid.frameCount, replay.frameCount());
+        float low = Float.POSITIVE_INFINITY;
+        float high = Float.NEGATIVE_INFINITY;
+        reduceColumns(columns, frames);
+        for (int px = 0; px < columns; px++) {
+            if (Float.isNaN(columnMin[px])) continue;
+            low = Math.min(low, columnMin[px]);
+            high = Math.max(high, columnMax[px]);
+        }
+        if (low > high) {
+            gc.setFill(Color.web("#888888"));
+            gc.fillText("No values in view", 10, 20);
+            drawPlayhead();
+            return;
+        }
+        if (low == high) {
+            low -= 1;
+            high += 1;
+        }
+        double pad = (high - low) * 0.05;
+        double top = high + pad;
+        double yScale = (height - 1) / (top - (low - pad));
+
+        // One path through each column's first, min, max and last value
+        gc.setStroke(SERIES_COLOR);
+        gc.beginPath();
+        boolean started = false;
+        for (int px = 0; px < columns; px++) {
+            if (Float.isNaN(columnMin[px])) continue;
+            double x = px + 0.5;
+            float first = Float.isNaN(columnFirst[px]) ? columnMin[px] : columnFirst[px];
+            float last = Float.isNaN(columnLast[px]) ? columnMax[px] : columnLast[px];
+            if (started) {
+                gc.lineTo(x, (top - first) * yScale);
+            } else {
+                gc.moveTo(x, (top - first) * yScale);
+                started = true;
+            }
+            gc.lineTo(x, (top - columnMin[px]) * yScale);
+            gc.lineTo(x, (top - columnMax[px]) * yScale);
+            gc.lineTo(x, (top - last) * yScale);
+        }
+        gc.stroke();
+
+        gc.setFill(Color.web("#AAAAAA"));
+        gc.fillText(CustomColumn.formatNumber(high), 4, 12);
+        gc.fillText(CustomColumn.formatNumber(low), 4, height - 4);
+        double start = replay.startTimeMs();
+        gc.fillText(String.format("%.1f s", (viewStartMs - start) / 1000.0), 60, height - 4);
+        gc.fillText(String.format("%.1f s", (viewEndMs - start) / 1000.0), width - 50, height - 4);
+
+        drawPlayhead();
+    }
+
+    /** Fills the per-pixel arrays with the min, max, first and last value of the frames under each column. */
+    private void reduceColumns(int columns, int frames) {
+        if (columnMin.length < columns) {
+            columnMin = new float[columns];
+            columnMax = new float[columns];
+            columnFirst = new float[columns];
+            columnLast = new float[columns];
+        }
+        double msPerPixel = (viewEndMs - viewStartMs) / columns;
+        for (int px = 0; px < columns; px++) {
+            double t0 = viewStartMs + px * msPerPixel;
+            double t1 = t0 + msPerPixel;
+
+            // Frames with t0 <= time < t1
+            int from = timeIndex.frameAt(t0);
+            if (from >= 0 && replay.timeMs(from) < t0) from++;
+            int to = timeIndex.frameAt(t1);
+            if (to >= 0 && replay.timeMs(to) >= t1) to--;
+            to = Math.min(to, frames - 1);
+
+            if (from < 0 || from > to) {
+                columnMin[px] = Float.NaN;
+                continue;
+            }
+            pyramid.range(from, to, range);
+            columnMin[px] = range[0];
+            columnMax[px] = range[1];
+            columnFirst[px] = pyramid.value(from);
+            columnLast[px] = pyramid.value(to);
+        }
+    }
+
+    private void drawPlayhead() {
+        GraphicsContext gc = playheadCanvas.getGraphicsContext2D();
+        double height = playheadCanvas.getHeight();
+        double x = Double.isNaN(playheadMs) || viewEndMs <= viewStartMs ? -1
+                : Math.floor((playheadMs - viewStartMs) / (viewEndMs - viewStartMs) * plotCanvas.getWidth()) + 0.5;
+        if (x == playheadX) return;
+
+        // Clear only the strip the previous playhead covered
+        if (playheadX >= 0) {
+            gc.clearRect(playheadX - 2, 0, 4, height);
+        }
+        playheadX = x;
+        if (x < 0 || x > playheadCanvas.getWidth()) return;
+        gc.setStroke(Color.RED);
+        gc.setLineWidth(1);
+        gc.strokeLine(x, 0, x, height);
+    }
+}
@@ -0,0 +1,76 @@
+package org.nexus.ftc.replay;
+
+import javafx.scene.image.Image;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.LongPredicate;
+
+/**
+ * Least-recently-used thumbnails held within a byte budget. Images are counted
+ * at four bytes a pixel, and once the total is over budget the thumbnails used
+ * longest ago are dropped until it fits again. Keys are opaque longs chosen by
+ * the caller. Not thread-safe; the {@link Filmstrip} only touches it on the FX
+ * thread.
+ */
+final class ThumbnailCache {
+
+    private final long maxBytes;
+    // Access order: iteration starts at the least recently used entry
+    private final LinkedHashMap<Long, Image> images = new LinkedHashMap<>(64, 0.75f, true);
+    private long bytes;
+
+    ThumbnailCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /** The thumbnail for {@code key}, marking it as just used, or null. */
+    Image get(long key) {
+        return images.get(key);
+    }
+
+    void put(long key, Image image) {
+        Image previous = images.put(key, image);
+        if (previous != null) bytes -= bytesOf(previous);
+        bytes += bytesOf(image);
+
+        Iterator<Map.Entry<Long, Image>> eldest = images.entrySet().iterator();
+        while (bytes > maxBytes && eldest.hasNext()) {
+            Map.Entry<Long, Image> entry = eldest.next();
+            // Never evict what was just added, even if it alone is over budget
+            if (entry.getKey() == key) break;
+            bytes -= bytesOf(entry.getValue());
+            eldest.remove();
+        }
+    }
+
+    /** Drops every thumbnail whose key matches. */
+    void removeIf(LongPredicate matches) {
+        Iterator<Map.Entry<Long, Image>> it = images.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Long, Image> entry = it.next();
+            if (matches.test(entry.getKey())) {
+                bytes -= bytesOf(entry.getValue());
+                it.remove();
+            }
+        }
+    }
+
+    void clear() {
+        images.clear();
+        bytes = 0;
+    }
+
+    int size() {
+        return images.size();
+    }
+
+    long bytes() {
+        return bytes;
+    }
+
+    private static long bytesOf(Image image) {
+        return 4L * (long) image.getWidth() * (long) image.getHeight();
+    }
+}
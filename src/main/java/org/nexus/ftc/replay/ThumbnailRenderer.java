@@ -0,0 +1,200 @@
+package org.nexus.ftc.replay;
+
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.Path2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Small square pictures of the field at one moment of a replay: the robot's pose
+ * and its path so far, drawn off-screen through Java 2D like the
+ * {@link ReplayExporter}'s frames. The border around the field is cropped, so
+ * even a thumbnail the height of a toolbar is all field.
+ *
+ * <p>A renderer covers the frames the replay had when it was made; its
+ * trajectory and trail are built once and only read afterwards, so any number of
+ * threads may render at once. A growing replay is followed with {@link #extend},
+ * which copies them and catches the copies up with the new frames, so the old
+ * renderer keeps working meanwhile. The field background is painted once per
+ * size and shared between a renderer and its extensions.
+ */
+final class ThumbnailRenderer {
+
+    // Field, robot and arrow are laid out as on the exporter's default canvas, then scaled down
+    private static final double CANVAS_SIZE = ReplayExporter.DEFAULT_SIZE;
+    private static final double FIELD_PX = CANVAS_SIZE - 2 * FieldPainter.BORDER;
+
+    // Half a pixel of a large preview; finer than that is invisible in any thumbnail
+    private static final double TRAIL_TOLERANCE_INCHES = 0.25;
+    private static final double TRAIL_WIDTH_PX = 1.5;
+
+    private static BufferedImage fieldImage;
+
+    final Replay replay;
+    final long startMs;
+    final long endMs;
+    /** Frames covered; later frames of a growing replay need a new renderer. */
+    final int frames;
+    /**
+     * Time up to which thumbnails stay the same as the replay grows: the start
+     * of the last segment, whose curve still depends on the frame after it.
+     */
+    final long stableEndMs;
+    private final Trajectory trajectory;
+    private final PathTrail trail;
+    // Time of each trail vertex, so rendering never reads the replay while it changes
+    private final long[] trailTimes;
+    private final Color trailColor;
+    private final int robotColor;
+    private final Map<Integer, BufferedImage> backgrounds;
+
+    /** Builds the trajectory and trail of the frames the replay has so far; takes time proportional to them. */
+    ThumbnailRenderer(Replay replay, int robotColor) {
+        this(replay, robotColor, null);
+    }
+
+    private ThumbnailRenderer(Replay replay, int robotColor, ThumbnailRenderer previous) {
+        this.replay = replay;
+        this.frames = replay.frameCount();
+        this.startMs = replay.startTimeMs();
+        this.endMs = replay.timeMs(frames - 1);
+        this.stableEndMs = frames >= 2 ? replay.timeMs(frames - 2) : startMs;
+        int firstChanged;
+        if (previous == null) {
+            this.trajectory = Trajectory.build(replay);
+            this.trail = PathTrail.build(replay, TRAIL_TOLERANCE_INCHES, PathTrail.METRIC_NONE);
+            this.trailTimes = new long[trail.size];
+            this.backgrounds = new ConcurrentHashMap<>();
+            firstChanged = 0;
+        } else {
+            this.trajectory = previous.trajectory.copy();
+            trajectory.update();
+            this.trail = previous.trail.copy();
+            firstChanged = trail.extend(replay);
+            this.trailTimes = Arrays.copyOf(previous.trailTimes, trail.size);
+            this.backgrounds = previous.backgrounds;
+        }
+        for (int v = firstChanged; v < trail.size; v++) {
+            trailTimes[v] = replay.timeMs(trail.frames[v]);
+        }
+        this.robotColor = robotColor;
+        this.trailColor = new Color(robotColor);
+    }
+
+    /**
+     * A renderer for the frames the replay has now, taking time proportional to
+     * the frames added since this one was made. A replay that dropped frames from
+     * its start is built again from scratch.
+     */
+    ThumbnailRenderer extend() {
+        if (replay.startTimeMs() != startMs || replay.frameCount() < frames) {
+            return new ThumbnailRenderer(replay, robotColor);
+        }
+        return new ThumbnailRenderer(replay, robotColor, this);
+    }
+
+    /** The field at {@code timeMs}, clamped to the frames covered, as a {@code sizePx} square. */
+    WritableImage render(double timeMs, int sizePx) {
+        BufferedImage image = draw(timeMs, sizePx);
+        int[] argb = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        WritableImage thumbnail = new WritableImage(sizePx, sizePx);
+        thumbnail.getPixelWriter().setPixels(0, 0, sizePx, sizePx, PixelFormat.getIntArgbInstance(), argb, 0, sizePx);
+        return thumbnail;
+    }
+
+    /** {@link #render} as an ARGB Java 2D image. */
+    BufferedImage draw(double timeMs, int sizePx) {
+        double t = Math.max(startMs, Math.min(endMs, timeMs));
+        double[] pose = new double[3];
+        trajectory.poseAt(t, pose);
+
+        BufferedImage image = new BufferedImage(sizePx, sizePx, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = createGraphics(image);
+        try {
+            g.drawImage(background(sizePx), 0, 0, null);
+
+            // Trail in output pixels, so it stays visible at any size
+            double scale = sizePx / FieldPainter.FIELD_SIZE_INCHES;
+            int vertices = verticesBefore(t);
+            if (vertices > 0) {
+                Path2D.Double path = new Path2D.Double();
+                path.moveTo(trail.x[0] * scale, sizePx - trail.y[0] * scale);
+                for (int v = 1; v < vertices; v++) {
+                    path.lineTo(trail.x[v] * scale, sizePx - trail.y[v] * scale);
+                }
+                path.lineTo(pose[0] * scale, sizePx - pose[1] * scale);
+                g.setColor(trailColor);
+                g.setStroke(new BasicStroke((float) TRAIL_WIDTH_PX, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
+                g.draw(path);
+            }
+
+            toCanvas(g, sizePx);
+            double canvasScale = FieldPainter.scale(CANVAS_SIZE);
+            new FieldPainter(new ReplayExporter.AwtSurface(g, null)).paintRobot(
+                    FieldPainter.BORDER + pose[0] * canvasScale,
+                    CANVAS_SIZE - FieldPainter.BORDER - pose[1] * canvasScale,
+                    pose[2], FieldPainter.ROBOT_SIZE_INCHES * canvasScale, robotColor);
+        } finally {
+            g.dispose();
+        }
+        return image;
+    }
+
+    /** Trail vertices logged no later than {@code timeMs}. */
+    private int verticesBefore(double timeMs) {
+        int i = Arrays.binarySearch(trailTimes, (long) Math.floor(timeMs));
+        if (i < 0) return -i - 1;
+        // Several vertices can share a timestamp; take them all
+        while (i + 1 < trailTimes.length && trailTimes[i + 1] == trailTimes[i]) i++;
+        return i + 1;
+    }
+
+    private BufferedImage background(int sizePx) {
+        return backgrounds.computeIfAbsent(sizePx, size -> {
+            BufferedImage image = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+            Graphics2D g = createGraphics(image);
+            toCanvas(g, size);
+            new FieldPainter(new ReplayExporter.AwtSurface(g, fieldImage())).paintField(CANVAS_SIZE, CANVAS_SIZE);
+            g.dispose();
+            return image;
+        });
+    }
+
+    /** Maps the field part of the exporter's canvas onto the whole thumbnail. */
+    private static void toCanvas(Graphics2D g, int sizePx) {
+        g.scale(sizePx / FIELD_PX, sizePx / FIELD_PX);
+        g.translate(-FieldPainter.BORDER, -FieldPainter.BORDER);
+    }
+
+    private static Graphics2D createGraphics(BufferedImage image) {
+        Graphics2D g = image.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        return g;
+    }
+
+    private static synchronized BufferedImage fieldImage() {
+        if (fieldImage == null) {
+            try (InputStream in = ThumbnailRenderer.class.getResourceAsStream("/field_background.png")) {
+                fieldImage = in != null ? ImageIO.read(in) : null;
+            } catch (IOException e) {
+                System.err.println("Could not read field image: " + e.getMessage());
+            }
+        }
+        return fieldImage;
+    }
+}
@@ -0,0 +1,105 @@
+package org.nexus.ftc.replay;
+
+import java.util.Arrays;
+
+/**
+ * Maps match time to frame indices by binary search over frame timestamps, so
+ * seeking costs O(log n) however unevenly the frames are spaced.
+ *
+ * <p>Every {@link #BLOCK_SIZE}th timestamp is copied into a small skip array.
+ * A lookup searches the skip array first and then a single block, which keeps a
+ * seek in a memory-mapped replay down to a handful of page touches. The index
+ * grows with the replay while it is still loading, and starts over if the
+ * replay drops its oldest frames. Not thread-safe; give each
+ * thread its own index.
+ */
+final class TimeIndex {
+
+    static final int BLOCK_SIZE = 1024;
+
+    private final Replay replay;
+    private long[] blockStarts = new long[16];
+    private int blockCount;
+
+    // Last answer, so sequential playback usually finds its frame in O(1)
+    private int hint;
+
+    TimeIndex(Replay replay) {
+        this.replay = replay;
+    }
+
+    Replay replay() {
+        return replay;
+    }
+
+    /**
+     * The last frame whose timestamp is at or before {@code timeMs}, clamped to
+     * the first and last frame. Returns -1 for an empty replay.
+     */
+    int frameAt(double timeMs) {
+        int count = replay.frameCount();
+        if (count == 0) return -1;
+
+        // Playback moves forward a frame or two per tick
+        int h = Math.min(hint, count - 1);
+        if (replay.timeMs(h) <= timeMs) {
+            for (int i = h; i < h + 2 && i < count; i++) {
+                if (i == count - 1 || replay.timeMs(i + 1) > timeMs) {
+                    return hint = i;
+                }
+            }
+        }
+        return hint = search(timeMs, count);
+    }
+
+    private int search(double timeMs, int count) {
+        if (timeMs < replay.timeMs(0)) return 0;
+        extendBlocks(count);
+
+        // Find the block, then search inside it
+        int block = Arrays.binarySearch(blockStarts, 0, blockCount, (long) Math.floor(timeMs));
+        if (block < 0) {
+            block = -block - 2;
+        } else {
+            // Equal timestamps can span blocks; the answer is in the last of them
+            while (block < blockCount - 1 && blockStarts[block + 1] == blockStarts[block]) block++;
+        }
+        int low = block * BLOCK_SIZE;
+        int high = Math.min(low + BLOCK_SIZE, count) - 1;
+
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (replay.timeMs(mid) <= timeMs) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    private void extendBlocks(int count) {
+        int needed = (count + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        // Frames were discarded from the front (a live session); index them again
+        if (blockCount > 0 && (needed < blockCount || blockStarts[0] != replay.timeMs(0))) {
+            blockCount = 0;
+        }
+        if (needed <= blockCount) return;
+        if (needed > blockStarts.length) {
+            blockStarts = Arrays.copyOf(blockStarts, Math.max(needed, blockStarts.length * 2));
+        }
+        for (int b = blockCount; b < needed; b++) {
+            blockStarts[b] = replay.timeMs(b * BLOCK_SIZE);
+        }
+        blockCount = needed;
+    }
+
+    /** Position of {@code timeMs} between frame {@code frame} and the next one, in [0, 1]. */
+    double fraction(int frame, double timeMs) {
+        if (frame < 0 || frame >= replay.frameCount() - 1) return 0;
+        long t0 = replay.timeMs(frame);
+        long t1 = replay.timeMs(frame + 1);
+        if (t1 <= t0) return 0;
+        return Math.max(0, Math.min(1, (timeMs - t0) / (t1 - t0)));
+    }
+}
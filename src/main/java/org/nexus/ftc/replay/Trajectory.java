@@ -0,0 +1,401 @@
+package org.nexus.ftc.replay;
+
+import java.util.Arrays;
+
+/**
+ * A replay's path as a smooth curve, resampled once onto an even time grid so a
+ * pose at any match time costs the same few multiplies wherever it lands.
+ *
+ * <p>The raw frames are joined by a cubic Hermite spline with Catmull-Rom
+ * tangents scaled for uneven frame spacing. Heading takes the shorter way round
+ * between frames. The spline's value and slope are stored at every grid point,
+ * and {@link #poseAt} interpolates between the two grid points around the
+ * requested time. The grid step is half the typical frame interval, so the
+ * resampling error is far below what can be seen.
+ *
+ * <p>A pause between frames longer than {@link #MAX_GAP_STEPS} grid steps is
+ * squeezed to that many, so the grid grows with the frame count rather than the
+ * time span: a stalled logger, or one frame stamped with epoch time in a
+ * match-relative log, costs a few grid points instead of billions.
+ *
+ * <p>A replay that is still growing is followed with {@link #update}, which
+ * only recomputes the grid after the last complete segment. Not thread-safe
+ * while updating; a trajectory that is no longer updated may be read from any
+ * number of threads.
+ */
+final class Trajectory {
+
+    static final double MIN_STEP_MS = 2;
+    static final double MAX_STEP_MS = 50;
+    static final int MAX_GAP_STEPS = 64;
+
+    // Frame intervals sampled to estimate the typical one
+    private static final int INTERVAL_SAMPLES = 4096;
+
+    private final Replay replay;
+    private final TimeIndex timeIndex;
+    final double stepMs;
+
+    private long startMs;
+    private int sourceFrames;
+    private int size;
+
+    // Value and slope (per ms) at each grid point; heading is kept in [0, 360)
+    private float[] x = new float[0];
+    private float[] y = new float[0];
+    private float[] heading = new float[0];
+    private float[] dx = new float[0];
+    private float[] dy = new float[0];
+    private float[] dHeading = new float[0];
+
+    // Squeezed gaps, in time order: where each starts and ends, and its start in grid steps
+    private long[] gapStartMs = new long[0];
+    private long[] gapEndMs = new long[0];
+    private double[] gapGrid = new double[0];
+    private int gapCount;
+    // Frames searched for gaps so far
+    private int gapFrames;
+
+    // Source segment being resampled: end values and tangents, heading unwrapped from the segment start
+    private int segment = -1;
+    private long t0;
+    private long t1;
+    private final double[] p0 = new double[3];
+    private final double[] p1 = new double[3];
+    private final double[] m0 = new double[3];
+    private final double[] m1 = new double[3];
+    private final double[] value = new double[3];
+    private final double[] slope = new double[3];
+
+    private Trajectory(Replay replay, double stepMs) {
+        this.replay = replay;
+        this.timeIndex = new TimeIndex(replay);
+        this.stepMs = stepMs;
+    }
+
+    static Trajectory build(Replay replay) {
+        Trajectory trajectory = new Trajectory(replay, chooseStep(replay));
+        trajectory.resample(0);
+        return trajectory;
+    }
+
+    /** An independent copy, to {@link #update} while this one is still being read. */
+    Trajectory copy() {
+        Trajectory copy = new Trajectory(replay, stepMs);
+        copy.startMs = startMs;
+        copy.sourceFrames = sourceFrames;
+        copy.size = size;
+        copy.x = Arrays.copyOf(x, x.length);
+        copy.y = Arrays.copyOf(y, y.length);
+        copy.heading = Arrays.copyOf(heading, heading.length);
+        copy.dx = Arrays.copyOf(dx, dx.length);
+        copy.dy = Arrays.copyOf(dy, dy.length);
+        copy.dHeading = Arrays.copyOf(dHeading, dHeading.length);
+        copy.gapStartMs = Arrays.copyOf(gapStartMs, gapStartMs.length);
+        copy.gapEndMs = Arrays.copyOf(gapEndMs, gapEndMs.length);
+        copy.gapGrid = Arrays.copyOf(gapGrid, gapGrid.length);
+        copy.gapCount = gapCount;
+        copy.gapFrames = gapFrames;
+        return copy;
+    }
+
+    /** Half the median frame interval, within {@link #MIN_STEP_MS} and {@link #MAX_STEP_MS}. */
+    static double chooseStep(Replay replay) {
+        int count = replay.frameCount();
+        if (count < 2) return MAX_STEP_MS;
+
+        int samples = Math.min(INTERVAL_SAMPLES, count - 1);
+        long[] intervals = new long[samples];
+        for (int i = 0; i < samples; i++) {
+            int frame = (int) ((long) i * (count - 1) / samples);
+            intervals[i] = replay.timeMs(frame + 1) - replay.timeMs(frame);
+        }
+        Arrays.sort(intervals);
+        return Math.max(MIN_STEP_MS, Math.min(MAX_STEP_MS, intervals[samples / 2] / 2.0));
+    }
+
+    /**
+     * Catches up with frames added since the last update, or starts over if the
+     * replay dropped frames from its start.
+     *
+     * @return whether the grid changed
+     */
+    boolean update() {
+        int count = replay.frameCount();
+        boolean sameStart = count > 0 && replay.timeMs(0) == startMs;
+        if (count == sourceFrames && (count == 0 || sameStart)) return false;
+
+        if (count < sourceFrames || !sameStart || sourceFrames < 2) {
+            resample(0);
+        } else {
+            // The last old segment's end tangent was one-sided; it and everything after changes
+            long changedMs = replay.timeMs(sourceFrames - 2);
+            resample((int) Math.max(0, Math.floor(gridAt(changedMs))));
+        }
+        return true;
+    }
+
+    /** The replay this follows. */
+    Replay replay() {
+        return replay;
+    }
+
+    /** Match time range covered, from the first frame to the last. */
+    long startMs() {
+        return startMs;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Writes the pose at {@code timeMs} into {@code out} as x, y and heading in
+     * [0, 360). Times outside the replay give its first or last pose. Does not
+     * allocate.
+     */
+    void poseAt(double timeMs, double[] out) {
+        double g = gridAt(timeMs);
+        int k;
+        double s;
+        if (size < 2 || g <= 0) {
+            k = 0;
+            s = 0;
+        } else if (g >= size - 1) {
+            k = size - 2;
+            s = 1;
+        } else {
+            k = (int) g;
+            s = g - k;
+        }
+        if (size < 2) {
+            out[0] = x[0];
+            out[1] = y[0];
+            out[2] = heading[0];
+            return;
+        }
+
+        double s2 = s * s;
+        double s3 = s2 * s;
+        double h00 = 2 * s3 - 3 * s2 + 1;
+        double h10 = (s3 - 2 * s2 + s) * stepMs;
+        double h01 = -2 * s3 + 3 * s2;
+        double h11 = (s3 - s2) * stepMs;
+
+        out[0] = h00 * x[k] + h10 * dx[k] + h01 * x[k + 1] + h11 * dx[k + 1];
+        out[1] = h00 * y[k] + h10 * dy[k] + h01 * y[k + 1] + h11 * dy[k + 1];
+        double a = heading[k];
+        double b = a + shortestArc(a, heading[k + 1]);
+        out[2] = normalize(h00 * a + h10 * dHeading[k] + h01 * b + h11 * dHeading[k + 1]);
+    }
+
+    /** Signed change from {@code a} to {@code b} degrees the shorter way round, in [-180, 180). */
+    static double shortestArc(double a, double b) {
+        return ((b - a) % 360 + 540) % 360 - 180;
+    }
+
+    static double normalize(double degrees) {
+        return ((degrees % 360) + 360) % 360;
+    }
+
+    /** Recomputes grid points from {@code fromGrid} to the end of the replay. */
+    private void resample(int fromGrid) {
+        int count = replay.frameCount();
+        sourceFrames = count;
+        segment = -1;
+        if (count == 0) {
+            size = 0;
+            return;
+        }
+        if (fromGrid == 0 || replay.timeMs(0) != startMs) {
+            gapCount = 0;
+            gapFrames = 0;
+        }
+        startMs = replay.timeMs(0);
+        long endMs = replay.timeMs(count - 1);
+        findGaps(count);
+
+        // One grid point at or past the last frame, so every time in range has a point on each side
+        int newSize = Math.max(1, (int) Math.ceil(gridAt(endMs)) + 1);
+        if (newSize > x.length) {
+            int capacity = Math.max(newSize, x.length + (x.length >> 1));
+            x = Arrays.copyOf(x, capacity);
+            y = Arrays.copyOf(y, capacity);
+            heading = Arrays.copyOf(heading, capacity);
+            dx = Arrays.copyOf(dx, capacity);
+            dy = Arrays.copyOf(dy, capacity);
+            dHeading = Arrays.copyOf(dHeading, capacity);
+        }
+        size = newSize;
+
+        int frame = -1;
+        for (int k = Math.min(fromGrid, newSize - 1); k < newSize; k++) {
+            double t = timeAtGrid(k);
+            frame = frame < 0 ? timeIndex.frameAt(t) : advance(frame, t, count);
+            evaluate(Math.min(frame, Math.max(0, count - 2)), t, count);
+            // Slopes are per ms of an ordinary step; inside a squeezed gap a step covers more time
+            double stretch = stepAt(k) / stepMs;
+            x[k] = (float) value[0];
+            y[k] = (float) value[1];
+            heading[k] = (float) normalize(value[2]);
+            dx[k] = (float) (slope[0] * stretch);
+            dy[k] = (float) (slope[1] * stretch);
+            dHeading[k] = (float) (slope[2] * stretch);
+        }
+    }
+
+    /** Records the gaps too long to grid evenly among frames not searched yet. */
+    private void findGaps(int count) {
+        double maxGapMs = MAX_GAP_STEPS * stepMs;
+        for (int i = Math.max(1, gapFrames); i < count; i++) {
+            long from = replay.timeMs(i - 1);
+            long to = replay.timeMs(i);
+            if (to - from <= maxGapMs) continue;
+            if (gapCount == gapStartMs.length) {
+                int capacity = Math.max(4, gapCount * 2);
+                gapStartMs = Arrays.copyOf(gapStartMs, capacity);
+                gapEndMs = Arrays.copyOf(gapEndMs, capacity);
+                gapGrid = Arrays.copyOf(gapGrid, capacity);
+            }
+            gapGrid[gapCount] = gridAt(from);
+            gapStartMs[gapCount] = from;
+            gapEndMs[gapCount] = to;
+            gapCount++;
+        }
+        gapFrames = Math.max(gapFrames, count);
+    }
+
+    /** Position of {@code timeMs} on the grid, in steps from the first frame. */
+    private double gridAt(double timeMs) {
+        int i = lastGapStartingBy(timeMs);
+        if (i < 0) return (timeMs - startMs) / stepMs;
+        if (timeMs >= gapEndMs[i]) return gapGrid[i] + MAX_GAP_STEPS + (timeMs - gapEndMs[i]) / stepMs;
+        return gapGrid[i] + (timeMs - gapStartMs[i]) * MAX_GAP_STEPS / (gapEndMs[i] - gapStartMs[i]);
+    }
+
+    /** Inverse of {@link #gridAt}. */
+    private double timeAtGrid(double g) {
+        int i = lastGapOnGridBy(g);
+        if (i < 0) return startMs + g * stepMs;
+        if (g >= gapGrid[i] + MAX_GAP_STEPS) return gapEndMs[i] + (g - gapGrid[i] - MAX_GAP_STEPS) * stepMs;
+        return gapStartMs[i] + (g - gapGrid[i]) * (gapEndMs[i] - gapStartMs[i]) / MAX_GAP_STEPS;
+    }
+
+    /** Index of the last gap starting at or before {@code timeMs}, or -1. */
+    private int lastGapStartingBy(double timeMs) {
+        int lo = 0;
+        int hi = gapCount;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (gapStartMs[mid] <= timeMs) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo - 1;
+    }
+
+    /** Index of the last gap starting at or before grid position {@code g}, or -1. */
+    private int lastGapOnGridBy(double g) {
+        int lo = 0;
+        int hi = gapCount;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (gapGrid[mid] <= g) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo - 1;
+    }
+
+    /** Milliseconds one grid step covers at grid point {@code k}. */
+    private double stepAt(int k) {
+        int i = lastGapOnGridBy(k);
+        if (i < 0 || k >= gapGrid[i] + MAX_GAP_STEPS) return stepMs;
+        return (gapEndMs[i] - gapStartMs[i]) / (double) MAX_GAP_STEPS;
+    }
+
+    private int advance(int frame, double t, int count) {
+        while (frame < count - 1 && replay.timeMs(frame + 1) <= t) frame++;
+        return frame;
+    }
+
+    /** Value and slope of the source spline at {@code t}, continuing in a straight line past the last frame. */
+    private void evaluate(int j, double t, int count) {
+        if (j != segment) loadSegment(j, count);
+
+        double h = t1 - t0;
+        if (h <= 0) {
+            for (int c = 0; c < 3; c++) {
+                value[c] = p0[c];
+                slope[c] = 0;
+            }
+            return;
+        }
+        if (t >= t1) {
+            for (int c = 0; c < 3; c++) {
+                value[c] = p1[c] + m1[c] * (t - t1);
+                slope[c] = m1[c];
+            }
+            return;
+        }
+
+        double s = Math.max(0, (t - t0) / h);
+        double s2 = s * s;
+        double s3 = s2 * s;
+        double h00 = 2 * s3 - 3 * s2 + 1;
+        double h10 = (s3 - 2 * s2 + s) * h;
+        double h01 = -2 * s3 + 3 * s2;
+        double h11 = (s3 - s2) * h;
+        double d00 = (6 * s2 - 6 * s) / h;
+        double d10 = 3 * s2 - 4 * s + 1;
+        double d01 = (-6 * s2 + 6 * s) / h;
+        double d11 = 3 * s2 - 2 * s;
+        for (int c = 0; c < 3; c++) {
+            value[c] = h00 * p0[c] + h10 * m0[c] + h01 * p1[c] + h11 * m1[c];
+            slope[c] = d00 * p0[c] + d10 * m0[c] + d01 * p1[c] + d11 * m1[c];
+        }
+    }
+
+    /** Loads frames j - 1 to j + 2 and the Catmull-Rom tangents at both ends of segment j. */
+    private void loadSegment(int j, int count) {
+        segment = j;
+        int next = Math.min(j + 1, count - 1);
+        int before = Math.max(j - 1, 0);
+        int after = Math.min(j + 2, count - 1);
+        t0 = replay.timeMs(j);
+        t1 = replay.timeMs(next);
+        long tBefore = replay.timeMs(before);
+        long tAfter = replay.timeMs(after);
+
+        p0[0] = replay.x(j);
+        p0[1] = replay.y(j);
+        p1[0] = replay.x(next);
+        p1[1] = replay.y(next);
+        double xBefore = replay.x(before);
+        double yBefore = replay.y(before);
+        double xAfter = replay.x(after);
+        double yAfter = replay.y(after);
+
+        // Heading unwrapped so the four frames have no jumps of 360
+        double h = replay.heading(j);
+        p0[2] = h;
+        p1[2] = h + shortestArc(h, replay.heading(next));
+        double hBefore = h - shortestArc(replay.heading(before), h);
+        double hAfter = p1[2] + shortestArc(p1[2], replay.heading(after));
+
+        m0[0] = tangent(xBefore, p1[0], tBefore, t1);
+        m0[1] = tangent(yBefore, p1[1], tBefore, t1);
+        m0[2] = tangent(hBefore, p1[2], tBefore, t1);
+        m1[0] = tangent(p0[0], xAfter, t0, tAfter);
+        m1[1] = tangent(p0[1], yAfter, t0, tAfter);
+        m1[2] = tangent(p0[2], hAfter, t0, tAfter);
+    }
+
+    private static double tangent(double from, double to, long fromMs, long toMs) {
+        return toMs > fromMs ? (to - from) / (toMs - fromMs) : 0;
+    }
+}
@@ -0,0 +1,119 @@
+package org.nexus.ftc.replay;
+
+import java.util.Arrays;
+
+/**
+ * Minimum and maximum of one column over each block of {@link #BLOCK_SIZE}
+ * frames, so a {@link FrameQuery} can decide a whole block from two numbers.
+ * Numeric and boolean columns are summarized by value; in-memory text columns
+ * by dictionary code, which is enough to rule blocks in or out for equality.
+ * Other text columns are not summarized and every block reads as unknown.
+ *
+ * <p>Only complete blocks are summarized. {@link #update} adds blocks
+ * completed since the last call and starts over if the replay dropped frames
+ * from its start. Not thread-safe; give each thread its own maps.
+ */
+final class ZoneMap {
+
+    static final int BLOCK_SIZE = TimeIndex.BLOCK_SIZE;
+
+    final Replay replay;
+    final CustomColumn column;
+    // Text columns are summarized by dictionary code; 0 marks a missing value
+    private final boolean codes;
+
+    private double[] min = new double[0];
+    private double[] max = new double[0];
+    // Whether every frame in the block has a value
+    private boolean[] full = new boolean[0];
+    private int blockCount;
+    private long startMs;
+
+    ZoneMap(Replay replay, CustomColumn column) {
+        this.replay = replay;
+        this.column = column;
+        this.codes = column instanceof CustomColumn.Text;
+    }
+
+    /** Whether the column is summarized at all. */
+    boolean summarizes() {
+        return column.kind() != CustomColumn.Kind.TEXT || codes;
+    }
+
+    /** Whether the summaries are dictionary codes rather than values. */
+    boolean byCode() {
+        return codes;
+    }
+
+    void update() {
+        if (!summarizes()) return;
+        int count = replay.frameCount();
+        if (count == 0 || replay.timeMs(0) != startMs || count < blockCount * BLOCK_SIZE) {
+            blockCount = 0;
+            startMs = count > 0 ? replay.timeMs(0) : 0;
+        }
+
+        int blocks = count / BLOCK_SIZE;
+        if (blocks > min.length) {
+            int capacity = Math.max(blocks, min.length * 2);
+            min = Arrays.copyOf(min, capacity);
+            max = Arrays.copyOf(max, capacity);
+            full = Arrays.copyOf(full, capacity);
+        }
+        for (int b = blockCount; b < blocks; b++) {
+            summarize(b);
+        }
+        blockCount = blocks;
+    }
+
+    private void summarize(int block) {
+        int from = block * BLOCK_SIZE;
+        int to = from + BLOCK_SIZE;
+        double lo = Double.POSITIVE_INFINITY;
+        double hi = Double.NEGATIVE_INFINITY;
+        boolean all = true;
+        if (codes) {
+            CustomColumn.Text text = (CustomColumn.Text) column;
+            for (int f = from; f < to; f++) {
+                int code = text.code(f);
+                if (code == 0) {
+                    all = false;
+                } else {
+                    lo = Math.min(lo, code);
+                    hi = Math.max(hi, code);
+                }
+            }
+        } else {
+            for (int f = from; f < to; f++) {
+                double v = column.number(f);
+                if (Double.isNaN(v)) {
+                    all = false;
+                } else {
+                    if (v < lo) lo = v;
+                    if (v > hi) hi = v;
+                }
+            }
+        }
+        min[block] = lo;
+        max[block] = hi;
+        full[block] = all;
+    }
+
+    /** Complete blocks summarized as of the last update. */
+    int blockCount() {
+        return blockCount;
+    }
+
+    /** Smallest value in the block; greater than {@link #max} when the block has no values. */
+    double min(int block) {
+        return min[block];
+    }
+
+    double max(int block) {
+        return max[block];
+    }
+
+    boolean full(int block) {
+        return full[block];
+    }
+}